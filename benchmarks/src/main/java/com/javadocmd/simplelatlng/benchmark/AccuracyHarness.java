@@ -0,0 +1,278 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+
+import com.javadocmd.simplelatlng.CompactLatLng;
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+import com.javadocmd.simplelatlng.window.CircularWindow;
+
+/**
+ * <p>
+ * Measures the error of each distance calculation against a high-precision
+ * reference, with its throughput, and the false positive and negative rates of
+ * {@link CircularWindow#contains(LatLng)}, over reproducible point pairs in
+ * every combination of distance band and latitude band. Writes a CSV report.
+ * </p>
+ * <p>
+ * Pair coordinates lie on the 1e-6 degree grid of {@link LatLng}, so the
+ * errors of LatLng-based calculations are those of the formulas alone. The
+ * reference is the vector formula <code>atan2(|a x b|, a . b)</code> on unit
+ * vectors, which is well conditioned at every distance including antipodes.
+ * Cheaper formulas the library does not use are included as candidates, to
+ * quantify them before any switch. Throughput is a simple timed loop after
+ * warmup, for comparison between rows only; use the JMH suite for trustworthy
+ * absolute numbers.
+ * </p>
+ * <p>
+ * Usage: <code>AccuracyHarness [report.csv] [pairsPerCell] [seed]</code>;
+ * the report goes to standard out if no file is given.
+ * </p>
+ */
+public class AccuracyHarness {
+
+	/** Distance bands in meters, as lower and upper bounds. */
+	static final double[][] DISTANCE_BANDS = { { 0.01, 1 }, { 1, 100 }, { 100, 10000 }, { 10000, 1000000 },
+			{ 1000000, 19000000 }, { 19000000, 20015000 } };
+
+	static final String[] DISTANCE_NAMES = { "0-1m", "1-100m", "100m-10km", "10-1000km", "1000-19000km",
+			"near-antipodal" };
+
+	enum LatitudeBand {
+		EQUATORIAL, MID, HIGH, POLAR, ANTIMERIDIAN;
+
+		/** A starting point in this band, on the 1e-6 degree grid. */
+		double[] start(Random r) {
+			switch (this) {
+			case EQUATORIAL:
+				return new double[] { snap(r.nextDouble() * 60 - 30), snap(r.nextDouble() * 360 - 180) };
+			case MID:
+				return new double[] { snap(sign(r) * (30 + r.nextDouble() * 30)), snap(r.nextDouble() * 360 - 180) };
+			case HIGH:
+				return new double[] { snap(sign(r) * (60 + r.nextDouble() * 29.9)), snap(r.nextDouble() * 360 - 180) };
+			case POLAR:
+				return new double[] { snap(sign(r) * (90 - r.nextDouble() * 0.01)), snap(r.nextDouble() * 360 - 180) };
+			default:
+				return new double[] { snap(r.nextDouble() * 160 - 80), snap(sign(r) * (180 - r.nextDouble() * 0.001)) };
+			}
+		}
+
+		private static double sign(Random r) {
+			return r.nextBoolean() ? 1 : -1;
+		}
+	}
+
+	/** A distance calculation under test, in meters. */
+	interface Method {
+		double meters(double lat1, double lng1, double lat2, double lng2);
+	}
+
+	static final String[] METHOD_NAMES = { "LatLngTool.distance", "LatLngTool.distanceInRadians(double...)",
+			"CompactLatLng E5", "CompactLatLng E7", "candidate: spherical law of cosines",
+			"candidate: equirectangular" };
+
+	static final Method[] METHODS = {
+			(lat1, lng1, lat2, lng2) -> LatLngTool.distance(new LatLng(lat1, lng1), new LatLng(lat2, lng2),
+					LengthUnit.METER),
+			(lat1, lng1, lat2, lng2) -> LatLngTool.distanceInRadians(lat1, lng1, lat2, lng2) * radius(),
+			(lat1, lng1, lat2, lng2) -> LatLngTool.distance(new CompactLatLng(lat1, lng1, DegreePrecision.E5),
+					new CompactLatLng(lat2, lng2, DegreePrecision.E5), LengthUnit.METER),
+			(lat1, lng1, lat2, lng2) -> LatLngTool.distance(new CompactLatLng(lat1, lng1, DegreePrecision.E7),
+					new CompactLatLng(lat2, lng2, DegreePrecision.E7), LengthUnit.METER),
+			AccuracyHarness::lawOfCosines, AccuracyHarness::equirectangular };
+
+	/** Keeps the timed results alive so the JIT cannot discard the work. */
+	static volatile double sink;
+
+	static double radius() {
+		return LatLngConfig.getEarthRadius(LengthUnit.METER);
+	}
+
+	static double snap(double degrees) {
+		return Math.round(degrees * 1e6) / 1e6;
+	}
+
+	/**
+	 * The reference distance in meters between two points, from the angle
+	 * between their unit vectors.
+	 */
+	static double reference(double lat1, double lng1, double lat2, double lng2) {
+		double[] a = vector(lat1, lng1);
+		double[] b = vector(lat2, lng2);
+		double cx = a[1] * b[2] - a[2] * b[1];
+		double cy = a[2] * b[0] - a[0] * b[2];
+		double cz = a[0] * b[1] - a[1] * b[0];
+		double dot = a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+		return Math.atan2(Math.sqrt(cx * cx + cy * cy + cz * cz), dot) * radius();
+	}
+
+	static double[] vector(double lat, double lng) {
+		double phi = Math.toRadians(lat);
+		double lambda = Math.toRadians(lng);
+		return new double[] { Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi) };
+	}
+
+	/**
+	 * The point at an angular distance and bearing from a start point, by
+	 * rotating the start vector; the result is snapped to the 1e-6 degree grid.
+	 */
+	static double[] destination(double lat, double lng, double bearingDegrees, double radians) {
+		double[] p = vector(lat, lng);
+		// East and north unit vectors at the start point.
+		double lambda = Math.toRadians(lng);
+		double phi = Math.toRadians(lat);
+		double[] east = { -Math.sin(lambda), Math.cos(lambda), 0 };
+		double[] north = { -Math.sin(phi) * Math.cos(lambda), -Math.sin(phi) * Math.sin(lambda), Math.cos(phi) };
+		double theta = Math.toRadians(bearingDegrees);
+		double[] d = new double[3];
+		for (int i = 0; i < 3; i++)
+			d[i] = Math.cos(radians) * p[i]
+					+ Math.sin(radians) * (Math.cos(theta) * north[i] + Math.sin(theta) * east[i]);
+		double outLat = Math.toDegrees(Math.atan2(d[2], Math.hypot(d[0], d[1])));
+		double outLng = Math.toDegrees(Math.atan2(d[1], d[0]));
+		return new double[] { snap(outLat), snap(outLng) };
+	}
+
+	static double lawOfCosines(double lat1, double lng1, double lat2, double lng2) {
+		double phi1 = Math.toRadians(lat1);
+		double phi2 = Math.toRadians(lat2);
+		double c = Math.sin(phi1) * Math.sin(phi2)
+				+ Math.cos(phi1) * Math.cos(phi2) * Math.cos(Math.toRadians(lng2 - lng1));
+		return Math.acos(Math.max(-1, Math.min(1, c))) * radius();
+	}
+
+	static double equirectangular(double lat1, double lng1, double lat2, double lng2) {
+		double dLng = lng2 - lng1;
+		if (dLng > 180)
+			dLng -= 360;
+		else if (dLng < -180)
+			dLng += 360;
+		double x = Math.toRadians(dLng) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+		double y = Math.toRadians(lat2 - lat1);
+		return Math.sqrt(x * x + y * y) * radius();
+	}
+
+	public static void main(String[] args) throws IOException {
+		int pairs = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 20100101L;
+		try (PrintStream out = args.length > 0
+				? new PrintStream(Files.newOutputStream(Paths.get(args[0])), false, StandardCharsets.UTF_8.name())
+				: System.out) {
+			run(out, pairs, seed);
+		}
+	}
+
+	static void run(PrintStream out, int pairs, long seed) {
+		out.println("kind,method,distance_band,latitude_band,pairs,max_error_m,mean_error_m,max_relative_error,"
+				+ "ops_per_sec,false_positive_rate,false_negative_rate");
+		Random r = new Random(seed);
+		for (int d = 0; d < DISTANCE_BANDS.length; d++) {
+			for (LatitudeBand band : LatitudeBand.values()) {
+				double[][] points = new double[pairs][];
+				double[] references = new double[pairs];
+				for (int i = 0; i < pairs; i++) {
+					double[] start = band.start(r);
+					double meters = DISTANCE_BANDS[d][0] + r.nextDouble() * (DISTANCE_BANDS[d][1] - DISTANCE_BANDS[d][0]);
+					double[] end = destination(start[0], start[1], r.nextDouble() * 360, meters / radius());
+					points[i] = new double[] { start[0], start[1], end[0], end[1] };
+					references[i] = reference(start[0], start[1], end[0], end[1]);
+				}
+				for (int m = 0; m < METHODS.length; m++)
+					distanceRow(out, METHOD_NAMES[m], METHODS[m], DISTANCE_NAMES[d], band, points, references);
+				windowRows(out, DISTANCE_NAMES[d], band, points, references, r);
+			}
+		}
+	}
+
+	private static void distanceRow(PrintStream out, String name, Method method, String distanceBand,
+			LatitudeBand band, double[][] points, double[] references) {
+		double max = 0;
+		double sum = 0;
+		double maxRelative = 0;
+		for (int i = 0; i < points.length; i++) {
+			double[] p = points[i];
+			double error = Math.abs(method.meters(p[0], p[1], p[2], p[3]) - references[i]);
+			max = Math.max(max, error);
+			sum += error;
+			if (references[i] > 0)
+				maxRelative = Math.max(maxRelative, error / references[i]);
+		}
+		out.println(String.format(Locale.ROOT, "distance,%s,%s,%s,%d,%.6g,%.6g,%.6g,%.0f,,", name, distanceBand, band,
+				points.length, max, sum / points.length, maxRelative, throughput(method, points)));
+	}
+
+	private static double throughput(Method method, double[][] points) {
+		double sink = 0;
+		// Warm up, then time whole passes until enough time has passed.
+		for (int pass = 0; pass < 5; pass++)
+			for (double[] p : points)
+				sink += method.meters(p[0], p[1], p[2], p[3]);
+		long calls = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			for (double[] p : points)
+				sink += method.meters(p[0], p[1], p[2], p[3]);
+			calls += points.length;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < 100000000L);
+		AccuracyHarness.sink = sink;
+		return calls * 1e9 / elapsed;
+	}
+
+	/**
+	 * Window rates for random radii within the distance band, and for radii
+	 * within 0.01% of each pair's reference distance, where errors show.
+	 */
+	private static void windowRows(PrintStream out, String distanceBand, LatitudeBand band, double[][] points,
+			double[] references, Random r) {
+		for (boolean boundary : new boolean[] { false, true }) {
+			int falsePositives = 0;
+			int falseNegatives = 0;
+			int inside = 0;
+			for (int i = 0; i < points.length; i++) {
+				double[] p = points[i];
+				double radius = boundary ? references[i] * (1 + (r.nextDouble() * 2 - 1) * 1e-4)
+						: references[i] * r.nextDouble() * 2;
+				boolean truth = references[i] <= radius;
+				boolean contained = new CircularWindow(new LatLng(p[0], p[1]), radius, LengthUnit.METER)
+						.contains(new LatLng(p[2], p[3]));
+				if (truth)
+					inside++;
+				if (contained && !truth)
+					falsePositives++;
+				if (!contained && truth)
+					falseNegatives++;
+			}
+			int outside = points.length - inside;
+			out.println(String.format(Locale.ROOT, "window,CircularWindow.contains %s,%s,%s,%d,,,,,%.6g,%.6g",
+					boundary ? "(radius within 0.01%)" : "(random radius)", distanceBand, band, points.length,
+					outside == 0 ? 0.0 : (double) falsePositives / outside,
+					inside == 0 ? 0.0 : (double) falseNegatives / inside));
+		}
+	}
+}
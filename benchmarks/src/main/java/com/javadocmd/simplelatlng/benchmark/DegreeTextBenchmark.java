@@ -0,0 +1,74 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.util.DegreeText;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+
+/**
+ * Parsing and formatting of coordinates with {@link DegreeText}, against
+ * <code>Double.parseDouble</code> and the default <code>NumberFormat</code>.
+ */
+public class DegreeTextBenchmark extends BenchmarkBase {
+
+	@State(Scope.Benchmark)
+	public static class Texts {
+		String[] latitudes;
+		String[] longitudes;
+
+		@Setup
+		public void setup(PointData data) {
+			latitudes = new String[data.size];
+			longitudes = new String[data.size];
+			for (int i = 0; i < data.size; i++) {
+				latitudes[i] = DegreeText.toString(data.points[i].getLatitudeInternal());
+				longitudes[i] = DegreeText.toString(data.points[i].getLongitudeInternal());
+			}
+		}
+	}
+
+	@Benchmark
+	public void parse(Texts texts, Blackhole bh) {
+		for (int i = 0; i < texts.latitudes.length; i++)
+			bh.consume(LatLng.fromInternal(DegreeText.parse(texts.latitudes[i]), DegreeText.parse(texts.longitudes[i])));
+	}
+
+	@Benchmark
+	public void parseDouble(Texts texts, Blackhole bh) {
+		for (int i = 0; i < texts.latitudes.length; i++)
+			bh.consume(new LatLng(Double.parseDouble(texts.latitudes[i]), Double.parseDouble(texts.longitudes[i])));
+	}
+
+	@Benchmark
+	public void toStrings(PointData data, Blackhole bh) {
+		for (LatLng p : data.points)
+			bh.consume(p.toString());
+	}
+
+	@Benchmark
+	public void numberFormat(PointData data, Blackhole bh) {
+		for (LatLng p : data.points)
+			bh.consume(String.format("(%s,%s)", LatLngConfig.getDegreeFormat().format(p.getLatitude()),
+					LatLngConfig.getDegreeFormat().format(p.getLongitude())));
+	}
+}
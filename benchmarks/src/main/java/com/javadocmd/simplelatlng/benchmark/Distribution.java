@@ -0,0 +1,79 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.benchmark;
+
+import java.util.Random;
+
+import com.javadocmd.simplelatlng.LatLng;
+
+/**
+ * Spatial distributions of benchmark points. Each distribution is
+ * deterministic for a given seed so runs can be compared.
+ */
+public enum Distribution {
+	/**
+	 * Uniform over the surface of the sphere.
+	 */
+	UNIFORM {
+		@Override
+		LatLng next(Random r) {
+			double lat = Math.toDegrees(Math.asin(2 * r.nextDouble() - 1));
+			return new LatLng(lat, r.nextDouble() * 360 - 180);
+		}
+	},
+	/**
+	 * Tight clusters around a handful of city-sized centers, as in most real
+	 * location data.
+	 */
+	CLUSTERED {
+		@Override
+		LatLng next(Random r) {
+			int center = r.nextInt(CENTERS.length);
+			return new LatLng(CENTERS[center][0] + r.nextGaussian() * 0.05,
+					CENTERS[center][1] + r.nextGaussian() * 0.05);
+		}
+	},
+	/**
+	 * Within a few degrees of the poles and the antimeridian, where edge cases
+	 * live.
+	 */
+	EDGES {
+		@Override
+		LatLng next(Random r) {
+			if (r.nextBoolean())
+				return new LatLng((r.nextBoolean() ? 1 : -1) * (90 - r.nextDouble() * 3), r.nextDouble() * 360 - 180);
+			return new LatLng(r.nextDouble() * 180 - 90, 180 + r.nextGaussian() * 2);
+		}
+	};
+
+	private static final double[][] CENTERS = { { 40.7128, -74.0060 }, { 51.5074, -0.1278 }, { 35.6762, 139.6503 },
+			{ -33.8688, 151.2093 }, { -23.5505, -46.6333 }, { 19.0760, 72.8777 }, { 64.1466, -21.9426 } };
+
+	abstract LatLng next(Random r);
+
+	/**
+	 * @param size the number of points.
+	 * @param seed the random seed.
+	 * @return the points.
+	 */
+	public LatLng[] points(int size, long seed) {
+		Random r = new Random(seed);
+		LatLng[] points = new LatLng[size];
+		for (int i = 0; i < size; i++)
+			points[i] = next(r);
+		return points;
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.javadocmd.simplelatlng.Geohasher;
+import com.javadocmd.simplelatlng.LatLng;
+
+/**
+ * Encoding and decoding of {@link Geohasher} hashes.
+ */
+public class GeohasherBenchmark extends BenchmarkBase {
+
+	@Benchmark
+	public void hash(PointData data, Blackhole bh) {
+		for (LatLng p : data.points)
+			bh.consume(Geohasher.hash(p));
+	}
+
+	@Benchmark
+	public void decode(PointData data, Blackhole bh) {
+		for (String h : data.hashes)
+			bh.consume(Geohasher.decode(h));
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.javadocmd.simplelatlng.LatLng;
+
+/**
+ * Construction, equality and hashing of {@link LatLng}.
+ */
+public class LatLngBenchmark extends BenchmarkBase {
+
+	@Benchmark
+	public void construct(PointData data, Blackhole bh) {
+		for (int i = 0; i < data.size; i++)
+			bh.consume(new LatLng(data.latitudes[i], data.longitudes[i]));
+	}
+
+	@Benchmark
+	public int equalsNeighbor(PointData data) {
+		LatLng[] points = data.points;
+		int count = 0;
+		for (int i = 1; i < points.length; i++)
+			if (points[i].equals(points[i - 1]))
+				count++;
+		return count;
+	}
+
+	@Benchmark
+	public int hashCodes(PointData data) {
+		int h = 0;
+		for (LatLng p : data.points)
+			h += p.hashCode();
+		return h;
+	}
+}
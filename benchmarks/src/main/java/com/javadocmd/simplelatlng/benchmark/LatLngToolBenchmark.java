@@ -0,0 +1,63 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+/**
+ * Distance, bearing and travel calculations of {@link LatLngTool}.
+ */
+public class LatLngToolBenchmark extends BenchmarkBase {
+
+	@Benchmark
+	public double distance(PointData data) {
+		LatLng[] points = data.points;
+		double sum = 0;
+		for (int i = 1; i < points.length; i++)
+			sum += LatLngTool.distance(points[i - 1], points[i], LengthUnit.KILOMETER);
+		return sum;
+	}
+
+	@Benchmark
+	public double distanceInRadians(PointData data) {
+		LatLng[] points = data.points;
+		double sum = 0;
+		for (int i = 1; i < points.length; i++)
+			sum += LatLngTool.distanceInRadians(points[i - 1], points[i]);
+		return sum;
+	}
+
+	@Benchmark
+	public double initialBearing(PointData data) {
+		LatLng[] points = data.points;
+		double sum = 0;
+		for (int i = 1; i < points.length; i++)
+			sum += LatLngTool.initialBearing(points[i - 1], points[i]);
+		return sum;
+	}
+
+	@Benchmark
+	public void travel(PointData data, Blackhole bh) {
+		LatLng[] points = data.points;
+		for (int i = 0; i < points.length; i++)
+			bh.consume(LatLngTool.travel(points[i], i % 360, 10, LengthUnit.KILOMETER));
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * <p>
+ * Runs a fast subset of the benchmarks and compares them against a baseline,
+ * exiting with a non-zero status if any benchmark is slower than its baseline
+ * score by more than its tolerance, or allocates more per operation than its
+ * baseline allocation by more than the allocation tolerance.
+ * </p>
+ * <p>
+ * The baseline is a properties file holding, for each benchmark,
+ * <code>&lt;name&gt;.score</code> (microseconds per operation) and
+ * <code>&lt;name&gt;.alloc</code> (bytes per operation), and optionally
+ * <code>&lt;name&gt;.tolerance</code> (a fraction of the score), falling back
+ * to <code>default.tolerance</code> and <code>default.allocTolerance</code>
+ * (bytes). Scores depend on the machine, so the baseline should be recorded
+ * on the machine that runs the gate.
+ * </p>
+ * <p>
+ * Usage: <code>PerfGate &lt;baseline&gt; &lt;results.json&gt; [update]</code>.
+ * With <code>update</code>, the measured results replace the baseline's
+ * scores and allocations and the gate always passes.
+ * </p>
+ */
+public class PerfGate {
+
+	/** The benchmarks in the gate, as regular expressions. */
+	static final String[] GATED = { "LatLngToolBenchmark\\.distanceInRadians$", "GeohasherBenchmark\\.hash$",
+			"GeohasherBenchmark\\.decode$", "WindowBenchmark\\.rectangularContains$",
+			"WindowBenchmark\\.circularContains$" };
+
+	private static final double DEFAULT_TOLERANCE = 0.25;
+	private static final double DEFAULT_ALLOC_TOLERANCE = 64;
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: PerfGate <baseline> <results.json> [update]");
+			System.exit(2);
+		}
+		Path baselinePath = Paths.get(args[0]);
+		boolean update = args.length > 2 && "update".equals(args[2]);
+
+		OptionsBuilder builder = new OptionsBuilder();
+		for (String pattern : GATED)
+			builder.include(pattern);
+		Options options = builder.param("size", "1000")
+				.param("distribution", "UNIFORM")
+				.param("radiusKm", "50")
+				.forks(1)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.milliseconds(500))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.milliseconds(500))
+				.timeUnit(TimeUnit.MICROSECONDS)
+				.addProfiler(GCProfiler.class)
+				.result(args[1])
+				.resultFormat(ResultFormatType.JSON)
+				.build();
+		Collection<RunResult> results = new Runner(options).run();
+
+		Properties baseline = new Properties();
+		if (Files.exists(baselinePath)) {
+			try (InputStream in = Files.newInputStream(baselinePath)) {
+				baseline.load(in);
+			}
+		}
+		if (update) {
+			for (RunResult result : results) {
+				String name = name(result);
+				baseline.setProperty(name + ".score", String.format(Locale.ROOT, "%.3f", result.getPrimaryResult().getScore()));
+				baseline.setProperty(name + ".alloc", String.format(Locale.ROOT, "%.1f", allocation(result)));
+			}
+			// Written in key order so that baseline updates diff cleanly.
+			List<String> lines = new ArrayList<String>();
+			lines.add("# PerfGate baseline; see PerfGate for the format.");
+			for (String key : new TreeSet<String>(baseline.stringPropertyNames()))
+				lines.add(key + "=" + baseline.getProperty(key));
+			Files.write(baselinePath, lines, StandardCharsets.UTF_8);
+			System.out.println("Updated baseline " + baselinePath);
+			return;
+		}
+
+		List<String> failures = compare(baseline, results);
+		if (!failures.isEmpty()) {
+			System.err.println();
+			System.err.println("Performance gate FAILED:");
+			for (String failure : failures)
+				System.err.println("  " + failure);
+			System.exit(1);
+		}
+		System.out.println("Performance gate passed.");
+	}
+
+	static List<String> compare(Properties baseline, Collection<RunResult> results) {
+		double defaultTolerance = number(baseline, "default.tolerance", DEFAULT_TOLERANCE);
+		double allocTolerance = number(baseline, "default.allocTolerance", DEFAULT_ALLOC_TOLERANCE);
+		List<String> failures = new ArrayList<String>();
+		System.out.println();
+		System.out.printf("%-45s %12s %12s %8s %14s %14s%n", "Benchmark", "Baseline", "Score", "Change",
+				"Base alloc", "Alloc");
+		for (RunResult result : results) {
+			String name = name(result);
+			double score = result.getPrimaryResult().getScore();
+			double alloc = allocation(result);
+			double baseScore = number(baseline, name + ".score", Double.NaN);
+			double baseAlloc = number(baseline, name + ".alloc", Double.NaN);
+			if (Double.isNaN(baseScore)) {
+				failures.add(name + ": no baseline score");
+				continue;
+			}
+			double change = (score - baseScore) / baseScore;
+			System.out.printf("%-45s %12.3f %12.3f %+7.1f%% %14.1f %14.1f%n", name, baseScore, score, 100 * change,
+					baseAlloc, alloc);
+			double tolerance = number(baseline, name + ".tolerance", defaultTolerance);
+			if (change > tolerance)
+				failures.add(String.format("%s: %.3f us/op is %.1f%% slower than the baseline %.3f (tolerance %.0f%%)",
+						name, score, 100 * change, baseScore, 100 * tolerance));
+			if (!Double.isNaN(baseAlloc) && alloc > baseAlloc + allocTolerance)
+				failures.add(String.format("%s: allocates %.1f B/op, up from %.1f", name, alloc, baseAlloc));
+		}
+		return failures;
+	}
+
+	private static String name(RunResult result) {
+		String benchmark = result.getParams().getBenchmark();
+		int method = benchmark.lastIndexOf('.');
+		return benchmark.substring(benchmark.lastIndexOf('.', method - 1) + 1);
+	}
+
+	private static double allocation(RunResult result) {
+		Result<?> alloc = result.getSecondaryResults().get("gc.alloc.rate.norm");
+		return alloc == null ? Double.NaN : alloc.getScore();
+	}
+
+	private static double number(Properties properties, String key, double defaultValue) {
+		String value = properties.getProperty(key);
+		return value == null ? defaultValue : Double.parseDouble(value.trim());
+	}
+}
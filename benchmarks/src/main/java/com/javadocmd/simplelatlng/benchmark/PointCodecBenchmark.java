@@ -0,0 +1,81 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.io.PointCodec;
+
+/**
+ * {@link PointCodec} against Java serialization of a list of LatLngs.
+ */
+public class PointCodecBenchmark extends BenchmarkBase {
+
+	@State(Scope.Benchmark)
+	public static class Encoded {
+		LatLngArray array;
+		byte[] codec;
+		byte[] serialized;
+
+		@Setup
+		public void setup(PointData data) throws IOException {
+			array = new LatLngArray();
+			for (int i = 0; i < data.size; i++)
+				array.add(data.points[i]);
+			codec = PointCodec.encode(array);
+			serialized = writeList(data);
+		}
+	}
+
+	private static byte[] writeList(PointData data) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(new ArrayList<Object>(data.pointList));
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] encode(Encoded encoded) {
+		return PointCodec.encode(encoded.array);
+	}
+
+	@Benchmark
+	public LatLngArray decode(Encoded encoded) {
+		return PointCodec.decode(encoded.codec);
+	}
+
+	@Benchmark
+	public byte[] serialize(PointData data) throws IOException {
+		return writeList(data);
+	}
+
+	@Benchmark
+	public Object deserialize(Encoded encoded) throws IOException, ClassNotFoundException {
+		return new ObjectInputStream(new ByteArrayInputStream(encoded.serialized)).readObject();
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.javadocmd.simplelatlng.Geohasher;
+import com.javadocmd.simplelatlng.LatLng;
+
+/**
+ * A parameterized set of benchmark points. Benchmarks iterate over the whole
+ * set, so scores are per set and sizes should be compared per point.
+ */
+@State(Scope.Benchmark)
+public class PointData {
+
+	@Param({ "1000", "100000" })
+	public int size;
+
+	@Param({ "UNIFORM", "CLUSTERED", "EDGES" })
+	public Distribution distribution;
+
+	public LatLng[] points;
+	public List<LatLng> pointList;
+	public double[] latitudes;
+	public double[] longitudes;
+	public String[] hashes;
+
+	@Setup
+	public void setup() {
+		points = distribution.points(size, 42);
+		pointList = new ArrayList<LatLng>(size);
+		latitudes = new double[size];
+		longitudes = new double[size];
+		hashes = new String[size];
+		for (int i = 0; i < size; i++) {
+			pointList.add(points[i]);
+			latitudes[i] = points[i].getLatitude();
+			longitudes[i] = points[i].getLongitude();
+			hashes[i] = Geohasher.hash(points[i]);
+		}
+	}
+}
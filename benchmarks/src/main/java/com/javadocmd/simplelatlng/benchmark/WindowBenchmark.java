@@ -0,0 +1,92 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+import com.javadocmd.simplelatlng.window.CircularWindow;
+import com.javadocmd.simplelatlng.window.FilterHelper;
+import com.javadocmd.simplelatlng.window.RectangularWindow;
+
+/**
+ * Containment tests and filtering with the {@link RectangularWindow} and
+ * {@link CircularWindow}, centered on the first point of the data set.
+ */
+public class WindowBenchmark extends BenchmarkBase {
+
+	private static final FilterHelper<LatLng> IDENTITY = new FilterHelper<LatLng>() {
+		@Override
+		public LatLng getLatLng(LatLng object) {
+			return object;
+		}
+	};
+
+	@State(Scope.Benchmark)
+	public static class Windows {
+		@Param({ "50", "2000" })
+		public double radiusKm;
+
+		public RectangularWindow rectangle;
+		public CircularWindow circle;
+
+		@Setup
+		public void setup(PointData data) {
+			rectangle = new RectangularWindow(data.points[0], 2 * radiusKm, LengthUnit.KILOMETER);
+			circle = new CircularWindow(data.points[0], radiusKm, LengthUnit.KILOMETER);
+		}
+	}
+
+	@Benchmark
+	public int rectangularContains(PointData data, Windows windows) {
+		int count = 0;
+		for (LatLng p : data.points)
+			if (windows.rectangle.contains(p))
+				count++;
+		return count;
+	}
+
+	@Benchmark
+	public int circularContains(PointData data, Windows windows) {
+		int count = 0;
+		for (LatLng p : data.points)
+			if (windows.circle.contains(p))
+				count++;
+		return count;
+	}
+
+	@Benchmark
+	public List<LatLng> rectangularFilterCopy(PointData data, Windows windows) {
+		List<LatLng> result = new ArrayList<LatLng>();
+		windows.rectangle.filterCopy(data.pointList, result, IDENTITY);
+		return result;
+	}
+
+	@Benchmark
+	public List<LatLng> circularFilterCopySort(PointData data, Windows windows) {
+		List<LatLng> result = new ArrayList<LatLng>();
+		windows.circle.filterCopySort(data.pointList, result, IDENTITY);
+		return result;
+	}
+}
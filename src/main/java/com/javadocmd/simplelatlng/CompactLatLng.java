@@ -0,0 +1,207 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+
+/**
+ * <p>
+ * An immutable, compact representation of a single point in latitude and
+ * longitude which stores each axis as an <code>int</code> at a configurable
+ * fixed-point {@link DegreePrecision}. Values are normalized exactly as they
+ * are for {@link LatLng}.
+ * </p>
+ * <p>
+ * At {@link DegreePrecision#E6} a CompactLatLng holds exactly the same
+ * coordinates as the equivalent LatLng. Use {@link LatLngArray} to store many
+ * points without a per-point object at all.
+ * </p>
+ */
+public final class CompactLatLng implements Serializable {
+
+	private static final long serialVersionUID = -2453325167834012871L;
+
+	/**
+	 * Creates a compact copy of a LatLng at {@link DegreePrecision#E6}.
+	 *
+	 * @param point the point to copy.
+	 * @return the compact point.
+	 */
+	public static CompactLatLng of(LatLng point) {
+		return of(point, DegreePrecision.E6);
+	}
+
+	/**
+	 * Creates a compact copy of a LatLng at the given precision.
+	 *
+	 * @param point     the point to copy.
+	 * @param precision the precision at which to store the point.
+	 * @return the compact point.
+	 */
+	public static CompactLatLng of(LatLng point, DegreePrecision precision) {
+		return new CompactLatLng(precision.fromInternal(point.getLatitudeInternal()),
+				precision.fromInternal(point.getLongitudeInternal()), precision);
+	}
+
+	/**
+	 * Creates a compact point directly from fixed-point values.
+	 *
+	 * @param latitude  the fixed-point latitude.
+	 * @param longitude the fixed-point longitude.
+	 * @param precision the precision of the fixed-point values.
+	 * @return the compact point.
+	 * @throws IllegalArgumentException if either value lies outside of the +/- 90
+	 *                                  latitude, +/- 180 longitude region.
+	 */
+	public static CompactLatLng fromFixed(int latitude, int longitude, DegreePrecision precision) {
+		long maxLat = 90 * precision.getScale();
+		long maxLng = 180 * precision.getScale();
+		if (latitude > maxLat || latitude < -maxLat)
+			throw new IllegalArgumentException("Invalid latitude given.");
+		if (longitude > maxLng || longitude < -maxLng)
+			throw new IllegalArgumentException("Invalid longitude given.");
+		return new CompactLatLng(latitude, longitude, precision);
+	}
+
+	private final int latitude;
+	private final int longitude;
+	private final DegreePrecision precision;
+
+	/**
+	 * Creates a compact point at {@link DegreePrecision#E6}.
+	 *
+	 * @param latitude  the latitude in degrees.
+	 * @param longitude the longitude in degrees.
+	 */
+	public CompactLatLng(double latitude, double longitude) {
+		this(latitude, longitude, DegreePrecision.E6);
+	}
+
+	/**
+	 * Creates a compact point.
+	 *
+	 * @param latitude  the latitude in degrees.
+	 * @param longitude the longitude in degrees.
+	 * @param precision the precision at which to store the point.
+	 */
+	public CompactLatLng(double latitude, double longitude, DegreePrecision precision) {
+		double lat = LatLngTool.normalizeLatitude(latitude);
+		if (Double.isNaN(lat))
+			throw new IllegalArgumentException("Invalid latitude given.");
+		double lng = LatLngTool.normalizeLongitude(longitude);
+		if (Double.isNaN(lng))
+			throw new IllegalArgumentException("Invalid longitude given.");
+		this.precision = precision;
+		this.latitude = precision.toFixed(lat);
+		this.longitude = isPolar(this.latitude, precision) ? 0 : precision.toFixed(lng);
+	}
+
+	private CompactLatLng(int latitude, int longitude, DegreePrecision precision) {
+		this.precision = precision;
+		this.latitude = latitude;
+		this.longitude = isPolar(latitude, precision) ? 0 : longitude;
+	}
+
+	private static boolean isPolar(int latitude, DegreePrecision precision) {
+		return Math.abs((long) latitude) == 90 * precision.getScale();
+	}
+
+	/**
+	 * Get latitude for this point in degrees.
+	 *
+	 * @return latitude in degrees.
+	 */
+	public double getLatitude() {
+		return precision.toDegrees(latitude);
+	}
+
+	/**
+	 * Get longitude for this point in degrees.
+	 *
+	 * @return longitude in degrees.
+	 */
+	public double getLongitude() {
+		return precision.toDegrees(longitude);
+	}
+
+	/**
+	 * Get the fixed-point representation of this point's latitude.
+	 *
+	 * @return the latitude in steps of this point's precision.
+	 */
+	public int getLatitudeFixed() {
+		return latitude;
+	}
+
+	/**
+	 * Get the fixed-point representation of this point's longitude.
+	 *
+	 * @return the longitude in steps of this point's precision.
+	 */
+	public int getLongitudeFixed() {
+		return longitude;
+	}
+
+	/**
+	 * @return the precision at which this point is stored.
+	 */
+	public DegreePrecision getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * @return true if this point represents a polar coordinate (+/- 90 degrees
+	 *         latitude).
+	 */
+	public boolean isPolar() {
+		return isPolar(latitude, precision);
+	}
+
+	/**
+	 * Converts this point to a LatLng. The conversion is exact at
+	 * {@link DegreePrecision#E6}; finer precisions are truncated.
+	 *
+	 * @return the equivalent LatLng.
+	 */
+	public LatLng toLatLng() {
+		return LatLng.fromInternal(precision.toInternal(latitude), precision.toInternal(longitude));
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this)
+			return true;
+		if (!(obj instanceof CompactLatLng))
+			return false;
+		CompactLatLng that = (CompactLatLng) obj;
+		return this.latitude == that.latitude && this.longitude == that.longitude && this.precision == that.precision;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 31 * latitude + longitude;
+		return 31 * result + precision.ordinal();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("(%s,%s)", BigDecimal.valueOf(latitude, precision.getDecimalPlaces()).toPlainString(),
+				BigDecimal.valueOf(longitude, precision.getDecimalPlaces()).toPlainString());
+	}
+}
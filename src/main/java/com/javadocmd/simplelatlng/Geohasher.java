@@ -20,6 +20,10 @@ import java.math.RoundingMode;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+
 /**
  * Implements the <a href="http://en.wikipedia.org/wiki/Geohash">Geohash</a>
  * algorithm for hashing latitude and longitude points. Note: this
@@ -92,6 +96,16 @@ public class Geohasher {
 	 *                                  [0-9bcdefghjkmnpqrstuvwxyz]
 	 */
 	public static LatLng decode(String hash) {
+		MetricsRecorder recorder = Metrics.getRecorder();
+		if (recorder == null)
+			return decodeUninstrumented(hash);
+		long start = System.nanoTime();
+		LatLng result = decodeUninstrumented(hash);
+		recorder.record(SpatialOperation.GEOHASH_DECODE, 1, 1, System.nanoTime() - start);
+		return result;
+	}
+
+	private static LatLng decodeUninstrumented(String hash) {
 		if (hash == null || hash.isEmpty()) {
 			throw new IllegalArgumentException("Geohash string cannot be empty or null.");
 		}
@@ -213,12 +227,105 @@ public class Geohasher {
 	 * @return the hash string to the set character precision: {@link #PRECISION}.
 	 */
 	public static String hash(LatLng point) {
+		MetricsRecorder recorder = Metrics.getRecorder();
+		if (recorder == null)
+			return hashUninstrumented(point);
+		long start = System.nanoTime();
+		String result = hashUninstrumented(point);
+		recorder.record(SpatialOperation.GEOHASH_ENCODE, 1, 1, System.nanoTime() - start);
+		return result;
+	}
+
+	private static String hashUninstrumented(LatLng point) {
 		long lat = doubleToBits(BITS, point.getLatitude(), MAX_LAT);
 		long lng = doubleToBits(BITS, point.getLongitude(), MAX_LNG);
 		long bits = interleave(BITS * 2, lat, lng);
 		return bitsToHash(BITS * 2, bits);
 	}
 
+	/**
+	 * Geohashes a latitude and longitude to a number rather than a string,
+	 * creating no objects: the number's base-32 digits, most significant first,
+	 * are the characters of the hash. A hash's prefixes are its numbers shifted
+	 * right by multiples of five bits, so shorter hashes group longer ones just
+	 * as their strings do.
+	 * 
+	 * @param latitude   the latitude in degrees.
+	 * @param longitude  the longitude in degrees.
+	 * @param characters the length of the hash, from 1 to {@link #PRECISION}.
+	 * @return the hash as <code>5 * characters</code> bits.
+	 */
+	public static long hashBits(double latitude, double longitude, int characters) {
+		if (characters < 1 || characters > PRECISION)
+			throw new IllegalArgumentException("Invalid hash length given.");
+		long lat = doubleToBits(BITS, latitude, MAX_LAT);
+		long lng = doubleToBits(BITS, longitude, MAX_LNG);
+		return interleaveBits(lat, lng) >>> (5 * (PRECISION - characters));
+	}
+
+	/**
+	 * Geohashes every point of an array to numbers, as
+	 * {@link #hashBits(double, double, int)} does for one point.
+	 * 
+	 * @param points     the points.
+	 * @param characters the length of the hashes, from 1 to {@link #PRECISION}.
+	 * @return the hash of each point, as <code>5 * characters</code> bits.
+	 */
+	public static long[] hashBits(LatLngArray points, int characters) {
+		if (characters < 1 || characters > PRECISION)
+			throw new IllegalArgumentException("Invalid hash length given.");
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long start = recorder == null ? 0 : System.nanoTime();
+		int n = points.size();
+		long[] hashes = new long[n];
+		for (int i = 0; i < n; i++)
+			hashes[i] = hashBits(points.getLatitude(i), points.getLongitude(i), characters);
+		if (recorder != null)
+			recorder.record(SpatialOperation.GEOHASH_BATCH_ENCODE, n, n, System.nanoTime() - start);
+		return hashes;
+	}
+
+	/**
+	 * Interleaves the low 32 bits of two values without a loop: latitude bits
+	 * take the even positions and longitude bits the odd ones, so for
+	 * {@link #PRECISION} characters' worth of bits the result is that of
+	 * {@link #hashBits(double, double, int)}. Other Z-order keys, such as those
+	 * of grid cells, can be built the same way.
+	 * 
+	 * @param lat the latitude bits.
+	 * @param lng the longitude bits.
+	 * @return the interleaved bits.
+	 */
+	public static long interleaveBits(long lat, long lng) {
+		// The same bits as interleave(BITS * 2, lat, lng), BITS * 2 being even.
+		return spread(lat) | (spread(lng) << 1);
+	}
+
+	/**
+	 * Spreads the low 32 bits of a value to the even bits of the result.
+	 */
+	private static long spread(long bits) {
+		bits &= 0xFFFFFFFFL;
+		bits = (bits | (bits << 16)) & 0x0000FFFF0000FFFFL;
+		bits = (bits | (bits << 8)) & 0x00FF00FF00FF00FFL;
+		bits = (bits | (bits << 4)) & 0x0F0F0F0F0F0F0F0FL;
+		bits = (bits | (bits << 2)) & 0x3333333333333333L;
+		return (bits | (bits << 1)) & 0x5555555555555555L;
+	}
+
+	/**
+	 * Converts a hash from {@link #hashBits(double, double, int)} to its string.
+	 * 
+	 * @param bits       the hash bits.
+	 * @param characters the length of the hash, from 1 to {@link #PRECISION}.
+	 * @return the hash string.
+	 */
+	public static String toHash(long bits, int characters) {
+		if (characters < 1 || characters > PRECISION)
+			throw new IllegalArgumentException("Invalid hash length given.");
+		return bitsToHash(5 * characters, bits);
+	}
+
 	/**
 	 * Encodes an interleaved set of bits to its base-32 geohash.
 	 * 
@@ -237,8 +344,10 @@ public class Geohasher {
 	/**
 	 * Interleaves two sets of bits.
 	 * 
-	 * @param evenBits the bits to use for even bits. (0, 2, 4,...)
-	 * @param oddBits  the bits to use for odd bits. (1, 3, 5,...)
+	 * @param bitSize the number of bits in the result.
+	 * @param lat     the latitude bits.
+	 * @param lng     the longitude bits, which take the most significant
+	 *                position.
 	 * @return the interleaved bits.
 	 */
 	protected static long interleave(int bitSize, long lat, long lng) {
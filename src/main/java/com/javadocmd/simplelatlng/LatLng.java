@@ -15,9 +15,16 @@
  */
 package com.javadocmd.simplelatlng;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.Serializable;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
+import com.javadocmd.simplelatlng.util.DegreeText;
 import com.javadocmd.simplelatlng.util.LatLngConfig;
 
 /**
@@ -37,11 +44,14 @@ public class LatLng implements Serializable {
 
 	/**
 	 * Creates a random latitude and longitude. (Not inclusive of (-90, 0))
+	 * Latitude and longitude are each uniform, so points are denser towards the
+	 * poles; for points uniform over the sphere, or many points at once, see
+	 * {@link com.javadocmd.simplelatlng.workload.WorkloadGenerator}.
 	 * 
 	 * @return the random LatLng.
 	 */
 	public static LatLng random() {
-		return random(new Random());
+		return random(ThreadLocalRandom.current());
 	}
 
 	/**
@@ -72,9 +82,35 @@ public class LatLng implements Serializable {
 		return LatLngConfig.doubleToLong(degree1) == LatLngConfig.doubleToLong(degree2);
 	}
 
+	/**
+	 * Creates a LatLng point directly from the internal long representation of
+	 * its latitude and longitude, avoiding the round trip through
+	 * <code>double</code>. Intended for library use only.
+	 * 
+	 * @param latitude  the internal representation of latitude in degrees.
+	 * @param longitude the internal representation of longitude in degrees.
+	 * @return the point.
+	 * @throws IllegalArgumentException if either value lies outside of the +/- 90
+	 *                                  latitude, +/- 180 longitude region.
+	 */
+	public static LatLng fromInternal(long latitude, long longitude) {
+		if (latitude > 90000000L || latitude < -90000000L)
+			throw new IllegalArgumentException("Invalid latitude given.");
+		if (longitude > 180000000L || longitude < -180000000L)
+			throw new IllegalArgumentException("Invalid longitude given.");
+		LatLng point = new LatLng();
+		point.latitude = latitude;
+		// At the poles all longitudes intersect. Simplify for later comparison.
+		point.longitude = point.isPolar() ? 0 : longitude;
+		return point;
+	}
+
 	private long latitude;
 	private long longitude;
 
+	private LatLng() {
+	}
+
 	/**
 	 * Creates a LatLng point.
 	 * 
@@ -192,7 +228,60 @@ public class LatLng implements Serializable {
 
 	@Override
 	public String toString() {
+		if (LatLngConfig.isDefaultDegreeFormat()) {
+			StringBuilder s = new StringBuilder(2 * DegreeText.MAX_LENGTH + 3).append('(');
+			DegreeText.format(this.latitude, s).append(',');
+			return DegreeText.format(this.longitude, s).append(')').toString();
+		}
 		return String.format("(%s,%s)", LatLngConfig.getDegreeFormat().format(LatLngConfig.longToDouble(this.latitude)),
 				LatLngConfig.getDegreeFormat().format(LatLngConfig.longToDouble(this.longitude)));
 	}
+
+	/**
+	 * Serializes a LatLng (but not a subclass) as a {@link Ser}, which writes
+	 * eight bytes and no field descriptors. Streams written before this form
+	 * existed still deserialize as before.
+	 */
+	private Object writeReplace() {
+		return getClass() == LatLng.class ? new Ser(this) : this;
+	}
+
+	/**
+	 * The serialized form of a LatLng: its internal latitude and longitude as two
+	 * <code>int</code>s.
+	 */
+	static final class Ser implements Externalizable {
+
+		private static final long serialVersionUID = 1L;
+
+		private LatLng point;
+
+		public Ser() {
+		}
+
+		Ser(LatLng point) {
+			this.point = point;
+		}
+
+		@Override
+		public void writeExternal(ObjectOutput out) throws IOException {
+			out.writeInt((int) point.latitude);
+			out.writeInt((int) point.longitude);
+		}
+
+		@Override
+		public void readExternal(ObjectInput in) throws IOException {
+			int latitude = in.readInt();
+			int longitude = in.readInt();
+			try {
+				point = fromInternal(latitude, longitude);
+			} catch (IllegalArgumentException e) {
+				throw new InvalidObjectException(e.getMessage());
+			}
+		}
+
+		private Object readResolve() {
+			return point;
+		}
+	}
 }
@@ -0,0 +1,323 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng;
+
+import java.util.Arrays;
+
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+
+/**
+ * <p>
+ * A growable, columnar container of points. Latitudes and longitudes are kept
+ * in two parallel <code>int</code> arrays at a fixed {@link DegreePrecision},
+ * so a point costs eight bytes rather than a whole {@link LatLng} object and
+ * its reference. Points are normalized exactly as they are for
+ * {@link CompactLatLng}.
+ * </p>
+ * <p>
+ * Points are addressed by index; accessors that return a LatLng or
+ * CompactLatLng create a new object on each call, while the primitive
+ * accessors do not.
+ * </p>
+ */
+public class LatLngArray {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private final DegreePrecision precision;
+	private int[] latitudes;
+	private int[] longitudes;
+	private int size;
+
+	/**
+	 * Creates an empty array at {@link DegreePrecision#E6}.
+	 */
+	public LatLngArray() {
+		this(DegreePrecision.E6, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty array.
+	 *
+	 * @param precision the precision at which to store points.
+	 * @param capacity  the initial capacity.
+	 */
+	public LatLngArray(DegreePrecision precision, int capacity) {
+		if (precision == null)
+			throw new IllegalArgumentException("Precision may not be null.");
+		if (capacity < 0)
+			throw new IllegalArgumentException("Capacity may not be negative.");
+		this.precision = precision;
+		this.latitudes = new int[capacity];
+		this.longitudes = new int[capacity];
+	}
+
+	/**
+	 * Creates an array holding the given fixed-point columns, without copying
+	 * them. The values are validated just as by {@link #addFixed(int, int)}, and
+	 * the longitudes of points at the poles are set to zero in place; the
+	 * columns belong to the new array and should not be modified afterwards.
+	 *
+	 * @param precision  the precision of the values.
+	 * @param latitudes  the fixed-point latitudes.
+	 * @param longitudes the fixed-point longitudes, as many as there are
+	 *                   latitudes.
+	 * @return the array.
+	 */
+	public static LatLngArray ofFixed(DegreePrecision precision, int[] latitudes, int[] longitudes) {
+		if (latitudes.length != longitudes.length)
+			throw new IllegalArgumentException("Invalid columns given.");
+		LatLngArray array = new LatLngArray(precision, 0);
+		long maxLat = 90 * precision.getScale();
+		long maxLng = 180 * precision.getScale();
+		for (int i = 0; i < latitudes.length; i++) {
+			if (latitudes[i] > maxLat || latitudes[i] < -maxLat)
+				throw new IllegalArgumentException("Invalid latitude given.");
+			if (longitudes[i] > maxLng || longitudes[i] < -maxLng)
+				throw new IllegalArgumentException("Invalid longitude given.");
+			if (Math.abs((long) latitudes[i]) == maxLat)
+				longitudes[i] = 0;
+		}
+		array.latitudes = latitudes;
+		array.longitudes = longitudes;
+		array.size = latitudes.length;
+		return array;
+	}
+
+	/**
+	 * @return the precision at which points are stored.
+	 */
+	public DegreePrecision getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * @return the number of points in this array.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Ensures there is room for at least <code>capacity</code> points without
+	 * further growth.
+	 *
+	 * @param capacity the desired capacity.
+	 */
+	public void ensureCapacity(int capacity) {
+		if (capacity > latitudes.length) {
+			int newCapacity = Math.max(capacity, latitudes.length + (latitudes.length >> 1) + 1);
+			latitudes = Arrays.copyOf(latitudes, newCapacity);
+			longitudes = Arrays.copyOf(longitudes, newCapacity);
+		}
+	}
+
+	/**
+	 * Appends a point given in degrees.
+	 *
+	 * @param latitude  the latitude in degrees.
+	 * @param longitude the longitude in degrees.
+	 * @return the index of the new point.
+	 */
+	public int add(double latitude, double longitude) {
+		CompactLatLng p = new CompactLatLng(latitude, longitude, precision);
+		return addFixed(p.getLatitudeFixed(), p.getLongitudeFixed());
+	}
+
+	/**
+	 * Appends a point.
+	 *
+	 * @param point the point to append.
+	 * @return the index of the new point.
+	 */
+	public int add(LatLng point) {
+		return addFixed(precision.fromInternal(point.getLatitudeInternal()),
+				precision.fromInternal(point.getLongitudeInternal()));
+	}
+
+	/**
+	 * Appends a point, converting it to this array's precision if necessary.
+	 *
+	 * @param point the point to append.
+	 * @return the index of the new point.
+	 */
+	public int add(CompactLatLng point) {
+		if (point.getPrecision() == precision)
+			return addFixed(point.getLatitudeFixed(), point.getLongitudeFixed());
+		return add(point.toLatLng());
+	}
+
+	/**
+	 * Appends a point given as fixed-point values at this array's precision. The
+	 * values are validated just as by
+	 * {@link CompactLatLng#fromFixed(int, int, DegreePrecision)}.
+	 *
+	 * @param latitude  the fixed-point latitude.
+	 * @param longitude the fixed-point longitude.
+	 * @return the index of the new point.
+	 */
+	public int addFixed(int latitude, int longitude) {
+		long maxLat = 90 * precision.getScale();
+		long maxLng = 180 * precision.getScale();
+		if (latitude > maxLat || latitude < -maxLat)
+			throw new IllegalArgumentException("Invalid latitude given.");
+		if (longitude > maxLng || longitude < -maxLng)
+			throw new IllegalArgumentException("Invalid longitude given.");
+		if (Math.abs((long) latitude) == maxLat)
+			longitude = 0;
+		ensureCapacity(size + 1);
+		latitudes[size] = latitude;
+		longitudes[size] = longitude;
+		return size++;
+	}
+
+	/**
+	 * Appends all of the points of another array.
+	 *
+	 * @param points the points to append.
+	 */
+	public void addAll(LatLngArray points) {
+		if (points.precision != precision) {
+			for (int i = 0; i < points.size; i++)
+				add(points.get(i));
+			return;
+		}
+		ensureCapacity(size + points.size);
+		System.arraycopy(points.latitudes, 0, latitudes, size, points.size);
+		System.arraycopy(points.longitudes, 0, longitudes, size, points.size);
+		size += points.size;
+	}
+
+	/**
+	 * @param index the index of the point.
+	 * @return the point's latitude in degrees.
+	 */
+	public double getLatitude(int index) {
+		return precision.toDegrees(getLatitudeFixed(index));
+	}
+
+	/**
+	 * @param index the index of the point.
+	 * @return the point's longitude in degrees.
+	 */
+	public double getLongitude(int index) {
+		return precision.toDegrees(getLongitudeFixed(index));
+	}
+
+	/**
+	 * @param index the index of the point.
+	 * @return the point's fixed-point latitude.
+	 */
+	public int getLatitudeFixed(int index) {
+		checkIndex(index);
+		return latitudes[index];
+	}
+
+	/**
+	 * @param index the index of the point.
+	 * @return the point's fixed-point longitude.
+	 */
+	public int getLongitudeFixed(int index) {
+		checkIndex(index);
+		return longitudes[index];
+	}
+
+	/**
+	 * @param index the index of the point.
+	 * @return the point's latitude in LatLng's internal representation.
+	 */
+	public long getLatitudeInternal(int index) {
+		return precision.toInternal(getLatitudeFixed(index));
+	}
+
+	/**
+	 * @param index the index of the point.
+	 * @return the point's longitude in LatLng's internal representation.
+	 */
+	public long getLongitudeInternal(int index) {
+		return precision.toInternal(getLongitudeFixed(index));
+	}
+
+	/**
+	 * @param index the index of the point.
+	 * @return a new CompactLatLng holding the point.
+	 */
+	public CompactLatLng get(int index) {
+		return CompactLatLng.fromFixed(getLatitudeFixed(index), getLongitudeFixed(index), precision);
+	}
+
+	/**
+	 * @param index the index of the point.
+	 * @return a new LatLng holding the point.
+	 */
+	public LatLng toLatLng(int index) {
+		return LatLng.fromInternal(getLatitudeInternal(index), getLongitudeInternal(index));
+	}
+
+	/**
+	 * Rearranges the points so that the point at each index <code>i</code> is
+	 * the one that was at <code>order[i]</code>. Applying the same order to any
+	 * arrays kept alongside the points keeps them in step.
+	 *
+	 * @param order a permutation of the indices of the points, such as the
+	 *              indices permuted by
+	 *              {@link com.javadocmd.simplelatlng.util.IndexSort}.
+	 */
+	public void reorder(int[] order) {
+		if (order.length != size)
+			throw new IllegalArgumentException("Invalid order given.");
+		int[] newLatitudes = new int[latitudes.length];
+		int[] newLongitudes = new int[longitudes.length];
+		boolean[] seen = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			int from = order[i];
+			if (from < 0 || from >= size || seen[from])
+				throw new IllegalArgumentException("Invalid order given.");
+			seen[from] = true;
+			newLatitudes[i] = latitudes[from];
+			newLongitudes[i] = longitudes[from];
+		}
+		latitudes = newLatitudes;
+		longitudes = newLongitudes;
+	}
+
+	/**
+	 * Removes all points, keeping the current capacity.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Releases any capacity beyond the current size.
+	 */
+	public void trimToSize() {
+		if (latitudes.length > size) {
+			latitudes = Arrays.copyOf(latitudes, size);
+			longitudes = Arrays.copyOf(longitudes, size);
+		}
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d points at %s", size, precision);
+	}
+}
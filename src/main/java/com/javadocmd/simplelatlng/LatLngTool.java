@@ -15,6 +15,9 @@
  */
 package com.javadocmd.simplelatlng;
 
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
 import com.javadocmd.simplelatlng.util.LatLngConfig;
 import com.javadocmd.simplelatlng.util.LengthUnit;
 
@@ -81,15 +84,92 @@ public class LatLngTool {
 	 * @return the internal angle for the arc connecting the two points in radians.
 	 */
 	public static double distanceInRadians(LatLng point1, LatLng point2) {
-		double lat1R = Math.toRadians(point1.getLatitude());
-		double lat2R = Math.toRadians(point2.getLatitude());
+		return distanceInRadians(point1.getLatitude(), point1.getLongitude(), point2.getLatitude(),
+				point2.getLongitude());
+	}
+
+	/**
+	 * Distance between two compact points.
+	 * 
+	 * @param point1 the first point.
+	 * @param point2 the second point.
+	 * @param unit   the unit of measure in which to receive the result.
+	 * @return the distance in the chosen unit of measure.
+	 * @see #distance(LatLng, LatLng, LengthUnit)
+	 */
+	public static double distance(CompactLatLng point1, CompactLatLng point2, LengthUnit unit) {
+		return LatLngTool.distanceInRadians(point1, point2) * LatLngConfig.getEarthRadius(unit);
+	}
+
+	/**
+	 * The internal angle for an arc between two compact points in radians.
+	 * 
+	 * @param point1 the first point.
+	 * @param point2 the second point.
+	 * @return the internal angle for the arc connecting the two points in radians.
+	 * @see #distanceInRadians(LatLng, LatLng)
+	 */
+	public static double distanceInRadians(CompactLatLng point1, CompactLatLng point2) {
+		return distanceInRadians(point1.getLatitude(), point1.getLongitude(), point2.getLatitude(),
+				point2.getLongitude());
+	}
+
+	/**
+	 * The internal angle for an arc between two points given in degrees, in
+	 * radians. This is the calculation behind all of the other distance methods,
+	 * for callers who hold coordinates as primitives.
+	 * 
+	 * @param latitude1  the first point's latitude in degrees.
+	 * @param longitude1 the first point's longitude in degrees.
+	 * @param latitude2  the second point's latitude in degrees.
+	 * @param longitude2 the second point's longitude in degrees.
+	 * @return the internal angle for the arc connecting the two points in radians.
+	 * @see #distanceInRadians(LatLng, LatLng)
+	 */
+	public static double distanceInRadians(double latitude1, double longitude1, double latitude2, double longitude2) {
+		double lat1R = Math.toRadians(latitude1);
+		double lat2R = Math.toRadians(latitude2);
 		double dLatR = Math.abs(lat2R - lat1R);
-		double dLngR = Math.abs(Math.toRadians(point2.getLongitude() - point1.getLongitude()));
+		double dLngR = Math.abs(Math.toRadians(longitude2 - longitude1));
 		double a = Math.sin(dLatR / 2) * Math.sin(dLatR / 2)
 				+ Math.cos(lat1R) * Math.cos(lat2R) * Math.sin(dLngR / 2) * Math.sin(dLngR / 2);
 		return 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
 	}
 
+	/**
+	 * Distances from one point to every point of an array, computed in a single
+	 * pass without creating a point object per element.
+	 * 
+	 * @param origin  the point to measure from.
+	 * @param points  the points to measure to.
+	 * @param unit    the unit of measure in which to receive the results.
+	 * @param results receives the distance to <code>points</code> element
+	 *                <code>i</code> at index <code>i</code>; must be at least as
+	 *                long as the number of points.
+	 */
+	public static void distances(LatLng origin, LatLngArray points, LengthUnit unit, double[] results) {
+		int n = points.size();
+		if (results.length < n)
+			throw new IllegalArgumentException("Results array is too short.");
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long start = recorder == null ? 0 : System.nanoTime();
+		double radius = LatLngConfig.getEarthRadius(unit);
+		double lat1 = origin.getLatitude();
+		double lng1 = origin.getLongitude();
+		double lat1R = Math.toRadians(lat1);
+		double cosLat1 = Math.cos(lat1R);
+		for (int i = 0; i < n; i++) {
+			double lat2R = Math.toRadians(points.getLatitude(i));
+			double dLatR = Math.abs(lat2R - lat1R);
+			double dLngR = Math.abs(Math.toRadians(points.getLongitude(i) - lng1));
+			double a = Math.sin(dLatR / 2) * Math.sin(dLatR / 2)
+					+ cosLat1 * Math.cos(lat2R) * Math.sin(dLngR / 2) * Math.sin(dLngR / 2);
+			results[i] = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)) * radius;
+		}
+		if (recorder != null)
+			recorder.record(SpatialOperation.BATCH_DISTANCE, n, n, System.nanoTime() - start);
+	}
+
 	/**
 	 * <p>
 	 * Calculate the initial bearing in degrees on a great-circle course from one
@@ -125,9 +205,40 @@ public class LatLngTool {
 	 * @return the initial bearing in radians.
 	 */
 	public static double initialBearingInRadians(LatLng start, LatLng end) {
-		double lat1R = Math.toRadians(start.getLatitude());
-		double lat2R = Math.toRadians(end.getLatitude());
-		double dLngR = Math.toRadians(end.getLongitude() - start.getLongitude());
+		return initialBearingInRadians(start.getLatitude(), start.getLongitude(), end.getLatitude(), end.getLongitude());
+	}
+
+	/**
+	 * Calculate the initial bearing in degrees on a great-circle course from one
+	 * compact point to another.
+	 * 
+	 * @param start the starting point.
+	 * @param end   the ending point.
+	 * @return the initial bearing in degrees, normalized to the 0 to +360 range.
+	 * @see #initialBearing(LatLng, LatLng)
+	 */
+	public static double initialBearing(CompactLatLng start, CompactLatLng end) {
+		return normalizeBearing(Math.toDegrees(initialBearingInRadians(start, end)));
+	}
+
+	/**
+	 * Calculate the initial bearing in radians on a great-circle course from one
+	 * compact point to another.
+	 * 
+	 * @param start the starting point.
+	 * @param end   the ending point.
+	 * @return the initial bearing in radians.
+	 * @see #initialBearingInRadians(LatLng, LatLng)
+	 */
+	public static double initialBearingInRadians(CompactLatLng start, CompactLatLng end) {
+		return initialBearingInRadians(start.getLatitude(), start.getLongitude(), end.getLatitude(), end.getLongitude());
+	}
+
+	private static double initialBearingInRadians(double startLatitude, double startLongitude, double endLatitude,
+			double endLongitude) {
+		double lat1R = Math.toRadians(startLatitude);
+		double lat2R = Math.toRadians(endLatitude);
+		double dLngR = Math.toRadians(endLongitude - startLongitude);
 		double a = Math.sin(dLngR) * Math.cos(lat2R);
 		double b = Math.cos(lat1R) * Math.sin(lat2R) - Math.sin(lat1R) * Math.cos(lat2R) * Math.cos(dLngR);
 		return Math.atan2(a, b);
@@ -0,0 +1,347 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.aggregate;
+
+import java.util.Arrays;
+
+import com.javadocmd.simplelatlng.Geohasher;
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.collect.LatLngKey;
+import com.javadocmd.simplelatlng.collect.LatLngLongMap;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.IndexSort;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+
+/**
+ * <p>
+ * Counts points, and sums a value carried by each, per spatial cell, for
+ * heatmaps and per-cell averages over a stream of events. Cells are either
+ * geohashes of a fixed length, keyed by {@link Geohasher#hashBits(double,
+ * double, int)}, or squares of a fixed size in degrees aligned to the internal
+ * fixed-point values of {@link LatLng}, keyed by the {@link LatLngKey} of
+ * their southwest corner.
+ * </p>
+ * <p>
+ * Any number of threads may add points at once. Each thread adds to one of a
+ * set of stripes, chosen by its thread id, each holding primitive arrays of
+ * counts and sums for the cells it has seen; adding a point to a cell already
+ * seen creates no objects. Stripes are merged only when a {@link Snapshot} is
+ * taken. For tumbling windows, {@link #snapshotAndReset()} takes each stripe's
+ * totals and empties it in one step, so that every point is counted in exactly
+ * one window.
+ * </p>
+ */
+public class GridAggregator {
+
+	private final int characters;
+	private final long cellSize;
+	private final long lastRow;
+	private final Stripe[] stripes;
+
+	private GridAggregator(int characters, long cellSize) {
+		this.characters = characters;
+		this.cellSize = cellSize;
+		this.lastRow = cellSize == 0 ? 0 : (180000000L - 1) / cellSize;
+		int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+		this.stripes = new Stripe[count];
+		for (int i = 0; i < count; i++)
+			stripes[i] = new Stripe();
+	}
+
+	/**
+	 * Creates an aggregator over geohash cells.
+	 *
+	 * @param characters the length of the geohashes, from 1 to
+	 *                   {@link Geohasher#PRECISION}.
+	 * @return the aggregator.
+	 */
+	public static GridAggregator geohash(int characters) {
+		if (characters < 1 || characters > Geohasher.PRECISION)
+			throw new IllegalArgumentException("Invalid hash length given.");
+		return new GridAggregator(characters, 0);
+	}
+
+	/**
+	 * Creates an aggregator over square cells of a fixed size in degrees. Cells
+	 * start at 90 degrees south and 180 degrees west; if the size does not
+	 * divide the globe evenly, the northernmost row and the easternmost column
+	 * are narrower than the rest.
+	 *
+	 * @param cellDegrees the size of a cell, from
+	 *                    {@link LatLngConfig#DEGREE_TOLERANCE} to 180 degrees,
+	 *                    rounded to a whole number of millionths.
+	 * @return the aggregator.
+	 */
+	public static GridAggregator degrees(double cellDegrees) {
+		if (Double.isNaN(cellDegrees) || cellDegrees < LatLngConfig.DEGREE_TOLERANCE || cellDegrees > 180)
+			throw new IllegalArgumentException("Invalid cell size given.");
+		return new GridAggregator(0, Math.max(1, Math.round(cellDegrees / LatLngConfig.DEGREE_TOLERANCE)));
+	}
+
+	/**
+	 * Finds the cell of a point.
+	 *
+	 * @param latitude  the latitude in degrees, within +/- 90.
+	 * @param longitude the longitude in degrees, within +/- 180.
+	 * @return the key of the cell.
+	 */
+	public long cellOf(double latitude, double longitude) {
+		if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180))
+			throw new IllegalArgumentException("Invalid point given.");
+		if (characters > 0)
+			return Geohasher.hashBits(latitude, longitude, characters);
+		return cellOfInternal(LatLngConfig.doubleToLong(latitude), LatLngConfig.doubleToLong(longitude));
+	}
+
+	private long cellOfInternal(long latitude, long longitude) {
+		long row = Math.min((latitude + 90000000L) / cellSize, lastRow);
+		long column = ((longitude + 180000000L) % 360000000L) / cellSize;
+		return LatLngKey.pack(row * cellSize - 90000000L, column * cellSize - 180000000L);
+	}
+
+	private long cellOf(LatLngArray points, int index) {
+		if (characters > 0)
+			return Geohasher.hashBits(points.getLatitude(index), points.getLongitude(index), characters);
+		return cellOfInternal(points.getLatitudeInternal(index), points.getLongitudeInternal(index));
+	}
+
+	/**
+	 * Finds the center of a cell.
+	 *
+	 * @param cell the key of a cell.
+	 * @return the cell's center; for geohash cells, the point its hash string
+	 *         decodes to.
+	 */
+	public LatLng getCenter(long cell) {
+		if (characters > 0)
+			return Geohasher.decode(Geohasher.toHash(cell, characters));
+		long latitude = LatLngKey.latitudeInternal(cell);
+		long longitude = LatLngKey.longitudeInternal(cell);
+		return LatLng.fromInternal(latitude + Math.min(cellSize, 90000000L - latitude) / 2,
+				longitude + Math.min(cellSize, 180000000L - longitude) / 2);
+	}
+
+	/**
+	 * Counts a point.
+	 *
+	 * @param latitude  the latitude in degrees, within +/- 90.
+	 * @param longitude the longitude in degrees, within +/- 180.
+	 */
+	public void add(double latitude, double longitude) {
+		stripe().add(cellOf(latitude, longitude), 1, 0);
+	}
+
+	/**
+	 * Counts a point and adds its value to its cell's sum.
+	 *
+	 * @param latitude  the latitude in degrees, within +/- 90.
+	 * @param longitude the longitude in degrees, within +/- 180.
+	 * @param value     the value.
+	 */
+	public void add(double latitude, double longitude, double value) {
+		stripe().add(cellOf(latitude, longitude), 1, value);
+	}
+
+	/**
+	 * Counts every point of an array.
+	 *
+	 * @param points the points.
+	 */
+	public void addAll(LatLngArray points) {
+		addAll(points, null);
+	}
+
+	/**
+	 * Counts every point of an array and adds each one's value to its cell's
+	 * sum, holding the stripe once for the whole batch. Reports
+	 * {@link SpatialOperation#AGGREGATE} to the {@link Metrics#getRecorder()
+	 * metrics recorder}, if there is one.
+	 *
+	 * @param points the points.
+	 * @param values the value of each point, or null for none.
+	 */
+	public void addAll(LatLngArray points, double[] values) {
+		int n = points.size();
+		if (values != null && values.length < n)
+			throw new IllegalArgumentException("Values array is too short.");
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long start = recorder == null ? 0 : System.nanoTime();
+		Stripe stripe = stripe();
+		synchronized (stripe) {
+			for (int i = 0; i < n; i++)
+				stripe.add(cellOf(points, i), 1, values == null ? 0 : values[i]);
+		}
+		if (recorder != null)
+			recorder.record(SpatialOperation.AGGREGATE, n, n, System.nanoTime() - start);
+	}
+
+	private Stripe stripe() {
+		return stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+	}
+
+	/**
+	 * @return the totals of every cell so far.
+	 */
+	public Snapshot snapshot() {
+		return merge(false);
+	}
+
+	/**
+	 * Takes the totals of every cell so far and starts again from nothing, as at
+	 * the end of a tumbling window.
+	 *
+	 * @return the totals.
+	 */
+	public Snapshot snapshotAndReset() {
+		return merge(true);
+	}
+
+	private Snapshot merge(boolean reset) {
+		Stripe merged = new Stripe();
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				for (int i = 0; i < stripe.size; i++)
+					merged.add(stripe.cells[i], stripe.counts[i], stripe.sums[i]);
+				if (reset)
+					stripe.clear();
+			}
+		}
+		int n = merged.size;
+		long[] cells = Arrays.copyOf(merged.cells, n);
+		int[] order = IndexSort.identity(n);
+		IndexSort.sort(cells, order);
+		long[] counts = new long[n];
+		double[] sums = new double[n];
+		for (int i = 0; i < n; i++) {
+			counts[i] = merged.counts[order[i]];
+			sums[i] = merged.sums[order[i]];
+		}
+		return new Snapshot(cells, counts, sums);
+	}
+
+	/**
+	 * The counts and sums of one stripe, in slots assigned as cells are first
+	 * seen. Guarded by its own monitor.
+	 */
+	private static final class Stripe {
+		LatLngLongMap slots = new LatLngLongMap();
+		long[] cells = new long[16];
+		long[] counts = new long[16];
+		double[] sums = new double[16];
+		int size;
+
+		synchronized void add(long cell, long count, double sum) {
+			int slot = (int) slots.get(cell, -1);
+			if (slot < 0) {
+				slot = size++;
+				if (slot == cells.length) {
+					cells = Arrays.copyOf(cells, slot * 2);
+					counts = Arrays.copyOf(counts, slot * 2);
+					sums = Arrays.copyOf(sums, slot * 2);
+				}
+				slots.put(cell, slot, -1);
+				cells[slot] = cell;
+			}
+			counts[slot] += count;
+			sums[slot] += sum;
+		}
+
+		void clear() {
+			slots.clear();
+			Arrays.fill(counts, 0, size, 0);
+			Arrays.fill(sums, 0, size, 0);
+			size = 0;
+		}
+	}
+
+	/**
+	 * The totals of the cells holding at least one point, in order of their
+	 * keys.
+	 */
+	public static class Snapshot {
+
+		private final long[] cells;
+		private final long[] counts;
+		private final double[] sums;
+
+		Snapshot(long[] cells, long[] counts, double[] sums) {
+			this.cells = cells;
+			this.counts = counts;
+			this.sums = sums;
+		}
+
+		/**
+		 * @return the number of cells.
+		 */
+		public int size() {
+			return cells.length;
+		}
+
+		/**
+		 * @param i the position of a cell.
+		 * @return the key of the cell.
+		 */
+		public long getCell(int i) {
+			return cells[i];
+		}
+
+		/**
+		 * @param i the position of a cell.
+		 * @return the number of points in the cell.
+		 */
+		public long getCount(int i) {
+			return counts[i];
+		}
+
+		/**
+		 * @param i the position of a cell.
+		 * @return the sum of the values of the points in the cell.
+		 */
+		public double getSum(int i) {
+			return sums[i];
+		}
+
+		/**
+		 * @param i the position of a cell.
+		 * @return the mean value of the points in the cell.
+		 */
+		public double getMean(int i) {
+			return sums[i] / counts[i];
+		}
+
+		/**
+		 * @param cell the key of a cell.
+		 * @return the position of the cell, or a negative number if it holds no
+		 *         points.
+		 */
+		public int indexOf(long cell) {
+			return Arrays.binarySearch(cells, cell);
+		}
+
+		/**
+		 * @return the number of points in every cell.
+		 */
+		public long getTotalCount() {
+			long total = 0;
+			for (long count : counts)
+				total += count;
+			return total;
+		}
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.cluster;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.index.DegreeGrid;
+import com.javadocmd.simplelatlng.index.GridIndex;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+/**
+ * <p>
+ * Clusters the points of a {@link LatLngArray} by density, with DBSCAN. A
+ * point is a core point when at least <code>minPoints</code> points, itself
+ * included, lie within the distance epsilon of it. Core points within epsilon
+ * of one another are in the same cluster; every other point within epsilon of
+ * a core point is a border point of the cluster of its nearest such core
+ * point, or of the lowest-indexed one when several are equally near; and the
+ * rest are noise.
+ * </p>
+ * <p>
+ * With border points settled that way, the clusters are the same whatever the
+ * order of the points, and whether they are found sequentially or in
+ * parallel. Neighborhoods are found through a {@link GridIndex} with cells the
+ * size of epsilon.
+ * </p>
+ */
+public class Dbscan {
+
+	/**
+	 * The label of a point in no cluster.
+	 */
+	public static final int NOISE = -1;
+
+	private static final int PARALLEL_THRESHOLD = 1 << 12;
+
+	/**
+	 * Clusters points.
+	 *
+	 * @param points    the points.
+	 * @param epsilon   the neighborhood distance.
+	 * @param unit      the unit of the distance.
+	 * @param minPoints the number of points, including itself, that must lie
+	 *                  within the distance of a point to make it a core point.
+	 * @return for each point, the number of its cluster or {@link #NOISE};
+	 *         clusters are numbered from 0 in the order of their
+	 *         lowest-indexed core points.
+	 */
+	public static int[] cluster(LatLngArray points, double epsilon, LengthUnit unit, int minPoints) {
+		return cluster(points, epsilon, unit, minPoints, false);
+	}
+
+	/**
+	 * Clusters points, finding neighborhoods in parallel in the
+	 * {@link ForkJoinPool#commonPool()}. The result is the same as that of
+	 * {@link #cluster(LatLngArray, double, LengthUnit, int)}.
+	 *
+	 * @param points    the points.
+	 * @param epsilon   the neighborhood distance.
+	 * @param unit      the unit of the distance.
+	 * @param minPoints the number of points, including itself, that must lie
+	 *                  within the distance of a point to make it a core point.
+	 * @return for each point, the number of its cluster or {@link #NOISE}.
+	 */
+	public static int[] parallelCluster(LatLngArray points, double epsilon, LengthUnit unit, int minPoints) {
+		return cluster(points, epsilon, unit, minPoints, true);
+	}
+
+	/**
+	 * Counts the clusters in the result of a clustering.
+	 *
+	 * @param labels the labels of a clustering.
+	 * @return the number of clusters.
+	 */
+	public static int countClusters(int[] labels) {
+		int max = NOISE;
+		for (int label : labels)
+			max = Math.max(max, label);
+		return max + 1;
+	}
+
+	private static int[] cluster(LatLngArray points, double epsilon, LengthUnit unit, int minPoints,
+			boolean parallel) {
+		if (Double.isNaN(epsilon) || epsilon < 0)
+			throw new IllegalArgumentException("Invalid distance given.");
+		if (minPoints < 1)
+			throw new IllegalArgumentException("Invalid minimum points given.");
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long began = recorder == null ? 0 : System.nanoTime();
+		int n = points.size();
+		GridIndex index = new GridIndex(points, DegreeGrid.forDistance(epsilon, unit), parallel);
+		Shared shared = new Shared(points, index, epsilon / LatLngConfig.getEarthRadius(unit), minPoints);
+
+		// First find the core points, then connect them and attach the rest.
+		run(new NeighborhoodTask(shared, false, 0, n), parallel);
+		run(new NeighborhoodTask(shared, true, 0, n), parallel);
+
+		int[] labels = new int[n];
+		int[] numbers = new int[n];
+		int clusters = 0;
+		for (int i = 0; i < n; i++) {
+			if (shared.core[i]) {
+				int root = UnionFind.find(shared.parents, i);
+				// The root is the lowest core point of its cluster, so it is
+				// always reached first.
+				if (root == i)
+					numbers[i] = clusters++;
+				labels[i] = numbers[root];
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			if (!shared.core[i]) {
+				int core = shared.nearestCore[i];
+				labels[i] = core < 0 ? NOISE : labels[core];
+			}
+		}
+		if (recorder != null)
+			recorder.record(SpatialOperation.CLUSTER, n, clusters, System.nanoTime() - began);
+		return labels;
+	}
+
+	private static void run(NeighborhoodTask task, boolean parallel) {
+		if (parallel && task.to - task.from > PARALLEL_THRESHOLD)
+			ForkJoinPool.commonPool().invoke(task);
+		else
+			task.scan();
+	}
+
+	/**
+	 * The state shared by every task of a clustering.
+	 */
+	private static class Shared {
+		final LatLngArray points;
+		final GridIndex index;
+		final double radians;
+		final int minPoints;
+		final boolean[] core;
+		final int[] nearestCore;
+		final AtomicIntegerArray parents;
+
+		Shared(LatLngArray points, GridIndex index, double radians, int minPoints) {
+			int n = points.size();
+			this.points = points;
+			this.index = index;
+			this.radians = radians;
+			this.minPoints = minPoints;
+			this.core = new boolean[n];
+			this.nearestCore = new int[n];
+			this.parents = new AtomicIntegerArray(n);
+			for (int i = 0; i < n; i++)
+				parents.set(i, i);
+		}
+	}
+
+	/**
+	 * Visits the neighborhood of each point of a range. In the first pass it
+	 * marks the core points; in the second, it merges the clusters of each core
+	 * point and its core neighbors, and finds each other point's nearest core
+	 * neighbor. Each point's own slots are written only by the task holding it.
+	 * Only the parallel form splits the range; {@link #scan()} runs it all on
+	 * the calling thread.
+	 */
+	private static class NeighborhoodTask extends RecursiveAction implements GridIndex.Visitor {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Shared shared;
+		private final boolean connect;
+		private final int from;
+		private final int to;
+		private int current;
+		private int count;
+		private int nearest;
+		private double nearestRadians;
+
+		NeighborhoodTask(Shared shared, boolean connect, int from, int to) {
+			this.shared = shared;
+			this.connect = connect;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > PARALLEL_THRESHOLD) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new NeighborhoodTask(shared, connect, from, mid),
+						new NeighborhoodTask(shared, connect, mid, to));
+				return;
+			}
+			scan();
+		}
+
+		void scan() {
+			for (current = from; current < to; current++) {
+				count = 0;
+				nearest = -1;
+				nearestRadians = Double.POSITIVE_INFINITY;
+				shared.index.forEachWithin(shared.points.getLatitude(current), shared.points.getLongitude(current),
+						shared.radians, this);
+				if (!connect)
+					shared.core[current] = count >= shared.minPoints;
+				else if (!shared.core[current])
+					shared.nearestCore[current] = nearest;
+			}
+		}
+
+		@Override
+		public void visit(int index, double radians) {
+			if (!connect) {
+				count++;
+			} else if (shared.core[index] && index != current) {
+				if (shared.core[current]) {
+					if (index > current)
+						UnionFind.union(shared.parents, current, index);
+				} else if (radians < nearestRadians || (radians == nearestRadians && index < nearest)) {
+					nearest = index;
+					nearestRadians = radians;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.cluster;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.index.DegreeGrid;
+import com.javadocmd.simplelatlng.index.GridIndex;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+/**
+ * <p>
+ * Groups near-duplicate points of a {@link LatLngArray}. Two points are in the
+ * same group when they lie within the duplicate distance of one another, or of
+ * a chain of points in the group; the groups are the same whatever the order of
+ * the points, and whether they are found sequentially or in parallel.
+ * </p>
+ * <p>
+ * Points are put in a {@link GridIndex} with {@link DegreeGrid} cells the size
+ * of the duplicate distance, so that each point is compared, with
+ * {@link LatLngTool#distanceInRadians(double, double, double, double)}, only
+ * against points in neighboring cells. To deduplicate a stream that does not
+ * fit in memory, see {@link StreamingDeduplicator}.
+ * </p>
+ */
+public class Deduplicator {
+
+	private static final int PARALLEL_THRESHOLD = 1 << 12;
+
+	/**
+	 * Groups near-duplicate points.
+	 *
+	 * @param points   the points.
+	 * @param distance the distance within which points are duplicates.
+	 * @param unit     the unit of the distance.
+	 * @return for each point, the lowest index of any point in its group; so a
+	 *         point is the first of its group exactly when its label is its own
+	 *         index.
+	 */
+	public static int[] group(LatLngArray points, double distance, LengthUnit unit) {
+		return group(points, distance, unit, false);
+	}
+
+	/**
+	 * Groups near-duplicate points, comparing points in parallel in the
+	 * {@link ForkJoinPool#commonPool()}. The result is the same as that of
+	 * {@link #group(LatLngArray, double, LengthUnit)}.
+	 *
+	 * @param points   the points.
+	 * @param distance the distance within which points are duplicates.
+	 * @param unit     the unit of the distance.
+	 * @return for each point, the lowest index of any point in its group.
+	 */
+	public static int[] parallelGroup(LatLngArray points, double distance, LengthUnit unit) {
+		return group(points, distance, unit, true);
+	}
+
+	/**
+	 * Counts the groups in the result of a grouping.
+	 *
+	 * @param labels the labels of a grouping.
+	 * @return the number of groups.
+	 */
+	public static int countGroups(int[] labels) {
+		int count = 0;
+		for (int i = 0; i < labels.length; i++)
+			if (labels[i] == i)
+				count++;
+		return count;
+	}
+
+	private static int[] group(LatLngArray points, double distance, LengthUnit unit, boolean parallel) {
+		if (Double.isNaN(distance) || distance < 0)
+			throw new IllegalArgumentException("Invalid distance given.");
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long began = recorder == null ? 0 : System.nanoTime();
+		int n = points.size();
+		GridIndex index = new GridIndex(points, DegreeGrid.forDistance(distance, unit), parallel);
+		AtomicIntegerArray parents = new AtomicIntegerArray(n);
+		for (int i = 0; i < n; i++)
+			parents.set(i, i);
+		CompareTask task = new CompareTask(points, index, distance / LatLngConfig.getEarthRadius(unit), parents, 0,
+				n);
+		if (parallel && n > PARALLEL_THRESHOLD)
+			ForkJoinPool.commonPool().invoke(task);
+		else
+			task.scan();
+
+		// Roots always point at lower indices, so each group's root is already
+		// the lowest point index in it.
+		int[] labels = new int[n];
+		for (int i = 0; i < n; i++)
+			labels[i] = UnionFind.find(parents, i);
+		if (recorder != null)
+			recorder.record(SpatialOperation.DEDUPLICATE, n, countGroups(labels), System.nanoTime() - began);
+		return labels;
+	}
+
+	/**
+	 * Compares each point of a range against the later points within the
+	 * distance of it, merging their groups. Only the parallel form splits the
+	 * range; {@link #scan()} runs it all on the calling thread.
+	 */
+	private static class CompareTask extends RecursiveAction implements GridIndex.Visitor {
+
+		private static final long serialVersionUID = 1L;
+
+		private final LatLngArray points;
+		private final GridIndex index;
+		private final double radians;
+		private final AtomicIntegerArray parents;
+		private final int from;
+		private final int to;
+		private int current;
+
+		CompareTask(LatLngArray points, GridIndex index, double radians, AtomicIntegerArray parents, int from,
+				int to) {
+			this.points = points;
+			this.index = index;
+			this.radians = radians;
+			this.parents = parents;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > PARALLEL_THRESHOLD) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new CompareTask(points, index, radians, parents, from, mid),
+						new CompareTask(points, index, radians, parents, mid, to));
+				return;
+			}
+			scan();
+		}
+
+		void scan() {
+			for (current = from; current < to; current++)
+				index.forEachWithin(points.getLatitude(current), points.getLongitude(current), radians, this);
+		}
+
+		@Override
+		public void visit(int other, double radians) {
+			if (other > current)
+				UnionFind.union(parents, current, other);
+		}
+	}
+}
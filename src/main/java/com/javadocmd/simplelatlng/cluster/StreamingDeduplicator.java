@@ -0,0 +1,178 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.cluster;
+
+import java.util.function.LongConsumer;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.collect.LatLngLongMap;
+import com.javadocmd.simplelatlng.index.DegreeGrid;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+/**
+ * <p>
+ * Detects near-duplicate points in a stream in bounded memory. Each offered
+ * point is compared against the most recently kept points: if one lies within
+ * the duplicate distance, the offered point is a duplicate of it; otherwise the
+ * offered point is kept. Once the capacity is reached, the oldest kept point
+ * is forgotten to make room, so duplicates are only caught while the original
+ * is among the most recent <code>capacity</code> kept points.
+ * </p>
+ * <p>
+ * Kept points are bucketed in a {@link DegreeGrid} so that each offer checks
+ * only points in neighboring cells with
+ * {@link LatLngTool#distanceInRadians(double, double, double, double)}.
+ * Memory use is fixed by the capacity. This class is not thread-safe; see
+ * {@link Deduplicator} to deduplicate a whole batch of points in parallel.
+ * </p>
+ */
+public class StreamingDeduplicator {
+
+	private static final int NONE = -1;
+
+	private final double radians;
+	private final DegreeGrid grid;
+	private final int capacity;
+
+	// Kept points, in a ring buffer ordered oldest to newest.
+	private final long[] latitudes;
+	private final long[] longitudes;
+	private final long[] cells;
+	// Each cell's kept points form a list, newest first, threaded through these.
+	private final int[] next;
+	private final int[] previous;
+	private final LatLngLongMap heads;
+	private int oldest;
+	private int size;
+
+	private final Search search = new Search();
+
+	/**
+	 * Creates a deduplicator.
+	 *
+	 * @param distance the distance within which points are duplicates.
+	 * @param unit     the unit of the distance.
+	 * @param capacity the number of kept points to remember.
+	 */
+	public StreamingDeduplicator(double distance, LengthUnit unit, int capacity) {
+		if (Double.isNaN(distance) || distance < 0)
+			throw new IllegalArgumentException("Invalid distance given.");
+		if (capacity < 1)
+			throw new IllegalArgumentException("Invalid capacity given.");
+		this.radians = distance / LatLngConfig.getEarthRadius(unit);
+		this.grid = DegreeGrid.forDistance(distance, unit);
+		this.capacity = capacity;
+		this.latitudes = new long[capacity];
+		this.longitudes = new long[capacity];
+		this.cells = new long[capacity];
+		this.next = new int[capacity];
+		this.previous = new int[capacity];
+		this.heads = new LatLngLongMap(capacity);
+	}
+
+	/**
+	 * Offers a point, keeping it unless it duplicates a remembered point.
+	 *
+	 * @param point the point.
+	 * @return the nearest remembered point within the duplicate distance, or
+	 *         null if there was none and <code>point</code> has been kept.
+	 */
+	public LatLng offer(LatLng point) {
+		double latitude = point.getLatitude();
+		double longitude = point.getLongitude();
+		search.begin(latitude, longitude);
+		grid.forEachCellWithin(latitude, longitude, radians, search);
+		if (search.nearest != NONE)
+			return LatLng.fromInternal(latitudes[search.nearest], longitudes[search.nearest]);
+		keep(point.getLatitudeInternal(), point.getLongitudeInternal(), grid.cellOf(latitude, longitude));
+		return null;
+	}
+
+	private void keep(long latitude, long longitude, long cell) {
+		int slot;
+		if (size == capacity) {
+			slot = oldest;
+			forget(slot);
+			oldest = (oldest + 1) % capacity;
+		} else {
+			slot = (oldest + size++) % capacity;
+		}
+		latitudes[slot] = latitude;
+		longitudes[slot] = longitude;
+		cells[slot] = cell;
+		int head = (int) heads.put(cell, slot, NONE);
+		next[slot] = head;
+		previous[slot] = NONE;
+		if (head != NONE)
+			previous[head] = slot;
+	}
+
+	private void forget(int slot) {
+		// The oldest point is always last in its cell's list.
+		int before = previous[slot];
+		if (before == NONE)
+			heads.remove(cells[slot], NONE);
+		else
+			next[before] = NONE;
+	}
+
+	/**
+	 * @return the number of points currently remembered.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Forgets all remembered points.
+	 */
+	public void clear() {
+		heads.clear();
+		oldest = 0;
+		size = 0;
+	}
+
+	/**
+	 * Finds the nearest kept point within the distance among the visited cells.
+	 */
+	private class Search implements LongConsumer {
+		private double latitude;
+		private double longitude;
+		private int nearest;
+		private double nearestRadians;
+
+		void begin(double latitude, double longitude) {
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.nearest = NONE;
+			this.nearestRadians = radians;
+		}
+
+		@Override
+		public void accept(long cell) {
+			for (int i = (int) heads.get(cell, NONE); i != NONE; i = next[i]) {
+				double d = LatLngTool.distanceInRadians(latitude, longitude,
+						LatLngConfig.longToDouble(latitudes[i]), LatLngConfig.longToDouble(longitudes[i]));
+				if (d <= nearestRadians) {
+					nearest = i;
+					nearestRadians = d;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.cluster;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A union-find over positions that many threads may merge at once. Each
+ * position's parent starts as itself, and roots only ever come to point at
+ * lower positions, so the root of a group is its lowest position.
+ */
+class UnionFind {
+
+	/**
+	 * Finds the root of a position's group, halving the path as it goes.
+	 * Parents only ever point to lower positions, so concurrent halving is safe.
+	 */
+	static int find(AtomicIntegerArray parents, int k) {
+		int parent;
+		while ((parent = parents.get(k)) != k) {
+			int grandparent = parents.get(parent);
+			if (grandparent != parent)
+				parents.compareAndSet(k, parent, grandparent);
+			k = parent;
+		}
+		return k;
+	}
+
+	/**
+	 * Merges the groups of two positions by pointing the higher root at the
+	 * lower one.
+	 */
+	static void union(AtomicIntegerArray parents, int a, int b) {
+		while (true) {
+			a = find(parents, a);
+			b = find(parents, b);
+			if (a == b)
+				return;
+			if (a < b) {
+				int t = a;
+				a = b;
+				b = t;
+			}
+			if (parents.compareAndSet(a, a, b))
+				return;
+		}
+	}
+
+	private UnionFind() {
+
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.collect;
+
+import java.util.Arrays;
+
+/**
+ * The open-addressing table shared by the collections in this package: a
+ * power-of-two array of keys probed linearly from {@link LatLngKey#hash(long)},
+ * with {@link LatLngKey#NONE} marking empty slots. Removal shifts later entries
+ * of the probe run back rather than leaving tombstones, so lookups never slow
+ * down as entries come and go. Subclasses keep any values in a parallel array.
+ */
+abstract class LatLngHash {
+
+	static final int MIN_CAPACITY = 8;
+	static final int MAX_CAPACITY = 1 << 30;
+
+	long[] keys;
+	int mask;
+	int size;
+	private int threshold;
+
+	LatLngHash(int expectedSize) {
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("Expected size may not be negative.");
+		allocate(capacityFor(expectedSize));
+	}
+
+	/**
+	 * @param expectedSize a number of entries.
+	 * @return the smallest table capacity that holds that many entries within
+	 *         the load factor of 3/4.
+	 */
+	static int capacityFor(int expectedSize) {
+		long needed = (long) expectedSize * 4 / 3 + 1;
+		if (needed > MAX_CAPACITY)
+			throw new IllegalArgumentException("Expected size is too large.");
+		int capacity = MIN_CAPACITY;
+		while (capacity < needed)
+			capacity <<= 1;
+		return capacity;
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, LatLngKey.NONE);
+		mask = capacity - 1;
+		threshold = capacity - (capacity >> 2);
+		allocateValues(capacity);
+	}
+
+	/**
+	 * @return the number of entries.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if there are no entries.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all entries, keeping the current capacity.
+	 */
+	public void clear() {
+		Arrays.fill(keys, LatLngKey.NONE);
+		clearValues();
+		size = 0;
+	}
+
+	/**
+	 * Finds the slot of a key.
+	 *
+	 * @param key the key.
+	 * @return the key's slot if present, else <code>-(insertion slot) - 1</code>.
+	 */
+	final int find(long key) {
+		if (key == LatLngKey.NONE)
+			throw new IllegalArgumentException("Invalid key given.");
+		long[] keys = this.keys;
+		int mask = this.mask;
+		int slot = LatLngKey.hash(key) & mask;
+		long k;
+		while ((k = keys[slot]) != LatLngKey.NONE) {
+			if (k == key)
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+		return -slot - 1;
+	}
+
+	/**
+	 * Stores a new key at the insertion slot returned by {@link #find(long)},
+	 * growing the table if it has become too full.
+	 *
+	 * @param slot the (decoded) insertion slot.
+	 * @param key  the key.
+	 * @return the key's slot, which differs from <code>slot</code> if the
+	 *         table grew.
+	 */
+	final int insert(int slot, long key) {
+		keys[slot] = key;
+		if (++size > threshold) {
+			rehash(keys.length << 1);
+			return find(key);
+		}
+		return slot;
+	}
+
+	/**
+	 * Removes the entry at a slot and closes the gap by shifting back any
+	 * following entries whose probe run passes through it.
+	 *
+	 * @param slot the slot of an entry.
+	 */
+	final void removeAt(int slot) {
+		long[] keys = this.keys;
+		int mask = this.mask;
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		long k;
+		while ((k = keys[next]) != LatLngKey.NONE) {
+			int home = LatLngKey.hash(k) & mask;
+			// The entry may fill the gap only if its home slot is not cyclically
+			// within (gap, next].
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = k;
+				moveValue(next, gap);
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[gap] = LatLngKey.NONE;
+		clearValue(gap);
+		size--;
+	}
+
+	private void rehash(int capacity) {
+		if (capacity > MAX_CAPACITY || capacity <= 0)
+			throw new IllegalStateException("Table is full.");
+		long[] oldKeys = keys;
+		Object oldValues = values();
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			long k = oldKeys[i];
+			if (k != LatLngKey.NONE) {
+				int slot = LatLngKey.hash(k) & mask;
+				while (keys[slot] != LatLngKey.NONE)
+					slot = (slot + 1) & mask;
+				keys[slot] = k;
+				copyValue(oldValues, i, slot);
+			}
+		}
+	}
+
+	/**
+	 * @return a copy of all the keys, in no particular order.
+	 */
+	final long[] copyKeys() {
+		long[] result = new long[size];
+		int j = 0;
+		for (long k : keys)
+			if (k != LatLngKey.NONE)
+				result[j++] = k;
+		return result;
+	}
+
+	/** Creates the value array, if any, for a table of the given capacity. */
+	abstract void allocateValues(int capacity);
+
+	/** @return the current value array, if any. */
+	abstract Object values();
+
+	/** Copies a value from a previous value array during a rehash. */
+	abstract void copyValue(Object oldValues, int from, int to);
+
+	/** Moves a value between slots of the current value array. */
+	abstract void moveValue(int from, int to);
+
+	/** Clears the value at a slot. */
+	abstract void clearValue(int slot);
+
+	/** Clears all values. */
+	abstract void clearValues();
+}
@@ -0,0 +1,125 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.collect;
+
+import com.javadocmd.simplelatlng.CompactLatLng;
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+
+/**
+ * <p>
+ * Packs a point's internal latitude and longitude (see
+ * {@link LatLng#getLatitudeInternal()}) into a single <code>long</code>: the
+ * latitude in the high 32 bits and the longitude in the low 32 bits. Two
+ * points have the same key exactly when they are <code>equals()</code>, so
+ * keys can stand in for LatLng objects in lookup tables.
+ * </p>
+ * <p>
+ * No valid key has <code>Integer.MIN_VALUE</code> as its latitude, so
+ * {@link #NONE} is never a key; the collections in this package rely on that.
+ * </p>
+ */
+public final class LatLngKey {
+
+	/** A value that is never the key of a valid point. */
+	public static final long NONE = Long.MIN_VALUE;
+
+	/**
+	 * @param point the point.
+	 * @return the point's key.
+	 */
+	public static long pack(LatLng point) {
+		return pack(point.getLatitudeInternal(), point.getLongitudeInternal());
+	}
+
+	/**
+	 * Keys are always built from the internal (1e-6 degree) representation, so
+	 * finer precisions are truncated.
+	 *
+	 * @param point the point.
+	 * @return the point's key.
+	 */
+	public static long pack(CompactLatLng point) {
+		return pack(point.getPrecision().toInternal(point.getLatitudeFixed()),
+				point.getPrecision().toInternal(point.getLongitudeFixed()));
+	}
+
+	/**
+	 * @param points an array of points.
+	 * @param index  the index of the point.
+	 * @return the point's key.
+	 */
+	public static long pack(LatLngArray points, int index) {
+		return pack(points.getLatitudeInternal(index), points.getLongitudeInternal(index));
+	}
+
+	/**
+	 * @param latitude  the internal representation of latitude.
+	 * @param longitude the internal representation of longitude.
+	 * @return the key.
+	 */
+	public static long pack(long latitude, long longitude) {
+		return (latitude << 32) | (longitude & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @param key a key.
+	 * @return the internal representation of the key's latitude.
+	 */
+	public static long latitudeInternal(long key) {
+		return key >> 32;
+	}
+
+	/**
+	 * @param key a key.
+	 * @return the internal representation of the key's longitude.
+	 */
+	public static long longitudeInternal(long key) {
+		return (int) key;
+	}
+
+	/**
+	 * @param key a key.
+	 * @return a new LatLng for the key.
+	 * @throws IllegalArgumentException if the key does not describe a valid
+	 *                                  point.
+	 */
+	public static LatLng toLatLng(long key) {
+		return LatLng.fromInternal(latitudeInternal(key), longitudeInternal(key));
+	}
+
+	/**
+	 * A well-mixed hash of a key (the finalizer of MurmurHash3). Nearby points
+	 * differ only in the low bits of each half of their keys; mixing spreads
+	 * those differences over the whole hash so clustered points do not cluster
+	 * in a hash table.
+	 *
+	 * @param key a key.
+	 * @return the hash.
+	 */
+	public static int hash(long key) {
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (int) h;
+	}
+
+	private LatLngKey() {
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.collect;
+
+import com.javadocmd.simplelatlng.LatLng;
+
+/**
+ * <p>
+ * A map from points to <code>long</code> values, held as packed
+ * {@link LatLngKey} values and primitive values in two parallel arrays. Neither
+ * keys nor values are boxed, so an entry costs between 21.3 and 42.7 bytes
+ * depending on how full the table is, compared to upwards of 100 for a
+ * <code>HashMap&lt;LatLng, Long&gt;</code>.
+ * </p>
+ * <p>
+ * Any <code>long</code> other than {@link LatLngKey#NONE} may be used as a key.
+ * This class is not thread-safe.
+ * </p>
+ */
+public class LatLngLongMap extends LatLngHash {
+
+	/**
+	 * Receives the entries of a map.
+	 */
+	public interface EntryConsumer {
+		/**
+		 * @param key   the entry's key.
+		 * @param value the entry's value.
+		 */
+		void accept(long key, long value);
+	}
+
+	private long[] values;
+
+	/**
+	 * Creates an empty map.
+	 */
+	public LatLngLongMap() {
+		this(0);
+	}
+
+	/**
+	 * Creates an empty map which can hold the given number of entries without
+	 * growing.
+	 *
+	 * @param expectedSize the expected number of entries.
+	 */
+	public LatLngLongMap(int expectedSize) {
+		super(expectedSize);
+	}
+
+	/**
+	 * @param point        a point.
+	 * @param defaultValue the value to return if the point is not present.
+	 * @return the point's value, or <code>defaultValue</code>.
+	 */
+	public long get(LatLng point, long defaultValue) {
+		return get(LatLngKey.pack(point), defaultValue);
+	}
+
+	/**
+	 * @param key          a key.
+	 * @param defaultValue the value to return if the key is not present.
+	 * @return the key's value, or <code>defaultValue</code>.
+	 */
+	public long get(long key, long defaultValue) {
+		int slot = find(key);
+		return slot < 0 ? defaultValue : values[slot];
+	}
+
+	/**
+	 * @param point a point.
+	 * @return true if the point is present.
+	 */
+	public boolean containsKey(LatLng point) {
+		return containsKey(LatLngKey.pack(point));
+	}
+
+	/**
+	 * @param key a key.
+	 * @return true if the key is present.
+	 */
+	public boolean containsKey(long key) {
+		return find(key) >= 0;
+	}
+
+	/**
+	 * @param point        a point.
+	 * @param value        the value to associate with the point.
+	 * @param defaultValue the value to return if the point was not present.
+	 * @return the point's previous value, or <code>defaultValue</code>.
+	 */
+	public long put(LatLng point, long value, long defaultValue) {
+		return put(LatLngKey.pack(point), value, defaultValue);
+	}
+
+	/**
+	 * @param key          a key.
+	 * @param value        the value to associate with the key.
+	 * @param defaultValue the value to return if the key was not present.
+	 * @return the key's previous value, or <code>defaultValue</code>.
+	 */
+	public long put(long key, long value, long defaultValue) {
+		int slot = find(key);
+		if (slot >= 0) {
+			long previous = values[slot];
+			values[slot] = value;
+			return previous;
+		}
+		slot = insert(-slot - 1, key);
+		values[slot] = value;
+		return defaultValue;
+	}
+
+	/**
+	 * Adds to a point's value, treating an absent point as zero.
+	 *
+	 * @param point a point.
+	 * @param delta the amount to add.
+	 * @return the point's new value.
+	 */
+	public long addTo(LatLng point, long delta) {
+		return addTo(LatLngKey.pack(point), delta);
+	}
+
+	/**
+	 * Adds to a key's value, treating an absent key as zero.
+	 *
+	 * @param key   a key.
+	 * @param delta the amount to add.
+	 * @return the key's new value.
+	 */
+	public long addTo(long key, long delta) {
+		int slot = find(key);
+		if (slot >= 0)
+			return values[slot] += delta;
+		slot = insert(-slot - 1, key);
+		values[slot] = delta;
+		return delta;
+	}
+
+	/**
+	 * @param point        a point.
+	 * @param defaultValue the value to return if the point was not present.
+	 * @return the point's removed value, or <code>defaultValue</code>.
+	 */
+	public long remove(LatLng point, long defaultValue) {
+		return remove(LatLngKey.pack(point), defaultValue);
+	}
+
+	/**
+	 * @param key          a key.
+	 * @param defaultValue the value to return if the key was not present.
+	 * @return the key's removed value, or <code>defaultValue</code>.
+	 */
+	public long remove(long key, long defaultValue) {
+		int slot = find(key);
+		if (slot < 0)
+			return defaultValue;
+		long previous = values[slot];
+		removeAt(slot);
+		return previous;
+	}
+
+	/**
+	 * Passes every entry to the given consumer, in no particular order. The map
+	 * must not be modified until this returns.
+	 *
+	 * @param consumer the consumer of entries.
+	 */
+	public void forEach(EntryConsumer consumer) {
+		long[] keys = this.keys;
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] != LatLngKey.NONE)
+				consumer.accept(keys[i], values[i]);
+	}
+
+	/**
+	 * @return a new array of all the keys, in no particular order.
+	 */
+	public long[] keys() {
+		return copyKeys();
+	}
+
+	@Override
+	void allocateValues(int capacity) {
+		values = new long[capacity];
+	}
+
+	@Override
+	Object values() {
+		return values;
+	}
+
+	@Override
+	void copyValue(Object oldValues, int from, int to) {
+		values[to] = ((long[]) oldValues)[from];
+	}
+
+	@Override
+	void moveValue(int from, int to) {
+		values[to] = values[from];
+	}
+
+	@Override
+	void clearValue(int slot) {
+	}
+
+	@Override
+	void clearValues() {
+	}
+}
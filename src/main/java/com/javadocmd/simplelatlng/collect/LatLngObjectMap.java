@@ -0,0 +1,226 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.collect;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+import com.javadocmd.simplelatlng.LatLng;
+
+/**
+ * <p>
+ * A map from points to objects, held as packed {@link LatLngKey} values and
+ * references in two parallel arrays. Keys are never boxed, so lookups neither
+ * allocate nor call <code>equals()</code>.
+ * </p>
+ * <p>
+ * Any <code>long</code> other than {@link LatLngKey#NONE} may be used as a key.
+ * Values may not be null. This class is not thread-safe.
+ * </p>
+ *
+ * @param <V> the type of values.
+ */
+public class LatLngObjectMap<V> extends LatLngHash {
+
+	/**
+	 * Receives the entries of a map.
+	 *
+	 * @param <V> the type of values.
+	 */
+	public interface EntryConsumer<V> {
+		/**
+		 * @param key   the entry's key.
+		 * @param value the entry's value.
+		 */
+		void accept(long key, V value);
+	}
+
+	private Object[] values;
+
+	/**
+	 * Creates an empty map.
+	 */
+	public LatLngObjectMap() {
+		this(0);
+	}
+
+	/**
+	 * Creates an empty map which can hold the given number of entries without
+	 * growing.
+	 *
+	 * @param expectedSize the expected number of entries.
+	 */
+	public LatLngObjectMap(int expectedSize) {
+		super(expectedSize);
+	}
+
+	/**
+	 * @param point a point.
+	 * @return the point's value, or null if it is not present.
+	 */
+	public V get(LatLng point) {
+		return get(LatLngKey.pack(point));
+	}
+
+	/**
+	 * @param key a key.
+	 * @return the key's value, or null if it is not present.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int slot = find(key);
+		return slot < 0 ? null : (V) values[slot];
+	}
+
+	/**
+	 * @param point a point.
+	 * @return true if the point is present.
+	 */
+	public boolean containsKey(LatLng point) {
+		return containsKey(LatLngKey.pack(point));
+	}
+
+	/**
+	 * @param key a key.
+	 * @return true if the key is present.
+	 */
+	public boolean containsKey(long key) {
+		return find(key) >= 0;
+	}
+
+	/**
+	 * @param point a point.
+	 * @param value the value to associate with the point.
+	 * @return the point's previous value, or null.
+	 */
+	public V put(LatLng point, V value) {
+		return put(LatLngKey.pack(point), value);
+	}
+
+	/**
+	 * @param key   a key.
+	 * @param value the value to associate with the key.
+	 * @return the key's previous value, or null.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		if (value == null)
+			throw new IllegalArgumentException("Value may not be null.");
+		int slot = find(key);
+		if (slot >= 0) {
+			V previous = (V) values[slot];
+			values[slot] = value;
+			return previous;
+		}
+		slot = insert(-slot - 1, key);
+		values[slot] = value;
+		return null;
+	}
+
+	/**
+	 * Returns a key's value, first creating and storing it if the key is not
+	 * present.
+	 *
+	 * @param key     a key.
+	 * @param factory creates the value from the key.
+	 * @return the key's value.
+	 */
+	@SuppressWarnings("unchecked")
+	public V computeIfAbsent(long key, LongFunction<? extends V> factory) {
+		int slot = find(key);
+		if (slot >= 0)
+			return (V) values[slot];
+		V value = factory.apply(key);
+		if (value == null)
+			throw new IllegalArgumentException("Value may not be null.");
+		slot = insert(-slot - 1, key);
+		values[slot] = value;
+		return value;
+	}
+
+	/**
+	 * @param point a point.
+	 * @return the point's removed value, or null.
+	 */
+	public V remove(LatLng point) {
+		return remove(LatLngKey.pack(point));
+	}
+
+	/**
+	 * @param key a key.
+	 * @return the key's removed value, or null.
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		int slot = find(key);
+		if (slot < 0)
+			return null;
+		V previous = (V) values[slot];
+		removeAt(slot);
+		return previous;
+	}
+
+	/**
+	 * Passes every entry to the given consumer, in no particular order. The map
+	 * must not be modified until this returns.
+	 *
+	 * @param consumer the consumer of entries.
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(EntryConsumer<? super V> consumer) {
+		long[] keys = this.keys;
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] != LatLngKey.NONE)
+				consumer.accept(keys[i], (V) values[i]);
+	}
+
+	/**
+	 * @return a new array of all the keys, in no particular order.
+	 */
+	public long[] keys() {
+		return copyKeys();
+	}
+
+	@Override
+	void allocateValues(int capacity) {
+		values = new Object[capacity];
+	}
+
+	@Override
+	Object values() {
+		return values;
+	}
+
+	@Override
+	void copyValue(Object oldValues, int from, int to) {
+		values[to] = ((Object[]) oldValues)[from];
+	}
+
+	@Override
+	void moveValue(int from, int to) {
+		values[to] = values[from];
+	}
+
+	@Override
+	void clearValue(int slot) {
+		values[slot] = null;
+	}
+
+	@Override
+	void clearValues() {
+		Arrays.fill(values, null);
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.collect;
+
+import java.util.function.LongConsumer;
+
+import com.javadocmd.simplelatlng.LatLng;
+
+/**
+ * <p>
+ * A set of points held as packed {@link LatLngKey} values in a single
+ * <code>long</code> array, costing between 10.7 and 21.3 bytes per point
+ * depending on how full the table is. Two points are the same member exactly
+ * when they are <code>equals()</code>.
+ * </p>
+ * <p>
+ * Any <code>long</code> other than {@link LatLngKey#NONE} may be used as a key,
+ * so the set works equally well for other packed values such as grid cells.
+ * This class is not thread-safe.
+ * </p>
+ */
+public class LatLngSet extends LatLngHash {
+
+	/**
+	 * Creates an empty set.
+	 */
+	public LatLngSet() {
+		this(0);
+	}
+
+	/**
+	 * Creates an empty set which can hold the given number of points without
+	 * growing.
+	 *
+	 * @param expectedSize the expected number of points.
+	 */
+	public LatLngSet(int expectedSize) {
+		super(expectedSize);
+	}
+
+	/**
+	 * @param point a point.
+	 * @return true if the point was added, false if it was already present.
+	 */
+	public boolean add(LatLng point) {
+		return add(LatLngKey.pack(point));
+	}
+
+	/**
+	 * @param key a key.
+	 * @return true if the key was added, false if it was already present.
+	 */
+	public boolean add(long key) {
+		int slot = find(key);
+		if (slot >= 0)
+			return false;
+		insert(-slot - 1, key);
+		return true;
+	}
+
+	/**
+	 * @param point a point.
+	 * @return true if the point is present.
+	 */
+	public boolean contains(LatLng point) {
+		return contains(LatLngKey.pack(point));
+	}
+
+	/**
+	 * @param key a key.
+	 * @return true if the key is present.
+	 */
+	public boolean contains(long key) {
+		return find(key) >= 0;
+	}
+
+	/**
+	 * @param point a point.
+	 * @return true if the point was removed, false if it was not present.
+	 */
+	public boolean remove(LatLng point) {
+		return remove(LatLngKey.pack(point));
+	}
+
+	/**
+	 * @param key a key.
+	 * @return true if the key was removed, false if it was not present.
+	 */
+	public boolean remove(long key) {
+		int slot = find(key);
+		if (slot < 0)
+			return false;
+		removeAt(slot);
+		return true;
+	}
+
+	/**
+	 * Passes every key to the given consumer, in no particular order. The set
+	 * must not be modified until this returns.
+	 *
+	 * @param consumer the consumer of keys.
+	 */
+	public void forEach(LongConsumer consumer) {
+		for (long k : keys)
+			if (k != LatLngKey.NONE)
+				consumer.accept(k);
+	}
+
+	/**
+	 * @return a new array of all the keys, in no particular order.
+	 */
+	public long[] toArray() {
+		return copyKeys();
+	}
+
+	@Override
+	void allocateValues(int capacity) {
+	}
+
+	@Override
+	Object values() {
+		return null;
+	}
+
+	@Override
+	void copyValue(Object oldValues, int from, int to) {
+	}
+
+	@Override
+	void moveValue(int from, int to) {
+	}
+
+	@Override
+	void clearValue(int slot) {
+	}
+
+	@Override
+	void clearValues() {
+	}
+}
@@ -0,0 +1,594 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.collect.LatLngObjectMap;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+/**
+ * <p>
+ * Keeps the k nearest objects of each of a set of query points up to date as
+ * objects are added, moved and removed, such as the nearest available drivers
+ * to each open order.
+ * </p>
+ * <p>
+ * Objects are kept in the cells of a {@link DegreeGrid}. Each query point is
+ * registered in every cell within the distance of its k-th nearest object,
+ * its safe region: an object moving outside every query's region cannot
+ * change any result. When an object moves, only the queries registered in
+ * its old and new cells are checked. Most checks are settled without a
+ * search: an object coming nearer than the k-th takes its place, and one of
+ * the k staying nearer than the k-th changes only the order. Only when one of
+ * the k is removed, or moves out as far as the k-th or beyond, where an
+ * object outside the k may tie with it, is the query searched again, through
+ * cells in widening rings, and registered afresh. Once the rings would pass
+ * more cells than there are objects, every object is measured instead.
+ * Queries with fewer than k objects in reach, or whose safe region spans more
+ * than a few hundred cells, are not registered but checked on every update.
+ * </p>
+ * <p>
+ * Whenever the neighbors of a query, or their order, change, the
+ * {@link Listener} is told. Neighbors at exactly equal distances are ranked
+ * by object id. Objects and queries are numbered from 0; the number of one
+ * removed may be given to one added later.
+ * </p>
+ * <p>
+ * This class is not thread-safe. Each update of an object reports
+ * {@link SpatialOperation#CONTINUOUS_KNN} to the
+ * {@link Metrics#getRecorder() metrics recorder}, if there is one.
+ * </p>
+ */
+public class ContinuousKnn {
+
+	/**
+	 * Told of changes to the results of queries.
+	 */
+	public interface Listener {
+		/**
+		 * Called when the neighbors of a query, or their order, have changed.
+		 * The listener may read the results of any query, but must not change
+		 * the objects or queries.
+		 *
+		 * @param query the query.
+		 */
+		void resultChanged(int query);
+	}
+
+	private static final long NO_CELL = -1;
+
+	/**
+	 * The most cells a query is registered in. Checking a query on every update
+	 * costs one distance; beyond this many cells, that is cheaper than keeping
+	 * and clearing its registrations.
+	 */
+	private static final int MAX_REGISTERED_CELLS = 256;
+
+	private final DegreeGrid grid;
+	private final Listener listener;
+	private final LatLngObjectMap<IntList> cellObjects = new LatLngObjectMap<IntList>();
+	private final LatLngObjectMap<IntList> cellQueries = new LatLngObjectMap<IntList>();
+	private final LongFunction<IntList> newList = new LongFunction<IntList>() {
+		@Override
+		public IntList apply(long cell) {
+			return new IntList();
+		}
+	};
+
+	// Objects.
+	private double[] objectLatitudes = new double[16];
+	private double[] objectLongitudes = new double[16];
+	private long[] objectCells = new long[16];
+	/** The position of each object in its cell's list. */
+	private int[] objectSlots = new int[16];
+	private final IntList freeObjects = new IntList();
+	private int objectCount;
+	private int objectLimit;
+
+	// Queries.
+	private double[] queryLatitudes = new double[16];
+	private double[] queryLongitudes = new double[16];
+	/** The k of each query, or 0 for a removed query. */
+	private int[] ks = new int[16];
+	private int[][] neighbors = new int[16][];
+	private double[][] distances = new double[16][];
+	private int[] counts = new int[16];
+	/** The cells each query is registered in. */
+	private long[][] registrations = new long[16][];
+	private int[] registrationCounts = new int[16];
+	private int[] stamps = new int[16];
+	private final IntList freeQueries = new IntList();
+	/**
+	 * The queries checked on every update rather than registered in cells.
+	 */
+	private final IntList global = new IntList();
+	private int queryCount;
+	private int queryLimit;
+
+	private final IntList candidates = new IntList();
+	private final Collector collector = new Collector();
+	private final Registrar registrar = new Registrar();
+	private int[] before = new int[16];
+	private int stamp;
+
+	/**
+	 * Creates an empty index.
+	 *
+	 * @param grid     the grid, ideally with cells about the size of the usual
+	 *                 distance to the k-th nearest object.
+	 * @param listener told of changes to results, or null.
+	 */
+	public ContinuousKnn(DegreeGrid grid, Listener listener) {
+		if (grid == null)
+			throw new IllegalArgumentException("Grid may not be null.");
+		this.grid = grid;
+		this.listener = listener;
+	}
+
+	/**
+	 * @return the number of objects.
+	 */
+	public int getObjectCount() {
+		return objectCount;
+	}
+
+	/**
+	 * @return the number of queries.
+	 */
+	public int getQueryCount() {
+		return queryCount;
+	}
+
+	/**
+	 * Adds an object, updating the results of the queries it is among the
+	 * nearest objects of.
+	 *
+	 * @param latitude  the latitude in degrees, within +/- 90.
+	 * @param longitude the longitude in degrees, within +/- 180.
+	 * @return the object's number.
+	 */
+	public int addObject(double latitude, double longitude) {
+		checkPoint(latitude, longitude);
+		int object;
+		if (freeObjects.size > 0) {
+			object = freeObjects.values[--freeObjects.size];
+		} else {
+			object = objectLimit++;
+			if (object == objectCells.length) {
+				objectLatitudes = Arrays.copyOf(objectLatitudes, object * 2);
+				objectLongitudes = Arrays.copyOf(objectLongitudes, object * 2);
+				objectCells = Arrays.copyOf(objectCells, object * 2);
+				objectSlots = Arrays.copyOf(objectSlots, object * 2);
+			}
+		}
+		objectCount++;
+		objectCells[object] = NO_CELL;
+		update(object, latitude, longitude, true);
+		return object;
+	}
+
+	/**
+	 * Moves an object, updating the results of the queries it was or is now
+	 * among the nearest objects of.
+	 *
+	 * @param object    the object's number.
+	 * @param latitude  the new latitude in degrees, within +/- 90.
+	 * @param longitude the new longitude in degrees, within +/- 180.
+	 */
+	public void moveObject(int object, double latitude, double longitude) {
+		checkObject(object);
+		checkPoint(latitude, longitude);
+		update(object, latitude, longitude, true);
+	}
+
+	/**
+	 * Removes an object, updating the results of the queries it was among the
+	 * nearest objects of.
+	 *
+	 * @param object the object's number.
+	 */
+	public void removeObject(int object) {
+		checkObject(object);
+		update(object, 0, 0, false);
+		objectCount--;
+		freeObjects.add(object);
+	}
+
+	/**
+	 * Adds a query point and finds its nearest objects.
+	 *
+	 * @param latitude  the latitude in degrees, within +/- 90.
+	 * @param longitude the longitude in degrees, within +/- 180.
+	 * @param k         the number of nearest objects to keep.
+	 * @return the query's number.
+	 */
+	public int addQuery(double latitude, double longitude, int k) {
+		checkPoint(latitude, longitude);
+		if (k < 1)
+			throw new IllegalArgumentException("Invalid neighbor count given.");
+		int query;
+		if (freeQueries.size > 0) {
+			query = freeQueries.values[--freeQueries.size];
+		} else {
+			query = queryLimit++;
+			if (query == ks.length) {
+				queryLatitudes = Arrays.copyOf(queryLatitudes, query * 2);
+				queryLongitudes = Arrays.copyOf(queryLongitudes, query * 2);
+				ks = Arrays.copyOf(ks, query * 2);
+				neighbors = Arrays.copyOf(neighbors, query * 2);
+				distances = Arrays.copyOf(distances, query * 2);
+				counts = Arrays.copyOf(counts, query * 2);
+				registrations = Arrays.copyOf(registrations, query * 2);
+				registrationCounts = Arrays.copyOf(registrationCounts, query * 2);
+				stamps = Arrays.copyOf(stamps, query * 2);
+			}
+		}
+		queryCount++;
+		queryLatitudes[query] = latitude;
+		queryLongitudes[query] = longitude;
+		ks[query] = k;
+		neighbors[query] = new int[k];
+		distances[query] = new double[k];
+		counts[query] = 0;
+		registrationCounts[query] = 0;
+		if (registrations[query] == null)
+			registrations[query] = new long[16];
+		stamps[query] = stamp;
+		if (k > before.length)
+			before = new int[k];
+		search(query);
+		return query;
+	}
+
+	/**
+	 * Removes a query point.
+	 *
+	 * @param query the query's number.
+	 */
+	public void removeQuery(int query) {
+		checkQuery(query);
+		unregister(query);
+		ks[query] = 0;
+		neighbors[query] = null;
+		distances[query] = null;
+		queryCount--;
+		freeQueries.add(query);
+	}
+
+	/**
+	 * @param query the query's number.
+	 * @return the number of neighbors the query has, which is its k unless
+	 *         there are fewer objects.
+	 */
+	public int getNeighborCount(int query) {
+		checkQuery(query);
+		return counts[query];
+	}
+
+	/**
+	 * @param query the query's number.
+	 * @param rank  the rank of a neighbor, from 0 for the nearest.
+	 * @return the number of the object.
+	 */
+	public int getNeighbor(int query, int rank) {
+		checkRank(query, rank);
+		return neighbors[query][rank];
+	}
+
+	/**
+	 * @param query the query's number.
+	 * @param rank  the rank of a neighbor, from 0 for the nearest.
+	 * @return the distance of the neighbor as an angle in radians.
+	 */
+	public double getRadians(int query, int rank) {
+		checkRank(query, rank);
+		return distances[query][rank];
+	}
+
+	/**
+	 * @param query the query's number.
+	 * @param rank  the rank of a neighbor, from 0 for the nearest.
+	 * @param unit  the unit of the result.
+	 * @return the distance of the neighbor.
+	 */
+	public double getDistance(int query, int rank, LengthUnit unit) {
+		return getRadians(query, rank) * LatLngConfig.getEarthRadius(unit);
+	}
+
+	private static void checkPoint(double latitude, double longitude) {
+		if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180))
+			throw new IllegalArgumentException("Invalid point given.");
+	}
+
+	private void checkObject(int object) {
+		if (object < 0 || object >= objectLimit || objectCells[object] == NO_CELL)
+			throw new IllegalArgumentException("Invalid object given.");
+	}
+
+	private void checkQuery(int query) {
+		if (query < 0 || query >= queryLimit || ks[query] == 0)
+			throw new IllegalArgumentException("Invalid query given.");
+	}
+
+	private void checkRank(int query, int rank) {
+		checkQuery(query);
+		if (rank < 0 || rank >= counts[query])
+			throw new IndexOutOfBoundsException("Invalid rank given.");
+	}
+
+	/**
+	 * Moves an object to a new place, or out of the index, and checks the
+	 * queries whose results that may change.
+	 */
+	private void update(int object, double latitude, double longitude, boolean present) {
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long start = recorder == null ? 0 : System.nanoTime();
+		long oldCell = objectCells[object];
+		long newCell = present ? grid.cellOf(latitude, longitude) : NO_CELL;
+		if (oldCell != newCell) {
+			if (oldCell != NO_CELL) {
+				IntList list = cellObjects.get(oldCell);
+				int slot = objectSlots[object];
+				int last = list.values[--list.size];
+				list.values[slot] = last;
+				objectSlots[last] = slot;
+				if (list.size == 0)
+					cellObjects.remove(oldCell);
+			}
+			if (newCell != NO_CELL) {
+				IntList list = cellObjects.computeIfAbsent(newCell, newList);
+				objectSlots[object] = list.size;
+				list.add(object);
+			}
+			objectCells[object] = newCell;
+		}
+		objectLatitudes[object] = latitude;
+		objectLongitudes[object] = longitude;
+
+		// Gather the queries first, as checking them may change registrations.
+		stamp++;
+		candidates.size = 0;
+		gather(global);
+		if (oldCell != NO_CELL)
+			gather(cellQueries.get(oldCell));
+		if (newCell != NO_CELL && newCell != oldCell)
+			gather(cellQueries.get(newCell));
+		int changed = 0;
+		for (int i = 0; i < candidates.size; i++) {
+			int query = candidates.values[i];
+			double d = present ? LatLngTool.distanceInRadians(queryLatitudes[query], queryLongitudes[query],
+					latitude, longitude) : Double.POSITIVE_INFINITY;
+			if (check(query, object, d)) {
+				changed++;
+				if (listener != null)
+					listener.resultChanged(query);
+			}
+		}
+		if (recorder != null)
+			recorder.record(SpatialOperation.CONTINUOUS_KNN, candidates.size, changed, System.nanoTime() - start);
+	}
+
+	private void gather(IntList queries) {
+		if (queries == null)
+			return;
+		for (int i = 0; i < queries.size; i++) {
+			int query = queries.values[i];
+			if (stamps[query] != stamp) {
+				stamps[query] = stamp;
+				candidates.add(query);
+			}
+		}
+	}
+
+	/**
+	 * Brings a query's result up to date after an object has moved to the
+	 * given distance from it, or infinitely far if removed.
+	 *
+	 * @return whether the neighbors or their order changed.
+	 */
+	private boolean check(int query, int object, double d) {
+		int k = ks[query];
+		int[] ids = neighbors[query];
+		double[] ds = distances[query];
+		int n = counts[query];
+		int at = -1;
+		for (int i = 0; i < n; i++)
+			if (ids[i] == object)
+				at = i;
+		if (at < 0 && (d == Double.POSITIVE_INFINITY || (n == k && !precedes(d, object, ds[n - 1], ids[n - 1]))))
+			return false;
+		System.arraycopy(ids, 0, before, 0, n);
+		int was = n;
+		if (at >= 0 && n == k && d >= ds[n - 1]) {
+			// One of the k has reached the edge of the safe region, where an
+			// object with a lower id may tie with it: search again.
+			search(query);
+		} else {
+			if (at >= 0) {
+				System.arraycopy(ids, at + 1, ids, at, n - at - 1);
+				System.arraycopy(ds, at + 1, ds, at, n - at - 1);
+				counts[query] = --n;
+			}
+			if (d != Double.POSITIVE_INFINITY)
+				insert(query, object, d);
+			if (was < k && counts[query] == k) {
+				unregister(query);
+				register(query);
+			}
+		}
+		if (was != counts[query])
+			return true;
+		for (int i = 0; i < was; i++)
+			if (before[i] != ids[i])
+				return true;
+		return false;
+	}
+
+	private static boolean precedes(double d, int object, double otherD, int other) {
+		return d < otherD || (d == otherD && object < other);
+	}
+
+	/**
+	 * Inserts an object into a query's sorted neighbors, dropping the furthest
+	 * if there are k already.
+	 */
+	private void insert(int query, int object, double d) {
+		int[] ids = neighbors[query];
+		double[] ds = distances[query];
+		int n = counts[query];
+		if (n == ids.length) {
+			if (!precedes(d, object, ds[n - 1], ids[n - 1]))
+				return;
+			n--;
+		}
+		int i = n;
+		while (i > 0 && precedes(d, object, ds[i - 1], ids[i - 1])) {
+			ids[i] = ids[i - 1];
+			ds[i] = ds[i - 1];
+			i--;
+		}
+		ids[i] = object;
+		ds[i] = d;
+		counts[query] = n + 1;
+	}
+
+	/**
+	 * Finds a query's nearest objects from scratch, through cells in widening
+	 * rings, and registers it afresh.
+	 */
+	private void search(int query) {
+		unregister(query);
+		double latitude = queryLatitudes[query], longitude = queryLongitudes[query];
+		double radians = Math.toRadians(grid.getCellDegrees());
+		while (true) {
+			counts[query] = 0;
+			if (grid.countCellsWithin(latitude, longitude, radians) >= objectCount) {
+				// Every cell costs a lookup, so measuring every object is now
+				// cheaper, and settles the result.
+				for (int object = 0; object < objectLimit; object++)
+					if (objectCells[object] != NO_CELL)
+						insert(query, object, LatLngTool.distanceInRadians(latitude, longitude,
+								objectLatitudes[object], objectLongitudes[object]));
+				break;
+			}
+			collector.query = query;
+			grid.forEachCellWithin(latitude, longitude, radians, collector);
+			int n = counts[query];
+			// Every object within the radius has been seen, so the result is
+			// settled once the k-th lies within it.
+			if ((n == ks[query] && distances[query][n - 1] <= radians) || radians >= Math.PI)
+				break;
+			radians = Math.min(Math.PI, radians * 2);
+		}
+		register(query);
+	}
+
+	/**
+	 * Registers a query in every cell of its safe region, or as global if it
+	 * has fewer than k neighbors or the region spans too many cells.
+	 */
+	private void register(int query) {
+		double latitude = queryLatitudes[query], longitude = queryLongitudes[query];
+		int n = counts[query];
+		if (n < ks[query]
+				|| grid.countCellsWithin(latitude, longitude, distances[query][n - 1]) > MAX_REGISTERED_CELLS) {
+			global.add(query);
+			return;
+		}
+		registrar.query = query;
+		grid.forEachCellWithin(latitude, longitude, distances[query][n - 1], registrar);
+	}
+
+	private void unregister(int query) {
+		global.remove(query);
+		long[] cells = registrations[query];
+		for (int i = 0; i < registrationCounts[query]; i++) {
+			IntList list = cellQueries.get(cells[i]);
+			list.remove(query);
+			if (list.size == 0)
+				cellQueries.remove(cells[i]);
+		}
+		registrationCounts[query] = 0;
+	}
+
+	/**
+	 * Offers the objects of each cell visited to a query's neighbors.
+	 */
+	private final class Collector implements LongConsumer {
+		int query;
+
+		@Override
+		public void accept(long cell) {
+			IntList objects = cellObjects.get(cell);
+			if (objects == null)
+				return;
+			double latitude = queryLatitudes[query], longitude = queryLongitudes[query];
+			for (int i = 0; i < objects.size; i++) {
+				int object = objects.values[i];
+				insert(query, object, LatLngTool.distanceInRadians(latitude, longitude, objectLatitudes[object],
+						objectLongitudes[object]));
+			}
+		}
+	}
+
+	/**
+	 * Adds a query to each cell visited.
+	 */
+	private final class Registrar implements LongConsumer {
+		int query;
+
+		@Override
+		public void accept(long cell) {
+			cellQueries.computeIfAbsent(cell, newList).add(query);
+			int n = registrationCounts[query];
+			if (n == registrations[query].length)
+				registrations[query] = Arrays.copyOf(registrations[query], n * 2);
+			registrations[query][n] = cell;
+			registrationCounts[query] = n + 1;
+		}
+	}
+
+	/**
+	 * A growable list of <code>int</code> values.
+	 */
+	private static final class IntList {
+		int[] values = new int[4];
+		int size;
+
+		void add(int value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+
+		void remove(int value) {
+			for (int i = 0; i < size; i++) {
+				if (values[i] == value) {
+					values[i] = values[--size];
+					return;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import java.util.function.LongConsumer;
+
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+/**
+ * <p>
+ * Divides the globe into cells of roughly equal ground size, identified by
+ * <code>long</code> keys, so that points near one another can be found by
+ * looking only in a few neighboring cells.
+ * </p>
+ * <p>
+ * Rows are bands of equal latitude height. Each row is split into as many
+ * equal columns as fit its circumference at the row's most poleward edge, so
+ * cells never become narrower on the ground than they are tall and rows near
+ * the poles hold only a handful of cells. A grid whose cells are about the
+ * size of the search distance keeps every search to a few cells.
+ * </p>
+ * <p>
+ * Instances are immutable and thread-safe.
+ * </p>
+ */
+public class DegreeGrid {
+
+	/**
+	 * Widens searches slightly so that points lying within floating point error
+	 * of the search distance are never missed.
+	 */
+	private static final double PAD_DEGREES = 1e-9;
+
+	private final double cellDegrees;
+	private final int rows;
+	private final int maxColumns;
+
+	/**
+	 * Creates a grid whose cells are close to the given size, in degrees of arc,
+	 * on each side.
+	 *
+	 * @param cellDegrees the size of a cell, between
+	 *                    {@link LatLngConfig#DEGREE_TOLERANCE} and 180 degrees.
+	 */
+	public DegreeGrid(double cellDegrees) {
+		this(rows(cellDegrees));
+	}
+
+	/**
+	 * Private, so that integer sizes given by callers still resolve to the
+	 * public constructor.
+	 */
+	private DegreeGrid(int rows) {
+		this.rows = rows;
+		this.cellDegrees = 180.0 / rows;
+		this.maxColumns = (int) (360 / this.cellDegrees);
+	}
+
+	private static int rows(double cellDegrees) {
+		if (Double.isNaN(cellDegrees) || cellDegrees < LatLngConfig.DEGREE_TOLERANCE || cellDegrees > 180)
+			throw new IllegalArgumentException("Invalid cell size given.");
+		return (int) (180 / cellDegrees);
+	}
+
+	/**
+	 * Creates a grid suited to searching for points within the given distance.
+	 *
+	 * @param distance the search distance.
+	 * @param unit     the unit of the search distance.
+	 * @return the grid.
+	 */
+	public static DegreeGrid forDistance(double distance, LengthUnit unit) {
+		if (Double.isNaN(distance) || distance < 0)
+			throw new IllegalArgumentException("Invalid distance given.");
+		double degrees = Math.toDegrees(distance / LatLngConfig.getEarthRadius(unit));
+		return new DegreeGrid(Math.min(180, Math.max(degrees, 10 * LatLngConfig.DEGREE_TOLERANCE)));
+	}
+
+	/**
+	 * @return the latitude height of a cell in degrees.
+	 */
+	public double getCellDegrees() {
+		return cellDegrees;
+	}
+
+	/**
+	 * @return the number of rows of cells.
+	 */
+	int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Creates a grid with the given number of rows of cells, such as one read
+	 * back from an {@link IndexSnapshot}; the size of a cell in degrees does not
+	 * always give back the same number.
+	 */
+	static DegreeGrid ofRows(int rows) {
+		return new DegreeGrid(rows);
+	}
+
+	/**
+	 * Finds the cell containing a point.
+	 *
+	 * @param latitude  the point's latitude in degrees, within +/- 90.
+	 * @param longitude the point's longitude in degrees, within +/- 180.
+	 * @return the key of the cell, never negative.
+	 */
+	public long cellOf(double latitude, double longitude) {
+		int row = row(latitude);
+		int columns = columns(row);
+		return key(row, Math.floorMod((long) Math.floor((longitude + 180) * columns / 360), columns));
+	}
+
+	/**
+	 * Passes the key of every cell which may hold a point within the given
+	 * angular distance of a point to the visitor, each exactly once. The cells
+	 * may also hold points that are further away.
+	 *
+	 * @param latitude  the point's latitude in degrees, within +/- 90.
+	 * @param longitude the point's longitude in degrees, within +/- 180.
+	 * @param radians   the search distance as an angle in radians.
+	 * @param visitor   receives the keys of the cells.
+	 */
+	public void forEachCellWithin(double latitude, double longitude, double radians, LongConsumer visitor) {
+		cellsWithin(latitude, longitude, radians, visitor);
+	}
+
+	/**
+	 * Counts the cells {@link #forEachCellWithin(double, double, double, LongConsumer)}
+	 * would visit, in time proportional to the number of rows they span rather
+	 * than to the number of cells.
+	 */
+	long countCellsWithin(double latitude, double longitude, double radians) {
+		return cellsWithin(latitude, longitude, radians, null);
+	}
+
+	/**
+	 * Passes the cells within a distance to the visitor, unless it is null, and
+	 * counts them.
+	 */
+	private long cellsWithin(double latitude, double longitude, double radians, LongConsumer visitor) {
+		double degrees = Math.toDegrees(radians) + PAD_DEGREES;
+		int rowLow = row(Math.max(-90, latitude - degrees));
+		int rowHigh = row(Math.min(90, latitude + degrees));
+		// The widest longitude difference of any point within the distance;
+		// unbounded if the search reaches a pole.
+		double spread = Double.POSITIVE_INFINITY;
+		if (Math.abs(latitude) + degrees < 90) {
+			double sine = Math.sin(radians) / Math.cos(Math.toRadians(latitude));
+			if (sine < 1)
+				spread = Math.toDegrees(Math.asin(sine)) + PAD_DEGREES;
+		}
+		long count = 0;
+		for (int row = rowLow; row <= rowHigh; row++) {
+			int columns = columns(row);
+			long first = (long) Math.floor((longitude - spread + 180) * columns / 360);
+			long last = (long) Math.floor((longitude + spread + 180) * columns / 360);
+			if (spread >= 180 || last - first + 1 >= columns) {
+				count += columns;
+				if (visitor != null)
+					for (int column = 0; column < columns; column++)
+						visitor.accept(key(row, column));
+			} else {
+				count += last - first + 1;
+				if (visitor != null)
+					for (long column = first; column <= last; column++)
+						visitor.accept(key(row, Math.floorMod(column, columns)));
+			}
+		}
+		return count;
+	}
+
+	private int row(double latitude) {
+		return Math.min(rows - 1, (int) Math.floor((latitude + 90) / cellDegrees));
+	}
+
+	private int columns(int row) {
+		double poleward = Math.max(Math.abs(-90 + row * cellDegrees), Math.abs(-90 + (row + 1) * cellDegrees));
+		int columns = (int) (maxColumns * Math.cos(Math.toRadians(Math.min(90, poleward))));
+		return Math.max(1, Math.min(maxColumns, columns));
+	}
+
+	private long key(int row, long column) {
+		return (long) row * maxColumns + column;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("DegreeGrid of %s degree cells", cellDegrees);
+	}
+}
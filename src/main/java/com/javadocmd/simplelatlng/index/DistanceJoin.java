@@ -0,0 +1,187 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.IndexSort;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+/**
+ * <p>
+ * Finds every pair of points, one from each of two arrays, lying within a
+ * distance of one another. The right array is put in a {@link GridIndex} with
+ * cells the size of the distance, and each left point is checked only against
+ * the right points of its neighboring cells. Left points are visited in cell
+ * order too, so that consecutive queries touch the same right points.
+ * </p>
+ * <p>
+ * Pairs are passed to a {@link PairConsumer} as they are found rather than
+ * collected, so the memory used does not depend on the number of pairs.
+ * </p>
+ */
+public class DistanceJoin {
+
+	private static final int PARALLEL_THRESHOLD = 1 << 12;
+
+	/**
+	 * Receives the pairs found by a join.
+	 */
+	public interface PairConsumer {
+		/**
+		 * @param left     the index of the point in the left array.
+		 * @param right    the index of the point in the right array.
+		 * @param distance the distance between the points, in the unit of the
+		 *                 join.
+		 */
+		void accept(int left, int right, double distance);
+	}
+
+	/**
+	 * Finds every pair of points within a distance of one another. Pairs are
+	 * passed to the consumer in no particular order, all on the calling
+	 * thread.
+	 *
+	 * @param left     the left points.
+	 * @param right    the right points.
+	 * @param distance the distance.
+	 * @param unit     the unit of the distance.
+	 * @param consumer receives each pair.
+	 * @return the number of pairs found.
+	 */
+	public static long join(LatLngArray left, LatLngArray right, double distance, LengthUnit unit,
+			PairConsumer consumer) {
+		return join(left, right, distance, unit, consumer, false);
+	}
+
+	/**
+	 * Finds every pair of points within a distance of one another, checking
+	 * distances in parallel in the {@link ForkJoinPool#commonPool()}. The
+	 * consumer is called from several threads at once, so it must be
+	 * thread-safe; the pairs are the same as those found by
+	 * {@link #join(LatLngArray, LatLngArray, double, LengthUnit, PairConsumer)}.
+	 *
+	 * @param left     the left points.
+	 * @param right    the right points.
+	 * @param distance the distance.
+	 * @param unit     the unit of the distance.
+	 * @param consumer receives each pair, concurrently.
+	 * @return the number of pairs found.
+	 */
+	public static long parallelJoin(LatLngArray left, LatLngArray right, double distance, LengthUnit unit,
+			PairConsumer consumer) {
+		return join(left, right, distance, unit, consumer, true);
+	}
+
+	private static long join(LatLngArray left, LatLngArray right, double distance, LengthUnit unit,
+			PairConsumer consumer, boolean parallel) {
+		if (Double.isNaN(distance) || distance < 0)
+			throw new IllegalArgumentException("Invalid distance given.");
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long began = recorder == null ? 0 : System.nanoTime();
+		DegreeGrid grid = DegreeGrid.forDistance(distance, unit);
+		GridIndex index = new GridIndex(right, grid, parallel);
+
+		int n = left.size();
+		long[] cells = new long[n];
+		for (int i = 0; i < n; i++)
+			cells[i] = grid.cellOf(left.getLatitude(i), left.getLongitude(i));
+		int[] order = IndexSort.identity(n);
+		if (parallel)
+			IndexSort.parallelSort(cells, order);
+		else
+			IndexSort.sort(cells, order);
+
+		JoinTask task = new JoinTask(left, order, index, distance, LatLngConfig.getEarthRadius(unit), consumer, 0,
+				n);
+		if (parallel && n > PARALLEL_THRESHOLD)
+			ForkJoinPool.commonPool().invoke(task);
+		else
+			task.scan();
+		if (recorder != null)
+			recorder.record(SpatialOperation.DISTANCE_JOIN, task.checked, task.found, System.nanoTime() - began);
+		return task.found;
+	}
+
+	/**
+	 * Queries the index with each left point of a range of the cell order,
+	 * counting the pairs checked and found. Only the parallel form splits the
+	 * range; {@link #scan()} runs it all on the calling thread.
+	 */
+	private static class JoinTask extends RecursiveAction implements GridIndex.Visitor {
+
+		private static final long serialVersionUID = 1L;
+
+		private final LatLngArray left;
+		private final int[] order;
+		private final GridIndex index;
+		private final double distance;
+		private final double radius;
+		private final PairConsumer consumer;
+		private final int from;
+		private final int to;
+		private int current;
+		long checked;
+		long found;
+
+		JoinTask(LatLngArray left, int[] order, GridIndex index, double distance, double radius,
+				PairConsumer consumer, int from, int to) {
+			this.left = left;
+			this.order = order;
+			this.index = index;
+			this.distance = distance;
+			this.radius = radius;
+			this.consumer = consumer;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > PARALLEL_THRESHOLD) {
+				int mid = (from + to) >>> 1;
+				JoinTask low = new JoinTask(left, order, index, distance, radius, consumer, from, mid);
+				JoinTask high = new JoinTask(left, order, index, distance, radius, consumer, mid, to);
+				invokeAll(low, high);
+				checked = low.checked + high.checked;
+				found = low.found + high.found;
+				return;
+			}
+			scan();
+		}
+
+		void scan() {
+			GridIndex.Query query = index.new Query(this);
+			double radians = distance / radius;
+			for (int k = from; k < to; k++) {
+				current = order[k];
+				checked += query.run(left.getLatitude(current), left.getLongitude(current), radians);
+			}
+		}
+
+		@Override
+		public void visit(int index, double radians) {
+			found++;
+			consumer.accept(current, index, radians * radius);
+		}
+	}
+}
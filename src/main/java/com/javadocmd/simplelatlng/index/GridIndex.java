@@ -0,0 +1,252 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.util.function.LongConsumer;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.collect.LatLngLongMap;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.IndexSort;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+
+/**
+ * <p>
+ * A static index of the points of a {@link LatLngArray} over a
+ * {@link DegreeGrid}, for finding every point within a distance of a query
+ * point. The points are copied in cell order, so each cell's points lie
+ * together in memory, with a map from each occupied cell to its run of them;
+ * a query checks only the runs of the cells near it.
+ * </p>
+ * <p>
+ * The index is a snapshot: later changes to the array are not seen. Queries
+ * do not modify the index, so any number of threads may query it at once. A
+ * large index can be {@link #save(Path) saved} to a file and
+ * {@link #load(Path) loaded} again far faster than it can be built.
+ * </p>
+ */
+public class GridIndex {
+
+	/**
+	 * Receives the points found by a query.
+	 */
+	public interface Visitor {
+		/**
+		 * @param index   the index of the point in the indexed array.
+		 * @param radians the angular distance of the point from the query point
+		 *                in radians.
+		 */
+		void visit(int index, double radians);
+	}
+
+	private final DegreeGrid grid;
+	private final double[] latitudes;
+	private final double[] longitudes;
+	private final int[] order;
+	private final LatLngLongMap runs;
+
+	/**
+	 * Indexes points.
+	 *
+	 * @param points the points.
+	 * @param grid   the grid, ideally with cells about the size of the usual
+	 *               query distance.
+	 */
+	public GridIndex(LatLngArray points, DegreeGrid grid) {
+		this(points, grid, false);
+	}
+
+	/**
+	 * Indexes points, optionally sorting them in parallel.
+	 *
+	 * @param points   the points.
+	 * @param grid     the grid.
+	 * @param parallel whether to sort the points in parallel.
+	 */
+	public GridIndex(LatLngArray points, DegreeGrid grid, boolean parallel) {
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long began = recorder == null ? 0 : System.nanoTime();
+		this.grid = grid;
+		int n = points.size();
+		long[] cells = new long[n];
+		for (int i = 0; i < n; i++)
+			cells[i] = grid.cellOf(points.getLatitude(i), points.getLongitude(i));
+		this.order = IndexSort.identity(n);
+		if (parallel)
+			IndexSort.parallelSort(cells, order);
+		else
+			IndexSort.sort(cells, order);
+		this.latitudes = new double[n];
+		this.longitudes = new double[n];
+		for (int k = 0; k < n; k++) {
+			latitudes[k] = points.getLatitude(order[k]);
+			longitudes[k] = points.getLongitude(order[k]);
+		}
+		this.runs = new LatLngLongMap();
+		for (int start = 0, end; start < n; start = end) {
+			for (end = start + 1; end < n && cells[end] == cells[start]; end++)
+				;
+			runs.put(cells[start], ((long) start << 32) | end, 0);
+		}
+		if (recorder != null)
+			recorder.record(SpatialOperation.INDEX_BUILD, n, n, System.nanoTime() - began);
+	}
+
+	private GridIndex(DegreeGrid grid, double[] latitudes, double[] longitudes, int[] order, LatLngLongMap runs) {
+		this.grid = grid;
+		this.latitudes = latitudes;
+		this.longitudes = longitudes;
+		this.order = order;
+		this.runs = runs;
+	}
+
+	/**
+	 * Saves the index to a file, replacing it if it exists, so that
+	 * {@link #load(Path)} can read it back without sorting the points again.
+	 *
+	 * @param path the file.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void save(Path path) throws IOException {
+		int n = order.length;
+		final long[] cells = new long[runs.size()];
+		final long[] bounds = new long[cells.length];
+		runs.forEach(new LatLngLongMap.EntryConsumer() {
+			private int i;
+
+			@Override
+			public void accept(long key, long value) {
+				cells[i] = key;
+				bounds[i++] = value;
+			}
+		});
+		MappedByteBuffer buffer = IndexSnapshot.create(path, IndexSnapshot.GRID_INDEX, n, cells.length,
+				grid.getRows(), payload(n, cells.length));
+		IndexSnapshot.put(buffer, latitudes);
+		IndexSnapshot.put(buffer, longitudes);
+		IndexSnapshot.put(buffer, cells);
+		IndexSnapshot.put(buffer, bounds);
+		IndexSnapshot.put(buffer, order);
+		IndexSnapshot.finish(buffer);
+	}
+
+	/**
+	 * Reads an index saved by {@link #save(Path)}. Only the map from cells to
+	 * runs of points is built again, from the saved runs.
+	 *
+	 * @param path the file.
+	 * @return the index.
+	 * @throws IOException if the file cannot be read, is not a saved index, is
+	 *                     damaged, or was saved with a different
+	 *                     {@link com.javadocmd.simplelatlng.util.LatLngConfig}
+	 *                     Earth radius.
+	 */
+	public static GridIndex load(Path path) throws IOException {
+		ByteBuffer buffer = IndexSnapshot.open(path, IndexSnapshot.GRID_INDEX);
+		int n = IndexSnapshot.size(buffer);
+		int count = IndexSnapshot.first(buffer);
+		int rows = IndexSnapshot.second(buffer);
+		IndexSnapshot.expect(buffer, payload(n, count));
+		if (rows < 1 || rows > 180 / LatLngConfig.DEGREE_TOLERANCE)
+			throw new IOException("Invalid index snapshot.");
+		double[] latitudes = IndexSnapshot.getDoubles(buffer, n);
+		double[] longitudes = IndexSnapshot.getDoubles(buffer, n);
+		long[] cells = IndexSnapshot.getLongs(buffer, count);
+		long[] bounds = IndexSnapshot.getLongs(buffer, count);
+		LatLngLongMap runs = new LatLngLongMap(count);
+		for (int i = 0; i < count; i++)
+			runs.put(cells[i], bounds[i], 0);
+		return new GridIndex(DegreeGrid.ofRows(rows), latitudes, longitudes, IndexSnapshot.getInts(buffer, n), runs);
+	}
+
+	private static long payload(int n, int runs) {
+		return 20L * n + 16L * runs;
+	}
+
+	/**
+	 * @return the grid the points are indexed over.
+	 */
+	public DegreeGrid getGrid() {
+		return grid;
+	}
+
+	/**
+	 * @return the number of points indexed.
+	 */
+	public int size() {
+		return order.length;
+	}
+
+	/**
+	 * Finds every indexed point within an angular distance of a point, in no
+	 * particular order.
+	 *
+	 * @param latitude  the query point's latitude in degrees.
+	 * @param longitude the query point's longitude in degrees.
+	 * @param radians   the distance as an angle in radians.
+	 * @param visitor   receives each point within the distance.
+	 * @return the number of points whose distance was checked.
+	 */
+	public long forEachWithin(double latitude, double longitude, double radians, Visitor visitor) {
+		return new Query(visitor).run(latitude, longitude, radians);
+	}
+
+	/**
+	 * A reusable query, so that a caller making many queries with one visitor
+	 * creates no objects per query.
+	 */
+	final class Query implements LongConsumer {
+
+		private final Visitor visitor;
+		private double latitude;
+		private double longitude;
+		private double radians;
+		private long checked;
+
+		Query(Visitor visitor) {
+			this.visitor = visitor;
+		}
+
+		long run(double latitude, double longitude, double radians) {
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.radians = radians;
+			this.checked = 0;
+			grid.forEachCellWithin(latitude, longitude, radians, this);
+			return checked;
+		}
+
+		@Override
+		public void accept(long cell) {
+			long run = runs.get(cell, 0);
+			int start = (int) (run >>> 32);
+			int end = (int) run;
+			for (int k = start; k < end; k++) {
+				double d = LatLngTool.distanceInRadians(latitude, longitude, latitudes[k], longitudes[k]);
+				if (d <= radians)
+					visitor.visit(order[k], d);
+			}
+			checked += end - start;
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+/**
+ * <p>
+ * The file format shared by the snapshots of {@link PointTree} and
+ * {@link GridIndex}: a header, then the index's arrays one after another,
+ * little-endian, with doubles first so that every array is aligned. Files are
+ * written and read through memory mappings, and arrays are copied in bulk,
+ * with nothing sorted or partitioned again.
+ * </p>
+ * <p>
+ * The header holds the kind of index, the degree tolerance and Earth radius
+ * of the {@link LatLngConfig} it was built with, three sizes whose meaning
+ * depends on the kind, and a CRC-32 of everything after it. A snapshot is only
+ * read back if all of these match.
+ * </p>
+ */
+final class IndexSnapshot {
+
+	static final byte POINT_TREE = 1;
+	static final byte GRID_INDEX = 2;
+
+	private static final int MAGIC = 0x58494c53;
+	private static final byte VERSION = 1;
+	private static final int HEADER_SIZE = 48;
+	private static final int CHECKSUM = 40;
+
+	private IndexSnapshot() {
+	}
+
+	/**
+	 * Creates a snapshot file, replacing it if it exists, and writes its
+	 * header but for the checksum.
+	 *
+	 * @param payload the number of bytes of arrays to follow.
+	 * @return a buffer mapped to the file, positioned after the header.
+	 */
+	static MappedByteBuffer create(Path path, byte kind, int size, int first, int second, long payload)
+			throws IOException {
+		if (payload > Integer.MAX_VALUE - HEADER_SIZE)
+			throw new IllegalArgumentException("Index is too large to save.");
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + payload);
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.put(VERSION);
+		buffer.put(kind);
+		buffer.putShort((short) 0);
+		buffer.putDouble(LatLngConfig.DEGREE_TOLERANCE);
+		buffer.putDouble(LatLngConfig.getEarthRadius(LengthUnit.KILOMETER));
+		buffer.putInt(size);
+		buffer.putInt(first);
+		buffer.putInt(second);
+		buffer.position(HEADER_SIZE);
+		return buffer;
+	}
+
+	/**
+	 * Writes the checksum of a filled snapshot and flushes it to the file.
+	 */
+	static void finish(MappedByteBuffer buffer) {
+		buffer.putLong(CHECKSUM, checksum(buffer));
+		buffer.force();
+	}
+
+	/**
+	 * Opens a snapshot file and checks its header and checksum.
+	 *
+	 * @return a buffer mapped to the file, positioned after the header.
+	 * @throws IOException if the file cannot be read, is not a snapshot of the
+	 *                     given kind, is damaged, or was written with another
+	 *                     configuration.
+	 */
+	static ByteBuffer open(Path path, byte kind) throws IOException {
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Invalid index snapshot.");
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION
+				|| buffer.get(5) != kind || size(buffer) < 0 || first(buffer) < 0 || second(buffer) < 0)
+			throw new IOException("Invalid index snapshot.");
+		if (buffer.getDouble(8) != LatLngConfig.DEGREE_TOLERANCE
+				|| buffer.getDouble(16) != LatLngConfig.getEarthRadius(LengthUnit.KILOMETER))
+			throw new IOException("Index snapshot is incompatible with the current configuration.");
+		if (buffer.getLong(CHECKSUM) != checksum(buffer))
+			throw new IOException("Index snapshot is damaged.");
+		buffer.position(HEADER_SIZE);
+		return buffer;
+	}
+
+	/**
+	 * Checks that an opened snapshot holds exactly as many bytes of arrays as
+	 * its sizes call for.
+	 */
+	static void expect(ByteBuffer buffer, long payload) throws IOException {
+		if (buffer.capacity() - HEADER_SIZE != payload)
+			throw new IOException("Invalid index snapshot.");
+	}
+
+	static int size(ByteBuffer buffer) {
+		return buffer.getInt(24);
+	}
+
+	static int first(ByteBuffer buffer) {
+		return buffer.getInt(28);
+	}
+
+	static int second(ByteBuffer buffer) {
+		return buffer.getInt(32);
+	}
+
+	private static long checksum(ByteBuffer buffer) {
+		ByteBuffer payload = buffer.duplicate();
+		payload.position(HEADER_SIZE);
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		return crc.getValue();
+	}
+
+	static void put(ByteBuffer buffer, double[] values) {
+		buffer.asDoubleBuffer().put(values);
+		buffer.position(buffer.position() + values.length * 8);
+	}
+
+	static void put(ByteBuffer buffer, long[] values) {
+		buffer.asLongBuffer().put(values);
+		buffer.position(buffer.position() + values.length * 8);
+	}
+
+	static void put(ByteBuffer buffer, int[] values) {
+		buffer.asIntBuffer().put(values);
+		buffer.position(buffer.position() + values.length * 4);
+	}
+
+	static double[] getDoubles(ByteBuffer buffer, int length) {
+		double[] values = new double[length];
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + length * 8);
+		return values;
+	}
+
+	static long[] getLongs(ByteBuffer buffer, int length) {
+		long[] values = new long[length];
+		buffer.asLongBuffer().get(values);
+		buffer.position(buffer.position() + length * 8);
+		return values;
+	}
+
+	static int[] getInts(ByteBuffer buffer, int length) {
+		int[] values = new int[length];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + length * 4);
+		return values;
+	}
+
+	static byte[] getBytes(ByteBuffer buffer, int length) {
+		byte[] values = new byte[length];
+		buffer.get(values);
+		return values;
+	}
+}
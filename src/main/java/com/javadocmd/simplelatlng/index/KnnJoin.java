@@ -0,0 +1,183 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+
+/**
+ * <p>
+ * Finds the k nearest neighbors of many points at once: of each point of one
+ * array among the points of another, or of each point of an array among the
+ * others of the same array. The searched points are put in a
+ * {@link PointTree} once, and each query point then runs a bounded search of
+ * it, in parallel if desired.
+ * </p>
+ * <p>
+ * Results are the same whether found sequentially or in parallel, except that
+ * neighbors at exactly equal distances may be ranked either way.
+ * </p>
+ */
+public class KnnJoin {
+
+	private static final int PARALLEL_THRESHOLD = 1 << 10;
+
+	/**
+	 * Finds the nearest points of one array to each point of another.
+	 *
+	 * @param queries the query points.
+	 * @param points  the points to search.
+	 * @param k       the number of neighbors to find for each query point.
+	 * @return the neighbors, with query point indices those of
+	 *         <code>queries</code> and neighbor indices those of
+	 *         <code>points</code>.
+	 */
+	public static Neighbors join(LatLngArray queries, LatLngArray points, int k) {
+		return join(queries, points, k, false);
+	}
+
+	/**
+	 * Finds the nearest points of one array to each point of another, building
+	 * the tree and searching it in parallel in the
+	 * {@link ForkJoinPool#commonPool()}.
+	 *
+	 * @param queries the query points.
+	 * @param points  the points to search.
+	 * @param k       the number of neighbors to find for each query point.
+	 * @return the neighbors.
+	 */
+	public static Neighbors parallelJoin(LatLngArray queries, LatLngArray points, int k) {
+		return join(queries, points, k, true);
+	}
+
+	/**
+	 * Finds the nearest other points of an array to each of its points, which
+	 * is the k-nearest-neighbor graph of the array. A point is never its own
+	 * neighbor, though another point at the same place may be.
+	 *
+	 * @param points the points.
+	 * @param k      the number of neighbors to find for each point.
+	 * @return the neighbors.
+	 */
+	public static Neighbors allNearest(LatLngArray points, int k) {
+		return join(null, points, k, false);
+	}
+
+	/**
+	 * Finds the nearest other points of an array to each of its points, in
+	 * parallel in the {@link ForkJoinPool#commonPool()}.
+	 *
+	 * @param points the points.
+	 * @param k      the number of neighbors to find for each point.
+	 * @return the neighbors.
+	 */
+	public static Neighbors parallelAllNearest(LatLngArray points, int k) {
+		return join(null, points, k, true);
+	}
+
+	/**
+	 * @param queries the query points, or null to query each point of the
+	 *                tree in tree order, passing over itself.
+	 */
+	private static Neighbors join(LatLngArray queries, LatLngArray points, int k, boolean parallel) {
+		if (k < 0)
+			throw new IllegalArgumentException("Invalid neighbor count given.");
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long began = recorder == null ? 0 : System.nanoTime();
+		PointTree tree = new PointTree(points, parallel);
+		int n = queries == null ? points.size() : queries.size();
+		Neighbors neighbors = new Neighbors(n, k);
+		SearchTask task = new SearchTask(tree, queries, neighbors, 0, n);
+		if (parallel && n > PARALLEL_THRESHOLD)
+			ForkJoinPool.commonPool().invoke(task);
+		else
+			task.scan();
+		if (recorder != null)
+			recorder.record(SpatialOperation.KNN_JOIN, task.checked, task.found, System.nanoTime() - began);
+		return neighbors;
+	}
+
+	/**
+	 * Searches the tree for each query point of a range, writing the
+	 * neighbors found into the query point's row. Only the parallel form splits
+	 * the range; {@link #scan()} runs it all on the calling thread.
+	 */
+	private static class SearchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final PointTree tree;
+		private final LatLngArray queries;
+		private final Neighbors neighbors;
+		private final int from;
+		private final int to;
+		long checked;
+		long found;
+
+		SearchTask(PointTree tree, LatLngArray queries, Neighbors neighbors, int from, int to) {
+			this.tree = tree;
+			this.queries = queries;
+			this.neighbors = neighbors;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > PARALLEL_THRESHOLD) {
+				int mid = (from + to) >>> 1;
+				SearchTask low = new SearchTask(tree, queries, neighbors, from, mid);
+				SearchTask high = new SearchTask(tree, queries, neighbors, mid, to);
+				invokeAll(low, high);
+				checked = low.checked + high.checked;
+				found = low.found + high.found;
+				return;
+			}
+			scan();
+		}
+
+		void scan() {
+			int k = neighbors.getK();
+			int[] indices = neighbors.getIndices();
+			double[] radians = neighbors.getRadians();
+			PointTree.Search search = tree.new Search(k);
+			for (int i = from; i < to; i++) {
+				double latitude, longitude;
+				int query, exclude;
+				if (queries == null) {
+					latitude = tree.getLatitudeAt(i);
+					longitude = tree.getLongitudeAt(i);
+					query = tree.getIndexAt(i);
+					exclude = query;
+				} else {
+					latitude = queries.getLatitude(i);
+					longitude = queries.getLongitude(i);
+					query = i;
+					exclude = -1;
+				}
+				checked += search.run(latitude, longitude, exclude);
+				int count = search.drain(latitude, longitude, indices, radians, query * k);
+				neighbors.fill(query, count);
+				found += count;
+			}
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+/**
+ * <p>
+ * The k nearest neighbors of each of a number of query points, as found by
+ * {@link KnnJoin}. Neighbors are kept in two flat arrays of
+ * <code>size() * getK()</code> elements, a row of <code>k</code> per query
+ * point, nearest first: the neighbor of rank <code>r</code> of query point
+ * <code>q</code> is at <code>q * k + r</code>.
+ * </p>
+ * <p>
+ * When fewer than <code>k</code> neighbors exist, the rest of the row holds an
+ * index of -1 and a distance of {@link Double#NaN}.
+ * </p>
+ */
+public class Neighbors {
+
+	private final int size;
+	private final int k;
+	private final int[] indices;
+	private final double[] radians;
+
+	Neighbors(int size, int k) {
+		if ((long) size * k > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many neighbors to keep.");
+		this.size = size;
+		this.k = k;
+		this.indices = new int[size * k];
+		this.radians = new double[size * k];
+	}
+
+	/**
+	 * @return the number of neighbors kept for each query point.
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * @return the number of query points.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param query the index of the query point.
+	 * @param rank  the rank of the neighbor, 0 for the nearest.
+	 * @return the index of the neighbor, or -1 if there is none of that rank.
+	 */
+	public int getIndex(int query, int rank) {
+		return indices[position(query, rank)];
+	}
+
+	/**
+	 * @param query the index of the query point.
+	 * @param rank  the rank of the neighbor, 0 for the nearest.
+	 * @return the distance to the neighbor as an angle in radians, or NaN if
+	 *         there is none of that rank.
+	 */
+	public double getRadians(int query, int rank) {
+		return radians[position(query, rank)];
+	}
+
+	/**
+	 * @param query the index of the query point.
+	 * @param rank  the rank of the neighbor, 0 for the nearest.
+	 * @param unit  the unit of the result.
+	 * @return the distance to the neighbor, or NaN if there is none of that
+	 *         rank.
+	 */
+	public double getDistance(int query, int rank, LengthUnit unit) {
+		return getRadians(query, rank) * LatLngConfig.getEarthRadius(unit);
+	}
+
+	/**
+	 * @return the neighbor indices of every query point, in rows of
+	 *         <code>k</code>; the array itself, not a copy.
+	 */
+	public int[] getIndices() {
+		return indices;
+	}
+
+	/**
+	 * @return the neighbor distances in radians of every query point, in rows
+	 *         of <code>k</code>; the array itself, not a copy.
+	 */
+	public double[] getRadians() {
+		return radians;
+	}
+
+	private int position(int query, int rank) {
+		if (rank < 0 || rank >= k)
+			throw new IndexOutOfBoundsException("Invalid rank given.");
+		return query * k + rank;
+	}
+
+	/**
+	 * Marks the end of a row holding fewer than <code>k</code> neighbors.
+	 */
+	void fill(int query, int found) {
+		for (int r = found; r < k; r++) {
+			indices[query * k + r] = -1;
+			radians[query * k + r] = Double.NaN;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import java.util.Arrays;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.window.RectangularWindow;
+
+/**
+ * <p>
+ * Summarizes the points of a {@link LatLngArray} in fixed-size blocks of
+ * consecutive indices, keeping the least and greatest latitude and longitude
+ * of each, so that a scan for the points in a {@link RectangularWindow} can
+ * pass over every block whose bounds fall outside it.
+ * </p>
+ * <p>
+ * Blocks only have tight bounds if nearby points are at nearby indices, so
+ * sort the array with a {@link SpaceFillingCurve} first. The summaries read
+ * the array as it was when they were built; rebuild them after changing it.
+ * </p>
+ */
+public class PointBlocks {
+
+	/**
+	 * The block size used when none is given.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 256;
+
+	private final LatLngArray points;
+	private final int size;
+	private final int blockSize;
+	private final long[] minLatitudes;
+	private final long[] maxLatitudes;
+	private final long[] minLongitudes;
+	private final long[] maxLongitudes;
+
+	/**
+	 * Summarizes points in blocks of {@link #DEFAULT_BLOCK_SIZE}.
+	 *
+	 * @param points the points.
+	 */
+	public PointBlocks(LatLngArray points) {
+		this(points, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Summarizes points.
+	 *
+	 * @param points    the points.
+	 * @param blockSize the number of points in each block but the last.
+	 */
+	public PointBlocks(LatLngArray points, int blockSize) {
+		if (blockSize < 1)
+			throw new IllegalArgumentException("Invalid block size given.");
+		this.points = points;
+		this.size = points.size();
+		this.blockSize = blockSize;
+		int blocks = (int) (((long) size + blockSize - 1) / blockSize);
+		minLatitudes = new long[blocks];
+		maxLatitudes = new long[blocks];
+		minLongitudes = new long[blocks];
+		maxLongitudes = new long[blocks];
+		Arrays.fill(minLatitudes, Long.MAX_VALUE);
+		Arrays.fill(maxLatitudes, Long.MIN_VALUE);
+		Arrays.fill(minLongitudes, Long.MAX_VALUE);
+		Arrays.fill(maxLongitudes, Long.MIN_VALUE);
+		for (int i = 0; i < size; i++) {
+			int block = i / blockSize;
+			long latitude = points.getLatitudeInternal(i);
+			long longitude = points.getLongitudeInternal(i);
+			minLatitudes[block] = Math.min(minLatitudes[block], latitude);
+			maxLatitudes[block] = Math.max(maxLatitudes[block], latitude);
+			minLongitudes[block] = Math.min(minLongitudes[block], longitude);
+			maxLongitudes[block] = Math.max(maxLongitudes[block], longitude);
+		}
+	}
+
+	/**
+	 * @return the number of blocks.
+	 */
+	public int getBlockCount() {
+		return minLatitudes.length;
+	}
+
+	/**
+	 * @return the number of points in each block but the last.
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Finds the points inside a window, in index order. Reports
+	 * {@link SpatialOperation#BLOCK_FILTER} to the {@link Metrics#getRecorder()
+	 * metrics recorder}, if there is one.
+	 *
+	 * @param window the window.
+	 * @return the indices of the points inside the window.
+	 */
+	public int[] filterIndices(RectangularWindow window) {
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long start = recorder == null ? 0 : System.nanoTime();
+		int[] results = new int[16];
+		int matches = 0;
+		long candidates = 0;
+		for (int block = 0; block < minLatitudes.length; block++) {
+			if (!window.mayOverlapBounds(minLatitudes[block], maxLatitudes[block], minLongitudes[block],
+					maxLongitudes[block]))
+				continue;
+			int end = (int) Math.min(size, (long) (block + 1) * blockSize);
+			for (int i = block * blockSize; i < end; i++) {
+				if (window.contains(points, i)) {
+					if (matches == results.length)
+						results = Arrays.copyOf(results, matches * 2);
+					results[matches++] = i;
+				}
+			}
+			candidates += end - block * blockSize;
+		}
+		if (recorder != null)
+			recorder.record(SpatialOperation.BLOCK_FILTER, candidates, matches, System.nanoTime() - start);
+		return Arrays.copyOf(results, matches);
+	}
+}
@@ -0,0 +1,669 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+/**
+ * <p>
+ * A static k-d tree of the points of a {@link LatLngArray}, for finding the
+ * points nearest a query point: a fixed number of them, or, through a
+ * {@link NearestIterator}, as many as the caller goes on asking for. Each
+ * point is kept as a unit vector from the Earth's center, so the tree has no
+ * trouble with the antimeridian or the poles: the straight-line distance
+ * between two vectors grows with the distance along the surface, so the
+ * nearest vectors are the nearest points.
+ * </p>
+ * <p>
+ * The tree is balanced and implicit. Its points are reordered so that each
+ * node is a range of them, split at the middle point along the axis of the
+ * range's greatest extent, leaving no child pointers to follow. Distances
+ * reported are those of
+ * {@link LatLngTool#distanceInRadians(double, double, double, double)}.
+ * </p>
+ * <p>
+ * The tree is a snapshot: later changes to the array are not seen. Searches
+ * do not modify the tree, so any number of threads may search it at once. A
+ * large tree can be {@link #save(Path) saved} to a file and
+ * {@link #load(Path) loaded} again far faster than it can be built.
+ * </p>
+ */
+public class PointTree {
+
+	private static final int LEAF_SIZE = 8;
+	private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+	private final double[] xs;
+	private final double[] ys;
+	private final double[] zs;
+	private final double[] latitudes;
+	private final double[] longitudes;
+	private final int[] order;
+	/** The split axis of each internal node, stored at its middle position. */
+	private final byte[] axes;
+
+	/**
+	 * Builds a tree of points.
+	 *
+	 * @param points the points.
+	 */
+	public PointTree(LatLngArray points) {
+		this(points, false);
+	}
+
+	/**
+	 * Builds a tree of points, optionally splitting large nodes in parallel in
+	 * the {@link ForkJoinPool#commonPool()}.
+	 *
+	 * @param points   the points.
+	 * @param parallel whether to build in parallel.
+	 */
+	public PointTree(LatLngArray points, boolean parallel) {
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long start = recorder == null ? 0 : System.nanoTime();
+		int n = points.size();
+		xs = new double[n];
+		ys = new double[n];
+		zs = new double[n];
+		latitudes = new double[n];
+		longitudes = new double[n];
+		order = new int[n];
+		axes = new byte[n];
+		for (int i = 0; i < n; i++) {
+			double latitude = Math.toRadians(points.getLatitude(i));
+			double longitude = Math.toRadians(points.getLongitude(i));
+			double cosine = Math.cos(latitude);
+			xs[i] = cosine * Math.cos(longitude);
+			ys[i] = cosine * Math.sin(longitude);
+			zs[i] = Math.sin(latitude);
+			latitudes[i] = points.getLatitude(i);
+			longitudes[i] = points.getLongitude(i);
+			order[i] = i;
+		}
+		if (parallel && n > PARALLEL_THRESHOLD)
+			ForkJoinPool.commonPool().invoke(new BuildTask(0, n));
+		else
+			build(0, n);
+		if (recorder != null)
+			recorder.record(SpatialOperation.INDEX_BUILD, n, n, System.nanoTime() - start);
+	}
+
+	private PointTree(double[] xs, double[] ys, double[] zs, double[] latitudes, double[] longitudes, int[] order,
+			byte[] axes) {
+		this.xs = xs;
+		this.ys = ys;
+		this.zs = zs;
+		this.latitudes = latitudes;
+		this.longitudes = longitudes;
+		this.order = order;
+		this.axes = axes;
+	}
+
+	/**
+	 * Saves the tree to a file, replacing it if it exists, so that
+	 * {@link #load(Path)} can read it back without building it again.
+	 *
+	 * @param path the file.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void save(Path path) throws IOException {
+		int n = order.length;
+		MappedByteBuffer buffer = IndexSnapshot.create(path, IndexSnapshot.POINT_TREE, n, 0, 0, payload(n));
+		IndexSnapshot.put(buffer, xs);
+		IndexSnapshot.put(buffer, ys);
+		IndexSnapshot.put(buffer, zs);
+		IndexSnapshot.put(buffer, latitudes);
+		IndexSnapshot.put(buffer, longitudes);
+		IndexSnapshot.put(buffer, order);
+		buffer.put(axes);
+		IndexSnapshot.finish(buffer);
+	}
+
+	/**
+	 * Reads a tree saved by {@link #save(Path)}.
+	 *
+	 * @param path the file.
+	 * @return the tree.
+	 * @throws IOException if the file cannot be read, is not a saved tree, is
+	 *                     damaged, or was saved with a different
+	 *                     {@link com.javadocmd.simplelatlng.util.LatLngConfig}
+	 *                     Earth radius.
+	 */
+	public static PointTree load(Path path) throws IOException {
+		ByteBuffer buffer = IndexSnapshot.open(path, IndexSnapshot.POINT_TREE);
+		int n = IndexSnapshot.size(buffer);
+		IndexSnapshot.expect(buffer, payload(n));
+		return new PointTree(IndexSnapshot.getDoubles(buffer, n), IndexSnapshot.getDoubles(buffer, n),
+				IndexSnapshot.getDoubles(buffer, n), IndexSnapshot.getDoubles(buffer, n),
+				IndexSnapshot.getDoubles(buffer, n), IndexSnapshot.getInts(buffer, n),
+				IndexSnapshot.getBytes(buffer, n));
+	}
+
+	private static long payload(int n) {
+		return 45L * n;
+	}
+
+	/**
+	 * @return the number of points in the tree.
+	 */
+	public int size() {
+		return order.length;
+	}
+
+	/**
+	 * Finds the points nearest a point.
+	 *
+	 * @param latitude  the query point's latitude in degrees.
+	 * @param longitude the query point's longitude in degrees.
+	 * @param k         the number of points to find.
+	 * @param exclude   the index of a point to pass over, such as the query
+	 *                  point itself, or -1 for none.
+	 * @param indices   receives the indices of the points found, nearest
+	 *                  first; must be at least <code>k</code> long.
+	 * @param radians   receives the distance of each point found as an angle
+	 *                  in radians; must be at least <code>k</code> long.
+	 * @return the number of points found, which is <code>k</code> unless the
+	 *         tree holds fewer points.
+	 */
+	public int nearest(double latitude, double longitude, int k, int exclude, int[] indices, double[] radians) {
+		if (k < 0 || indices.length < k || radians.length < k)
+			throw new IllegalArgumentException("Invalid neighbor count given.");
+		Search search = new Search(k);
+		search.run(latitude, longitude, exclude);
+		return search.drain(latitude, longitude, indices, radians, 0);
+	}
+
+	/**
+	 * Starts a search outward from a point, yielding every point of the tree
+	 * nearest first.
+	 *
+	 * @param latitude  the query point's latitude in degrees.
+	 * @param longitude the query point's longitude in degrees.
+	 * @return the iterator.
+	 */
+	public NearestIterator iterateNearest(double latitude, double longitude) {
+		return new NearestIterator(latitude, longitude, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Starts a search outward from a point, yielding the points of the tree
+	 * within a distance of it nearest first.
+	 *
+	 * @param latitude    the query point's latitude in degrees.
+	 * @param longitude   the query point's longitude in degrees.
+	 * @param maxDistance the distance beyond which to stop.
+	 * @param unit        the unit of the distance.
+	 * @return the iterator.
+	 */
+	public NearestIterator iterateNearest(double latitude, double longitude, double maxDistance, LengthUnit unit) {
+		if (Double.isNaN(maxDistance) || maxDistance < 0)
+			throw new IllegalArgumentException("Invalid distance given.");
+		return new NearestIterator(latitude, longitude, maxDistance / LatLngConfig.getEarthRadius(unit));
+	}
+
+	double getLatitudeAt(int position) {
+		return latitudes[position];
+	}
+
+	double getLongitudeAt(int position) {
+		return longitudes[position];
+	}
+
+	/**
+	 * @return the index in the original array of the point at a position of
+	 *         the tree's order.
+	 */
+	int getIndexAt(int position) {
+		return order[position];
+	}
+
+	private void build(int from, int to) {
+		int mid = split(from, to);
+		if (mid >= 0) {
+			build(from, mid);
+			build(mid + 1, to);
+		}
+	}
+
+	/**
+	 * Splits a range at its middle along the axis of its greatest extent.
+	 *
+	 * @return the middle position, or -1 if the range is a leaf.
+	 */
+	private int split(int from, int to) {
+		if (to - from <= LEAF_SIZE)
+			return -1;
+		int axis = widestAxis(from, to);
+		int mid = (from + to) >>> 1;
+		select(axis == 0 ? xs : axis == 1 ? ys : zs, from, to - 1, mid);
+		axes[mid] = (byte) axis;
+		return mid;
+	}
+
+	/**
+	 * Builds the nodes of a range, splitting large ones in parallel.
+	 */
+	private class BuildTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		BuildTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= PARALLEL_THRESHOLD) {
+				build(from, to);
+				return;
+			}
+			int mid = split(from, to);
+			invokeAll(new BuildTask(from, mid), new BuildTask(mid + 1, to));
+		}
+	}
+
+	private int widestAxis(int from, int to) {
+		double minX = 2, minY = 2, minZ = 2, maxX = -2, maxY = -2, maxZ = -2;
+		for (int i = from; i < to; i++) {
+			minX = Math.min(minX, xs[i]);
+			maxX = Math.max(maxX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxY = Math.max(maxY, ys[i]);
+			minZ = Math.min(minZ, zs[i]);
+			maxZ = Math.max(maxZ, zs[i]);
+		}
+		double x = maxX - minX, y = maxY - minY, z = maxZ - minZ;
+		return x >= y && x >= z ? 0 : y >= z ? 1 : 2;
+	}
+
+	/**
+	 * Reorders positions <code>low</code> to <code>high</code>, inclusive, so
+	 * that the point at <code>nth</code> is where it would be were they sorted
+	 * along the axis of <code>keys</code>.
+	 */
+	private void select(double[] keys, int low, int high, int nth) {
+		while (high > low) {
+			// Median of three as the pivot, then a three-way partition so that
+			// runs of equal keys, such as duplicate points, end the search.
+			double a = keys[low], b = keys[(low + high) >>> 1], c = keys[high];
+			double pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+			int less = low, i = low, greater = high;
+			while (i <= greater) {
+				if (keys[i] < pivot)
+					swap(less++, i++);
+				else if (keys[i] > pivot)
+					swap(i, greater--);
+				else
+					i++;
+			}
+			if (nth < less)
+				high = less - 1;
+			else if (nth > greater)
+				low = greater + 1;
+			else
+				return;
+		}
+	}
+
+	private void swap(int i, int j) {
+		double t = xs[i];
+		xs[i] = xs[j];
+		xs[j] = t;
+		t = ys[i];
+		ys[i] = ys[j];
+		ys[j] = t;
+		t = zs[i];
+		zs[i] = zs[j];
+		zs[j] = t;
+		t = latitudes[i];
+		latitudes[i] = latitudes[j];
+		latitudes[j] = t;
+		t = longitudes[i];
+		longitudes[i] = longitudes[j];
+		longitudes[j] = t;
+		int o = order[i];
+		order[i] = order[j];
+		order[j] = o;
+	}
+
+	/**
+	 * A reusable search for the k nearest points, holding them in a bounded
+	 * max-heap of squared straight-line distances so that the furthest is
+	 * always at the top.
+	 */
+	final class Search {
+
+		private final int k;
+		private final double[] heapDistances;
+		private final int[] heapPositions;
+		private int count;
+		private int exclude;
+		private double x;
+		private double y;
+		private double z;
+		private long checked;
+
+		Search(int k) {
+			this.k = k;
+			this.heapDistances = new double[k];
+			this.heapPositions = new int[k];
+		}
+
+		/**
+		 * Finds the nearest points to a point, ready to be drained.
+		 *
+		 * @return the number of points whose distance was checked.
+		 */
+		long run(double latitude, double longitude, int exclude) {
+			double phi = Math.toRadians(latitude);
+			double lambda = Math.toRadians(longitude);
+			double cosine = Math.cos(phi);
+			this.x = cosine * Math.cos(lambda);
+			this.y = cosine * Math.sin(lambda);
+			this.z = Math.sin(phi);
+			this.exclude = exclude;
+			this.count = 0;
+			this.checked = 0;
+			if (k > 0)
+				search(0, order.length);
+			return checked;
+		}
+
+		private void search(int from, int to) {
+			if (to - from <= LEAF_SIZE) {
+				for (int i = from; i < to; i++)
+					consider(i);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			int axis = axes[mid];
+			double diff = axis == 0 ? x - xs[mid] : axis == 1 ? y - ys[mid] : z - zs[mid];
+			if (diff < 0) {
+				search(from, mid);
+				consider(mid);
+				if (count < k || diff * diff < heapDistances[0])
+					search(mid + 1, to);
+			} else {
+				search(mid + 1, to);
+				consider(mid);
+				if (count < k || diff * diff < heapDistances[0])
+					search(from, mid);
+			}
+		}
+
+		private void consider(int position) {
+			if (order[position] == exclude)
+				return;
+			checked++;
+			double dx = x - xs[position], dy = y - ys[position], dz = z - zs[position];
+			double d = dx * dx + dy * dy + dz * dz;
+			if (count < k) {
+				// Sift up.
+				int i = count++;
+				while (i > 0) {
+					int parent = (i - 1) >>> 1;
+					if (heapDistances[parent] >= d)
+						break;
+					heapDistances[i] = heapDistances[parent];
+					heapPositions[i] = heapPositions[parent];
+					i = parent;
+				}
+				heapDistances[i] = d;
+				heapPositions[i] = position;
+			} else if (d < heapDistances[0]) {
+				siftDown(d, position, k);
+			}
+		}
+
+		private void siftDown(double d, int position, int size) {
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size)
+					break;
+				if (child + 1 < size && heapDistances[child + 1] > heapDistances[child])
+					child++;
+				if (heapDistances[child] <= d)
+					break;
+				heapDistances[i] = heapDistances[child];
+				heapPositions[i] = heapPositions[child];
+				i = child;
+			}
+			heapDistances[i] = d;
+			heapPositions[i] = position;
+		}
+
+		/**
+		 * Writes the points found, nearest first, emptying the heap.
+		 *
+		 * @return the number of points written.
+		 */
+		int drain(double latitude, double longitude, int[] indices, double[] radians, int offset) {
+			int found = count;
+			for (int size = found; size > 0; size--) {
+				int position = heapPositions[0];
+				indices[offset + size - 1] = order[position];
+				radians[offset + size - 1] = LatLngTool.distanceInRadians(latitude, longitude, latitudes[position],
+						longitudes[position]);
+				if (size > 1)
+					siftDown(heapDistances[size - 1], heapPositions[size - 1], size - 1);
+			}
+			count = 0;
+			return found;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Yields the points of the tree one at a time, nearest first, for when the
+	 * number wanted is not known in advance, such as when searching outward
+	 * for the nearest point meeting some condition.
+	 * </p>
+	 * <p>
+	 * The search is best-first: a priority queue holds both points, keyed by
+	 * their distances, and unexplored ranges of the tree, keyed by a lower
+	 * bound on the distance of any point in them. A range is split only when it
+	 * reaches the front of the queue, so each point costs little more than the
+	 * work needed to be sure nothing nearer remains. Distances are those of
+	 * {@link LatLngTool#distanceInRadians(double, double, double, double)}, and
+	 * never decrease from one point to the next.
+	 * </p>
+	 * <p>
+	 * An iterator is not thread-safe, but any number may run over one tree at
+	 * once.
+	 * </p>
+	 */
+	public final class NearestIterator implements PrimitiveIterator.OfInt {
+
+		/**
+		 * Lowers the bounds of ranges a little, in radians, so that rounding
+		 * never puts a range behind a point further away than its own points.
+		 */
+		private static final double SLACK = 1e-12;
+
+		private final double latitude;
+		private final double longitude;
+		private final double x;
+		private final double y;
+		private final double z;
+		private final double maxRadians;
+		private double[] keys = new double[16];
+		/** The first position of each range, or the position of each point. */
+		private int[] froms = new int[16];
+		/** The end of each range, or -1 for a point. */
+		private int[] tos = new int[16];
+		private int size;
+		private int position = -1;
+		private double radians = Double.NaN;
+
+		NearestIterator(double latitude, double longitude, double maxRadians) {
+			this.latitude = latitude;
+			this.longitude = longitude;
+			double phi = Math.toRadians(latitude);
+			double lambda = Math.toRadians(longitude);
+			double cosine = Math.cos(phi);
+			this.x = cosine * Math.cos(lambda);
+			this.y = cosine * Math.sin(lambda);
+			this.z = Math.sin(phi);
+			this.maxRadians = maxRadians;
+			if (order.length > 0)
+				push(0, 0, order.length);
+		}
+
+		@Override
+		public boolean hasNext() {
+			// Split ranges until a point is at the front of the queue.
+			while (size > 0 && tos[0] >= 0) {
+				double bound = keys[0];
+				int from = froms[0], to = tos[0];
+				pop();
+				if (to - from <= LEAF_SIZE) {
+					for (int i = from; i < to; i++)
+						pushPoint(i);
+					continue;
+				}
+				int mid = (from + to) >>> 1;
+				int axis = axes[mid];
+				double diff = axis == 0 ? x - xs[mid] : axis == 1 ? y - ys[mid] : z - zs[mid];
+				// The far side is at least as far as the splitting plane.
+				double far = Math.max(bound, 2 * Math.asin(Math.min(1, Math.abs(diff) / 2)) - SLACK);
+				pushPoint(mid);
+				push(diff < 0 ? bound : far, from, mid);
+				push(diff < 0 ? far : bound, mid + 1, to);
+			}
+			return size > 0;
+		}
+
+		/**
+		 * @return the index in the original array of the next nearest point.
+		 * @throws NoSuchElementException if no points are left.
+		 */
+		@Override
+		public int nextInt() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			position = froms[0];
+			radians = keys[0];
+			pop();
+			return order[position];
+		}
+
+		/**
+		 * @return the latitude in degrees of the point last returned.
+		 */
+		public double getLatitude() {
+			return position < 0 ? Double.NaN : latitudes[position];
+		}
+
+		/**
+		 * @return the longitude in degrees of the point last returned.
+		 */
+		public double getLongitude() {
+			return position < 0 ? Double.NaN : longitudes[position];
+		}
+
+		/**
+		 * @return the distance of the point last returned as an angle in
+		 *         radians.
+		 */
+		public double getRadians() {
+			return radians;
+		}
+
+		/**
+		 * @param unit the unit of the result.
+		 * @return the distance of the point last returned.
+		 */
+		public double getDistance(LengthUnit unit) {
+			return radians * LatLngConfig.getEarthRadius(unit);
+		}
+
+		private void pushPoint(int position) {
+			push(LatLngTool.distanceInRadians(latitude, longitude, latitudes[position], longitudes[position]),
+					position, -1);
+		}
+
+		private void push(double key, int from, int to) {
+			if (key > maxRadians)
+				return;
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				froms = Arrays.copyOf(froms, size * 2);
+				tos = Arrays.copyOf(tos, size * 2);
+			}
+			// Sift up.
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (keys[parent] <= key)
+					break;
+				move(parent, i);
+				i = parent;
+			}
+			keys[i] = key;
+			froms[i] = from;
+			tos[i] = to;
+		}
+
+		private void pop() {
+			size--;
+			double key = keys[size];
+			int from = froms[size], to = tos[size];
+			// Sift down the last entry from the root.
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size)
+					break;
+				if (child + 1 < size && keys[child + 1] < keys[child])
+					child++;
+				if (keys[child] >= key)
+					break;
+				move(child, i);
+				i = child;
+			}
+			keys[i] = key;
+			froms[i] = from;
+			tos[i] = to;
+		}
+
+		private void move(int from, int to) {
+			keys[to] = keys[from];
+			froms[to] = froms[from];
+			tos[to] = tos[from];
+		}
+	}
+}
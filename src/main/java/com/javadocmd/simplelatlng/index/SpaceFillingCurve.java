@@ -0,0 +1,273 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.javadocmd.simplelatlng.Geohasher;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.util.IndexSort;
+
+/**
+ * <p>
+ * Curves that visit every cell of a fine grid over the globe, giving each
+ * point a <code>long</code> key such that points with nearby keys are nearby
+ * on the ground. Sorting points by key lays them out so that points close
+ * together on the ground are mostly close together in memory, which helps
+ * scans such as those of {@link PointBlocks} and the building of indexes.
+ * </p>
+ * <p>
+ * Both curves work on the grid of full-length geohashes: 2<sup>30</sup> steps
+ * of latitude by 2<sup>30</sup> of longitude.
+ * </p>
+ */
+public enum SpaceFillingCurve {
+
+	/**
+	 * The Z-order curve, whose keys are the bits of the point's
+	 * {@link Geohasher#hashBits(double, double, int) geohash}, so that keys
+	 * sort just as hash strings do. Cheap to compute, but it jumps at the edge
+	 * of each quadrant.
+	 */
+	MORTON {
+		@Override
+		public long key(double latitude, double longitude) {
+			return Geohasher.hashBits(latitude, longitude, Geohasher.PRECISION);
+		}
+
+		@Override
+		long cellKey(long x, long y) {
+			return Geohasher.interleaveBits(y, x);
+		}
+	},
+
+	/**
+	 * The Hilbert curve, which never jumps: consecutive keys are always
+	 * neighboring cells, so ranges of keys make more compact groups of points
+	 * than with {@link #MORTON}.
+	 */
+	HILBERT {
+		@Override
+		public long key(double latitude, double longitude) {
+			long morton = Geohasher.hashBits(latitude, longitude, Geohasher.PRECISION);
+			return cellKey(compact(morton >>> 1), compact(morton));
+		}
+
+		@Override
+		long cellKey(long x, long y) {
+			long key = 0;
+			for (long s = 1L << (BITS - 1); s > 0; s >>= 1) {
+				long rx = (x & s) != 0 ? 1 : 0;
+				long ry = (y & s) != 0 ? 1 : 0;
+				key += s * s * ((3 * rx) ^ ry);
+				// Rotate the quadrant so the curve within it runs the right way.
+				if (ry == 0) {
+					if (rx == 1) {
+						x = SIDE - 1 - x;
+						y = SIDE - 1 - y;
+					}
+					long t = x;
+					x = y;
+					y = t;
+				}
+			}
+			return key;
+		}
+	};
+
+	private static final int BITS = 30;
+	private static final long SIDE = 1L << BITS;
+	private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+	/**
+	 * @param latitude  the latitude in degrees.
+	 * @param longitude the longitude in degrees.
+	 * @return the point's key, from 0 to 2<sup>60</sup> - 1.
+	 */
+	public abstract long key(double latitude, double longitude);
+
+	/**
+	 * @param x the column of a cell of the grid, counting east from 180 degrees
+	 *          west.
+	 * @param y the row of a cell of the grid, counting north from the south
+	 *          pole.
+	 * @return the key of the cell.
+	 */
+	abstract long cellKey(long x, long y);
+
+	/**
+	 * <p>
+	 * Finds ranges of keys which together hold the keys of every point in a
+	 * box. Any square of the grid whose side is a power of two and whose
+	 * corner is a multiple of it holds a single range of keys on either curve;
+	 * the box is covered with a few such squares, as small as keeps their
+	 * number to at most four by four, and their ranges are merged.
+	 * </p>
+	 * <p>
+	 * The ranges may also hold the keys of points outside the box.
+	 * </p>
+	 *
+	 * @param minLatitude  the southern edge of the box in degrees.
+	 * @param maxLatitude  the northern edge of the box in degrees.
+	 * @param minLongitude the western edge of the box in degrees.
+	 * @param maxLongitude the eastern edge of the box in degrees, not west of
+	 *                     the western edge; boxes crossing the 180th meridian
+	 *                     must be covered in two parts.
+	 * @return the first and last keys of each range, in order, as consecutive
+	 *         pairs of elements.
+	 */
+	public long[] cover(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
+		if (!(minLatitude <= maxLatitude && minLongitude <= maxLongitude))
+			throw new IllegalArgumentException("Invalid box given.");
+		long southwest = MORTON.key(minLatitude, minLongitude);
+		long northeast = MORTON.key(maxLatitude, maxLongitude);
+		long x0 = compact(southwest >>> 1), y0 = compact(southwest);
+		long x1 = compact(northeast >>> 1), y1 = compact(northeast);
+		int shift = 0;
+		while ((x1 >> shift) - (x0 >> shift) > 3 || (y1 >> shift) - (y0 >> shift) > 3)
+			shift++;
+		long[] ranges = new long[32];
+		int count = 0;
+		long span = (1L << (2 * shift)) - 1;
+		for (long x = x0 >> shift; x <= x1 >> shift; x++) {
+			for (long y = y0 >> shift; y <= y1 >> shift; y++) {
+				long first = cellKey(x << shift, y << shift) & ~span;
+				ranges[count++] = first;
+				ranges[count++] = first | span;
+			}
+		}
+		// Sort the ranges by their first keys, then merge those that touch.
+		long[] firsts = new long[count / 2];
+		int[] order = IndexSort.identity(count / 2);
+		for (int i = 0; i < firsts.length; i++)
+			firsts[i] = ranges[2 * i];
+		IndexSort.sort(firsts, order);
+		long[] merged = new long[count];
+		int size = 0;
+		for (int i = 0; i < order.length; i++) {
+			long first = ranges[2 * order[i]];
+			long last = ranges[2 * order[i] + 1];
+			if (size > 0 && first <= merged[size - 1] + 1) {
+				merged[size - 1] = Math.max(merged[size - 1], last);
+			} else {
+				merged[size++] = first;
+				merged[size++] = last;
+			}
+		}
+		return Arrays.copyOf(merged, size);
+	}
+
+	/**
+	 * @param points the points.
+	 * @return the key of each point.
+	 */
+	public long[] keys(LatLngArray points) {
+		long[] keys = new long[points.size()];
+		fill(points, keys, 0, keys.length);
+		return keys;
+	}
+
+	/**
+	 * Sorts points along the curve, in place.
+	 *
+	 * @param points the points.
+	 * @return for each new index, the index the point there had before; apply
+	 *         it to arrays kept alongside the points to keep them in step, as
+	 *         {@link LatLngArray#reorder(int[])} does.
+	 */
+	public int[] sort(LatLngArray points) {
+		return sort(points, false);
+	}
+
+	/**
+	 * Sorts points along the curve, in place, computing keys and sorting in
+	 * parallel in the {@link ForkJoinPool#commonPool()}.
+	 *
+	 * @param points the points.
+	 * @return for each new index, the index the point there had before.
+	 */
+	public int[] parallelSort(LatLngArray points) {
+		return sort(points, true);
+	}
+
+	private int[] sort(LatLngArray points, boolean parallel) {
+		int n = points.size();
+		long[] keys = new long[n];
+		int[] order = IndexSort.identity(n);
+		if (parallel) {
+			ForkJoinPool.commonPool().invoke(new KeyTask(this, points, keys, 0, n));
+			IndexSort.parallelSort(keys, order);
+		} else {
+			fill(points, keys, 0, n);
+			IndexSort.sort(keys, order);
+		}
+		points.reorder(order);
+		return order;
+	}
+
+	private void fill(LatLngArray points, long[] keys, int from, int to) {
+		for (int i = from; i < to; i++)
+			keys[i] = key(points.getLatitude(i), points.getLongitude(i));
+	}
+
+	/**
+	 * Gathers the even bits of a value into the low 32 bits of the result,
+	 * undoing {@link Geohasher#interleaveBits(long, long)} for one of its
+	 * values.
+	 */
+	private static long compact(long bits) {
+		bits &= 0x5555555555555555L;
+		bits = (bits | (bits >>> 1)) & 0x3333333333333333L;
+		bits = (bits | (bits >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+		bits = (bits | (bits >>> 4)) & 0x00FF00FF00FF00FFL;
+		bits = (bits | (bits >>> 8)) & 0x0000FFFF0000FFFFL;
+		return (bits | (bits >>> 16)) & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * Computes the keys of a range of points.
+	 */
+	private static class KeyTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final SpaceFillingCurve curve;
+		private final LatLngArray points;
+		private final long[] keys;
+		private final int from;
+		private final int to;
+
+		KeyTask(SpaceFillingCurve curve, LatLngArray points, long[] keys, int from, int to) {
+			this.curve = curve;
+			this.points = points;
+			this.keys = keys;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > PARALLEL_THRESHOLD) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new KeyTask(curve, points, keys, from, mid), new KeyTask(curve, points, keys, mid, to));
+				return;
+			}
+			curve.fill(points, keys, from, to);
+		}
+	}
+}
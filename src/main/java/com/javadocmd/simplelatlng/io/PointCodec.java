@@ -0,0 +1,248 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.io;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+
+/**
+ * <p>
+ * A compact binary encoding of batches of points, far smaller and faster than
+ * Java serialization of <code>LatLng</code> objects.
+ * </p>
+ * <p>
+ * An encoding starts with a header: the two magic bytes <code>'L' 'L'</code>,
+ * a version byte ({@link #VERSION}), the {@link DegreePrecision}'s number of
+ * decimal places, and the number of points as an unsigned varint. Each point
+ * follows as its fixed-point latitude and longitude, each written as the
+ * zig-zag varint of its difference from the previous point's (the first point
+ * differs from zero). Nearby consecutive points, as in sorted or trajectory
+ * batches, therefore take only a few bytes each; no point takes more than ten.
+ * </p>
+ * <p>
+ * Points are encoded exactly, at the precision of the array they come from, so
+ * decoding gives back an equal array.
+ * </p>
+ */
+public class PointCodec {
+
+	/** The version of the encoding written by this class. */
+	public static final int VERSION = 1;
+
+	private static final byte MAGIC_0 = 'L';
+	private static final byte MAGIC_1 = 'L';
+	private static final int MAX_HEADER_SIZE = 4 + 5;
+	private static final int MAX_POINT_SIZE = 2 * 5;
+
+	/**
+	 * @param points a number of points.
+	 * @return the greatest number of bytes the encoding of that many points can
+	 *         take.
+	 */
+	public static long maxEncodedSize(int points) {
+		if (points < 0)
+			throw new IllegalArgumentException("Invalid number of points given.");
+		return MAX_HEADER_SIZE + (long) MAX_POINT_SIZE * points;
+	}
+
+	/**
+	 * Encodes points to a new byte array.
+	 *
+	 * @param points the points.
+	 * @return the encoding.
+	 */
+	public static byte[] encode(LatLngArray points) {
+		ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, maxEncodedSize(points.size())));
+		encode(points, buffer);
+		byte[] bytes = new byte[buffer.position()];
+		buffer.flip();
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Encodes points into a buffer, starting at its position and leaving the
+	 * position after the encoding.
+	 *
+	 * @param points the points.
+	 * @param buffer the buffer, with at least {@link #maxEncodedSize(int)} bytes
+	 *               remaining to be sure of room.
+	 * @throws BufferOverflowException if the buffer runs out of room.
+	 */
+	public static void encode(LatLngArray points, ByteBuffer buffer) {
+		int n = points.size();
+		buffer.put(MAGIC_0).put(MAGIC_1).put((byte) VERSION).put((byte) points.getPrecision().getDecimalPlaces());
+		writeVarint(buffer, n);
+		int latitude = 0, longitude = 0;
+		for (int i = 0; i < n; i++) {
+			int nextLatitude = points.getLatitudeFixed(i);
+			int nextLongitude = points.getLongitudeFixed(i);
+			writeVarint(buffer, zigZag((long) nextLatitude - latitude));
+			writeVarint(buffer, zigZag((long) nextLongitude - longitude));
+			latitude = nextLatitude;
+			longitude = nextLongitude;
+		}
+	}
+
+	/**
+	 * Decodes points from a byte array.
+	 *
+	 * @param bytes the encoding.
+	 * @return the points, at the precision they were encoded at.
+	 * @throws IllegalArgumentException  if the bytes are not a valid encoding.
+	 * @throws BufferUnderflowException if the encoding is truncated.
+	 */
+	public static LatLngArray decode(byte[] bytes) {
+		return decode(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Decodes points from a buffer, starting at its position and leaving the
+	 * position after the encoding.
+	 *
+	 * @param buffer the buffer.
+	 * @return the points, at the precision they were encoded at.
+	 * @throws IllegalArgumentException  if the buffer does not hold a valid
+	 *                                   encoding.
+	 * @throws BufferUnderflowException if the encoding is truncated.
+	 */
+	public static LatLngArray decode(ByteBuffer buffer) {
+		DegreePrecision precision = readPrecision(buffer);
+		int n = readCount(buffer);
+		// Never trust the count for more room than the buffer could fill.
+		LatLngArray points = new LatLngArray(precision, Math.min(n, buffer.remaining() / 2));
+		readPoints(buffer, n, points);
+		return points;
+	}
+
+	/**
+	 * Decodes points from a buffer and appends them to an array, converting them
+	 * to the array's precision if necessary.
+	 *
+	 * @param buffer the buffer.
+	 * @param into   the array to append to.
+	 * @return the number of points appended.
+	 * @throws IllegalArgumentException  if the buffer does not hold a valid
+	 *                                   encoding.
+	 * @throws BufferUnderflowException if the encoding is truncated.
+	 */
+	public static int decode(ByteBuffer buffer, LatLngArray into) {
+		DegreePrecision precision = readPrecision(buffer);
+		int n = readCount(buffer);
+		if (precision == into.getPrecision()) {
+			into.ensureCapacity(into.size() + Math.min(n, buffer.remaining() / 2));
+			readPoints(buffer, n, into);
+		} else {
+			LatLngArray points = new LatLngArray(precision, Math.min(n, buffer.remaining() / 2));
+			readPoints(buffer, n, points);
+			into.addAll(points);
+		}
+		return n;
+	}
+
+	/**
+	 * Writes a single point in eight bytes.
+	 *
+	 * @param point  the point.
+	 * @param buffer the buffer.
+	 */
+	public static void write(LatLng point, ByteBuffer buffer) {
+		buffer.putInt((int) point.getLatitudeInternal()).putInt((int) point.getLongitudeInternal());
+	}
+
+	/**
+	 * Reads a single point written by {@link #write(LatLng, ByteBuffer)}.
+	 *
+	 * @param buffer the buffer.
+	 * @return the point.
+	 * @throws IllegalArgumentException if the bytes are not a valid point.
+	 */
+	public static LatLng read(ByteBuffer buffer) {
+		int latitude = buffer.getInt();
+		return LatLng.fromInternal(latitude, buffer.getInt());
+	}
+
+	private static DegreePrecision readPrecision(ByteBuffer buffer) {
+		if (buffer.get() != MAGIC_0 || buffer.get() != MAGIC_1)
+			throw new IllegalArgumentException("Invalid encoding given.");
+		int version = buffer.get();
+		if (version != VERSION)
+			throw new IllegalArgumentException("Invalid encoding version given.");
+		int places = buffer.get();
+		for (DegreePrecision precision : DegreePrecision.values())
+			if (precision.getDecimalPlaces() == places)
+				return precision;
+		throw new IllegalArgumentException("Invalid encoding precision given.");
+	}
+
+	private static int readCount(ByteBuffer buffer) {
+		long n = readVarint(buffer);
+		if (n > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Invalid encoding given.");
+		return (int) n;
+	}
+
+	private static void readPoints(ByteBuffer buffer, int n, LatLngArray into) {
+		long latitude = 0, longitude = 0;
+		for (int i = 0; i < n; i++) {
+			latitude += unZigZag(readVarint(buffer));
+			longitude += unZigZag(readVarint(buffer));
+			if (latitude != (int) latitude || longitude != (int) longitude)
+				throw new IllegalArgumentException("Invalid encoding given.");
+			into.addFixed((int) latitude, (int) longitude);
+		}
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void writeVarint(ByteBuffer buffer, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	/**
+	 * Reads an unsigned varint of up to 35 bits, enough for any difference of
+	 * two fixed-point values.
+	 */
+	private static long readVarint(ByteBuffer buffer) {
+		long value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0)
+				return value;
+		}
+		throw new IllegalArgumentException("Invalid encoding given.");
+	}
+
+	private PointCodec() {
+
+	}
+}
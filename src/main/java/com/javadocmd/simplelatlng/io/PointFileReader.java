@@ -0,0 +1,439 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+import com.javadocmd.simplelatlng.util.DegreeText;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+
+/**
+ * <p>
+ * Reads points from text files, one point to a line, straight into a
+ * {@link LatLngArray} at {@link DegreePrecision#E6}, the precision of
+ * <code>LatLng</code>. Coordinates are parsed from the bytes with
+ * {@link DegreeText}, so no strings or doubles are created for them, and
+ * numbers with an exponent fall back to <code>Double.parseDouble</code>.
+ * </p>
+ * <p>
+ * Two formats are understood:
+ * </p>
+ * <ul>
+ * <li>CSV, with the latitude and longitude in given columns. Fields may be
+ * quoted, but quoted fields may not span lines.</li>
+ * <li>Line-delimited GeoJSON, where each line is a Point geometry or a Feature
+ * with a Point geometry, and the first <code>"coordinates"</code> of the line
+ * gives the longitude and latitude.</li>
+ * </ul>
+ * <p>
+ * Files are read with {@link #read(Path)} in chunks with a {@link FileChannel},
+ * and the chunks are parsed in parallel in the
+ * {@link ForkJoinPool#commonPool()}. Each chunk parses the lines that start
+ * within it, reading past its end to finish its last line, so the result is
+ * the same as reading the file in order. Streams are read in order with
+ * {@link #read(InputStream)}. Blank lines are skipped, and lines may end with
+ * <code>\n</code> or <code>\r\n</code>.
+ * </p>
+ * <p>
+ * Each read reports {@link SpatialOperation#READ_POINTS} to the
+ * {@link Metrics#getRecorder() metrics recorder}, if there is one, from which
+ * rows per second can be found. Instances are immutable and thread-safe.
+ * </p>
+ */
+public class PointFileReader {
+
+	private static final int MIN_CHUNK_SIZE = 1 << 20;
+	private static final int MAX_CHUNK_SIZE = 1 << 26;
+	private static final int READ_AHEAD = 1 << 16;
+	private static final byte[] COORDINATES = "\"coordinates\"".getBytes(StandardCharsets.US_ASCII);
+
+	private final boolean geoJson;
+	private final int latitudeColumn;
+	private final int longitudeColumn;
+	private final byte delimiter;
+	private final boolean header;
+
+	private PointFileReader(boolean geoJson, int latitudeColumn, int longitudeColumn, byte delimiter,
+			boolean header) {
+		this.geoJson = geoJson;
+		this.latitudeColumn = latitudeColumn;
+		this.longitudeColumn = longitudeColumn;
+		this.delimiter = delimiter;
+		this.header = header;
+	}
+
+	/**
+	 * Creates a reader of CSV files.
+	 *
+	 * @param latitudeColumn  the index of the latitude column, from zero.
+	 * @param longitudeColumn the index of the longitude column, from zero.
+	 * @param delimiter       the field delimiter, an ASCII character other than
+	 *                        a quote, a space or a line break.
+	 * @param header          whether the first line is a header to skip.
+	 * @return the reader.
+	 */
+	public static PointFileReader csv(int latitudeColumn, int longitudeColumn, char delimiter, boolean header) {
+		if (latitudeColumn < 0 || longitudeColumn < 0 || latitudeColumn == longitudeColumn)
+			throw new IllegalArgumentException("Invalid columns given.");
+		if (delimiter > 127 || delimiter == '"' || delimiter == ' ' || delimiter == '\n' || delimiter == '\r')
+			throw new IllegalArgumentException("Invalid delimiter given.");
+		return new PointFileReader(false, latitudeColumn, longitudeColumn, (byte) delimiter, header);
+	}
+
+	/**
+	 * Creates a reader of line-delimited GeoJSON files.
+	 *
+	 * @return the reader.
+	 */
+	public static PointFileReader geoJsonLines() {
+		return new PointFileReader(true, 0, 0, (byte) 0, false);
+	}
+
+	/**
+	 * Reads all of the points of a file, parsing chunks of it in parallel.
+	 *
+	 * @param path the file.
+	 * @return the points, in the order of the file.
+	 * @throws IOException              if the file cannot be read.
+	 * @throws IllegalArgumentException if a line does not hold a valid point; the
+	 *                                  message gives the line's byte offset.
+	 */
+	public LatLngArray read(Path path) throws IOException {
+		return read(path, 0);
+	}
+
+	/**
+	 * @param chunkSize the size of the chunks to parse, or zero to choose one.
+	 */
+	LatLngArray read(Path path, int chunkSize) throws IOException {
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long start = recorder == null ? 0 : System.nanoTime();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (chunkSize <= 0) {
+				long target = size / (4L * ForkJoinPool.getCommonPoolParallelism());
+				chunkSize = (int) Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, target));
+			}
+			List<ChunkTask> tasks = new ArrayList<ChunkTask>();
+			for (long from = 0; from < size; from += chunkSize)
+				tasks.add(new ChunkTask(channel, from, Math.min(size, from + chunkSize), size));
+			if (tasks.size() > 1)
+				ForkJoinTask.invokeAll(tasks);
+			else
+				for (ChunkTask task : tasks)
+					task.invoke();
+
+			int total = 0;
+			for (ChunkTask task : tasks)
+				total += task.join().size();
+			LatLngArray points = new LatLngArray(DegreePrecision.E6, total);
+			for (ChunkTask task : tasks)
+				points.addAll(task.getRawResult());
+			if (recorder != null)
+				recorder.record(SpatialOperation.READ_POINTS, total, total, System.nanoTime() - start);
+			return points;
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Reads all of the points of a stream, in order, without closing it.
+	 *
+	 * @param in the stream.
+	 * @return the points, in the order of the stream.
+	 * @throws IOException              if the stream cannot be read.
+	 * @throws IllegalArgumentException if a line does not hold a valid point; the
+	 *                                  message gives the line's byte offset.
+	 */
+	public LatLngArray read(InputStream in) throws IOException {
+		return read(in, MIN_CHUNK_SIZE);
+	}
+
+	LatLngArray read(InputStream in, int bufferSize) throws IOException {
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long start = recorder == null ? 0 : System.nanoTime();
+		LatLngArray points = new LatLngArray();
+		byte[] buffer = new byte[bufferSize];
+		int filled = 0;
+		long offset = 0;
+		boolean first = true;
+		for (int read = 0; read >= 0;) {
+			read = in.read(buffer, filled, buffer.length - filled);
+			if (read > 0)
+				filled += read;
+			int end = read < 0 ? filled : lastIndexOf(buffer, filled, (byte) '\n') + 1;
+			if (end == 0) {
+				// Not even one whole line fits; make room for more.
+				if (filled == buffer.length)
+					buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+				continue;
+			}
+			int from = 0;
+			if (first && header) {
+				int newline = indexOf(buffer, 0, end, (byte) '\n');
+				from = newline < 0 ? end : newline + 1;
+			}
+			first = false;
+			parseLines(buffer, from, end, offset, points);
+			System.arraycopy(buffer, end, buffer, 0, filled - end);
+			filled -= end;
+			offset += end;
+		}
+		if (recorder != null)
+			recorder.record(SpatialOperation.READ_POINTS, points.size(), points.size(), System.nanoTime() - start);
+		return points;
+	}
+
+	/**
+	 * Parses the lines that start in one chunk of a file.
+	 */
+	private class ChunkTask extends RecursiveTask<LatLngArray> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final long size;
+
+		ChunkTask(FileChannel channel, long start, long end, long size) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.size = size;
+		}
+
+		@Override
+		protected LatLngArray compute() {
+			try {
+				return readChunk();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private LatLngArray readChunk() throws IOException {
+			LatLngArray points = new LatLngArray();
+			// One byte before the chunk tells whether a line starts at its start.
+			long base = start == 0 ? 0 : start - 1;
+			byte[] buffer = new byte[(int) (end - base)];
+			readFully(buffer, 0, buffer.length, base);
+			int from = 0;
+			if (start > 0 || header) {
+				// Skip the end of the previous chunk's last line, or the header.
+				from = indexOf(buffer, 0, buffer.length, (byte) '\n') + 1;
+				if (from == 0 || from == buffer.length)
+					return points;
+			}
+			int limit = buffer.length;
+			// Finish the last line from beyond the end of the chunk.
+			while (buffer[limit - 1] != '\n' && base + limit < size) {
+				int more = (int) Math.min(READ_AHEAD, size - (base + limit));
+				buffer = Arrays.copyOf(buffer, limit + more);
+				readFully(buffer, limit, more, base + limit);
+				int newline = indexOf(buffer, limit, limit + more, (byte) '\n');
+				limit = newline < 0 ? limit + more : newline + 1;
+			}
+			parseLines(buffer, from, limit, base, points);
+			return points;
+		}
+
+		private void readFully(byte[] buffer, int offset, int length, long position) throws IOException {
+			ByteBuffer target = ByteBuffer.wrap(buffer, offset, length);
+			while (target.hasRemaining()) {
+				if (channel.read(target, position + target.position() - offset) < 0)
+					throw new IOException("Unexpected end of file.");
+			}
+		}
+	}
+
+	/**
+	 * Parses each line between two indices, which must end at the end of a line
+	 * or of the input.
+	 */
+	private void parseLines(byte[] bytes, int from, int to, long offset, LatLngArray into) {
+		while (from < to) {
+			int newline = indexOf(bytes, from, to, (byte) '\n');
+			int end = newline < 0 ? to : newline;
+			int next = end + 1;
+			if (end > from && bytes[end - 1] == '\r')
+				end--;
+			if (!isBlank(bytes, from, end)) {
+				try {
+					if (geoJson)
+						parseGeoJson(bytes, from, end, into);
+					else
+						parseCsv(bytes, from, end, into);
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException("Invalid line given at byte " + (offset + from) + ".", e);
+				}
+			}
+			from = next;
+		}
+	}
+
+	private void parseCsv(byte[] bytes, int from, int to, LatLngArray into) {
+		int latitudeStart = -1, latitudeEnd = -1, longitudeStart = -1, longitudeEnd = -1;
+		int column = 0;
+		boolean quoted = false;
+		for (int i = from, fieldStart = from; i <= to; i++) {
+			if (i < to && bytes[i] == '"')
+				quoted = !quoted;
+			else if (i == to || (bytes[i] == delimiter && !quoted)) {
+				if (column == latitudeColumn) {
+					latitudeStart = fieldStart;
+					latitudeEnd = i;
+				} else if (column == longitudeColumn) {
+					longitudeStart = fieldStart;
+					longitudeEnd = i;
+				}
+				column++;
+				fieldStart = i + 1;
+			}
+		}
+		if (latitudeStart < 0 || longitudeStart < 0)
+			throw new IllegalArgumentException("Invalid number of columns given.");
+		into.addFixed(latitude(parseDegrees(bytes, latitudeStart, latitudeEnd)),
+				longitude(parseDegrees(bytes, longitudeStart, longitudeEnd)));
+	}
+
+	private void parseGeoJson(byte[] bytes, int from, int to, LatLngArray into) {
+		int i = indexOf(bytes, from, to, COORDINATES);
+		if (i < 0)
+			throw new IllegalArgumentException("Invalid GeoJSON given.");
+		i = skip(bytes, i + COORDINATES.length, to, (byte) ':');
+		i = skip(bytes, i, to, (byte) '[');
+		int longitudeStart = i;
+		while (i < to && bytes[i] != ',')
+			i++;
+		if (i == to)
+			throw new IllegalArgumentException("Invalid GeoJSON given.");
+		int longitudeEnd = i;
+		int latitudeStart = ++i;
+		while (i < to && bytes[i] != ',' && bytes[i] != ']')
+			i++;
+		if (i == to)
+			throw new IllegalArgumentException("Invalid GeoJSON given.");
+		into.addFixed(latitude(parseDegrees(bytes, latitudeStart, i)),
+				longitude(parseDegrees(bytes, longitudeStart, longitudeEnd)));
+	}
+
+	/**
+	 * Checks a parsed latitude before narrowing it, as a value of up to twelve
+	 * whole digits would otherwise wrap into range.
+	 */
+	private static int latitude(long internal) {
+		if (internal > 90000000L || internal < -90000000L)
+			throw new IllegalArgumentException("Invalid latitude given.");
+		return (int) internal;
+	}
+
+	private static int longitude(long internal) {
+		if (internal > 180000000L || internal < -180000000L)
+			throw new IllegalArgumentException("Invalid longitude given.");
+		return (int) internal;
+	}
+
+	/**
+	 * Parses a number in degrees, which may be quoted or surrounded by JSON
+	 * whitespace, to an internal fixed-point value.
+	 */
+	private static long parseDegrees(byte[] bytes, int from, int to) {
+		while (from < to && isSpace(bytes[from]))
+			from++;
+		while (to > from && isSpace(bytes[to - 1]))
+			to--;
+		if (to - from >= 2 && bytes[from] == '"' && bytes[to - 1] == '"') {
+			from++;
+			to--;
+		}
+		for (int i = from; i < to; i++) {
+			if (bytes[i] == 'e' || bytes[i] == 'E') {
+				String text = new String(bytes, from, to - from, StandardCharsets.US_ASCII);
+				double degrees = Double.parseDouble(text);
+				if (Double.isNaN(degrees) || Math.abs(degrees) > 360)
+					throw new IllegalArgumentException("Invalid degrees given.");
+				return LatLngConfig.doubleToLong(degrees);
+			}
+		}
+		return DegreeText.parse(bytes, from, to);
+	}
+
+	/**
+	 * @return the index after the given byte, skipping whitespace before it.
+	 */
+	private static int skip(byte[] bytes, int from, int to, byte expected) {
+		while (from < to && isSpace(bytes[from]))
+			from++;
+		if (from == to || bytes[from] != expected)
+			throw new IllegalArgumentException("Invalid GeoJSON given.");
+		return from + 1;
+	}
+
+	private static boolean isSpace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+
+	private static boolean isBlank(byte[] bytes, int from, int to) {
+		for (int i = from; i < to; i++)
+			if (!isSpace(bytes[i]))
+				return false;
+		return true;
+	}
+
+	private static int indexOf(byte[] bytes, int from, int to, byte b) {
+		for (int i = from; i < to; i++)
+			if (bytes[i] == b)
+				return i;
+		return -1;
+	}
+
+	private static int indexOf(byte[] bytes, int from, int to, byte[] pattern) {
+		outer: for (int i = from; i <= to - pattern.length; i++) {
+			for (int j = 0; j < pattern.length; j++)
+				if (bytes[i + j] != pattern[j])
+					continue outer;
+			return i;
+		}
+		return -1;
+	}
+
+	private static int lastIndexOf(byte[] bytes, int to, byte b) {
+		for (int i = to - 1; i >= 0; i--)
+			if (bytes[i] == b)
+				return i;
+		return -1;
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.DegreeText;
+
+/**
+ * <p>
+ * Writes points as text, one point to a line, in the formats read by
+ * {@link PointFileReader}: CSV with the latitude and then the longitude, or
+ * line-delimited GeoJSON Features with Point geometries. Coordinates are
+ * formatted straight into a byte buffer with {@link DegreeText}, with six
+ * decimal places, so reading what was written gives the same points at
+ * {@link com.javadocmd.simplelatlng.util.DegreePrecision#E6}.
+ * </p>
+ * <p>
+ * Each write reports {@link SpatialOperation#WRITE_POINTS} to the
+ * {@link Metrics#getRecorder() metrics recorder}, if there is one. Instances
+ * are immutable and thread-safe.
+ * </p>
+ */
+public class PointFileWriter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final byte[] FEATURE_START = "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":["
+			.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] FEATURE_END = "]},\"properties\":null}\n".getBytes(StandardCharsets.US_ASCII);
+	private static final int MAX_LINE_LENGTH = FEATURE_START.length + 2 * DegreeText.MAX_LENGTH + 1
+			+ FEATURE_END.length;
+
+	private final boolean geoJson;
+	private final byte delimiter;
+	private final boolean header;
+
+	private PointFileWriter(boolean geoJson, byte delimiter, boolean header) {
+		this.geoJson = geoJson;
+		this.delimiter = delimiter;
+		this.header = header;
+	}
+
+	/**
+	 * Creates a writer of CSV files, with the latitude in the first column and
+	 * the longitude in the second.
+	 *
+	 * @param delimiter the field delimiter, an ASCII character other than a
+	 *                  quote, a space, a line break, a digit, a point or a minus.
+	 * @param header    whether to start with a <code>latitude,longitude</code>
+	 *                  header line.
+	 * @return the writer.
+	 */
+	public static PointFileWriter csv(char delimiter, boolean header) {
+		if (delimiter > 127 || delimiter == '"' || delimiter == ' ' || delimiter == '\n' || delimiter == '\r'
+				|| (delimiter >= '0' && delimiter <= '9') || delimiter == '.' || delimiter == '-')
+			throw new IllegalArgumentException("Invalid delimiter given.");
+		return new PointFileWriter(false, (byte) delimiter, header);
+	}
+
+	/**
+	 * Creates a writer of line-delimited GeoJSON files.
+	 *
+	 * @return the writer.
+	 */
+	public static PointFileWriter geoJsonLines() {
+		return new PointFileWriter(true, (byte) ',', false);
+	}
+
+	/**
+	 * Writes points to a file, replacing it if it exists.
+	 *
+	 * @param points the points.
+	 * @param path   the file.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void write(LatLngArray points, Path path) throws IOException {
+		try (OutputStream out = Files.newOutputStream(path)) {
+			write(points, out);
+		}
+	}
+
+	/**
+	 * Writes points to a stream, without closing it.
+	 *
+	 * @param points the points.
+	 * @param out    the stream.
+	 * @throws IOException if the stream cannot be written.
+	 */
+	public void write(LatLngArray points, OutputStream out) throws IOException {
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long start = recorder == null ? 0 : System.nanoTime();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int position = 0;
+		if (header) {
+			byte[] line = ("latitude" + (char) delimiter + "longitude\n").getBytes(StandardCharsets.US_ASCII);
+			System.arraycopy(line, 0, buffer, 0, line.length);
+			position = line.length;
+		}
+		int n = points.size();
+		for (int i = 0; i < n; i++) {
+			if (position > buffer.length - MAX_LINE_LENGTH) {
+				out.write(buffer, 0, position);
+				position = 0;
+			}
+			if (geoJson) {
+				System.arraycopy(FEATURE_START, 0, buffer, position, FEATURE_START.length);
+				position = DegreeText.format(points.getLongitudeInternal(i), buffer, position + FEATURE_START.length);
+				buffer[position++] = ',';
+				position = DegreeText.format(points.getLatitudeInternal(i), buffer, position);
+				System.arraycopy(FEATURE_END, 0, buffer, position, FEATURE_END.length);
+				position += FEATURE_END.length;
+			} else {
+				position = DegreeText.format(points.getLatitudeInternal(i), buffer, position);
+				buffer[position++] = delimiter;
+				position = DegreeText.format(points.getLongitudeInternal(i), buffer, position);
+				buffer[position++] = '\n';
+			}
+		}
+		out.write(buffer, 0, position);
+		out.flush();
+		if (recorder != null)
+			recorder.record(SpatialOperation.WRITE_POINTS, n, n, System.nanoTime() - start);
+	}
+}
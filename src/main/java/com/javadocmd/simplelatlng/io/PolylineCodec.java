@@ -0,0 +1,261 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.io;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+
+/**
+ * <p>
+ * Encodes and decodes Google's encoded polyline format, straight between the
+ * text and the fixed-point columns of a {@link LatLngArray}.
+ * </p>
+ * <p>
+ * The format's precision is the number of decimal places its values keep: 5
+ * for Google's Maps APIs, 6 for OSRM, Valhalla and others. It corresponds to a
+ * {@link DegreePrecision}, and {@link DegreePrecision#E6} polylines map
+ * exactly onto <code>LatLng</code>'s internal values. Points stored at a finer
+ * precision than the polyline's are rounded to the nearest step, halves away
+ * from zero, as other encoders round.
+ * </p>
+ * <p>
+ * To visit the points of a very long polyline without building an array, use
+ * a {@link Decoder}.
+ * </p>
+ */
+public class PolylineCodec {
+
+	/**
+	 * Encodes points as a polyline.
+	 *
+	 * @param points    the points.
+	 * @param precision the precision of the polyline.
+	 * @return the polyline.
+	 */
+	public static String encode(LatLngArray points, DegreePrecision precision) {
+		return encode(points, precision, new StringBuilder(points.size() * 8)).toString();
+	}
+
+	/**
+	 * Appends the encoding of points as a polyline.
+	 *
+	 * @param points    the points.
+	 * @param precision the precision of the polyline.
+	 * @param into      the builder to append to.
+	 * @return the builder.
+	 */
+	public static StringBuilder encode(LatLngArray points, DegreePrecision precision, StringBuilder into) {
+		if (precision == null)
+			throw new IllegalArgumentException("Precision may not be null.");
+		int shift = points.getPrecision().getDecimalPlaces() - precision.getDecimalPlaces();
+		long factor = 1;
+		for (int i = 0; i < Math.abs(shift); i++)
+			factor *= 10;
+		long latitude = 0, longitude = 0;
+		for (int i = 0; i < points.size(); i++) {
+			long nextLatitude = convert(points.getLatitudeFixed(i), shift, factor);
+			long nextLongitude = convert(points.getLongitudeFixed(i), shift, factor);
+			append(into, nextLatitude - latitude);
+			append(into, nextLongitude - longitude);
+			latitude = nextLatitude;
+			longitude = nextLongitude;
+		}
+		return into;
+	}
+
+	private static long convert(int fixed, int shift, long factor) {
+		if (shift <= 0)
+			return fixed * factor;
+		long half = factor / 2;
+		return fixed >= 0 ? (fixed + half) / factor : -((-(long) fixed + half) / factor);
+	}
+
+	private static void append(StringBuilder into, long delta) {
+		long value = delta < 0 ? ~(delta << 1) : delta << 1;
+		while (value >= 0x20) {
+			into.append((char) ((0x20 | (value & 0x1f)) + 63));
+			value >>= 5;
+		}
+		into.append((char) (value + 63));
+	}
+
+	/**
+	 * Decodes a polyline.
+	 *
+	 * @param polyline  the polyline.
+	 * @param precision the precision of the polyline.
+	 * @return the points, at the polyline's precision.
+	 * @throws IllegalArgumentException if the text is not a valid polyline.
+	 */
+	public static LatLngArray decode(CharSequence polyline, DegreePrecision precision) {
+		LatLngArray points = new LatLngArray(precision, polyline.length() / 4);
+		decode(polyline, precision, points);
+		return points;
+	}
+
+	/**
+	 * Decodes a polyline, appending its points to an array and converting them
+	 * to the array's precision if necessary.
+	 *
+	 * @param polyline  the polyline.
+	 * @param precision the precision of the polyline.
+	 * @param into      the array to append to.
+	 * @return the number of points appended.
+	 * @throws IllegalArgumentException if the text is not a valid polyline.
+	 */
+	public static int decode(CharSequence polyline, DegreePrecision precision, LatLngArray into) {
+		Decoder decoder = new Decoder(polyline, precision);
+		int count = 0;
+		if (into.getPrecision() == precision) {
+			while (decoder.advance()) {
+				into.addFixed(decoder.getLatitudeFixed(), decoder.getLongitudeFixed());
+				count++;
+			}
+		} else {
+			while (decoder.advance()) {
+				into.add(decoder.toLatLng());
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * <p>
+	 * A cursor over the points of a polyline, decoding each as it is reached
+	 * and creating no objects along the way.
+	 * </p>
+	 *
+	 * <pre>
+	 * PolylineCodec.Decoder d = new PolylineCodec.Decoder(polyline, DegreePrecision.E5);
+	 * while (d.advance())
+	 * 	use(d.getLatitude(), d.getLongitude());
+	 * </pre>
+	 */
+	public static class Decoder {
+
+		private final CharSequence polyline;
+		private final DegreePrecision precision;
+		private int position;
+		private int latitude;
+		private int longitude;
+		private boolean current;
+
+		/**
+		 * Creates a cursor before the first point of a polyline.
+		 *
+		 * @param polyline  the polyline, which should not change while it is
+		 *                  decoded.
+		 * @param precision the precision of the polyline.
+		 */
+		public Decoder(CharSequence polyline, DegreePrecision precision) {
+			if (precision == null)
+				throw new IllegalArgumentException("Precision may not be null.");
+			this.polyline = polyline;
+			this.precision = precision;
+		}
+
+		/**
+		 * Moves to the next point.
+		 *
+		 * @return true if there was a next point, false at the end.
+		 * @throws IllegalArgumentException if the polyline is invalid at this
+		 *                                  point.
+		 */
+		public boolean advance() {
+			if (position == polyline.length()) {
+				current = false;
+				return false;
+			}
+			long nextLatitude = latitude + next();
+			long nextLongitude = longitude + next();
+			long maxLatitude = 90 * precision.getScale();
+			long maxLongitude = 180 * precision.getScale();
+			if (nextLatitude > maxLatitude || nextLatitude < -maxLatitude || nextLongitude > maxLongitude
+					|| nextLongitude < -maxLongitude)
+				throw new IllegalArgumentException("Invalid polyline given.");
+			latitude = (int) nextLatitude;
+			longitude = (int) nextLongitude;
+			current = true;
+			return true;
+		}
+
+		private long next() {
+			long result = 0;
+			for (int shift = 0; shift < 40; shift += 5) {
+				if (position == polyline.length())
+					throw new IllegalArgumentException("Invalid polyline given.");
+				int b = polyline.charAt(position++) - 63;
+				if (b < 0 || b > 63)
+					throw new IllegalArgumentException("Invalid polyline given.");
+				result |= (long) (b & 0x1f) << shift;
+				if (b < 0x20)
+					return (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+			}
+			throw new IllegalArgumentException("Invalid polyline given.");
+		}
+
+		private void checkCurrent() {
+			if (!current)
+				throw new IllegalStateException("No current point.");
+		}
+
+		/**
+		 * @return the current point's fixed-point latitude at the polyline's
+		 *         precision.
+		 */
+		public int getLatitudeFixed() {
+			checkCurrent();
+			return latitude;
+		}
+
+		/**
+		 * @return the current point's fixed-point longitude at the polyline's
+		 *         precision.
+		 */
+		public int getLongitudeFixed() {
+			checkCurrent();
+			return longitude;
+		}
+
+		/**
+		 * @return the current point's latitude in degrees.
+		 */
+		public double getLatitude() {
+			return precision.toDegrees(getLatitudeFixed());
+		}
+
+		/**
+		 * @return the current point's longitude in degrees.
+		 */
+		public double getLongitude() {
+			return precision.toDegrees(getLongitudeFixed());
+		}
+
+		/**
+		 * @return the current point as a new LatLng.
+		 */
+		public LatLng toLatLng() {
+			return LatLng.fromInternal(precision.toInternal(getLatitudeFixed()),
+					precision.toInternal(getLongitudeFixed()));
+		}
+	}
+
+	private PolylineCodec() {
+
+	}
+}
@@ -0,0 +1,529 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import com.javadocmd.simplelatlng.CompactLatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.collect.LatLngKey;
+import com.javadocmd.simplelatlng.collect.LatLngLongMap;
+import com.javadocmd.simplelatlng.index.SpaceFillingCurve;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+import com.javadocmd.simplelatlng.util.IndexSort;
+
+/**
+ * <p>
+ * An append-only log of position updates, each an entity id, a timestamp and
+ * a point at {@link DegreePrecision#E6}, from which the latest position of
+ * every entity can be recovered after a restart.
+ * </p>
+ * <p>
+ * Updates are written into segment files of a fixed number of records,
+ * mapped into memory, so an append is a copy into the page cache. The mapping
+ * is flushed to disk once every so many appends, when a segment fills, and on
+ * {@link #sync()} and {@link #close()}; updates since the last flush may be
+ * lost in a crash. Each record carries a CRC-32, and a segment is read only
+ * up to its first record that fails it, so a torn write ends its segment.
+ * </p>
+ * <p>
+ * {@link #compact()} folds the full segments into one file holding only the
+ * latest position of each entity, sorted in geohash order, and deletes them.
+ * It may run on another thread while appends go on. {@link #latest()} reads
+ * the compacted file and the segments after it sequentially, in the order they
+ * were written; of several updates to an entity, the one with the greatest
+ * timestamp wins, or the last written of those with equal timestamps.
+ * </p>
+ * <p>
+ * One log at a time may use a directory. Appends are synchronized, so any
+ * number of threads may append at once.
+ * </p>
+ */
+public class PositionLog implements Closeable {
+
+	/**
+	 * The number of records in a segment when none is given.
+	 */
+	public static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+
+	/**
+	 * The number of appends between flushes when none is given.
+	 */
+	public static final int DEFAULT_SYNC_RECORDS = 1 << 10;
+
+	private static final int MAGIC = 0x474c5053;
+	private static final byte VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+	private static final int RECORD_SIZE = 28;
+	private static final int DATA_SIZE = 24;
+	private static final int BUFFER_RECORDS = 1 << 11;
+	private static final String SEGMENT = "positions-";
+	private static final String COMPACTED = "compacted-";
+	private static final String SUFFIX = ".log";
+	private static final String TEMPORARY = ".tmp";
+
+	private final Path directory;
+	private final int segmentRecords;
+	private final int syncRecords;
+	/**
+	 * Held through compaction and recovery, so that neither sees files the
+	 * other has half made or half removed.
+	 */
+	private final Object files = new Object();
+	private final CRC32 crc = new CRC32();
+	private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	private MappedByteBuffer segment;
+	private long sequence;
+	private int count;
+	private int unsynced;
+	private boolean closed;
+
+	private PositionLog(Path directory, int segmentRecords, int syncRecords, long sequence) {
+		this.directory = directory;
+		this.segmentRecords = segmentRecords;
+		this.syncRecords = syncRecords;
+		this.sequence = sequence;
+	}
+
+	/**
+	 * Opens a log with segments of {@link #DEFAULT_SEGMENT_RECORDS}, flushed
+	 * every {@link #DEFAULT_SYNC_RECORDS} appends.
+	 *
+	 * @param directory the directory of the log, created if it does not exist.
+	 * @return the log.
+	 * @throws IOException if the directory cannot be read or written.
+	 */
+	public static PositionLog open(Path directory) throws IOException {
+		return open(directory, DEFAULT_SEGMENT_RECORDS, DEFAULT_SYNC_RECORDS);
+	}
+
+	/**
+	 * Opens a log. Appends go to a new segment, after any left by earlier logs
+	 * in the directory.
+	 *
+	 * @param directory      the directory of the log, created if it does not
+	 *                       exist.
+	 * @param segmentRecords the number of records in a segment.
+	 * @param syncRecords    the number of appends between flushes.
+	 * @return the log.
+	 * @throws IOException if the directory cannot be read or written.
+	 */
+	public static PositionLog open(Path directory, int segmentRecords, int syncRecords) throws IOException {
+		if (segmentRecords < 1 || segmentRecords > (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE)
+			throw new IllegalArgumentException("Invalid segment size given.");
+		if (syncRecords < 1)
+			throw new IllegalArgumentException("Invalid sync interval given.");
+		Files.createDirectories(directory);
+		// Clear away what a compaction interrupted by a crash left behind.
+		long compacted = compacted(directory);
+		long last = compacted;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				String name = file.getFileName().toString();
+				long segment = sequence(name, SEGMENT);
+				long older = sequence(name, COMPACTED);
+				if (name.endsWith(TEMPORARY) || (older >= 0 && older < compacted) || (segment >= 0 && segment <= compacted))
+					Files.delete(file);
+				else
+					last = Math.max(last, segment);
+			}
+		}
+		PositionLog log = new PositionLog(directory, segmentRecords, syncRecords, last);
+		log.roll();
+		return log;
+	}
+
+	/**
+	 * @return the sequence number in a file name with a prefix and the log
+	 *         suffix, or -1 if it has none.
+	 */
+	private static long sequence(String name, String prefix) {
+		if (!name.startsWith(prefix) || !name.endsWith(SUFFIX))
+			return -1;
+		try {
+			return Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return the sequence number of the latest compacted file, or 0 if there
+	 *         is none.
+	 */
+	private static long compacted(Path directory) throws IOException {
+		long compacted = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, COMPACTED + "*" + SUFFIX)) {
+			for (Path file : stream)
+				compacted = Math.max(compacted, sequence(file.getFileName().toString(), COMPACTED));
+		}
+		return compacted;
+	}
+
+	private Path file(String prefix, long sequence, String suffix) {
+		return directory.resolve(String.format("%s%016d%s", prefix, sequence, suffix));
+	}
+
+	/**
+	 * Flushes the current segment and starts the next.
+	 */
+	private void roll() throws IOException {
+		if (segment != null)
+			segment.force();
+		sequence++;
+		try (FileChannel channel = FileChannel.open(file(SEGMENT, sequence, SUFFIX), StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			segment = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					HEADER_SIZE + (long) segmentRecords * RECORD_SIZE);
+		}
+		segment.order(ByteOrder.LITTLE_ENDIAN);
+		segment.putInt(0, MAGIC);
+		segment.put(4, VERSION);
+		count = 0;
+		unsynced = 0;
+	}
+
+	/**
+	 * Appends a position update.
+	 *
+	 * @param entity    the entity's id, anything but <code>Long.MIN_VALUE</code>.
+	 * @param timestamp the time of the update, in any unit.
+	 * @param latitude  the latitude in degrees.
+	 * @param longitude the longitude in degrees.
+	 * @throws IOException if a new segment cannot be created.
+	 */
+	public void append(long entity, long timestamp, double latitude, double longitude) throws IOException {
+		append(entity, timestamp, new CompactLatLng(latitude, longitude, DegreePrecision.E6));
+	}
+
+	/**
+	 * Appends a position update.
+	 *
+	 * @param entity    the entity's id, anything but <code>Long.MIN_VALUE</code>.
+	 * @param timestamp the time of the update, in any unit.
+	 * @param point     the position, converted to {@link DegreePrecision#E6} if
+	 *                  necessary.
+	 * @throws IOException if a new segment cannot be created.
+	 */
+	public synchronized void append(long entity, long timestamp, CompactLatLng point) throws IOException {
+		if (entity == LatLngKey.NONE)
+			throw new IllegalArgumentException("Invalid entity given.");
+		if (point.getPrecision() != DegreePrecision.E6)
+			point = CompactLatLng.of(point.toLatLng(), DegreePrecision.E6);
+		checkOpen();
+		if (count == segmentRecords)
+			roll();
+		record.clear();
+		record.putLong(entity);
+		record.putLong(timestamp);
+		record.putInt(point.getLatitudeFixed());
+		record.putInt(point.getLongitudeFixed());
+		crc.reset();
+		crc.update(record.array(), 0, DATA_SIZE);
+		record.putInt((int) crc.getValue());
+		segment.position(HEADER_SIZE + count * RECORD_SIZE);
+		segment.put(record.array());
+		count++;
+		if (++unsynced >= syncRecords)
+			sync();
+	}
+
+	/**
+	 * Flushes every update appended so far to disk.
+	 */
+	public synchronized void sync() {
+		checkOpen();
+		if (unsynced > 0) {
+			segment.force();
+			unsynced = 0;
+		}
+	}
+
+	private void checkOpen() {
+		if (closed)
+			throw new IllegalStateException("Log is closed.");
+	}
+
+	/**
+	 * Replaces the compacted file and every full segment with a new compacted
+	 * file holding the latest position of each entity in them, in geohash
+	 * order. The current segment is first ended, so that every update appended
+	 * before the call is compacted. Appends may go on meanwhile.
+	 *
+	 * @throws IOException if the files cannot be read or written.
+	 */
+	public void compact() throws IOException {
+		synchronized (files) {
+			long last;
+			synchronized (this) {
+				checkOpen();
+				if (count > 0)
+					roll();
+				last = sequence - 1;
+			}
+			long previous = compacted(directory);
+			if (last <= previous)
+				return;
+			Latest latest = read(last);
+			int n = latest.size;
+			LatLngArray points = LatLngArray.ofFixed(DegreePrecision.E6, Arrays.copyOf(latest.latitudes, n),
+					Arrays.copyOf(latest.longitudes, n));
+			long[] keys = SpaceFillingCurve.MORTON.keys(points);
+			int[] order = IndexSort.identity(n);
+			IndexSort.sort(keys, order);
+
+			Path temporary = file(COMPACTED, last, TEMPORARY);
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			CRC32 crc = new CRC32();
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				buffer.putInt(MAGIC);
+				buffer.put(VERSION);
+				buffer.put(new byte[HEADER_SIZE - 5]);
+				for (int i = 0; i < n; i++) {
+					if (buffer.remaining() < RECORD_SIZE)
+						flush(buffer, channel);
+					int start = buffer.position();
+					int slot = order[i];
+					buffer.putLong(latest.entities[slot]);
+					buffer.putLong(latest.timestamps[slot]);
+					buffer.putInt(latest.latitudes[slot]);
+					buffer.putInt(latest.longitudes[slot]);
+					crc.reset();
+					crc.update(buffer.array(), start, DATA_SIZE);
+					buffer.putInt((int) crc.getValue());
+				}
+				flush(buffer, channel);
+				channel.force(true);
+			}
+			Files.move(temporary, file(COMPACTED, last, SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+			if (previous > 0)
+				Files.delete(file(COMPACTED, previous, SUFFIX));
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT + "*" + SUFFIX)) {
+				for (Path file : stream) {
+					long segment = sequence(file.getFileName().toString(), SEGMENT);
+					if (segment >= 0 && segment <= last)
+						Files.delete(file);
+				}
+			}
+		}
+	}
+
+	private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Recovers the latest position of every entity from the compacted file and
+	 * every segment since, including updates appended up to the call.
+	 *
+	 * @return the positions, in the order their entities first appear.
+	 * @throws IOException if the files cannot be read.
+	 */
+	public Positions latest() throws IOException {
+		synchronized (files) {
+			long last;
+			synchronized (this) {
+				checkOpen();
+				last = sequence;
+			}
+			Latest latest = read(last);
+			int n = latest.size;
+			return new Positions(Arrays.copyOf(latest.entities, n), Arrays.copyOf(latest.timestamps, n),
+					LatLngArray.ofFixed(DegreePrecision.E6, Arrays.copyOf(latest.latitudes, n),
+							Arrays.copyOf(latest.longitudes, n)),
+					latest.slots);
+		}
+	}
+
+	/**
+	 * Reads the compacted file and then each segment up to the given one, in
+	 * order.
+	 */
+	private Latest read(long last) throws IOException {
+		long compacted = compacted(directory);
+		long[] segments = new long[16];
+		int n = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT + "*" + SUFFIX)) {
+			for (Path file : stream) {
+				long segment = sequence(file.getFileName().toString(), SEGMENT);
+				if (segment > compacted && segment <= last) {
+					if (n == segments.length)
+						segments = Arrays.copyOf(segments, n * 2);
+					segments[n++] = segment;
+				}
+			}
+		}
+		Arrays.sort(segments, 0, n);
+		Latest latest = new Latest();
+		if (compacted > 0)
+			read(file(COMPACTED, compacted, SUFFIX), latest);
+		for (int i = 0; i < n; i++)
+			read(file(SEGMENT, segments[i], SUFFIX), latest);
+		return latest;
+	}
+
+	/**
+	 * Streams the records of a file, stopping at the end or at the first
+	 * record that fails its checksum.
+	 */
+	private static void read(Path file, Latest latest) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		CRC32 crc = new CRC32();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			buffer.limit(HEADER_SIZE);
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+				;
+			if (buffer.hasRemaining() || buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION)
+				throw new IOException("Invalid position log file.");
+			buffer.clear();
+			while (true) {
+				int read = channel.read(buffer);
+				buffer.flip();
+				while (buffer.remaining() >= RECORD_SIZE) {
+					int start = buffer.position();
+					crc.reset();
+					crc.update(buffer.array(), start, DATA_SIZE);
+					if (buffer.getInt(start + DATA_SIZE) != (int) crc.getValue())
+						return;
+					latest.offer(buffer.getLong(), buffer.getLong(), buffer.getInt(), buffer.getInt());
+					buffer.getInt();
+				}
+				// A partial record at the end is a torn write.
+				if (read < 0)
+					return;
+				buffer.compact();
+			}
+		}
+	}
+
+	/**
+	 * Flushes and closes the log. Its files stay for the next log to open.
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed)
+			return;
+		segment.force();
+		segment = null;
+		closed = true;
+	}
+
+	/**
+	 * The latest position of each entity seen so far, in slots assigned as
+	 * entities are first seen.
+	 */
+	private static final class Latest {
+		LatLngLongMap slots = new LatLngLongMap();
+		long[] entities = new long[16];
+		long[] timestamps = new long[16];
+		int[] latitudes = new int[16];
+		int[] longitudes = new int[16];
+		int size;
+
+		void offer(long entity, long timestamp, int latitude, int longitude) {
+			int slot = (int) slots.get(entity, -1);
+			if (slot < 0) {
+				slot = size++;
+				if (slot == entities.length) {
+					entities = Arrays.copyOf(entities, slot * 2);
+					timestamps = Arrays.copyOf(timestamps, slot * 2);
+					latitudes = Arrays.copyOf(latitudes, slot * 2);
+					longitudes = Arrays.copyOf(longitudes, slot * 2);
+				}
+				slots.put(entity, slot, -1);
+				entities[slot] = entity;
+			} else if (timestamp < timestamps[slot]) {
+				return;
+			}
+			timestamps[slot] = timestamp;
+			latitudes[slot] = latitude;
+			longitudes[slot] = longitude;
+		}
+	}
+
+	/**
+	 * The latest position of each entity in a log.
+	 */
+	public static class Positions {
+
+		private final long[] entities;
+		private final long[] timestamps;
+		private final LatLngArray points;
+		private final LatLngLongMap slots;
+
+		Positions(long[] entities, long[] timestamps, LatLngArray points, LatLngLongMap slots) {
+			this.entities = entities;
+			this.timestamps = timestamps;
+			this.points = points;
+			this.slots = slots;
+		}
+
+		/**
+		 * @return the number of entities.
+		 */
+		public int size() {
+			return entities.length;
+		}
+
+		/**
+		 * @param i the position of an entity.
+		 * @return the entity's id.
+		 */
+		public long getEntity(int i) {
+			return entities[i];
+		}
+
+		/**
+		 * @param i the position of an entity.
+		 * @return the timestamp of the entity's latest update.
+		 */
+		public long getTimestamp(int i) {
+			return timestamps[i];
+		}
+
+		/**
+		 * @return the latest point of each entity, by position.
+		 */
+		public LatLngArray getPoints() {
+			return points;
+		}
+
+		/**
+		 * @param entity an entity's id.
+		 * @return the position of the entity, or -1 if the log has no updates to
+		 *         it.
+		 */
+		public int indexOf(long entity) {
+			return (int) slots.get(entity, -1);
+		}
+	}
+}
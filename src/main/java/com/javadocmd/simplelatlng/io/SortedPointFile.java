@@ -0,0 +1,317 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.index.SpaceFillingCurve;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+import com.javadocmd.simplelatlng.window.CircularWindow;
+import com.javadocmd.simplelatlng.window.LatLngWindow;
+import com.javadocmd.simplelatlng.window.RectangularWindow;
+
+/**
+ * <p>
+ * Reads a file of points written by {@link SortedPointFileWriter}, mapped into
+ * memory, and finds the points inside windows without reading the whole file.
+ * </p>
+ * <p>
+ * The file holds a header; then one record per point, sorted along a
+ * {@link SpaceFillingCurve}, of its latitude and longitude at
+ * {@link DegreePrecision#E6} and its original index, each a little-endian
+ * <code>int</code>; then, for each block of records, its least and greatest
+ * latitude and longitude and its first and last key. The block summaries are
+ * read into memory when the file is opened; the records are read in place.
+ * </p>
+ * <p>
+ * A query covers the window's bounds with ranges of keys, finds by binary
+ * search the blocks whose keys fall in those ranges, passes over those whose
+ * bounds fall outside the window's, and tests each point of the rest.
+ * {@link RectangularWindow} and {@link CircularWindow} queries are narrowed
+ * this way; queries with other windows test every point.
+ * </p>
+ * <p>
+ * Files are limited to 2 GB, the most a single mapping can hold. The mapping
+ * is released when this object is garbage collected; there is nothing to
+ * close. Instances are immutable and thread-safe.
+ * </p>
+ */
+public class SortedPointFile {
+
+	static final int MAGIC = 0x42504c53;
+	static final byte VERSION = 1;
+	static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+	static final int HEADER_SIZE = 16;
+	static final int RECORD_SIZE = 12;
+	static final int SUMMARY_SIZE = 32;
+
+	/**
+	 * Widens the bounds of windows, in degrees, so that rounding never passes
+	 * over a point inside one.
+	 */
+	private static final double PAD = 1e-5;
+
+	/**
+	 * Receives the points found by a query.
+	 */
+	public interface Visitor {
+		/**
+		 * @param index     the index of the point in the array written.
+		 * @param latitude  the latitude at {@link DegreePrecision#E6}.
+		 * @param longitude the longitude at {@link DegreePrecision#E6}.
+		 */
+		void visit(int index, int latitude, int longitude);
+	}
+
+	private final ByteBuffer buffer;
+	private final SpaceFillingCurve curve;
+	private final int blockSize;
+	private final int size;
+	private final int[] minLatitudes;
+	private final int[] maxLatitudes;
+	private final int[] minLongitudes;
+	private final int[] maxLongitudes;
+	private final long[] minKeys;
+	private final long[] maxKeys;
+
+	private SortedPointFile(ByteBuffer buffer) throws IOException {
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION)
+			throw new IOException("Invalid sorted point file.");
+		int curve = buffer.get(5);
+		this.blockSize = buffer.getInt(8);
+		this.size = buffer.getInt(12);
+		if (curve < 0 || curve >= SpaceFillingCurve.values().length || blockSize < 1 || size < 0)
+			throw new IOException("Invalid sorted point file.");
+		int blocks = (int) (((long) size + blockSize - 1) / blockSize);
+		if (fileSize(size, blocks) != buffer.capacity())
+			throw new IOException("Invalid sorted point file.");
+		this.buffer = buffer;
+		this.curve = SpaceFillingCurve.values()[curve];
+		minLatitudes = new int[blocks];
+		maxLatitudes = new int[blocks];
+		minLongitudes = new int[blocks];
+		maxLongitudes = new int[blocks];
+		minKeys = new long[blocks];
+		maxKeys = new long[blocks];
+		int position = HEADER_SIZE + size * RECORD_SIZE;
+		for (int block = 0; block < blocks; block++, position += SUMMARY_SIZE) {
+			minLatitudes[block] = buffer.getInt(position);
+			maxLatitudes[block] = buffer.getInt(position + 4);
+			minLongitudes[block] = buffer.getInt(position + 8);
+			maxLongitudes[block] = buffer.getInt(position + 12);
+			minKeys[block] = buffer.getLong(position + 16);
+			maxKeys[block] = buffer.getLong(position + 24);
+		}
+	}
+
+	static long fileSize(int points, int blocks) {
+		return HEADER_SIZE + (long) points * RECORD_SIZE + (long) blocks * SUMMARY_SIZE;
+	}
+
+	/**
+	 * Opens a file, mapping it into memory.
+	 *
+	 * @param path the file.
+	 * @return the opened file.
+	 * @throws IOException if the file cannot be read, or is not a sorted point
+	 *                     file.
+	 */
+	public static SortedPointFile open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Invalid sorted point file.");
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new SortedPointFile(buffer.order(BYTE_ORDER));
+		}
+	}
+
+	/**
+	 * @return the curve along which the points are sorted.
+	 */
+	public SpaceFillingCurve getCurve() {
+		return curve;
+	}
+
+	/**
+	 * @return the number of points.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of blocks.
+	 */
+	public int getBlockCount() {
+		return minKeys.length;
+	}
+
+	/**
+	 * @return the number of points in each block but the last.
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Finds the points inside a window.
+	 *
+	 * @param window the window.
+	 * @return the points, in the order of the file.
+	 */
+	public LatLngArray query(LatLngWindow<?> window) {
+		final LatLngArray points = new LatLngArray();
+		query(window, new Visitor() {
+			@Override
+			public void visit(int index, int latitude, int longitude) {
+				points.addFixed(latitude, longitude);
+			}
+		});
+		return points;
+	}
+
+	/**
+	 * Finds the points inside a window, passing each to a visitor in the order
+	 * of the file. Reports {@link SpatialOperation#FILE_QUERY} to the
+	 * {@link Metrics#getRecorder() metrics recorder}, if there is one.
+	 *
+	 * @param window  the window.
+	 * @param visitor the visitor.
+	 * @return the number of points found.
+	 */
+	public int query(LatLngWindow<?> window, Visitor visitor) {
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long start = recorder == null ? 0 : System.nanoTime();
+		double[] bounds = bounds(window);
+		BitSet blocks = new BitSet(minKeys.length);
+		for (int i = 2; i < bounds.length; i += 2) {
+			long[] ranges = curve.cover(bounds[0], bounds[1], bounds[i], bounds[i + 1]);
+			for (int j = 0; j < ranges.length; j += 2)
+				mark(ranges[j], ranges[j + 1], blocks);
+		}
+		int matches = 0;
+		long candidates = 0;
+		for (int block = blocks.nextSetBit(0); block >= 0; block = blocks.nextSetBit(block + 1)) {
+			if (!overlaps(block, bounds))
+				continue;
+			int from = block * blockSize;
+			int to = Math.min(size, from + blockSize);
+			int end = HEADER_SIZE + to * RECORD_SIZE;
+			for (int position = HEADER_SIZE + from * RECORD_SIZE; position < end; position += RECORD_SIZE) {
+				int latitude = buffer.getInt(position);
+				int longitude = buffer.getInt(position + 4);
+				if (window.contains(latitude, longitude, DegreePrecision.E6)) {
+					visitor.visit(buffer.getInt(position + 8), latitude, longitude);
+					matches++;
+				}
+			}
+			candidates += to - from;
+		}
+		if (recorder != null)
+			recorder.record(SpatialOperation.FILE_QUERY, candidates, matches, System.nanoTime() - start);
+		return matches;
+	}
+
+	/**
+	 * Marks the blocks holding any key of a range. Both the first and the last
+	 * keys of the blocks are in order, so the first such block is found by
+	 * binary search and the rest follow it.
+	 */
+	private void mark(long first, long last, BitSet blocks) {
+		int low = 0, high = maxKeys.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (maxKeys[mid] < first)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		for (int block = low; block < minKeys.length && minKeys[block] <= last; block++)
+			blocks.set(block);
+	}
+
+	private boolean overlaps(int block, double[] bounds) {
+		double scale = DegreePrecision.E6.getScale();
+		if (maxLatitudes[block] < bounds[0] * scale || minLatitudes[block] > bounds[1] * scale)
+			return false;
+		for (int i = 2; i < bounds.length; i += 2) {
+			if (maxLongitudes[block] >= bounds[i] * scale && minLongitudes[block] <= bounds[i + 1] * scale)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Finds a box holding every point of a window, padded a little.
+	 *
+	 * @return the southern and northern edges of the box, then the western and
+	 *         eastern edges of each of its one or two parts, split at the 180th
+	 *         meridian, all in degrees.
+	 */
+	static double[] bounds(LatLngWindow<?> window) {
+		if (window instanceof RectangularWindow) {
+			RectangularWindow rectangle = (RectangularWindow) window;
+			double south = rectangle.getMinLatitude() - PAD;
+			double north = rectangle.getMaxLatitude() + PAD;
+			double west = rectangle.getLeftLongitude() - PAD;
+			double east = rectangle.getRightLongitude() + PAD;
+			if (rectangle.getLongitudeDelta() >= 360)
+				return box(south, north, -180, 180);
+			if (rectangle.crosses180thMeridian())
+				return box(south, north, west, east + 360);
+			return west <= east ? box(south, north, west, east) : box(south, north, -180, 180);
+		}
+		if (window instanceof CircularWindow) {
+			CircularWindow circle = (CircularWindow) window;
+			double latitude = circle.getCenter().getLatitude();
+			double longitude = circle.getCenter().getLongitude();
+			double radius = circle.getRadius() + PAD;
+			double south = latitude - radius;
+			double north = latitude + radius;
+			if (south <= -90 || north >= 90)
+				return box(south, north, -180, 180);
+			// The widest point of a circle not holding a pole.
+			double sin = Math.sin(Math.toRadians(radius)) / Math.cos(Math.toRadians(latitude));
+			if (sin >= 1)
+				return box(south, north, -180, 180);
+			double spread = Math.toDegrees(Math.asin(sin)) + PAD;
+			return box(south, north, longitude - spread, longitude + spread);
+		}
+		return box(-90, 90, -180, 180);
+	}
+
+	private static double[] box(double south, double north, double west, double east) {
+		south = Math.max(south, -90);
+		north = Math.min(north, 90);
+		if (east - west >= 360)
+			return new double[] { south, north, -180, 180 };
+		if (west < -180)
+			return new double[] { south, north, west + 360, 180, -180, east };
+		if (east > 180)
+			return new double[] { south, north, west, 180, -180, east - 360 };
+		return new double[] { south, north, west, east };
+	}
+}
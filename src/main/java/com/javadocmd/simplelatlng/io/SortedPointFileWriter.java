@@ -0,0 +1,152 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.index.SpaceFillingCurve;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+import com.javadocmd.simplelatlng.util.IndexSort;
+
+/**
+ * <p>
+ * Writes points to a {@link SortedPointFile}: sorted along a
+ * {@link SpaceFillingCurve}, stored at {@link DegreePrecision#E6} in blocks of
+ * a fixed number of points, and followed by a summary of each block's bounds
+ * and range of keys. The points given are not changed; each record keeps the
+ * index the point had in them.
+ * </p>
+ * <p>
+ * Each write reports {@link SpatialOperation#WRITE_POINTS} to the
+ * {@link Metrics#getRecorder() metrics recorder}, if there is one. Instances
+ * are immutable and thread-safe.
+ * </p>
+ */
+public class SortedPointFileWriter {
+
+	/**
+	 * The block size used when none is given.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 256;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final SpaceFillingCurve curve;
+	private final int blockSize;
+
+	/**
+	 * Creates a writer with blocks of {@link #DEFAULT_BLOCK_SIZE}.
+	 *
+	 * @param curve the curve along which to sort points.
+	 */
+	public SortedPointFileWriter(SpaceFillingCurve curve) {
+		this(curve, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Creates a writer.
+	 *
+	 * @param curve     the curve along which to sort points.
+	 * @param blockSize the number of points in each block but the last.
+	 */
+	public SortedPointFileWriter(SpaceFillingCurve curve, int blockSize) {
+		if (curve == null)
+			throw new IllegalArgumentException("Curve may not be null.");
+		if (blockSize < 1)
+			throw new IllegalArgumentException("Invalid block size given.");
+		this.curve = curve;
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Writes points to a file, replacing it if it exists.
+	 *
+	 * @param points the points.
+	 * @param path   the file.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void write(LatLngArray points, Path path) throws IOException {
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long start = recorder == null ? 0 : System.nanoTime();
+		int n = points.size();
+		int blocks = (int) (((long) n + blockSize - 1) / blockSize);
+		if (SortedPointFile.fileSize(n, blocks) > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many points given.");
+		LatLngArray sorted = new LatLngArray(DegreePrecision.E6, n);
+		sorted.addAll(points);
+		long[] keys = curve.keys(sorted);
+		int[] order = IndexSort.identity(n);
+		IndexSort.sort(keys, order);
+
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(SortedPointFile.BYTE_ORDER);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			buffer.putInt(SortedPointFile.MAGIC);
+			buffer.put(SortedPointFile.VERSION);
+			buffer.put((byte) curve.ordinal());
+			buffer.putShort((short) 0);
+			buffer.putInt(blockSize);
+			buffer.putInt(n);
+			for (int i = 0; i < n; i++) {
+				if (buffer.remaining() < SortedPointFile.RECORD_SIZE)
+					flush(buffer, channel);
+				buffer.putInt(sorted.getLatitudeFixed(order[i]));
+				buffer.putInt(sorted.getLongitudeFixed(order[i]));
+				buffer.putInt(order[i]);
+			}
+			for (int block = 0; block < blocks; block++) {
+				int from = block * blockSize;
+				int to = Math.min(n, from + blockSize);
+				int minLatitude = Integer.MAX_VALUE, maxLatitude = Integer.MIN_VALUE;
+				int minLongitude = Integer.MAX_VALUE, maxLongitude = Integer.MIN_VALUE;
+				for (int i = from; i < to; i++) {
+					int latitude = sorted.getLatitudeFixed(order[i]);
+					int longitude = sorted.getLongitudeFixed(order[i]);
+					minLatitude = Math.min(minLatitude, latitude);
+					maxLatitude = Math.max(maxLatitude, latitude);
+					minLongitude = Math.min(minLongitude, longitude);
+					maxLongitude = Math.max(maxLongitude, longitude);
+				}
+				if (buffer.remaining() < SortedPointFile.SUMMARY_SIZE)
+					flush(buffer, channel);
+				buffer.putInt(minLatitude);
+				buffer.putInt(maxLatitude);
+				buffer.putInt(minLongitude);
+				buffer.putInt(maxLongitude);
+				buffer.putLong(keys[from]);
+				buffer.putLong(keys[to - 1]);
+			}
+			flush(buffer, channel);
+		}
+		if (recorder != null)
+			recorder.record(SpatialOperation.WRITE_POINTS, n, n, System.nanoTime() - start);
+	}
+
+	private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+}
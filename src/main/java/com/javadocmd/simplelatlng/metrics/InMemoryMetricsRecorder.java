@@ -0,0 +1,194 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * A {@link MetricsRecorder} which keeps running totals in memory: for each
+ * operation, the number of calls, candidates, matches and nanoseconds, and a
+ * histogram of call times in power-of-two buckets.
+ * </p>
+ * <p>
+ * All counters are {@link LongAdder}s, so recording from many threads at once
+ * does not contend. A {@link Snapshot} read while operations are being recorded
+ * may include part of a concurrent call's report.
+ * </p>
+ */
+public class InMemoryMetricsRecorder implements MetricsRecorder {
+
+	/** Bucket <code>i</code> counts calls taking less than 2^i nanoseconds. */
+	static final int BUCKETS = 64;
+
+	private final Map<SpatialOperation, Counters> counters = new EnumMap<SpatialOperation, Counters>(
+			SpatialOperation.class);
+
+	public InMemoryMetricsRecorder() {
+		for (SpatialOperation operation : SpatialOperation.values())
+			counters.put(operation, new Counters());
+	}
+
+	@Override
+	public void record(SpatialOperation operation, long candidates, long matches, long nanos) {
+		Counters c = counters.get(operation);
+		c.calls.increment();
+		c.candidates.add(candidates);
+		c.matches.add(matches);
+		c.nanos.add(nanos);
+		c.histogram[bucket(nanos)].increment();
+	}
+
+	static int bucket(long nanos) {
+		return nanos <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+	}
+
+	/**
+	 * @param operation an operation.
+	 * @return the totals so far for the operation.
+	 */
+	public Snapshot snapshot(SpatialOperation operation) {
+		Counters c = counters.get(operation);
+		long[] histogram = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++)
+			histogram[i] = c.histogram[i].sum();
+		return new Snapshot(operation, c.calls.sum(), c.candidates.sum(), c.matches.sum(), c.nanos.sum(), histogram);
+	}
+
+	/**
+	 * Sets all totals back to zero.
+	 */
+	public void reset() {
+		for (Counters c : counters.values()) {
+			c.calls.reset();
+			c.candidates.reset();
+			c.matches.reset();
+			c.nanos.reset();
+			for (LongAdder bucket : c.histogram)
+				bucket.reset();
+		}
+	}
+
+	private static class Counters {
+		final LongAdder calls = new LongAdder();
+		final LongAdder candidates = new LongAdder();
+		final LongAdder matches = new LongAdder();
+		final LongAdder nanos = new LongAdder();
+		final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+		Counters() {
+			for (int i = 0; i < BUCKETS; i++)
+				histogram[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * The totals for one operation at one moment.
+	 */
+	public static class Snapshot {
+		private final SpatialOperation operation;
+		private final long calls;
+		private final long candidates;
+		private final long matches;
+		private final long nanos;
+		private final long[] histogram;
+
+		Snapshot(SpatialOperation operation, long calls, long candidates, long matches, long nanos, long[] histogram) {
+			this.operation = operation;
+			this.calls = calls;
+			this.candidates = candidates;
+			this.matches = matches;
+			this.nanos = nanos;
+			this.histogram = histogram;
+		}
+
+		public SpatialOperation getOperation() {
+			return operation;
+		}
+
+		public long getCalls() {
+			return calls;
+		}
+
+		public long getCandidates() {
+			return candidates;
+		}
+
+		public long getMatches() {
+			return matches;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return the fraction of candidates which matched, or NaN if there were
+		 *         no candidates.
+		 */
+		public double getSelectivity() {
+			return candidates == 0 ? Double.NaN : (double) matches / candidates;
+		}
+
+		/**
+		 * @return the mean time per call in nanoseconds, or NaN if there were no
+		 *         calls.
+		 */
+		public double getMeanNanos() {
+			return calls == 0 ? Double.NaN : (double) nanos / calls;
+		}
+
+		/**
+		 * @return a copy of the call time histogram, whose element
+		 *         <code>i</code> counts calls taking at least 2^(i-1) and less
+		 *         than 2^i nanoseconds.
+		 */
+		public long[] getHistogram() {
+			return histogram.clone();
+		}
+
+		/**
+		 * An upper bound on a percentile of the call times, accurate to a factor
+		 * of two.
+		 *
+		 * @param percentile the percentile, from 0 to 100.
+		 * @return a time in nanoseconds which at least that percentage of calls
+		 *         took less than, or 0 if there were no calls.
+		 */
+		public long getPercentileNanos(double percentile) {
+			if (Double.isNaN(percentile) || percentile < 0 || percentile > 100)
+				throw new IllegalArgumentException("Invalid percentile given.");
+			long total = 0;
+			for (long count : histogram)
+				total += count;
+			if (total == 0)
+				return 0;
+			long needed = Math.max(1, (long) Math.ceil(total * percentile / 100));
+			int i = 0;
+			for (long seen = histogram[0]; seen < needed; seen += histogram[++i])
+				;
+			return i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d calls, %d candidates, %d matches, %d ns", operation, calls, candidates,
+					matches, nanos);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.metrics;
+
+/**
+ * <p>
+ * Holds the {@link MetricsRecorder}, if any, to which this library reports the
+ * operations listed in {@link SpatialOperation}.
+ * </p>
+ * <p>
+ * There is no recorder by default. Without one, instrumented operations check
+ * for a recorder once per call and do nothing further; in particular they do
+ * not read the clock.
+ * </p>
+ */
+public final class Metrics {
+
+	private static volatile MetricsRecorder recorder;
+
+	/**
+	 * @return the current recorder, or null if metrics are disabled.
+	 */
+	public static MetricsRecorder getRecorder() {
+		return recorder;
+	}
+
+	/**
+	 * Sets the recorder for all future operations, on all threads.
+	 *
+	 * @param recorder the recorder, or null to disable metrics.
+	 */
+	public static void setRecorder(MetricsRecorder recorder) {
+		Metrics.recorder = recorder;
+	}
+
+	private Metrics() {
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.metrics;
+
+/**
+ * <p>
+ * Receives a report of each instrumented operation, once the operation has
+ * completed. Install a recorder with {@link Metrics#setRecorder(MetricsRecorder)}.
+ * </p>
+ * <p>
+ * Recorders are called on the thread performing the operation, possibly from
+ * many threads at once, so implementations must be thread-safe, fast, and
+ * should not throw. {@link InMemoryMetricsRecorder} is a ready-made
+ * implementation.
+ * </p>
+ */
+public interface MetricsRecorder {
+
+	/**
+	 * Records one call of an operation.
+	 *
+	 * @param operation  the operation.
+	 * @param candidates the number of points the operation tested.
+	 * @param matches    the number of points that passed the test.
+	 * @param nanos      the time the operation took, in nanoseconds.
+	 */
+	void record(SpatialOperation operation, long candidates, long matches, long nanos);
+}
@@ -0,0 +1,122 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.metrics;
+
+/**
+ * The operations of this library which report to a {@link MetricsRecorder}.
+ */
+public enum SpatialOperation {
+	/**
+	 * <code>LatLngWindow.filter</code>: candidates are the elements tested,
+	 * matches the elements kept.
+	 */
+	WINDOW_FILTER,
+	/**
+	 * <code>LatLngWindow.filterCopy</code>: candidates are the elements tested,
+	 * matches the elements copied.
+	 */
+	WINDOW_FILTER_COPY,
+	/**
+	 * <code>CircularWindow.filterCopySort</code>: candidates are the elements
+	 * tested, matches the elements copied.
+	 */
+	WINDOW_FILTER_COPY_SORT,
+	/**
+	 * <code>Geohasher.hash</code>: one candidate and one match per call. Too
+	 * fine-grained for Flight Recorder, which leaves it out.
+	 */
+	GEOHASH_ENCODE,
+	/**
+	 * <code>Geohasher.decode</code>: one candidate and one match per call. Too
+	 * fine-grained for Flight Recorder, which leaves it out.
+	 */
+	GEOHASH_DECODE,
+	/**
+	 * <code>Geohasher.hashBits</code> over a whole array: candidates and
+	 * matches are both the number of points hashed.
+	 */
+	GEOHASH_BATCH_ENCODE,
+	/**
+	 * <code>LatLngTool.distances</code>: candidates and matches are both the
+	 * number of distances computed.
+	 */
+	BATCH_DISTANCE,
+	/**
+	 * <code>Deduplicator.group</code> and <code>parallelGroup</code>, including
+	 * building their grid: candidates are the points grouped, matches the
+	 * number of groups found.
+	 */
+	DEDUPLICATE,
+	/**
+	 * <code>PointFileReader.read</code>: candidates and matches are both the
+	 * number of points read, so rows per second are candidates per nanosecond
+	 * times a billion.
+	 */
+	READ_POINTS,
+	/**
+	 * <code>PointFileWriter.write</code> and
+	 * <code>SortedPointFileWriter.write</code>: candidates and matches are both
+	 * the number of points written.
+	 */
+	WRITE_POINTS,
+	/**
+	 * <code>DistanceJoin.join</code> and <code>parallelJoin</code>, including
+	 * indexing the right points: candidates are the pairs whose distance was
+	 * checked, matches the pairs found.
+	 */
+	DISTANCE_JOIN,
+	/**
+	 * <code>KnnJoin.join</code>, <code>allNearest</code> and their parallel
+	 * forms, including building the tree: candidates are the points whose
+	 * distance was checked, matches the neighbors found.
+	 */
+	KNN_JOIN,
+	/**
+	 * <code>Dbscan.cluster</code> and <code>parallelCluster</code>, including
+	 * building their index: candidates are the points clustered, matches the
+	 * number of clusters found.
+	 */
+	CLUSTER,
+	/**
+	 * <code>GridAggregator.addAll</code>: candidates and matches are both the
+	 * number of points added.
+	 */
+	AGGREGATE,
+	/**
+	 * <code>PointBlocks.filterIndices</code>: candidates are the points tested
+	 * in blocks that could not be passed over, matches the points inside the
+	 * window.
+	 */
+	BLOCK_FILTER,
+	/**
+	 * <code>SortedPointFile.query</code>: candidates are the points read from
+	 * blocks that could not be passed over, matches the points inside the
+	 * window.
+	 */
+	FILE_QUERY,
+	/**
+	 * <code>ContinuousKnn</code>, for each object added, moved or removed:
+	 * candidates are the queries checked, matches the queries whose results
+	 * changed.
+	 */
+	CONTINUOUS_KNN,
+	/**
+	 * Building a <code>PointTree</code> or <code>GridIndex</code>, whether on
+	 * its own or within another operation: candidates and matches are both the
+	 * number of points indexed.
+	 */
+	INDEX_BUILD
+}
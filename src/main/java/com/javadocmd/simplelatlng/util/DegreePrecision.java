@@ -0,0 +1,143 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.util;
+
+/**
+ * <p>
+ * The fixed-point precisions available to the compact, <code>int</code>-based
+ * coordinate representations in this library. A coordinate is stored as the
+ * number of whole steps of the given tolerance, so every supported precision
+ * keeps +/- 180 degrees within the range of an <code>int</code>.
+ * </p>
+ * <p>
+ * {@link #E6} matches {@link LatLngConfig#DEGREE_TOLERANCE} and so converts to
+ * and from a <code>LatLng</code>'s internal representation exactly.
+ * </p>
+ */
+public enum DegreePrecision {
+	/**
+	 * Steps of 1e-5 degrees, a little over a meter. The precision used by the
+	 * common encoded polyline format.
+	 */
+	E5(5, 100000L, 0.00001),
+	/**
+	 * Steps of 1e-6 degrees, the precision of <code>LatLng</code>.
+	 */
+	E6(6, 1000000L, 0.000001),
+	/**
+	 * Steps of 1e-7 degrees, about a centimeter; suitable for survey data.
+	 */
+	E7(7, 10000000L, 0.0000001);
+
+	private final int decimalPlaces;
+	private final long scale;
+	private final double tolerance;
+
+	DegreePrecision(int decimalPlaces, long scale, double tolerance) {
+		this.decimalPlaces = decimalPlaces;
+		this.scale = scale;
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * @return the number of decimal places of a degree value kept at this
+	 *         precision.
+	 */
+	public int getDecimalPlaces() {
+		return decimalPlaces;
+	}
+
+	/**
+	 * @return the number of fixed-point steps in one degree.
+	 */
+	public long getScale() {
+		return scale;
+	}
+
+	/**
+	 * @return the size in degrees of one fixed-point step.
+	 */
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * Converts an angle in degrees to its fixed-point value at this precision,
+	 * truncating towards zero. {@link #E6} uses
+	 * {@link LatLngConfig#doubleToLong(double)} so that it always agrees with
+	 * <code>LatLng</code>; the other precisions first snap values lying within
+	 * floating point error of a whole step onto that step, so that 4.0 does not
+	 * become 3.99999. The angle should already be normalized to the +/- 180
+	 * degree range.
+	 *
+	 * @param degrees the angle in degrees.
+	 * @return the fixed-point value.
+	 */
+	public int toFixed(double degrees) {
+		if (this == E6)
+			return (int) LatLngConfig.doubleToLong(degrees);
+		double steps = degrees * scale;
+		double nearest = Math.rint(steps);
+		return (int) (Math.abs(steps - nearest) < 1e-6 ? nearest : steps);
+	}
+
+	/**
+	 * Converts a fixed-point value at this precision to degrees.
+	 *
+	 * @param fixed the fixed-point value.
+	 * @return the angle in degrees.
+	 */
+	public double toDegrees(int fixed) {
+		return fixed * tolerance;
+	}
+
+	/**
+	 * Converts a <code>LatLng</code>'s internal representation (at
+	 * {@link LatLngConfig#DEGREE_TOLERANCE}) to a fixed-point value at this
+	 * precision. Coarser precisions truncate towards zero.
+	 *
+	 * @param internal the internal value.
+	 * @return the fixed-point value.
+	 */
+	public int fromInternal(long internal) {
+		switch (this) {
+		case E5:
+			return (int) (internal / 10);
+		case E7:
+			return (int) (internal * 10);
+		default:
+			return (int) internal;
+		}
+	}
+
+	/**
+	 * Converts a fixed-point value at this precision to a <code>LatLng</code>'s
+	 * internal representation. Finer precisions truncate towards zero.
+	 *
+	 * @param fixed the fixed-point value.
+	 * @return the internal value.
+	 */
+	public long toInternal(int fixed) {
+		switch (this) {
+		case E5:
+			return fixed * 10L;
+		case E7:
+			return fixed / 10;
+		default:
+			return fixed;
+		}
+	}
+}
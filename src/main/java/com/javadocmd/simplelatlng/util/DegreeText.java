@@ -0,0 +1,222 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.util;
+
+/**
+ * <p>
+ * Parses and formats angles in decimal degrees directly to and from the
+ * internal fixed-point representation of <code>LatLng</code> (at
+ * {@link LatLngConfig#DEGREE_TOLERANCE}), without going through
+ * <code>double</code>, intermediate strings or formatter objects.
+ * </p>
+ * <p>
+ * Text is plain decimal: an optional sign, digits, and optionally a point and
+ * more digits, such as <code>-122.419416</code>, <code>7</code> or
+ * <code>.5</code>, with optional surrounding spaces. Digits past the sixth
+ * decimal place are truncated towards zero, as <code>LatLng</code> truncates
+ * its values, but exactly rather than after rounding to a double. Formatted
+ * text always has six decimal places, just as the default
+ * {@link LatLngConfig#getDegreeFormat()}.
+ * </p>
+ * <p>
+ * All methods are static and keep no state, so they are safe from any thread.
+ * </p>
+ */
+public class DegreeText {
+
+	/** The most bytes {@link #format(long, byte[], int)} writes. */
+	public static final int MAX_LENGTH = 21;
+
+	private static final int PLACES = 6;
+	private static final long SCALE = 1000000L;
+	private static final int MAX_WHOLE_DIGITS = 12;
+	private static final long[] POWERS = { 1000000L, 100000L, 10000L, 1000L, 100L, 10L, 1L };
+
+	/**
+	 * Parses an angle in decimal degrees.
+	 *
+	 * @param text the text.
+	 * @return the angle as an internal fixed-point value.
+	 * @throws IllegalArgumentException if the text is not a decimal number.
+	 */
+	public static long parse(CharSequence text) {
+		return parse(text, 0, text.length());
+	}
+
+	/**
+	 * Parses an angle in decimal degrees from part of some text.
+	 *
+	 * @param text  the text.
+	 * @param start the index of the first character to parse.
+	 * @param end   the index after the last character to parse.
+	 * @return the angle as an internal fixed-point value.
+	 * @throws IllegalArgumentException if the characters are not a decimal
+	 *                                  number.
+	 */
+	public static long parse(CharSequence text, int start, int end) {
+		checkRange(start, end, text.length());
+		while (start < end && text.charAt(start) == ' ')
+			start++;
+		while (end > start && text.charAt(end - 1) == ' ')
+			end--;
+		boolean negative = false;
+		if (start < end && (text.charAt(start) == '-' || text.charAt(start) == '+'))
+			negative = text.charAt(start++) == '-';
+		long whole = 0, fraction = 0;
+		int wholeDigits = 0, places = -1;
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			if (c == '.' && places < 0) {
+				places = 0;
+			} else if (c < '0' || c > '9') {
+				throw new IllegalArgumentException("Invalid degrees given.");
+			} else if (places < 0) {
+				if (++wholeDigits > MAX_WHOLE_DIGITS)
+					throw new IllegalArgumentException("Invalid degrees given.");
+				whole = whole * 10 + (c - '0');
+			} else if (places < PLACES) {
+				fraction = fraction * 10 + (c - '0');
+				places++;
+			} else {
+				// Beyond the sixth place; truncated, but still checked.
+				places = PLACES + 1;
+			}
+		}
+		return toFixed(negative, whole, wholeDigits, fraction, places);
+	}
+
+	/**
+	 * Parses an angle in decimal degrees from ASCII (or UTF-8) bytes.
+	 *
+	 * @param bytes the bytes.
+	 * @param start the index of the first byte to parse.
+	 * @param end   the index after the last byte to parse.
+	 * @return the angle as an internal fixed-point value.
+	 * @throws IllegalArgumentException if the bytes are not a decimal number.
+	 */
+	public static long parse(byte[] bytes, int start, int end) {
+		checkRange(start, end, bytes.length);
+		while (start < end && bytes[start] == ' ')
+			start++;
+		while (end > start && bytes[end - 1] == ' ')
+			end--;
+		boolean negative = false;
+		if (start < end && (bytes[start] == '-' || bytes[start] == '+'))
+			negative = bytes[start++] == '-';
+		long whole = 0, fraction = 0;
+		int wholeDigits = 0, places = -1;
+		for (int i = start; i < end; i++) {
+			byte c = bytes[i];
+			if (c == '.' && places < 0) {
+				places = 0;
+			} else if (c < '0' || c > '9') {
+				throw new IllegalArgumentException("Invalid degrees given.");
+			} else if (places < 0) {
+				if (++wholeDigits > MAX_WHOLE_DIGITS)
+					throw new IllegalArgumentException("Invalid degrees given.");
+				whole = whole * 10 + (c - '0');
+			} else if (places < PLACES) {
+				fraction = fraction * 10 + (c - '0');
+				places++;
+			} else {
+				places = PLACES + 1;
+			}
+		}
+		return toFixed(negative, whole, wholeDigits, fraction, places);
+	}
+
+	/**
+	 * @param places the number of decimal places seen, capped at one more than
+	 *               {@link #PLACES}, or -1 if there was no point.
+	 */
+	private static long toFixed(boolean negative, long whole, int wholeDigits, long fraction, int places) {
+		if (wholeDigits == 0 && places <= 0)
+			throw new IllegalArgumentException("Invalid degrees given.");
+		long value = whole * SCALE + fraction * POWERS[Math.max(0, Math.min(PLACES, places))];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Appends an angle in decimal degrees, with six decimal places.
+	 *
+	 * @param internal the angle as an internal fixed-point value.
+	 * @param into     the builder to append to.
+	 * @return the builder.
+	 */
+	public static StringBuilder format(long internal, StringBuilder into) {
+		long whole = internal / SCALE;
+		long fraction = internal % SCALE;
+		if (internal < 0) {
+			into.append('-');
+			whole = -whole;
+			fraction = -fraction;
+		}
+		into.append(whole).append('.');
+		for (int p = 1; p <= PLACES; p++)
+			into.append((char) ('0' + fraction / POWERS[p] % 10));
+		return into;
+	}
+
+	/**
+	 * Writes an angle in decimal degrees, with six decimal places, as ASCII
+	 * bytes.
+	 *
+	 * @param internal the angle as an internal fixed-point value.
+	 * @param into     the array to write to, with room for {@link #MAX_LENGTH}
+	 *                 bytes to be sure of room.
+	 * @param offset   the index at which to start writing.
+	 * @return the index after the last byte written.
+	 * @throws ArrayIndexOutOfBoundsException if the array runs out of room.
+	 */
+	public static int format(long internal, byte[] into, int offset) {
+		long whole = internal / SCALE;
+		long fraction = internal % SCALE;
+		if (internal < 0) {
+			into[offset++] = '-';
+			whole = -whole;
+			fraction = -fraction;
+		}
+		int digits = 1;
+		for (long w = whole / 10; w > 0; w /= 10)
+			digits++;
+		for (int i = offset + digits - 1; i >= offset; i--, whole /= 10)
+			into[i] = (byte) ('0' + whole % 10);
+		offset += digits;
+		into[offset++] = '.';
+		for (int p = 1; p <= PLACES; p++)
+			into[offset++] = (byte) ('0' + fraction / POWERS[p] % 10);
+		return offset;
+	}
+
+	/**
+	 * Formats an angle in decimal degrees, with six decimal places.
+	 *
+	 * @param internal the angle as an internal fixed-point value.
+	 * @return the text.
+	 */
+	public static String toString(long internal) {
+		return format(internal, new StringBuilder(MAX_LENGTH)).toString();
+	}
+
+	private static void checkRange(int start, int end, int length) {
+		if (start < 0 || end > length || start > end)
+			throw new IndexOutOfBoundsException("Invalid range given.");
+	}
+
+	private DegreeText() {
+
+	}
+}
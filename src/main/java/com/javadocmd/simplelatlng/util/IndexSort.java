@@ -0,0 +1,342 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * Sorts primitive keys together with an <code>int</code> array of indices
+ * (or any other <code>int</code> payload), so that callers can order large
+ * result sets without wrapping each element in an object.
+ * </p>
+ * <p>
+ * Sorting is a stable least-significant-digit radix sort over the keys' bits:
+ * <code>double</code> keys are mapped onto <code>long</code>s whose unsigned
+ * order matches {@link Double#compare(double, double)}, so negative zero sorts
+ * before positive zero and NaN sorts last. Byte positions that are identical
+ * for every key (the high exponent bits of a set of distances, for instance)
+ * are skipped. The parallel variants sort chunks independently on the common
+ * {@link ForkJoinPool} and merge them.
+ * </p>
+ */
+public class IndexSort {
+
+	/** Below this size insertion sort beats the radix passes. */
+	private static final int INSERTION_THRESHOLD = 48;
+
+	/** Below this size the parallel variants sort sequentially. */
+	static final int PARALLEL_THRESHOLD = 1 << 14;
+
+	/**
+	 * Sorts the keys in ascending order, applying the same permutation to the
+	 * indices.
+	 *
+	 * @param keys    the keys to sort.
+	 * @param indices the values to permute alongside the keys; must be at least
+	 *                as long as <code>keys</code>.
+	 */
+	public static void sort(double[] keys, int[] indices) {
+		sort(keys, indices, 0, keys.length);
+	}
+
+	/**
+	 * Sorts a range of the keys in ascending order, applying the same permutation
+	 * to the same range of the indices.
+	 *
+	 * @param keys    the keys to sort.
+	 * @param indices the values to permute alongside the keys.
+	 * @param from    the first position to sort, inclusive.
+	 * @param to      the last position to sort, exclusive.
+	 */
+	public static void sort(double[] keys, int[] indices, int from, int to) {
+		checkRange(keys.length, indices.length, from, to);
+		long[] bits = toOrderedBits(keys, from, to);
+		radixSort(bits, 0, indices, from, to - from, new long[to - from], new int[to - from], 0);
+		fromOrderedBits(bits, keys, from, to);
+	}
+
+	/**
+	 * Sorts the keys in ascending order, applying the same permutation to the
+	 * indices.
+	 *
+	 * @param keys    the keys to sort.
+	 * @param indices the values to permute alongside the keys; must be at least
+	 *                as long as <code>keys</code>.
+	 */
+	public static void sort(long[] keys, int[] indices) {
+		sort(keys, indices, 0, keys.length);
+	}
+
+	/**
+	 * Sorts a range of the keys in ascending order, applying the same permutation
+	 * to the same range of the indices.
+	 *
+	 * @param keys    the keys to sort.
+	 * @param indices the values to permute alongside the keys.
+	 * @param from    the first position to sort, inclusive.
+	 * @param to      the last position to sort, exclusive.
+	 */
+	public static void sort(long[] keys, int[] indices, int from, int to) {
+		checkRange(keys.length, indices.length, from, to);
+		flipSign(keys, from, to);
+		radixSort(keys, from, indices, from, to - from, new long[to - from], new int[to - from], 0);
+		flipSign(keys, from, to);
+	}
+
+	/**
+	 * Parallel variant of {@link #sort(double[], int[])} for large arrays.
+	 *
+	 * @param keys    the keys to sort.
+	 * @param indices the values to permute alongside the keys.
+	 */
+	public static void parallelSort(double[] keys, int[] indices) {
+		parallelSort(keys, indices, 0, keys.length);
+	}
+
+	/**
+	 * Parallel variant of {@link #sort(double[], int[], int, int)} for large
+	 * arrays.
+	 *
+	 * @param keys    the keys to sort.
+	 * @param indices the values to permute alongside the keys.
+	 * @param from    the first position to sort, inclusive.
+	 * @param to      the last position to sort, exclusive.
+	 */
+	public static void parallelSort(double[] keys, int[] indices, int from, int to) {
+		checkRange(keys.length, indices.length, from, to);
+		long[] bits = toOrderedBits(keys, from, to);
+		int[] values = new int[to - from];
+		System.arraycopy(indices, from, values, 0, values.length);
+		ForkJoinPool.commonPool().invoke(new SortTask(bits, values, new long[bits.length], new int[bits.length], 0, bits.length));
+		System.arraycopy(values, 0, indices, from, values.length);
+		fromOrderedBits(bits, keys, from, to);
+	}
+
+	/**
+	 * Parallel variant of {@link #sort(long[], int[])} for large arrays.
+	 *
+	 * @param keys    the keys to sort.
+	 * @param indices the values to permute alongside the keys.
+	 */
+	public static void parallelSort(long[] keys, int[] indices) {
+		parallelSort(keys, indices, 0, keys.length);
+	}
+
+	/**
+	 * Parallel variant of {@link #sort(long[], int[], int, int)} for large
+	 * arrays.
+	 *
+	 * @param keys    the keys to sort.
+	 * @param indices the values to permute alongside the keys.
+	 * @param from    the first position to sort, inclusive.
+	 * @param to      the last position to sort, exclusive.
+	 */
+	public static void parallelSort(long[] keys, int[] indices, int from, int to) {
+		checkRange(keys.length, indices.length, from, to);
+		flipSign(keys, from, to);
+		ForkJoinPool.commonPool().invoke(new SortTask(keys, indices, new long[keys.length], new int[indices.length], from, to));
+		flipSign(keys, from, to);
+	}
+
+	/**
+	 * Creates an array holding <code>0, 1, ..., size - 1</code>; a convenient
+	 * starting point for the indices argument.
+	 *
+	 * @param size the length of the array.
+	 * @return the identity permutation.
+	 */
+	public static int[] identity(int size) {
+		int[] indices = new int[size];
+		for (int i = 0; i < size; i++)
+			indices[i] = i;
+		return indices;
+	}
+
+	private static void checkRange(int keyLength, int indexLength, int from, int to) {
+		if (from < 0 || to > keyLength || to > indexLength || from > to)
+			throw new IllegalArgumentException("Invalid sort range.");
+	}
+
+	/**
+	 * Maps doubles to longs whose unsigned order matches
+	 * {@link Double#compare(double, double)}: positive values have their sign bit
+	 * set, negative values have all of their bits flipped.
+	 */
+	private static long[] toOrderedBits(double[] keys, int from, int to) {
+		long[] bits = new long[to - from];
+		for (int i = from; i < to; i++) {
+			long b = Double.doubleToLongBits(keys[i]);
+			bits[i - from] = b ^ ((b >> 63) | Long.MIN_VALUE);
+		}
+		return bits;
+	}
+
+	private static void fromOrderedBits(long[] bits, double[] keys, int from, int to) {
+		for (int i = from; i < to; i++) {
+			long b = bits[i - from];
+			keys[i] = Double.longBitsToDouble(b < 0 ? b ^ Long.MIN_VALUE : ~b);
+		}
+	}
+
+	/** Toggles between signed order and unsigned order. */
+	private static void flipSign(long[] keys, int from, int to) {
+		for (int i = from; i < to; i++)
+			keys[i] ^= Long.MIN_VALUE;
+	}
+
+	/**
+	 * Sorts <code>n</code> keys (compared as unsigned) starting at
+	 * <code>keyFrom</code> along with the values starting at
+	 * <code>valueFrom</code>. The buffers must hold at least <code>n</code>
+	 * elements each from <code>bufferFrom</code>.
+	 */
+	private static void radixSort(long[] keys, int keyFrom, int[] values, int valueFrom, int n, long[] keyBuffer,
+			int[] valueBuffer, int bufferFrom) {
+		if (n < INSERTION_THRESHOLD) {
+			insertionSort(keys, keyFrom, values, valueFrom, n);
+			return;
+		}
+		int[][] counts = new int[8][256];
+		for (int i = keyFrom; i < keyFrom + n; i++) {
+			long k = keys[i];
+			for (int pass = 0; pass < 8; pass++)
+				counts[pass][(int) (k >>> (pass * 8)) & 0xFF]++;
+		}
+
+		long[] srcKeys = keys;
+		int[] srcValues = values;
+		int srcKeyFrom = keyFrom;
+		int srcValueFrom = valueFrom;
+		long[] dstKeys = keyBuffer;
+		int[] dstValues = valueBuffer;
+		int dstKeyFrom = bufferFrom;
+		int dstValueFrom = bufferFrom;
+		int[] offsets = new int[256];
+		for (int pass = 0; pass < 8; pass++) {
+			int[] count = counts[pass];
+			int shift = pass * 8;
+			if (count[(int) (keys[keyFrom] >>> shift) & 0xFF] == n)
+				continue; // Every key shares this byte.
+
+			int sum = 0;
+			for (int b = 0; b < 256; b++) {
+				offsets[b] = sum;
+				sum += count[b];
+			}
+			for (int i = 0; i < n; i++) {
+				long k = srcKeys[srcKeyFrom + i];
+				int o = offsets[(int) (k >>> shift) & 0xFF]++;
+				dstKeys[dstKeyFrom + o] = k;
+				dstValues[dstValueFrom + o] = srcValues[srcValueFrom + i];
+			}
+
+			long[] tk = srcKeys;
+			srcKeys = dstKeys;
+			dstKeys = tk;
+			int[] tv = srcValues;
+			srcValues = dstValues;
+			dstValues = tv;
+			int tf = srcKeyFrom;
+			srcKeyFrom = dstKeyFrom;
+			dstKeyFrom = tf;
+			tf = srcValueFrom;
+			srcValueFrom = dstValueFrom;
+			dstValueFrom = tf;
+		}
+		if (srcKeys != keys) {
+			System.arraycopy(srcKeys, srcKeyFrom, keys, keyFrom, n);
+			System.arraycopy(srcValues, srcValueFrom, values, valueFrom, n);
+		}
+	}
+
+	private static void insertionSort(long[] keys, int keyFrom, int[] values, int valueFrom, int n) {
+		for (int i = 1; i < n; i++) {
+			long k = keys[keyFrom + i];
+			int v = values[valueFrom + i];
+			int j = i - 1;
+			while (j >= 0 && Long.compareUnsigned(keys[keyFrom + j], k) > 0) {
+				keys[keyFrom + j + 1] = keys[keyFrom + j];
+				values[valueFrom + j + 1] = values[valueFrom + j];
+				j--;
+			}
+			keys[keyFrom + j + 1] = k;
+			values[valueFrom + j + 1] = v;
+		}
+	}
+
+	/**
+	 * Radix sorts small ranges and merges sorted halves of larger ones. Keys and
+	 * values share offsets; the buffers are as large as the arrays.
+	 */
+	private static class SortTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long[] keys;
+		private final int[] values;
+		private final long[] keyBuffer;
+		private final int[] valueBuffer;
+		private final int from;
+		private final int to;
+
+		SortTask(long[] keys, int[] values, long[] keyBuffer, int[] valueBuffer, int from, int to) {
+			this.keys = keys;
+			this.values = values;
+			this.keyBuffer = keyBuffer;
+			this.valueBuffer = valueBuffer;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			int n = to - from;
+			if (n <= PARALLEL_THRESHOLD) {
+				radixSort(keys, from, values, from, n, keyBuffer, valueBuffer, from);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new SortTask(keys, values, keyBuffer, valueBuffer, from, mid),
+					new SortTask(keys, values, keyBuffer, valueBuffer, mid, to));
+
+			int i = from;
+			int j = mid;
+			int o = from;
+			while (i < mid && j < to) {
+				// Take from the left on ties to keep the sort stable.
+				if (Long.compareUnsigned(keys[j], keys[i]) < 0) {
+					keyBuffer[o] = keys[j];
+					valueBuffer[o++] = values[j++];
+				} else {
+					keyBuffer[o] = keys[i];
+					valueBuffer[o++] = values[i++];
+				}
+			}
+			System.arraycopy(keys, i, keyBuffer, o, mid - i);
+			System.arraycopy(values, i, valueBuffer, o, mid - i);
+			o += mid - i;
+			System.arraycopy(keys, j, keyBuffer, o, to - j);
+			System.arraycopy(values, j, valueBuffer, o, to - j);
+			System.arraycopy(keyBuffer, from, keys, from, n);
+			System.arraycopy(valueBuffer, from, values, from, n);
+		}
+	}
+
+	private IndexSort() {
+	}
+}
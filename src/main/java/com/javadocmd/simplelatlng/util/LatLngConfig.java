@@ -31,14 +31,16 @@ public class LatLngConfig {
 	 */
 	public static final double DEGREE_TOLERANCE = 0.000001;
 
+	private static final ThreadLocal<NumberFormat> DEFAULT_DEGREE_FORMAT = new ThreadLocal<NumberFormat>() {
+		@Override
+		protected NumberFormat initialValue() {
+			return new DecimalFormat("0.000000", DecimalFormatSymbols.getInstance(Locale.US));
+		}
+	};
+
 	private static ThreadLocal<NumberFormat> DEGREE_FORMAT;
 	static {
-		setDegreeFormat(new ThreadLocal<NumberFormat>() {
-			@Override
-			protected NumberFormat initialValue() {
-				return new DecimalFormat("0.000000", DecimalFormatSymbols.getInstance(Locale.US));
-			}
-		});
+		setDegreeFormat(DEFAULT_DEGREE_FORMAT);
 	}
 
 	/**
@@ -62,6 +64,18 @@ public class LatLngConfig {
 		DEGREE_FORMAT = formatThreadLocal;
 	}
 
+	/**
+	 * Tests whether the default degree format is in effect, in which case
+	 * coordinates may be formatted with {@link DegreeText} instead, which gives
+	 * the same text. Intended for library use only.
+	 * 
+	 * @return true if {@link #setDegreeFormat(ThreadLocal)} has not replaced the
+	 *         default format.
+	 */
+	public static boolean isDefaultDegreeFormat() {
+		return DEGREE_FORMAT == DEFAULT_DEGREE_FORMAT;
+	}
+
 	/**
 	 * The Earth's mean radius in kilometers. Used as the default radius for
 	 * calculations.
@@ -18,11 +18,18 @@ package com.javadocmd.simplelatlng.window;
 import static com.javadocmd.simplelatlng.LatLngTool.distanceInRadians;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 
+import com.javadocmd.simplelatlng.CompactLatLng;
 import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+import com.javadocmd.simplelatlng.util.IndexSort;
 import com.javadocmd.simplelatlng.util.LatLngConfig;
 import com.javadocmd.simplelatlng.util.LengthUnit;
 
@@ -71,7 +78,8 @@ public class CircularWindow extends LatLngWindow<CircularWindow> {
 	 * returns the filtered results in sorted order from the center of the window.
 	 * This method re-uses the distance calculation used for filtering to do the
 	 * sorting, so that the number of distance calculations done is halved (at
-	 * most).
+	 * most). Distances are sorted as primitives with {@link IndexSort}, so no
+	 * wrapper object is created per matching element.
 	 * 
 	 * @param <E>         the type of elements in the collection.
 	 * @param source      the source collection of elements.
@@ -82,37 +90,43 @@ public class CircularWindow extends LatLngWindow<CircularWindow> {
 	 *                    to E's LatLng value that we will test against this window.
 	 */
 	public <E> void filterCopySort(Collection<E> source, Collection<E> destination, FilterHelper<E> helper) {
-		List<SortWrapper<E>> sortList = new ArrayList<SortWrapper<E>>();
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long start = recorder == null ? 0 : System.nanoTime();
+		int candidates = 0;
+		List<E> hits = new ArrayList<E>();
+		double[] distances = new double[16];
 		for (E object : source) {
-			Double distance = this.containsForSort(helper.getLatLng(object));
-			if (distance != null) {
-				sortList.add(new SortWrapper<E>(object, distance));
+			candidates++;
+			double distance = this.containsForSort(helper.getLatLng(object));
+			if (!Double.isNaN(distance)) {
+				if (hits.size() == distances.length)
+					distances = Arrays.copyOf(distances, distances.length * 2);
+				distances[hits.size()] = distance;
+				hits.add(object);
 			}
 		}
-		Collections.sort(sortList, new SortWrapper.DistanceComparator<E>());
-		for (SortWrapper<E> wrapper : sortList) {
-			destination.add(wrapper.getValue());
+		int[] order = IndexSort.identity(hits.size());
+		IndexSort.sort(distances, order, 0, order.length);
+		for (int i : order) {
+			destination.add(hits.get(i));
 		}
-	}
-
-	private long toDegreesInternal(Double radians) {
-		// When converting a radian distance to the internal degrees representation
-		// for the sake of comparison, rounding the result seems to be appropriate.
-		return Math.round(Math.toDegrees(radians) / LatLngConfig.DEGREE_TOLERANCE);
+		if (recorder != null)
+			recorder.record(SpatialOperation.WINDOW_FILTER_COPY_SORT, candidates, order.length,
+					System.nanoTime() - start);
 	}
 
 	/**
 	 * A specialized implementation of the {@link #contains(LatLng)} check which
 	 * returns the distance from the center of the window if the window contains the
-	 * point and null if it does not. Used in
+	 * point and NaN if it does not. Used in
 	 * {@link #filterCopySort(Collection, Collection, FilterHelper)}.
 	 */
-	private Double containsForSort(LatLng point) {
+	private double containsForSort(LatLng point) {
 		double d = distanceInRadians(center, point);
 		if (toDegreesInternal(d) <= radius)
 			return d;
 		else
-			return null;
+			return Double.NaN;
 	}
 
 	@Override
@@ -120,6 +134,26 @@ public class CircularWindow extends LatLngWindow<CircularWindow> {
 		return toDegreesInternal(distanceInRadians(center, point)) <= radius;
 	}
 
+	@Override
+	public boolean contains(CompactLatLng point) {
+		return contains(point.getLatitudeFixed(), point.getLongitudeFixed(), point.getPrecision());
+	}
+
+	@Override
+	public boolean contains(int latitude, int longitude, DegreePrecision precision) {
+		return contains(precision.toInternal(latitude), precision.toInternal(longitude));
+	}
+
+	@Override
+	public boolean contains(LatLngArray points, int index) {
+		return contains(points.getLatitudeInternal(index), points.getLongitudeInternal(index));
+	}
+
+	private boolean contains(long latitude, long longitude) {
+		return toDegreesInternal(distanceInRadians(center.getLatitude(), center.getLongitude(),
+				LatLngConfig.longToDouble(latitude), LatLngConfig.longToDouble(longitude))) <= radius;
+	}
+
 	@Override
 	public boolean overlaps(CircularWindow window) {
 		long angle = toDegreesInternal(distanceInRadians(this.center, window.getCenter()));
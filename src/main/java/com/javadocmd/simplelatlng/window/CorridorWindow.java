@@ -0,0 +1,474 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.window;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.javadocmd.simplelatlng.CompactLatLng;
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+/**
+ * <p>
+ * A corridor window: every point within a given distance of a path made up of
+ * great-circle segments. Useful for questions like "which stops lie along my
+ * route?"
+ * </p>
+ * <p>
+ * Each segment's buffered bounding box is pre-computed (in earth-centered
+ * coordinates, so the poles and the 180th meridian need no special handling)
+ * and the segments are arranged into a balanced tree of boxes. A
+ * <code>contains()</code> check only computes cross-track and along-track
+ * distances against the segments whose boxes contain the point, so long routes
+ * of many thousands of vertices remain cheap to test against.
+ * </p>
+ */
+public class CorridorWindow extends LatLngWindow<CorridorWindow> {
+
+	/** Maximum number of segments held by a leaf of the segment tree. */
+	private static final int LEAF_SIZE = 8;
+
+	private final List<LatLng> path;
+	private long radius;
+	private double radiusRadians;
+
+	// Unit vectors for each vertex.
+	private final double[] vx;
+	private final double[] vy;
+	private final double[] vz;
+
+	// Per-segment great circle normal (n), in-plane direction from the start
+	// vertex towards the end vertex (u), and angular length.
+	private final double[] nx;
+	private final double[] ny;
+	private final double[] nz;
+	private final double[] ux;
+	private final double[] uy;
+	private final double[] uz;
+	private final double[] length;
+	private final int segments;
+
+	// Segment tree in implicit heap layout; boxes are stored as six consecutive
+	// values: minX, maxX, minY, maxY, minZ, maxZ.
+	private double[] boxes;
+	private int[] nodeStart;
+	private int[] nodeEnd;
+
+	private LatLng center;
+
+	/**
+	 * Constructs a corridor window.
+	 *
+	 * @param path            the vertices of the path; consecutive vertices are
+	 *                        joined by great-circle segments. A single vertex
+	 *                        yields a circular region.
+	 * @param radiusInDegrees the half-width of the corridor given in degrees of
+	 *                        angle, measured like the radius of a
+	 *                        {@link CircularWindow}.
+	 * @throws IllegalArgumentException if the path is null, empty, or contains
+	 *                                  null points, or if the radius is NaN.
+	 */
+	public CorridorWindow(List<LatLng> path, double radiusInDegrees) {
+		if (path == null || path.isEmpty())
+			throw new IllegalArgumentException("Corridor path may not be null or empty.");
+		List<LatLng> copy = new ArrayList<LatLng>(path);
+		if (copy.contains(null))
+			throw new IllegalArgumentException("Corridor path may not contain null points.");
+		this.path = Collections.unmodifiableList(copy);
+
+		int n = copy.size();
+		vx = new double[n];
+		vy = new double[n];
+		vz = new double[n];
+		for (int i = 0; i < n; i++) {
+			LatLng p = copy.get(i);
+			double lat = Math.toRadians(p.getLatitude());
+			double lng = Math.toRadians(p.getLongitude());
+			vx[i] = Math.cos(lat) * Math.cos(lng);
+			vy[i] = Math.cos(lat) * Math.sin(lng);
+			vz[i] = Math.sin(lat);
+		}
+
+		segments = Math.max(1, n - 1);
+		nx = new double[segments];
+		ny = new double[segments];
+		nz = new double[segments];
+		ux = new double[segments];
+		uy = new double[segments];
+		uz = new double[segments];
+		length = new double[segments];
+		for (int s = 0; s < segments; s++) {
+			int a = s;
+			int b = Math.min(s + 1, n - 1);
+			double cx = vy[a] * vz[b] - vz[a] * vy[b];
+			double cy = vz[a] * vx[b] - vx[a] * vz[b];
+			double cz = vx[a] * vy[b] - vy[a] * vx[b];
+			double norm = Math.sqrt(cx * cx + cy * cy + cz * cz);
+			if (norm > 1e-15) {
+				nx[s] = cx / norm;
+				ny[s] = cy / norm;
+				nz[s] = cz / norm;
+				ux[s] = ny[s] * vz[a] - nz[s] * vy[a];
+				uy[s] = nz[s] * vx[a] - nx[s] * vz[a];
+				uz[s] = nx[s] * vy[a] - ny[s] * vx[a];
+				length[s] = Math.atan2(norm, vx[a] * vx[b] + vy[a] * vy[b] + vz[a] * vz[b]);
+			}
+			// Otherwise the segment is degenerate (repeated or antipodal vertices);
+			// leaving its length at zero makes it behave as its two end points.
+		}
+
+		this.setRadius(radiusInDegrees);
+	}
+
+	/**
+	 * Constructs a corridor window that will contain all points within the
+	 * specified distance of the path.
+	 *
+	 * @param path   the vertices of the path.
+	 * @param radius the half-width of the corridor given in length units.
+	 * @param unit   the unit to use for the radius.
+	 */
+	public CorridorWindow(List<LatLng> path, double radius, LengthUnit unit) {
+		this(path, LatLngWindow.lengthToLatitudeDelta(radius, unit));
+	}
+
+	/**
+	 * Sets the half-width of this corridor, rebuilding its segment boxes.
+	 *
+	 * @param radius radius in degrees.
+	 */
+	public void setRadius(double radius) {
+		if (Double.isNaN(radius))
+			throw new IllegalArgumentException("Invalid radius given.");
+		this.radius = LatLngConfig.doubleToLong(Math.min(Math.abs(radius), 360.0));
+		this.radiusRadians = Math.toRadians(LatLngConfig.longToDouble(this.radius));
+		buildTree();
+	}
+
+	/**
+	 * Gets the half-width of this corridor in degrees.
+	 *
+	 * @return the radius in degrees.
+	 */
+	public double getRadius() {
+		return LatLngConfig.longToDouble(radius);
+	}
+
+	/**
+	 * Gets the half-width of this corridor in a length unit.
+	 *
+	 * @param unit the unit in which to receive the result.
+	 * @return the radius in the desired length unit.
+	 */
+	public double getRadius(LengthUnit unit) {
+		return LatLngWindow.latitudeDeltaToLength(LatLngConfig.longToDouble(radius), unit);
+	}
+
+	/**
+	 * @return an unmodifiable view of the vertices of this corridor's path.
+	 */
+	public List<LatLng> getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the point halfway along the corridor's path.
+	 */
+	@Override
+	public LatLng getCenter() {
+		if (center == null) {
+			double total = 0;
+			for (int s = 0; s < segments; s++)
+				total += length[s];
+			double remaining = total / 2;
+			int s = 0;
+			while (s < segments - 1 && remaining > length[s]) {
+				remaining -= length[s];
+				s++;
+			}
+			double t = Math.min(remaining, length[s]);
+			double x = vx[s] * Math.cos(t) + ux[s] * Math.sin(t);
+			double y = vy[s] * Math.cos(t) + uy[s] * Math.sin(t);
+			double z = vz[s] * Math.cos(t) + uz[s] * Math.sin(t);
+			center = new LatLng(Math.toDegrees(Math.atan2(z, Math.sqrt(x * x + y * y))), Math.toDegrees(Math.atan2(y, x)));
+		}
+		return center;
+	}
+
+	/**
+	 * Computes the angular distance from a point to the nearest point on this
+	 * corridor's path.
+	 *
+	 * @param point the point to measure.
+	 * @return the distance in radians.
+	 */
+	public double distanceInRadians(LatLng point) {
+		double lat = Math.toRadians(point.getLatitude());
+		double lng = Math.toRadians(point.getLongitude());
+		double px = Math.cos(lat) * Math.cos(lng);
+		double py = Math.cos(lat) * Math.sin(lng);
+		double pz = Math.sin(lat);
+		double best = Double.POSITIVE_INFINITY;
+		for (int s = 0; s < segments; s++) {
+			best = Math.min(best, segmentDistance(s, px, py, pz));
+		}
+		return best;
+	}
+
+	@Override
+	public boolean contains(LatLng point) {
+		return contains(point.getLatitude(), point.getLongitude());
+	}
+
+	@Override
+	public boolean contains(CompactLatLng point) {
+		return contains(point.getLatitudeFixed(), point.getLongitudeFixed(), point.getPrecision());
+	}
+
+	@Override
+	public boolean contains(int latitude, int longitude, DegreePrecision precision) {
+		return contains(LatLngConfig.longToDouble(precision.toInternal(latitude)),
+				LatLngConfig.longToDouble(precision.toInternal(longitude)));
+	}
+
+	@Override
+	public boolean contains(LatLngArray points, int index) {
+		return contains(LatLngConfig.longToDouble(points.getLatitudeInternal(index)),
+				LatLngConfig.longToDouble(points.getLongitudeInternal(index)));
+	}
+
+	private boolean contains(double latitude, double longitude) {
+		double lat = Math.toRadians(latitude);
+		double lng = Math.toRadians(longitude);
+		double px = Math.cos(lat) * Math.cos(lng);
+		double py = Math.cos(lat) * Math.sin(lng);
+		double pz = Math.sin(lat);
+		return containsVector(0, px, py, pz);
+	}
+
+	private boolean containsVector(int node, double px, double py, double pz) {
+		int b = node * 6;
+		if (px < boxes[b] || px > boxes[b + 1] || py < boxes[b + 2] || py > boxes[b + 3] || pz < boxes[b + 4]
+				|| pz > boxes[b + 5]) {
+			return false;
+		}
+		if (isLeaf(node)) {
+			for (int s = nodeStart[node]; s < nodeEnd[node]; s++) {
+				if (toDegreesInternal(segmentDistance(s, px, py, pz)) <= radius)
+					return true;
+			}
+			return false;
+		}
+		return containsVector(2 * node + 1, px, py, pz) || containsVector(2 * node + 2, px, py, pz);
+	}
+
+	@Override
+	public boolean overlaps(CorridorWindow window) {
+		return overlaps(0, window, 0);
+	}
+
+	private boolean overlaps(int node, CorridorWindow that, int thatNode) {
+		if (!boxesIntersect(this.boxes, node * 6, that.boxes, thatNode * 6))
+			return false;
+		boolean thisLeaf = this.isLeaf(node);
+		boolean thatLeaf = that.isLeaf(thatNode);
+		if (thisLeaf && thatLeaf) {
+			long limit = this.radius + that.radius;
+			for (int s = this.nodeStart[node]; s < this.nodeEnd[node]; s++) {
+				for (int t = that.nodeStart[thatNode]; t < that.nodeEnd[thatNode]; t++) {
+					if (toDegreesInternal(this.segmentToSegment(s, that, t)) <= limit)
+						return true;
+				}
+			}
+			return false;
+		}
+		if (thatLeaf || (!thisLeaf && this.nodeEnd[node] - this.nodeStart[node] >= that.nodeEnd[thatNode]
+				- that.nodeStart[thatNode])) {
+			return overlaps(2 * node + 1, that, thatNode) || overlaps(2 * node + 2, that, thatNode);
+		}
+		return overlaps(node, that, 2 * thatNode + 1) || overlaps(node, that, 2 * thatNode + 2);
+	}
+
+	private boolean isLeaf(int node) {
+		return 2 * node + 1 >= nodeStart.length;
+	}
+
+	private static boolean boxesIntersect(double[] a, int i, double[] b, int j) {
+		return a[i] <= b[j + 1] && b[j] <= a[i + 1] && a[i + 2] <= b[j + 3] && b[j + 2] <= a[i + 3]
+				&& a[i + 4] <= b[j + 5] && b[j + 4] <= a[i + 5];
+	}
+
+	/**
+	 * Distance from a unit vector to segment <code>s</code> in radians, using the
+	 * cross-track distance when the along-track projection falls within the
+	 * segment and the distance to the nearer vertex otherwise.
+	 */
+	private double segmentDistance(int s, double px, double py, double pz) {
+		if (alongSegment(s, px, py, pz)) {
+			double cross = px * nx[s] + py * ny[s] + pz * nz[s];
+			return Math.abs(Math.asin(Math.max(-1.0, Math.min(1.0, cross))));
+		}
+		return Math.min(angle(px, py, pz, s), angle(px, py, pz, end(s)));
+	}
+
+	/**
+	 * Tests whether the along-track projection of a unit vector onto segment
+	 * <code>s</code>'s great circle falls between its end points.
+	 */
+	private boolean alongSegment(int s, double px, double py, double pz) {
+		if (length[s] == 0)
+			return false;
+		double along = Math.atan2(px * ux[s] + py * uy[s] + pz * uz[s], px * vx[s] + py * vy[s] + pz * vz[s]);
+		return along >= 0 && along <= length[s];
+	}
+
+	/**
+	 * Minimum distance between segment <code>s</code> of this corridor and
+	 * segment <code>t</code> of another.
+	 */
+	private double segmentToSegment(int s, CorridorWindow that, int t) {
+		if (this.length[s] > 0 && that.length[t] > 0) {
+			// Minor arcs intersect where the great circles do, if at all.
+			double ix = this.ny[s] * that.nz[t] - this.nz[s] * that.ny[t];
+			double iy = this.nz[s] * that.nx[t] - this.nx[s] * that.nz[t];
+			double iz = this.nx[s] * that.ny[t] - this.ny[s] * that.nx[t];
+			double norm = Math.sqrt(ix * ix + iy * iy + iz * iz);
+			if (norm > 1e-15) {
+				ix /= norm;
+				iy /= norm;
+				iz /= norm;
+				if ((this.alongSegment(s, ix, iy, iz) && that.alongSegment(t, ix, iy, iz))
+						|| (this.alongSegment(s, -ix, -iy, -iz) && that.alongSegment(t, -ix, -iy, -iz))) {
+					return 0;
+				}
+			}
+		}
+		int thisEnd = this.end(s);
+		int thatEnd = that.end(t);
+		double d = Math.min(that.segmentDistance(t, this.vx[s], this.vy[s], this.vz[s]),
+				that.segmentDistance(t, this.vx[thisEnd], this.vy[thisEnd], this.vz[thisEnd]));
+		d = Math.min(d, this.segmentDistance(s, that.vx[t], that.vy[t], that.vz[t]));
+		return Math.min(d, this.segmentDistance(s, that.vx[thatEnd], that.vy[thatEnd], that.vz[thatEnd]));
+	}
+
+	private int end(int segment) {
+		return Math.min(segment + 1, vx.length - 1);
+	}
+
+	private double angle(double px, double py, double pz, int vertex) {
+		double cx = py * vz[vertex] - pz * vy[vertex];
+		double cy = pz * vx[vertex] - px * vz[vertex];
+		double cz = px * vy[vertex] - py * vx[vertex];
+		return Math.atan2(Math.sqrt(cx * cx + cy * cy + cz * cz), px * vx[vertex] + py * vy[vertex] + pz * vz[vertex]);
+	}
+
+	/**
+	 * Builds the segment tree: leaves cover up to {@link #LEAF_SIZE} consecutive
+	 * segments and each node's box bounds its children. Routes are spatially
+	 * coherent in vertex order, so consecutive runs of segments make tight boxes.
+	 */
+	private void buildTree() {
+		int leaves = (segments + LEAF_SIZE - 1) / LEAF_SIZE;
+		int depth = 0;
+		while ((1 << depth) < leaves)
+			depth++;
+		int nodes = (1 << (depth + 1)) - 1;
+		boxes = new double[nodes * 6];
+		nodeStart = new int[nodes];
+		nodeEnd = new int[nodes];
+		// Chord length equivalent of the radius, padded by the rounding allowed in
+		// contains() and a little floating point slack.
+		double r = Math.min(Math.PI, radiusRadians + Math.toRadians(LatLngConfig.DEGREE_TOLERANCE));
+		double pad = 2 * Math.sin(r / 2) + 1e-12;
+		buildNode(0, 0, segments, depth, pad);
+	}
+
+	private void buildNode(int node, int start, int end, int depth, double pad) {
+		nodeStart[node] = start;
+		nodeEnd[node] = end;
+		int b = node * 6;
+		if (depth == 0) {
+			boxes[b] = boxes[b + 2] = boxes[b + 4] = Double.POSITIVE_INFINITY;
+			boxes[b + 1] = boxes[b + 3] = boxes[b + 5] = Double.NEGATIVE_INFINITY;
+			for (int s = start; s < end; s++) {
+				segmentBox(s, b);
+			}
+			for (int i = 0; i < 6; i += 2) {
+				boxes[b + i] -= pad;
+				boxes[b + i + 1] += pad;
+			}
+			return;
+		}
+		int mid = (start + end) >>> 1;
+		int left = 2 * node + 1;
+		buildNode(left, start, mid, depth - 1, pad);
+		buildNode(left + 1, mid, end, depth - 1, pad);
+		for (int i = 0; i < 6; i += 2) {
+			boxes[b + i] = Math.min(boxes[left * 6 + i], boxes[(left + 1) * 6 + i]);
+			boxes[b + i + 1] = Math.max(boxes[left * 6 + i + 1], boxes[(left + 1) * 6 + i + 1]);
+		}
+	}
+
+	/**
+	 * Grows box <code>b</code> to include segment <code>s</code>: its end points
+	 * plus, for each axis, the extreme points of its great circle along that axis
+	 * when they lie within the segment.
+	 */
+	private void segmentBox(int s, int b) {
+		includeInBox(b, vx[s], vy[s], vz[s]);
+		includeInBox(b, vx[end(s)], vy[end(s)], vz[end(s)]);
+		if (length[s] == 0)
+			return;
+		for (int axis = 0; axis < 3; axis++) {
+			double n = axis == 0 ? nx[s] : axis == 1 ? ny[s] : nz[s];
+			double ex = (axis == 0 ? 1 : 0) - n * nx[s];
+			double ey = (axis == 1 ? 1 : 0) - n * ny[s];
+			double ez = (axis == 2 ? 1 : 0) - n * nz[s];
+			double norm = Math.sqrt(ex * ex + ey * ey + ez * ez);
+			if (norm < 1e-15)
+				continue;
+			ex /= norm;
+			ey /= norm;
+			ez /= norm;
+			for (int sign = -1; sign <= 1; sign += 2) {
+				double along = Math.atan2(sign * (ex * ux[s] + ey * uy[s] + ez * uz[s]),
+						sign * (ex * vx[s] + ey * vy[s] + ez * vz[s]));
+				if (along >= 0 && along <= length[s])
+					includeInBox(b, sign * ex, sign * ey, sign * ez);
+			}
+		}
+	}
+
+	private void includeInBox(int b, double x, double y, double z) {
+		boxes[b] = Math.min(boxes[b], x);
+		boxes[b + 1] = Math.max(boxes[b + 1], x);
+		boxes[b + 2] = Math.min(boxes[b + 2], y);
+		boxes[b + 3] = Math.max(boxes[b + 3], y);
+		boxes[b + 4] = Math.min(boxes[b + 4], z);
+		boxes[b + 5] = Math.max(boxes[b + 5], z);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("vertices: %d; center: %s; radius: %s degrees", path.size(), getCenter().toString(),
+				LatLngConfig.getDegreeFormat().format(getRadius()));
+	}
+}
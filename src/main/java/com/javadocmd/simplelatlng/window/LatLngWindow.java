@@ -18,7 +18,13 @@ package com.javadocmd.simplelatlng.window;
 import java.util.Collection;
 import java.util.Iterator;
 
+import com.javadocmd.simplelatlng.CompactLatLng;
 import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.MetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
 import com.javadocmd.simplelatlng.util.LatLngConfig;
 import com.javadocmd.simplelatlng.util.LengthUnit;
 
@@ -81,6 +87,20 @@ public abstract class LatLngWindow<T extends LatLngWindow<T>> {
 		return LatLngConfig.getEarthRadius(unit) * Math.toRadians(deltaLng) * Math.cos(Math.toRadians(latitude));
 	}
 
+	/**
+	 * Converts an angular distance to the internal degrees representation, for
+	 * comparison against a radius held that way. Every window measuring
+	 * distances uses this one rounding, so that they agree on their edges.
+	 * 
+	 * @param radians the distance as an angle in radians.
+	 * @return the distance in internal degrees, rounded.
+	 */
+	static long toDegreesInternal(double radians) {
+		// When converting a radian distance to the internal degrees representation
+		// for the sake of comparison, rounding the result seems to be appropriate.
+		return Math.round(Math.toDegrees(radians) / LatLngConfig.DEGREE_TOLERANCE);
+	}
+
 	/**
 	 * Returns the center point of the window.
 	 * 
@@ -97,6 +117,50 @@ public abstract class LatLngWindow<T extends LatLngWindow<T>> {
 	 */
 	public abstract boolean contains(LatLng point);
 
+	/**
+	 * Tests to see if the given compact point falls within this window. Points
+	 * stored at a finer precision than LatLng's are first truncated to LatLng's
+	 * precision, exactly as {@link CompactLatLng#toLatLng()} does, so a point
+	 * is inside a window whichever way it is given. The default implementation
+	 * converts the point to a LatLng; the library's windows test it directly.
+	 * 
+	 * @param point the point to test.
+	 * @return true if the window contains the point, false otherwise.
+	 */
+	public boolean contains(CompactLatLng point) {
+		return this.contains(point.toLatLng());
+	}
+
+	/**
+	 * Tests to see if a point given as fixed-point values falls within this
+	 * window. As with compact points, points stored at a finer precision are
+	 * truncated to LatLng's precision first. The default implementation creates
+	 * a compact point; the library's windows test the values directly.
+	 * 
+	 * @param latitude  the fixed-point latitude.
+	 * @param longitude the fixed-point longitude.
+	 * @param precision the precision of the fixed-point values.
+	 * @return true if the window contains the point, false otherwise.
+	 */
+	public boolean contains(int latitude, int longitude, DegreePrecision precision) {
+		return this.contains(CompactLatLng.fromFixed(latitude, longitude, precision));
+	}
+
+	/**
+	 * Tests to see if a point of a {@link LatLngArray} falls within this window.
+	 * As with compact points, points stored at a finer precision are truncated
+	 * to LatLng's precision first. The default implementation converts the
+	 * point to a LatLng; the library's windows test it without creating an
+	 * object.
+	 * 
+	 * @param points the array of points.
+	 * @param index  the index of the point to test.
+	 * @return true if the window contains the point, false otherwise.
+	 */
+	public boolean contains(LatLngArray points, int index) {
+		return this.contains(points.toLatLng(index));
+	}
+
 	/**
 	 * Test if this window overlaps the given window.
 	 * 
@@ -116,12 +180,21 @@ public abstract class LatLngWindow<T extends LatLngWindow<T>> {
 	 *                   to E's LatLng value that we will test against this window.
 	 */
 	public <E> void filter(Collection<E> collection, FilterHelper<E> helper) {
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long start = recorder == null ? 0 : System.nanoTime();
+		int candidates = 0;
+		int matches = 0;
 		for (Iterator<E> i = collection.iterator(); i.hasNext();) {
 			E object = i.next();
+			candidates++;
 			if (!this.contains(helper.getLatLng(object))) {
 				i.remove();
+			} else {
+				matches++;
 			}
 		}
+		if (recorder != null)
+			recorder.record(SpatialOperation.WINDOW_FILTER, candidates, matches, System.nanoTime() - start);
 	}
 
 	/**
@@ -147,10 +220,18 @@ public abstract class LatLngWindow<T extends LatLngWindow<T>> {
 	 *                    to E's LatLng value that we will test against this window.
 	 */
 	public <E> void filterCopy(Collection<E> source, Collection<E> destination, FilterHelper<E> helper) {
+		MetricsRecorder recorder = Metrics.getRecorder();
+		long start = recorder == null ? 0 : System.nanoTime();
+		int candidates = 0;
+		int matches = 0;
 		for (E object : source) {
+			candidates++;
 			if (this.contains(helper.getLatLng(object))) {
 				destination.add(object);
+				matches++;
 			}
 		}
+		if (recorder != null)
+			recorder.record(SpatialOperation.WINDOW_FILTER_COPY, candidates, matches, System.nanoTime() - start);
 	}
 }
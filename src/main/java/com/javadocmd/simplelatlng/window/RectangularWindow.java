@@ -20,8 +20,11 @@ import static java.lang.Math.min;
 
 import java.text.NumberFormat;
 
+import com.javadocmd.simplelatlng.CompactLatLng;
 import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
 import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
 import com.javadocmd.simplelatlng.util.LatLngConfig;
 import com.javadocmd.simplelatlng.util.LengthUnit;
 
@@ -180,12 +183,29 @@ public class RectangularWindow extends LatLngWindow<RectangularWindow> {
 
 	@Override
 	public boolean contains(LatLng point) {
+		return contains(point.getLatitudeInternal(), point.getLongitudeInternal());
+	}
+
+	@Override
+	public boolean contains(CompactLatLng point) {
+		return contains(point.getLatitudeFixed(), point.getLongitudeFixed(), point.getPrecision());
+	}
+
+	@Override
+	public boolean contains(int latitude, int longitude, DegreePrecision precision) {
+		return contains(precision.toInternal(latitude), precision.toInternal(longitude));
+	}
+
+	@Override
+	public boolean contains(LatLngArray points, int index) {
+		return contains(points.getLatitudeInternal(index), points.getLongitudeInternal(index));
+	}
 
-		if (point.getLatitudeInternal() > maxLatitude || point.getLatitudeInternal() < minLatitude) {
+	private boolean contains(long latitude, long longitude) {
+		if (latitude > maxLatitude || latitude < minLatitude) {
 			return false;
 		}
 
-		long longitude = point.getLongitudeInternal();
 		if (crosses180thMeridian) {
 			if (longitude < 0 && longitude > rightLongitude) {
 				return false;
@@ -199,6 +219,30 @@ public class RectangularWindow extends LatLngWindow<RectangularWindow> {
 		return true;
 	}
 
+	/**
+	 * Tests whether a box might hold points inside this window, so that a scan
+	 * can pass over groups of points whose bounds fall wholly outside it. The
+	 * test never fails for a box holding a point {@link #contains(LatLng)
+	 * contained} by this window, but may pass for one holding none.
+	 * 
+	 * @param minLatitude  the internal representation of the box's least
+	 *                     latitude.
+	 * @param maxLatitude  the internal representation of the box's greatest
+	 *                     latitude.
+	 * @param minLongitude the internal representation of the box's least
+	 *                     longitude.
+	 * @param maxLongitude the internal representation of the box's greatest
+	 *                     longitude; the box does not cross the 180th meridian.
+	 * @return false if no point of the box lies in this window.
+	 */
+	public boolean mayOverlapBounds(long minLatitude, long maxLatitude, long minLongitude, long maxLongitude) {
+		if (maxLatitude < this.minLatitude || minLatitude > this.maxLatitude)
+			return false;
+		if (crosses180thMeridian)
+			return maxLongitude >= leftLongitude || minLongitude <= rightLongitude;
+		return maxLongitude >= leftLongitude && minLongitude <= rightLongitude;
+	}
+
 	@Override
 	public boolean overlaps(RectangularWindow window) {
 
@@ -22,7 +22,12 @@ import java.util.Comparator;
  * list of SortWrappers may then be easily sorted.
  * 
  * @param <E> the type that SortWrapper is wrapping.
+ * @deprecated no longer used by
+ *             {@link CircularWindow#filterCopySort(java.util.Collection, java.util.Collection, FilterHelper)},
+ *             which sorts primitive distances with
+ *             {@link com.javadocmd.simplelatlng.util.IndexSort} instead.
  */
+@Deprecated
 public class SortWrapper<E> {
 
 	private E value;
@@ -0,0 +1,369 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.workload;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+/**
+ * <p>
+ * Generates synthetic point sets for load and scale testing, straight into the
+ * columns of a {@link LatLngArray}.
+ * </p>
+ * <p>
+ * Work is divided into fixed blocks, each drawing from its own
+ * {@link SplittableRandom} split in order from the seed, and the blocks are
+ * filled in parallel in the {@link ForkJoinPool#commonPool()}. The points
+ * therefore depend only on the seed and the arguments, never on the number of
+ * threads, and calling a method twice gives the same points.
+ * </p>
+ * <p>
+ * Instances are immutable and thread-safe.
+ * </p>
+ */
+public class WorkloadGenerator {
+
+	/** The number of points in one block, for distributions split by point. */
+	private static final int BLOCK = 1 << 14;
+
+	private final long seed;
+	private final DegreePrecision precision;
+
+	/**
+	 * Creates a generator of points at {@link DegreePrecision#E6}.
+	 *
+	 * @param seed the random seed.
+	 */
+	public WorkloadGenerator(long seed) {
+		this(seed, DegreePrecision.E6);
+	}
+
+	/**
+	 * Creates a generator.
+	 *
+	 * @param seed      the random seed.
+	 * @param precision the precision of the generated arrays.
+	 */
+	public WorkloadGenerator(long seed, DegreePrecision precision) {
+		if (precision == null)
+			throw new IllegalArgumentException("Precision may not be null.");
+		this.seed = seed;
+		this.precision = precision;
+	}
+
+	/**
+	 * Generates points uniformly distributed over the surface of the sphere;
+	 * unlike {@link com.javadocmd.simplelatlng.LatLng#random()}, the poles are
+	 * not oversampled.
+	 *
+	 * @param size the number of points.
+	 * @return the points.
+	 */
+	public LatLngArray uniform(int size) {
+		checkCount(size);
+		final Columns columns = new Columns(size);
+		fill(blocks(size, BLOCK), new Filler() {
+			@Override
+			public void fill(SplittableRandom random, int block) {
+				int end = Math.min(size, (block + 1) * BLOCK);
+				for (int i = block * BLOCK; i < end; i++)
+					columns.set(i, uniformLatitude(random), uniformLongitude(random));
+			}
+		});
+		return columns.toArray();
+	}
+
+	/**
+	 * <p>
+	 * Generates points in clusters around city centers, as in most real location
+	 * data. The centers are spread uniformly over the sphere and their
+	 * popularity follows Zipf's law, so the largest city holds about as many
+	 * points as the next two together and a handful of hotspots dominate.
+	 * </p>
+	 * <p>
+	 * Around its center, each point is offset by a two-dimensional Gaussian
+	 * whose standard deviation on each axis is the given spread.
+	 * </p>
+	 *
+	 * @param size   the number of points.
+	 * @param cities the number of cities, at least one.
+	 * @param spread the standard deviation of a point's distance from its
+	 *               city's center along each axis.
+	 * @param unit   the unit of the spread.
+	 * @return the points.
+	 */
+	public LatLngArray cities(int size, int cities, double spread, LengthUnit unit) {
+		checkCount(size);
+		if (cities < 1)
+			throw new IllegalArgumentException("Invalid number of cities given.");
+		final double radians = toRadians(spread, unit);
+		SplittableRandom root = new SplittableRandom(seed);
+		final double[] latitudes = new double[cities];
+		final double[] longitudes = new double[cities];
+		final double[] popularity = new double[cities];
+		double total = 0;
+		for (int c = 0; c < cities; c++) {
+			latitudes[c] = Math.asin(2 * root.nextDouble() - 1);
+			longitudes[c] = Math.toRadians(uniformLongitude(root));
+			popularity[c] = total += 1.0 / (c + 1);
+		}
+		final double sum = total;
+		final Columns columns = new Columns(size);
+		fill(root, blocks(size, BLOCK), new Filler() {
+			@Override
+			public void fill(SplittableRandom random, int block) {
+				int end = Math.min(size, (block + 1) * BLOCK);
+				double[] point = new double[2];
+				for (int i = block * BLOCK; i < end; i++) {
+					int c = Arrays.binarySearch(popularity, random.nextDouble() * sum);
+					c = Math.min(cities - 1, c < 0 ? -c - 1 : c);
+					// A 2D Gaussian offset: a Rayleigh distance in a uniform direction.
+					double distance = radians * Math.sqrt(-2 * Math.log(1 - random.nextDouble()));
+					point[0] = latitudes[c];
+					point[1] = longitudes[c];
+					travel(point, 2 * Math.PI * random.nextDouble(), distance);
+					columns.setRadians(i, point);
+				}
+			}
+		});
+		return columns.toArray();
+	}
+
+	/**
+	 * Generates the vertices of winding, road-like polylines. Each road starts
+	 * at a random point in a random direction and places its vertices the given
+	 * spacing apart, turning by up to five degrees either way at each vertex.
+	 * The points are split as evenly as possible between the roads, and each
+	 * road's vertices are consecutive and in order.
+	 *
+	 * @param size    the number of points.
+	 * @param roads   the number of roads, at least one.
+	 * @param spacing the distance between consecutive vertices of a road.
+	 * @param unit    the unit of the spacing.
+	 * @return the points.
+	 */
+	public LatLngArray roads(int size, int roads, double spacing, LengthUnit unit) {
+		checkCount(size);
+		if (roads < 1)
+			throw new IllegalArgumentException("Invalid number of roads given.");
+		final double radians = toRadians(spacing, unit);
+		final Columns columns = new Columns(size);
+		final int perBlock = Math.max(1, (int) ((long) BLOCK * roads / Math.max(1, size)));
+		fill(blocks(roads, perBlock), new Filler() {
+			@Override
+			public void fill(SplittableRandom random, int block) {
+				int last = Math.min(roads, (block + 1) * perBlock);
+				for (int road = block * perBlock; road < last; road++) {
+					int start = (int) ((long) size * road / roads);
+					int end = (int) ((long) size * (road + 1) / roads);
+					walk(columns, random, start, end, 1, radians, Math.toRadians(5), 0);
+				}
+			}
+		});
+		return columns.toArray();
+	}
+
+	/**
+	 * <p>
+	 * Generates the positions of moving objects over time, as reported by a
+	 * fleet of vehicles. Each object starts at a random point and at each step
+	 * travels between half and one and a half times the given speed, turning by
+	 * up to twenty degrees either way, except for one step in ten in which it
+	 * stands still.
+	 * </p>
+	 * <p>
+	 * The points are in time order: the position of object <code>o</code> at
+	 * step <code>s</code> has index <code>s * objects + o</code>.
+	 * </p>
+	 *
+	 * @param objects the number of objects.
+	 * @param steps   the number of positions of each object.
+	 * @param speed   the mean distance an object travels in one step.
+	 * @param unit    the unit of the speed.
+	 * @return the points, <code>objects * steps</code> of them.
+	 */
+	public LatLngArray trajectories(int objects, int steps, double speed, LengthUnit unit) {
+		checkCount(objects);
+		checkCount(steps);
+		if ((long) objects * steps > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Invalid number of points given.");
+		final double radians = toRadians(speed, unit);
+		final Columns columns = new Columns(objects * steps);
+		final int perBlock = Math.max(1, BLOCK / Math.max(1, steps));
+		fill(blocks(objects, perBlock), new Filler() {
+			@Override
+			public void fill(SplittableRandom random, int block) {
+				int last = Math.min(objects, (block + 1) * perBlock);
+				for (int object = block * perBlock; object < last; object++)
+					walk(columns, random, object, object + objects * steps, objects, radians, Math.toRadians(20),
+							0.5);
+			}
+		});
+		return columns.toArray();
+	}
+
+	/**
+	 * Fills every <code>stride</code>th index from <code>start</code> to
+	 * <code>end</code> with the positions of a random walk.
+	 *
+	 * @param step   the mean angular distance of a step in radians.
+	 * @param turn   the greatest change of heading at each step in radians.
+	 * @param jitter how far a step may vary from the mean, as a fraction of it;
+	 *               when positive, one step in ten stands still.
+	 */
+	private static void walk(Columns columns, SplittableRandom random, int start, int end, int stride, double step,
+			double turn, double jitter) {
+		double[] point = { Math.asin(2 * random.nextDouble() - 1), Math.toRadians(uniformLongitude(random)) };
+		double heading = 2 * Math.PI * random.nextDouble();
+		for (int i = start; i < end; i += stride) {
+			if (i != start) {
+				double distance = step;
+				if (jitter > 0)
+					distance = random.nextInt(10) == 0 ? 0 : step * (1 - jitter + 2 * jitter * random.nextDouble());
+				heading += turn * (2 * random.nextDouble() - 1);
+				travel(point, heading, distance);
+			}
+			columns.setRadians(i, point);
+		}
+	}
+
+	/**
+	 * Moves a point, given as latitude and longitude in radians, along a great
+	 * circle.
+	 *
+	 * @param point    the point, updated in place.
+	 * @param bearing  the initial bearing in radians.
+	 * @param distance the angular distance in radians.
+	 */
+	private static void travel(double[] point, double bearing, double distance) {
+		double sinLatitude = Math.sin(point[0]);
+		double cosLatitude = Math.cos(point[0]);
+		double sinDistance = Math.sin(distance);
+		double cosDistance = Math.cos(distance);
+		double latitude = Math.asin(sinLatitude * cosDistance + cosLatitude * sinDistance * Math.cos(bearing));
+		point[1] += Math.atan2(Math.sin(bearing) * sinDistance * cosLatitude,
+				cosDistance - sinLatitude * Math.sin(latitude));
+		point[0] = latitude;
+	}
+
+	private static double uniformLatitude(SplittableRandom random) {
+		return Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+	}
+
+	private static double uniformLongitude(SplittableRandom random) {
+		return random.nextDouble() * 360 - 180;
+	}
+
+	private static void checkCount(int count) {
+		if (count < 0)
+			throw new IllegalArgumentException("Invalid number of points given.");
+	}
+
+	private static double toRadians(double distance, LengthUnit unit) {
+		if (Double.isNaN(distance) || Double.isInfinite(distance) || distance < 0)
+			throw new IllegalArgumentException("Invalid distance given.");
+		return distance / LatLngConfig.getEarthRadius(unit);
+	}
+
+	private static int blocks(int units, int perBlock) {
+		return (int) (((long) units + perBlock - 1) / perBlock);
+	}
+
+	private void fill(int blocks, Filler filler) {
+		fill(new SplittableRandom(seed), blocks, filler);
+	}
+
+	private static void fill(SplittableRandom root, int blocks, Filler filler) {
+		// Split in order on this thread, so that each block's stream is fixed.
+		SplittableRandom[] randoms = new SplittableRandom[blocks];
+		for (int b = 0; b < blocks; b++)
+			randoms[b] = root.split();
+		FillTask task = new FillTask(filler, randoms, 0, blocks);
+		if (blocks > 1)
+			ForkJoinPool.commonPool().invoke(task);
+		else
+			task.compute();
+	}
+
+	/**
+	 * Generates the points of one block.
+	 */
+	private interface Filler {
+		void fill(SplittableRandom random, int block);
+	}
+
+	private static class FillTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Filler filler;
+		private final SplittableRandom[] randoms;
+		private final int from;
+		private final int to;
+
+		FillTask(Filler filler, SplittableRandom[] randoms, int from, int to) {
+			this.filler = filler;
+			this.randoms = randoms;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new FillTask(filler, randoms, from, mid), new FillTask(filler, randoms, mid, to));
+				return;
+			}
+			for (int b = from; b < to; b++)
+				filler.fill(randoms[b], b);
+		}
+	}
+
+	/**
+	 * The fixed-point columns being filled; blocks write disjoint indices.
+	 */
+	private class Columns {
+		final int[] latitudes;
+		final int[] longitudes;
+
+		Columns(int size) {
+			this.latitudes = new int[size];
+			this.longitudes = new int[size];
+		}
+
+		void set(int i, double latitude, double longitude) {
+			latitudes[i] = precision.toFixed(latitude);
+			longitudes[i] = precision.toFixed(longitude);
+		}
+
+		void setRadians(int i, double[] point) {
+			set(i, Math.toDegrees(point[0]), LatLngTool.normalizeLongitude(Math.toDegrees(point[1])));
+		}
+
+		LatLngArray toArray() {
+			return LatLngArray.ofFixed(precision, latitudes, longitudes);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.metrics;
+
+/**
+ * <p>
+ * A {@link MetricsRecorder} which emits a Java Flight Recorder event for each
+ * bulk operation, carrying the operation, its candidate and match counts, its
+ * selectivity and its duration. Events are only recorded while a recording
+ * has the <code>com.javadocmd.simplelatlng.SpatialOperation</code> event
+ * enabled, as it is in the default JFR settings.
+ * </p>
+ * <p>
+ * Hashing or decoding a single geohash, {@link SpatialOperation#GEOHASH_ENCODE}
+ * and {@link SpatialOperation#GEOHASH_DECODE}, is left out: an event with a
+ * stack trace for every hash would cost far more than the hash. Hash whole
+ * arrays to see them as {@link SpatialOperation#GEOHASH_BATCH_ENCODE}.
+ * </p>
+ * <p>
+ * The library jar is multi-release: on Java 11 and later this class emits
+ * events, while on Java 8, which has no public JFR API, it does nothing and
+ * {@link #isSupported()} returns false.
+ * </p>
+ */
+public class FlightRecorderMetricsRecorder implements MetricsRecorder {
+
+	/**
+	 * @return true if this recorder emits events on the running JVM.
+	 */
+	public static boolean isSupported() {
+		return true;
+	}
+
+	@Override
+	public void record(SpatialOperation operation, long candidates, long matches, long nanos) {
+		if (operation == SpatialOperation.GEOHASH_ENCODE || operation == SpatialOperation.GEOHASH_DECODE)
+			return;
+		SpatialOperationEvent event = new SpatialOperationEvent();
+		if (!event.shouldCommit())
+			return;
+		event.operation = operation.name();
+		event.candidates = candidates;
+		event.matches = matches;
+		event.selectivity = candidates == 0 ? Double.NaN : (double) matches / candidates;
+		event.elapsed = nanos;
+		event.commit();
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The JFR event emitted by {@link FlightRecorderMetricsRecorder}. The event is
+ * committed once the operation has finished, so its own duration is zero and
+ * the operation's duration is in {@link #elapsed}.
+ */
+@Name("com.javadocmd.simplelatlng.SpatialOperation")
+@Label("Spatial Operation")
+@Description("A bulk operation of the SimpleLatLng library")
+@Category("SimpleLatLng")
+@StackTrace(true)
+class SpatialOperationEvent extends Event {
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Candidates")
+	@Description("The number of points tested")
+	long candidates;
+
+	@Label("Matches")
+	@Description("The number of points that passed the test")
+	long matches;
+
+	@Label("Selectivity")
+	@Percentage
+	double selectivity;
+
+	@Label("Elapsed")
+	@Timespan(Timespan.NANOSECONDS)
+	long elapsed;
+}
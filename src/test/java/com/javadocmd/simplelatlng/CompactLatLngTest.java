@@ -0,0 +1,112 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+
+public class CompactLatLngTest {
+
+	@Test
+	public void testMatchesLatLng() {
+		Random r = new Random(5);
+		for (int i = 0; i < 10000; i++) {
+			double lat = r.nextDouble() * 200 - 100;
+			double lng = r.nextDouble() * 800 - 400;
+			LatLng point = new LatLng(lat, lng);
+			CompactLatLng compact = new CompactLatLng(lat, lng);
+			assertEquals(point.getLatitudeInternal(), compact.getLatitudeFixed());
+			assertEquals(point.getLongitudeInternal(), compact.getLongitudeFixed());
+			assertEquals(point.getLatitude(), compact.getLatitude(), 0);
+			assertEquals(point.getLongitude(), compact.getLongitude(), 0);
+			assertEquals(point, compact.toLatLng());
+			assertEquals(compact, CompactLatLng.of(point));
+			assertEquals(point.toString(), compact.toString());
+		}
+	}
+
+	@Test
+	public void testPrecision() {
+		CompactLatLng p = new CompactLatLng(12.34567891, -98.76543219, DegreePrecision.E7);
+		assertEquals(123456789, p.getLatitudeFixed());
+		assertEquals(-987654321, p.getLongitudeFixed());
+		assertEquals(DegreePrecision.E7, p.getPrecision());
+		assertEquals("(12.3456789,-98.7654321)", p.toString());
+		assertEquals(new LatLng(12.345678, -98.765432), p.toLatLng());
+
+		CompactLatLng q = CompactLatLng.of(new LatLng(12.345678, -98.765432), DegreePrecision.E5);
+		assertEquals(1234567, q.getLatitudeFixed());
+		assertEquals(-9876543, q.getLongitudeFixed());
+	}
+
+	@Test
+	public void testPoles() {
+		CompactLatLng p = new CompactLatLng(90, 45, DegreePrecision.E7);
+		assertTrue(p.isPolar());
+		assertEquals(0, p.getLongitudeFixed());
+		assertEquals(p, CompactLatLng.fromFixed(900000000, 123, DegreePrecision.E7));
+		assertTrue(new CompactLatLng(-95, 10).isPolar());
+		assertFalse(new CompactLatLng(89.999999, 10).isPolar());
+	}
+
+	@Test
+	public void testFromFixed() {
+		CompactLatLng p = CompactLatLng.fromFixed(-1234567, 17999999, DegreePrecision.E5);
+		assertEquals(-12.34567, p.getLatitude(), 1e-12);
+		assertEquals(179.99999, p.getLongitude(), 1e-12);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFromFixedInvalidLatitude() {
+		CompactLatLng.fromFixed(90000001, 0, DegreePrecision.E6);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFromFixedInvalidLongitude() {
+		CompactLatLng.fromFixed(0, -180000001, DegreePrecision.E6);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidLatitude() {
+		new CompactLatLng(Double.NaN, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidLongitude() {
+		new CompactLatLng(0, Double.POSITIVE_INFINITY);
+	}
+
+	@Test
+	public void testEqualsHashCode() {
+		CompactLatLng a = new CompactLatLng(1, 2);
+		CompactLatLng b = new CompactLatLng(1, 2);
+		assertEquals(a, a);
+		assertEquals(a, b);
+		assertEquals(a.hashCode(), b.hashCode());
+		assertNotEquals(a, new CompactLatLng(1, 2.000001));
+		assertNotEquals(a, new CompactLatLng(1.000001, 2));
+		assertNotEquals(a, new CompactLatLng(1, 2, DegreePrecision.E7));
+		assertNotEquals(a, new LatLng(1, 2));
+	}
+}
@@ -18,6 +18,8 @@ import static com.javadocmd.simplelatlng.Geohasher.deInterleave;
 import static com.javadocmd.simplelatlng.Geohasher.hashToBits;
 import static org.junit.Assert.assertEquals;
 
+import java.util.Random;
+
 import org.junit.Test;
 
 import com.javadocmd.simplelatlng.Geohasher.DeInterleaveResult;
@@ -212,4 +214,52 @@ public class GeohasherTest {
 		assertEquals("ezs42ebpbpbm", Geohasher.hash(p));
 		assertEquals(p, Geohasher.decode("ezs42ebpbpbm"));
 	}
+
+	@Test
+	public void testHashBits() {
+		LatLng p = new LatLng(44.869797, 6.599944);
+		assertEquals(hashToBits("spuxq0mctb6u"), Geohasher.hashBits(p.getLatitude(), p.getLongitude(), 12));
+		for (int c = 1; c <= Geohasher.PRECISION; c++) {
+			long bits = Geohasher.hashBits(p.getLatitude(), p.getLongitude(), c);
+			assertEquals("spuxq0mctb6u".substring(0, c), Geohasher.toHash(bits, c));
+		}
+		assertEquals("zzzzz", Geohasher.toHash(Geohasher.hashBits(90, 180, 5), 5));
+	}
+
+	@Test
+	public void testHashBitsArray() {
+		LatLngArray points = new LatLngArray();
+		points.add(44.869797, 6.599944);
+		points.add(-90, -180);
+		points.add(90, 180);
+		long[] hashes = Geohasher.hashBits(points, 7);
+		assertEquals(3, hashes.length);
+		for (int i = 0; i < points.size(); i++)
+			assertEquals(Geohasher.hashBits(points.getLatitude(i), points.getLongitude(i), 7), hashes[i]);
+		assertEquals("spuxq0m", Geohasher.toHash(hashes[0], 7));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHashBitsArrayInvalidLength() {
+		Geohasher.hashBits(new LatLngArray(), 0);
+	}
+
+	@Test
+	public void testInterleaveBits() {
+		Random r = new Random(45);
+		for (int i = 0; i < 1000; i++) {
+			long lat = r.nextInt() & 0xFFFFFFFFL, lng = r.nextInt() & 0xFFFFFFFFL;
+			assertEquals(Geohasher.interleave(64, lat, lng), Geohasher.interleaveBits(lat, lng));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHashBitsInvalidLength() {
+		Geohasher.hashBits(0, 0, 13);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testToHashInvalidLength() {
+		Geohasher.toHash(0, 0);
+	}
 }
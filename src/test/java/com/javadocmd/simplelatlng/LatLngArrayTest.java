@@ -0,0 +1,167 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+
+public class LatLngArrayTest {
+
+	@Test
+	public void testAddAndGet() {
+		LatLngArray a = new LatLngArray();
+		assertEquals(DegreePrecision.E6, a.getPrecision());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, a.add(i * 0.5 - 25, i * 3.1 - 150));
+		}
+		assertEquals(100, a.size());
+		assertEquals(new LatLng(-24.5, -146.9), a.toLatLng(1));
+		assertEquals(new CompactLatLng(-24.5, -146.9), a.get(1));
+		assertEquals(-24.5, a.getLatitude(1), 1e-9);
+		assertEquals(-146.9, a.getLongitude(1), 1e-9);
+		assertEquals(-24500000, a.getLatitudeFixed(1));
+		assertEquals(-146900000L, a.getLongitudeInternal(1));
+	}
+
+	@Test
+	public void testAddPoints() {
+		LatLngArray a = new LatLngArray(DegreePrecision.E7, 0);
+		a.add(new LatLng(1.5, 2.5));
+		a.add(new CompactLatLng(3.25, 4.25, DegreePrecision.E7));
+		a.add(new CompactLatLng(5.5, 6.5, DegreePrecision.E5));
+		a.add(100, 200);
+		assertEquals(15000000, a.getLatitudeFixed(0));
+		assertEquals(42500000, a.getLongitudeFixed(1));
+		assertEquals(new LatLng(5.5, 6.5), a.toLatLng(2));
+		assertEquals(new LatLng(90, 0), a.toLatLng(3));
+		assertEquals(12345678L, a.getLatitudeInternal(a.addFixed(123456789, 0)));
+	}
+
+	@Test
+	public void testAddAll() {
+		LatLngArray a = new LatLngArray();
+		a.add(1, 1);
+		LatLngArray b = new LatLngArray();
+		b.add(2, 2);
+		b.add(3, 3);
+		a.addAll(b);
+		LatLngArray c = new LatLngArray(DegreePrecision.E5, 1);
+		c.add(4, 4);
+		a.addAll(c);
+		assertEquals(4, a.size());
+		assertEquals(new LatLng(3, 3), a.toLatLng(2));
+		assertEquals(new LatLng(4, 4), a.toLatLng(3));
+	}
+
+	@Test
+	public void testClearAndTrim() {
+		LatLngArray a = new LatLngArray();
+		a.add(1, 1);
+		a.add(2, 2);
+		a.trimToSize();
+		a.add(3, 3);
+		assertEquals(3, a.size());
+		a.clear();
+		assertEquals(0, a.size());
+		assertEquals("0 points at E6", a.toString());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testIndexOutOfBounds() {
+		LatLngArray a = new LatLngArray();
+		a.add(1, 1);
+		a.getLatitude(1);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testNegativeIndex() {
+		new LatLngArray().getLongitude(-1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidFixedLatitude() {
+		new LatLngArray().addFixed(-90000001, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidFixedLongitude() {
+		new LatLngArray().addFixed(0, 180000001);
+	}
+
+	@Test
+	public void testOfFixed() {
+		int[] latitudes = { 4500000, 9000000 };
+		int[] longitudes = { -1000000, 5000000 };
+		LatLngArray a = LatLngArray.ofFixed(DegreePrecision.E5, latitudes, longitudes);
+		assertEquals(2, a.size());
+		assertEquals(45.0, a.getLatitude(0), 1e-9);
+		assertEquals(-10.0, a.getLongitude(0), 1e-9);
+		assertEquals(0, a.getLongitudeFixed(1));
+		a.add(1, 2);
+		assertEquals(3, a.size());
+		assertEquals(2.0, a.getLongitude(2), 1e-9);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOfFixedMismatchedColumns() {
+		LatLngArray.ofFixed(DegreePrecision.E6, new int[2], new int[1]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOfFixedInvalidLongitude() {
+		LatLngArray.ofFixed(DegreePrecision.E6, new int[1], new int[] { 180000001 });
+	}
+
+	@Test
+	public void testReorder() {
+		LatLngArray points = new LatLngArray();
+		points.add(1, 2);
+		points.add(3, 4);
+		points.add(5, 6);
+		points.reorder(new int[] { 2, 0, 1 });
+		assertEquals(new LatLng(5, 6), points.toLatLng(0));
+		assertEquals(new LatLng(1, 2), points.toLatLng(1));
+		assertEquals(new LatLng(3, 4), points.toLatLng(2));
+		points.add(7, 8);
+		assertEquals(4, points.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReorderNotPermutation() {
+		LatLngArray points = new LatLngArray();
+		points.add(1, 2);
+		points.add(3, 4);
+		points.reorder(new int[] { 1, 1 });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReorderWrongLength() {
+		new LatLngArray().reorder(new int[1]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullPrecision() {
+		new LatLngArray(null, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeCapacity() {
+		new LatLngArray(DegreePrecision.E6, -1);
+	}
+}
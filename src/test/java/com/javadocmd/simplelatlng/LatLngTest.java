@@ -181,5 +181,40 @@ public class LatLngTest {
 		LatLng omega = (LatLng) ois.readObject();
 
 		assertEquals(alpha, omega);
+		// Two ints, where the default form described both long fields.
+		assertTrue(baos.size() < 80);
+	}
+
+	@Test
+	public void testDeserializeDefaultForm() throws IOException, ClassNotFoundException {
+		// new LatLng(45.5, -122.25) as serialized with the default form.
+		String hex = "aced000573720021636f6d2e6a617661646f636d642e73696d706c656c61746c6e672e4c61744c6e67"
+				+ "6259eae1edb4b18a0200024a00086c617469747564654a00096c6f6e67697475646578700000000002b64660"
+				+ "fffffffff8b69cf0";
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		assertEquals(new LatLng(45.5, -122.25), ois.readObject());
+	}
+
+	@Test
+	public void testFromInternal() {
+		LatLng p = LatLng.fromInternal(12345678L, -98765432L);
+		assertEquals(new LatLng(12.345678, -98.765432), p);
+		assertEquals(3L, LatLng.fromInternal(3L, -3L).getLatitudeInternal());
+		assertEquals(-3L, LatLng.fromInternal(3L, -3L).getLongitudeInternal());
+		assertEquals(0L, LatLng.fromInternal(-90000000L, 5L).getLongitudeInternal());
+		assertEquals(180000000L, LatLng.fromInternal(0, 180000000L).getLongitudeInternal());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFromInternalInvalidLatitude() {
+		LatLng.fromInternal(90000001L, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFromInternalInvalidLongitude() {
+		LatLng.fromInternal(0, -180000001L);
 	}
 }
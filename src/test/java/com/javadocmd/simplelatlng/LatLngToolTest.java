@@ -26,6 +26,7 @@ import static org.junit.Assert.assertEquals;
 
 import org.junit.Test;
 
+import com.javadocmd.simplelatlng.util.DegreePrecision;
 import com.javadocmd.simplelatlng.util.LatLngConfig;
 import com.javadocmd.simplelatlng.util.LengthUnit;
 
@@ -156,4 +157,40 @@ public class LatLngToolTest {
 		assertEquals(new LatLng(0, 0),
 				travel(new LatLng(-67.5, 45), 312.7342096008998, 5133.651152139029, LengthUnit.MILE));
 	}
+
+	@Test
+	public void testCompactOverloads() {
+		LatLng a = new LatLng(33.4484, -112.0740);
+		LatLng b = new LatLng(40.7128, -74.0060);
+		CompactLatLng ca = CompactLatLng.of(a);
+		CompactLatLng cb = CompactLatLng.of(b);
+		assertEquals(distance(a, b, LengthUnit.KILOMETER), distance(ca, cb, LengthUnit.KILOMETER), 0);
+		assertEquals(distanceInRadians(a, b), distanceInRadians(ca, cb), 0);
+		assertEquals(initialBearing(a, b), initialBearing(ca, cb), 0);
+		assertEquals(LatLngTool.initialBearingInRadians(a, b), LatLngTool.initialBearingInRadians(ca, cb), 0);
+		assertEquals(distanceInRadians(a, b),
+				distanceInRadians(a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude()), 0);
+	}
+
+	@Test
+	public void testDistances() {
+		LatLng origin = new LatLng(10, 20);
+		LatLngArray points = new LatLngArray(DegreePrecision.E6, 4);
+		points.add(0, 0);
+		points.add(-45.123456, 170.5);
+		points.add(90, 0);
+		double[] results = new double[4];
+		LatLngTool.distances(origin, points, LengthUnit.MILE, results);
+		for (int i = 0; i < points.size(); i++) {
+			assertEquals(distance(origin, points.toLatLng(i), LengthUnit.MILE), results[i], 0);
+		}
+		assertEquals(0, results[3], 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDistancesShortResults() {
+		LatLngArray points = new LatLngArray();
+		points.add(0, 0);
+		LatLngTool.distances(new LatLng(0, 0), points, LengthUnit.MILE, new double[0]);
+	}
 }
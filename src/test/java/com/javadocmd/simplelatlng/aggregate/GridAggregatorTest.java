@@ -0,0 +1,163 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.aggregate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.Geohasher;
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.metrics.InMemoryMetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+import com.javadocmd.simplelatlng.workload.WorkloadGenerator;
+
+public class GridAggregatorTest {
+
+	@Test
+	public void testDegrees() {
+		GridAggregator aggregator = GridAggregator.degrees(0.5);
+		aggregator.add(10.2, 20.7, 3);
+		aggregator.add(10.4, 20.9, 5);
+		aggregator.add(-0.1, -0.1);
+		aggregator.add(90, 180);
+		aggregator.add(90, -180);
+		GridAggregator.Snapshot snapshot = aggregator.snapshot();
+		assertEquals(3, snapshot.size());
+		assertEquals(5, snapshot.getTotalCount());
+		int i = snapshot.indexOf(aggregator.cellOf(10, 20.5));
+		assertEquals(2, snapshot.getCount(i));
+		assertEquals(8, snapshot.getSum(i), 0);
+		assertEquals(4, snapshot.getMean(i), 0);
+		assertEquals(new LatLng(10.25, 20.75), aggregator.getCenter(snapshot.getCell(i)));
+		assertEquals(new LatLng(-0.25, -0.25), aggregator.getCenter(aggregator.cellOf(-0.1, -0.1)));
+		assertEquals(2, snapshot.getCount(snapshot.indexOf(aggregator.cellOf(89.9, -179.9))));
+		assertTrue(snapshot.indexOf(aggregator.cellOf(0, 0)) < 0);
+		// Cells are in order of their keys.
+		for (int j = 1; j < snapshot.size(); j++)
+			assertTrue(snapshot.getCell(j - 1) < snapshot.getCell(j));
+	}
+
+	@Test
+	public void testUnevenCells() {
+		GridAggregator aggregator = GridAggregator.degrees(7);
+		assertEquals(new LatLng(87.5, 178.5), aggregator.getCenter(aggregator.cellOf(90, 179.5)));
+		assertEquals(aggregator.cellOf(0, -180), aggregator.cellOf(0, 180));
+	}
+
+	@Test
+	public void testGeohash() {
+		GridAggregator aggregator = GridAggregator.geohash(5);
+		aggregator.add(42.604980, -5.603027, 1);
+		aggregator.add(42.60, -5.60, 2);
+		GridAggregator.Snapshot snapshot = aggregator.snapshot();
+		assertEquals(1, snapshot.size());
+		assertEquals("ezs42", Geohasher.toHash(snapshot.getCell(0), 5));
+		assertEquals(Geohasher.decode("ezs42"), aggregator.getCenter(snapshot.getCell(0)));
+		assertEquals(1.5, snapshot.getMean(0), 0);
+	}
+
+	@Test
+	public void testAgainstMap() throws InterruptedException {
+		final LatLngArray points = new WorkloadGenerator(44).cities(40000, 30, 50, LengthUnit.KILOMETER);
+		final GridAggregator aggregator = GridAggregator.degrees(0.1);
+		Map<Long, Long> expected = new HashMap<Long, Long>();
+		for (int i = 0; i < points.size(); i++) {
+			long cell = aggregator.cellOf(points.getLatitude(i), points.getLongitude(i));
+			Long count = expected.get(cell);
+			expected.put(cell, count == null ? 1 : count + 1);
+		}
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int offset = t;
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = offset; i < points.size(); i += 4)
+						aggregator.add(points.getLatitude(i), points.getLongitude(i), 1);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		GridAggregator.Snapshot snapshot = aggregator.snapshotAndReset();
+		assertEquals(expected.size(), snapshot.size());
+		for (int i = 0; i < snapshot.size(); i++) {
+			assertEquals(expected.get(snapshot.getCell(i)).longValue(), snapshot.getCount(i));
+			assertEquals(snapshot.getCount(i), snapshot.getSum(i), 0);
+		}
+		assertEquals(0, aggregator.snapshot().size());
+
+		aggregator.addAll(points);
+		assertEquals(snapshot.getTotalCount(), aggregator.snapshot().getTotalCount());
+	}
+
+	@Test
+	public void testTumblingWindows() {
+		GridAggregator aggregator = GridAggregator.geohash(3);
+		aggregator.add(1, 1);
+		assertEquals(1, aggregator.snapshotAndReset().getTotalCount());
+		aggregator.add(1, 1);
+		aggregator.add(1, 1);
+		assertEquals(2, aggregator.snapshotAndReset().getTotalCount());
+		assertEquals(0, aggregator.snapshotAndReset().getTotalCount());
+	}
+
+	@Test
+	public void testMetrics() {
+		InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+		Metrics.setRecorder(recorder);
+		try {
+			LatLngArray points = new LatLngArray();
+			points.add(1, 2);
+			points.add(3, 4);
+			GridAggregator.geohash(4).addAll(points, new double[] { 1, 2 });
+		} finally {
+			Metrics.setRecorder(null);
+		}
+		assertEquals(2, recorder.snapshot(SpatialOperation.AGGREGATE).getCandidates());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPoint() {
+		GridAggregator.degrees(1).add(Double.NaN, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCellSize() {
+		GridAggregator.degrees(200);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidHashLength() {
+		GridAggregator.geohash(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testShortValues() {
+		LatLngArray points = new LatLngArray();
+		points.add(1, 2);
+		GridAggregator.degrees(1).addAll(points, new double[0]);
+	}
+}
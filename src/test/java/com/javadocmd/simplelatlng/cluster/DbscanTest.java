@@ -0,0 +1,154 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.cluster;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.metrics.InMemoryMetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+import com.javadocmd.simplelatlng.workload.WorkloadGenerator;
+
+public class DbscanTest {
+
+	/**
+	 * Textbook DBSCAN over a full distance matrix, with border points given to
+	 * their nearest core point.
+	 */
+	private static int[] bruteForce(LatLngArray points, double meters, int minPoints) {
+		int n = points.size();
+		double[][] d = new double[n][n];
+		boolean[] core = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			int count = 0;
+			for (int j = 0; j < n; j++) {
+				d[i][j] = LatLngTool.distance(points.toLatLng(i), points.toLatLng(j), LengthUnit.METER);
+				if (d[i][j] <= meters)
+					count++;
+			}
+			core[i] = count >= minPoints;
+		}
+		int[] labels = new int[n];
+		Arrays.fill(labels, Dbscan.NOISE);
+		int clusters = 0;
+		for (int i = 0; i < n; i++) {
+			if (!core[i] || labels[i] != Dbscan.NOISE)
+				continue;
+			Deque<Integer> queue = new ArrayDeque<Integer>();
+			labels[i] = clusters;
+			queue.add(i);
+			while (!queue.isEmpty()) {
+				int p = queue.poll();
+				for (int q = 0; q < n; q++)
+					if (core[q] && labels[q] == Dbscan.NOISE && d[p][q] <= meters) {
+						labels[q] = clusters;
+						queue.add(q);
+					}
+			}
+			clusters++;
+		}
+		for (int i = 0; i < n; i++) {
+			if (core[i])
+				continue;
+			int nearest = -1;
+			for (int j = 0; j < n; j++)
+				if (core[j] && d[i][j] <= meters && (nearest < 0 || d[i][j] < d[i][nearest]))
+					nearest = j;
+			if (nearest >= 0)
+				labels[i] = labels[nearest];
+		}
+		return labels;
+	}
+
+	@Test
+	public void testCluster() {
+		LatLngArray points = new LatLngArray();
+		LatLng a = new LatLng(48.8566, 2.3522);
+		for (int i = 0; i < 4; i++)
+			points.add(LatLngTool.travel(a, 90 * i, 10, LengthUnit.METER));
+		points.add(new LatLng(0, 0));
+		points.add(LatLngTool.travel(a, 0, 40, LengthUnit.METER));
+		points.add(a);
+		int[] labels = Dbscan.cluster(points, 32, LengthUnit.METER, 4);
+		// The sixth point is a border point, 30m from the first only.
+		assertArrayEquals(new int[] { 0, 0, 0, 0, Dbscan.NOISE, 0, 0 }, labels);
+		assertEquals(1, Dbscan.countClusters(labels));
+		assertEquals(0, Dbscan.countClusters(Dbscan.cluster(points, 1, LengthUnit.METER, 2)));
+		assertEquals(7, Dbscan.countClusters(Dbscan.cluster(points, 1, LengthUnit.METER, 1)));
+		assertEquals(0, Dbscan.cluster(new LatLngArray(), 1, LengthUnit.METER, 3).length);
+	}
+
+	@Test
+	public void testAgainstBruteForce() {
+		WorkloadGenerator generator = new WorkloadGenerator(43);
+		LatLngArray points = generator.cities(1500, 10, 300, LengthUnit.METER);
+		points.addAll(generator.roads(300, 3, 50, LengthUnit.METER));
+		for (int i = 0; i < 20; i++) {
+			points.add(90, i * 18);
+			points.add(-10, i % 2 == 0 ? 180 : -179.9995);
+		}
+		for (int minPoints : new int[] { 1, 3, 8 }) {
+			int[] expected = bruteForce(points, 120, minPoints);
+			assertArrayEquals(expected, Dbscan.cluster(points, 120, LengthUnit.METER, minPoints));
+			assertArrayEquals(expected, Dbscan.parallelCluster(points, 120, LengthUnit.METER, minPoints));
+		}
+	}
+
+	@Test
+	public void testParallel() {
+		LatLngArray points = new WorkloadGenerator(44).cities(30000, 20, 2, LengthUnit.KILOMETER);
+		assertArrayEquals(Dbscan.cluster(points, 50, LengthUnit.METER, 5),
+				Dbscan.parallelCluster(points, 50, LengthUnit.METER, 5));
+	}
+
+	@Test
+	public void testMetrics() {
+		InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+		Metrics.setRecorder(recorder);
+		try {
+			LatLngArray points = new LatLngArray();
+			points.add(1, 1);
+			points.add(1, 1);
+			points.add(2, 2);
+			Dbscan.cluster(points, 1, LengthUnit.METER, 2);
+		} finally {
+			Metrics.setRecorder(null);
+		}
+		assertEquals(3, recorder.snapshot(SpatialOperation.CLUSTER).getCandidates());
+		assertEquals(1, recorder.snapshot(SpatialOperation.CLUSTER).getMatches());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMinPoints() {
+		Dbscan.cluster(new LatLngArray(), 1, LengthUnit.METER, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDistance() {
+		Dbscan.parallelCluster(new LatLngArray(), Double.NaN, LengthUnit.METER, 2);
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.cluster;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+public class DeduplicatorTest {
+
+	private static int[] bruteForce(LatLngArray points, double meters) {
+		int n = points.size();
+		int[] labels = new int[n];
+		for (int i = 0; i < n; i++)
+			labels[i] = i;
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int i = 0; i < n; i++)
+				for (int j = 0; j < n; j++)
+					if (labels[j] < labels[i]
+							&& LatLngTool.distance(points.toLatLng(i), points.toLatLng(j), LengthUnit.METER) <= meters) {
+						labels[i] = labels[j];
+						changed = true;
+					}
+		}
+		return labels;
+	}
+
+	@Test
+	public void testGroup() {
+		LatLngArray points = new LatLngArray();
+		LatLng a = new LatLng(48.8566, 2.3522);
+		points.add(LatLngTool.travel(a, 0, 30, LengthUnit.METER));
+		points.add(a);
+		points.add(new LatLng(0, 0));
+		points.add(LatLngTool.travel(a, 180, 30, LengthUnit.METER));
+		points.add(LatLngTool.travel(a, 90, 500, LengthUnit.METER));
+		int[] labels = Deduplicator.group(points, 50, LengthUnit.METER);
+		// The first and fourth points are 60m apart, but chained through the second.
+		assertArrayEquals(new int[] { 0, 0, 2, 0, 4 }, labels);
+		assertEquals(3, Deduplicator.countGroups(labels));
+		assertEquals(0, Deduplicator.group(new LatLngArray(), 1, LengthUnit.METER).length);
+	}
+
+	@Test
+	public void testAgainstBruteForce() {
+		Random r = new Random(10);
+		LatLngArray points = new LatLngArray();
+		for (int i = 0; i < 600; i++) {
+			if (i % 5 == 0)
+				points.add(r.nextDouble() * 0.0001 - 89.99995, r.nextDouble() * 360 - 180);
+			else
+				points.add(r.nextDouble() * 0.02 - 10, 179.99 + r.nextDouble() * 0.02);
+		}
+		int[] expected = bruteForce(points, 200);
+		assertArrayEquals(expected, Deduplicator.group(points, 200, LengthUnit.METER));
+		assertArrayEquals(expected, Deduplicator.parallelGroup(points, 200, LengthUnit.METER));
+	}
+
+	@Test
+	public void testParallelMatchesSequential() {
+		Random r = new Random(11);
+		LatLngArray points = new LatLngArray();
+		for (int i = 0; i < 40000; i++)
+			points.add(35 + r.nextDouble(), 139 + r.nextDouble());
+		int[] sequential = Deduplicator.group(points, 150, LengthUnit.METER);
+		assertArrayEquals(sequential, Deduplicator.parallelGroup(points, 150, LengthUnit.METER));
+		for (int i = 0; i < sequential.length; i++)
+			assertEquals(sequential[i], sequential[sequential[i]]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDistance() {
+		Deduplicator.group(new LatLngArray(), Double.NaN, LengthUnit.METER);
+	}
+}
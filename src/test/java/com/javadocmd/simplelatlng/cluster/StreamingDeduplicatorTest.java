@@ -0,0 +1,95 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.cluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+public class StreamingDeduplicatorTest {
+
+	@Test
+	public void testOffer() {
+		StreamingDeduplicator dedup = new StreamingDeduplicator(10, LengthUnit.METER, 100);
+		LatLng a = new LatLng(40.7128, -74.0060);
+		assertNull(dedup.offer(a));
+		assertEquals(a, dedup.offer(LatLngTool.travel(a, 45, 9, LengthUnit.METER)));
+		assertEquals(a, dedup.offer(a));
+		LatLng b = LatLngTool.travel(a, 90, 15, LengthUnit.METER);
+		assertNull(dedup.offer(b));
+		// The nearest kept point wins.
+		assertEquals(b, dedup.offer(LatLngTool.travel(a, 90, 9, LengthUnit.METER)));
+		assertEquals(2, dedup.size());
+		dedup.clear();
+		assertEquals(0, dedup.size());
+		assertNull(dedup.offer(a));
+	}
+
+	@Test
+	public void testAntimeridianAndPole() {
+		StreamingDeduplicator dedup = new StreamingDeduplicator(5, LengthUnit.METER, 10);
+		assertNull(dedup.offer(new LatLng(0, 179.99999)));
+		assertEquals(new LatLng(0, 179.99999), dedup.offer(new LatLng(0, -179.99999)));
+		assertNull(dedup.offer(new LatLng(90, 0)));
+		assertEquals(new LatLng(90, 0), dedup.offer(new LatLng(89.99999, 123)));
+	}
+
+	@Test
+	public void testAgainstBruteForce() {
+		Random r = new Random(9);
+		int capacity = 50;
+		StreamingDeduplicator dedup = new StreamingDeduplicator(100, LengthUnit.METER, capacity);
+		List<LatLng> kept = new ArrayList<LatLng>();
+		for (int i = 0; i < 3000; i++) {
+			LatLng p = new LatLng(51 + r.nextDouble() * 0.02, -0.1 + r.nextDouble() * 0.03);
+			LatLng nearest = null;
+			double nearestDistance = 100;
+			for (LatLng k : kept.subList(Math.max(0, kept.size() - capacity), kept.size())) {
+				double d = LatLngTool.distance(p, k, LengthUnit.METER);
+				if (d <= nearestDistance) {
+					nearest = k;
+					nearestDistance = d;
+				}
+			}
+			LatLng result = dedup.offer(p);
+			assertEquals(nearest, result);
+			if (result == null)
+				kept.add(p);
+		}
+		assertTrue(kept.size() > capacity);
+		assertEquals(capacity, dedup.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCapacity() {
+		new StreamingDeduplicator(1, LengthUnit.METER, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDistance() {
+		new StreamingDeduplicator(-1, LengthUnit.METER, 10);
+	}
+}
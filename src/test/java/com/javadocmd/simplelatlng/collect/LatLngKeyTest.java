@@ -0,0 +1,73 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.collect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.CompactLatLng;
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+
+public class LatLngKeyTest {
+
+	@Test
+	public void testRoundTrip() {
+		LatLng[] points = { new LatLng(0, 0), new LatLng(90, 0), new LatLng(-90, 0), new LatLng(45.123456, -179.999999),
+				new LatLng(-33.5, 180), new LatLng(-0.000001, -0.000001) };
+		for (LatLng p : points) {
+			long key = LatLngKey.pack(p);
+			assertNotEquals(LatLngKey.NONE, key);
+			assertEquals(p.getLatitudeInternal(), LatLngKey.latitudeInternal(key));
+			assertEquals(p.getLongitudeInternal(), LatLngKey.longitudeInternal(key));
+			assertEquals(p, LatLngKey.toLatLng(key));
+		}
+	}
+
+	@Test
+	public void testOtherSources() {
+		LatLng p = new LatLng(12.345678, -98.765432);
+		long key = LatLngKey.pack(p);
+		assertEquals(key, LatLngKey.pack(CompactLatLng.of(p)));
+		assertEquals(key, LatLngKey.pack(CompactLatLng.of(p, DegreePrecision.E7)));
+		LatLngArray a = new LatLngArray();
+		a.add(p);
+		assertEquals(key, LatLngKey.pack(a, 0));
+		assertEquals(LatLngKey.pack(new LatLng(12.34567, -98.76543)),
+				LatLngKey.pack(CompactLatLng.of(p, DegreePrecision.E5)));
+	}
+
+	@Test
+	public void testHashSpreadsNeighbors() {
+		// A tight grid of neighboring points should land in distinct low bits.
+		Set<Integer> buckets = new HashSet<Integer>();
+		for (int i = 0; i < 32; i++)
+			for (int j = 0; j < 32; j++)
+				buckets.add(LatLngKey.hash(LatLngKey.pack(40000000 + i, -70000000 + j)) & 4095);
+		assertEquals(1024, buckets.size(), 150);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidKey() {
+		LatLngKey.toLatLng(LatLngKey.NONE);
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.collect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLng;
+
+public class LatLngLongMapTest {
+
+	@Test
+	public void testPointOperations() {
+		LatLngLongMap map = new LatLngLongMap();
+		LatLng a = new LatLng(-12.5, 130.25);
+		assertEquals(-1, map.put(a, 7, -1));
+		assertEquals(7, map.put(new LatLng(-12.5, 130.25), 8, -1));
+		assertEquals(8, map.get(a, -1));
+		assertEquals(-1, map.get(new LatLng(0, 0), -1));
+		assertTrue(map.containsKey(a));
+		assertEquals(10, map.addTo(a, 2));
+		assertEquals(3, map.addTo(new LatLng(1, 1), 3));
+		assertEquals(2, map.size());
+		assertEquals(10, map.remove(a, -1));
+		assertEquals(-1, map.remove(a, -1));
+		assertFalse(map.containsKey(a));
+		assertEquals(1, map.keys().length);
+	}
+
+	@Test
+	public void testAgainstHashMap() {
+		Random r = new Random(6);
+		LatLngLongMap map = new LatLngLongMap();
+		Map<Long, Long> expected = new HashMap<Long, Long>();
+		for (int i = 0; i < 100000; i++) {
+			long key = LatLngKey.pack(r.nextInt(150) - 75, r.nextInt(150) + 1000);
+			switch (r.nextInt(4)) {
+			case 0:
+				Long removed = expected.remove(key);
+				assertEquals(removed == null ? -1 : removed, map.remove(key, -1));
+				break;
+			case 1:
+				Long previous = expected.put(key, (long) i);
+				assertEquals(previous == null ? -1 : previous, map.put(key, i, -1));
+				break;
+			default:
+				Long current = expected.get(key);
+				long updated = (current == null ? 0 : current) + i;
+				expected.put(key, updated);
+				assertEquals(updated, map.addTo(key, i));
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<Long, Long> e : expected.entrySet())
+			assertEquals(e.getValue().longValue(), map.get(e.getKey(), -1));
+
+		final Map<Long, Long> visited = new HashMap<Long, Long>();
+		map.forEach((k, v) -> visited.put(k, v));
+		assertEquals(expected, visited);
+
+		map.clear();
+		assertTrue(map.isEmpty());
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.collect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLng;
+
+public class LatLngObjectMapTest {
+
+	@Test
+	public void testPointOperations() {
+		LatLngObjectMap<String> map = new LatLngObjectMap<String>();
+		LatLng a = new LatLng(51.5, -0.125);
+		assertNull(map.put(a, "London"));
+		assertEquals("London", map.put(new LatLng(51.5, -0.125), "Londinium"));
+		assertEquals("Londinium", map.get(a));
+		assertNull(map.get(new LatLng(0, 0)));
+		assertTrue(map.containsKey(a));
+		assertEquals("Londinium", map.remove(a));
+		assertNull(map.remove(a));
+		assertFalse(map.containsKey(a));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testComputeIfAbsent() {
+		LatLngObjectMap<List<Integer>> map = new LatLngObjectMap<List<Integer>>(100);
+		for (int i = 0; i < 1000; i++)
+			map.computeIfAbsent(LatLngKey.pack(i % 10, 0), k -> new ArrayList<Integer>()).add(i);
+		assertEquals(10, map.size());
+		assertEquals(100, map.get(LatLngKey.pack(3, 0)).size());
+		assertEquals(10, map.keys().length);
+	}
+
+	@Test
+	public void testAgainstHashMap() {
+		Random r = new Random(7);
+		LatLngObjectMap<Integer> map = new LatLngObjectMap<Integer>();
+		Map<Long, Integer> expected = new HashMap<Long, Integer>();
+		for (int i = 0; i < 50000; i++) {
+			long key = LatLngKey.pack(r.nextInt(100), -r.nextInt(100));
+			Integer value = Integer.valueOf(i);
+			if (r.nextBoolean())
+				assertEquals(expected.remove(key), map.remove(key));
+			else
+				assertEquals(expected.put(key, value), map.put(key, value));
+		}
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<Long, Integer> e : expected.entrySet())
+			assertSame(e.getValue(), map.get(e.getKey()));
+
+		final Map<Long, Integer> visited = new HashMap<Long, Integer>();
+		map.forEach((k, v) -> visited.put(k, v));
+		assertEquals(expected, visited);
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(LatLngKey.pack(1, -1)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullValue() {
+		new LatLngObjectMap<String>().put(new LatLng(0, 0), null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullComputedValue() {
+		new LatLngObjectMap<String>().computeIfAbsent(1L, k -> null);
+	}
+}
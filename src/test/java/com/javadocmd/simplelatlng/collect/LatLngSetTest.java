@@ -0,0 +1,99 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.collect;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLng;
+
+public class LatLngSetTest {
+
+	@Test
+	public void testAddContainsRemove() {
+		LatLngSet set = new LatLngSet();
+		assertTrue(set.isEmpty());
+		LatLng a = new LatLng(33.5, -117.25);
+		assertTrue(set.add(a));
+		assertFalse(set.add(new LatLng(33.5, -117.25)));
+		assertTrue(set.contains(new LatLng(33.5, -117.25)));
+		assertFalse(set.contains(new LatLng(33.5, -117.250001)));
+		assertEquals(1, set.size());
+		assertFalse(set.remove(new LatLng(0, 0)));
+		assertTrue(set.remove(a));
+		assertTrue(set.isEmpty());
+	}
+
+	@Test
+	public void testAgainstHashSet() {
+		// Clustered keys with heavy churn exercise probing, growth and the
+		// backward shift on removal.
+		Random r = new Random(5);
+		LatLngSet set = new LatLngSet(4);
+		Set<Long> expected = new HashSet<Long>();
+		for (int i = 0; i < 100000; i++) {
+			long key = LatLngKey.pack(r.nextInt(200), r.nextInt(200));
+			if (r.nextInt(3) == 0)
+				assertEquals(expected.remove(key), set.remove(key));
+			else
+				assertEquals(expected.add(key), set.add(key));
+		}
+		assertEquals(expected.size(), set.size());
+		for (long key : expected)
+			assertTrue(set.contains(key));
+
+		long[] keys = set.toArray();
+		Arrays.sort(keys);
+		long[] sorted = new long[expected.size()];
+		int i = 0;
+		for (long key : expected)
+			sorted[i++] = key;
+		Arrays.sort(sorted);
+		assertArrayEquals(sorted, keys);
+
+		final Set<Long> visited = new HashSet<Long>();
+		set.forEach(k -> visited.add(k));
+		assertEquals(expected, visited);
+
+		set.clear();
+		assertEquals(0, set.size());
+		assertFalse(set.contains(keys[0]));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReservedKey() {
+		new LatLngSet().add(LatLngKey.NONE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeSize() {
+		new LatLngSet(-1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLarge() {
+		new LatLngSet(Integer.MAX_VALUE);
+	}
+}
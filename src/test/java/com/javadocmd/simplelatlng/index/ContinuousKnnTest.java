@@ -0,0 +1,336 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.metrics.InMemoryMetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+public class ContinuousKnnTest {
+
+	/**
+	 * Keeps the objects and queries alongside the index, along with the last
+	 * result the listener was told of for each query.
+	 */
+	private static class Model implements ContinuousKnn.Listener {
+		final List<double[]> objects = new ArrayList<double[]>();
+		final List<double[]> queries = new ArrayList<double[]>();
+		final List<int[]> seen = new ArrayList<int[]>();
+		ContinuousKnn knn;
+		int changes;
+
+		@Override
+		public void resultChanged(int query) {
+			changes++;
+			int[] result = result(knn, query);
+			assertTrue(!Arrays.equals(seen.get(query), result));
+			seen.set(query, result);
+		}
+
+		void set(List<double[]> list, int id, double[] value) {
+			while (list.size() <= id)
+				list.add(null);
+			list.set(id, value);
+		}
+	}
+
+	private static int[] result(ContinuousKnn knn, int query) {
+		int[] result = new int[knn.getNeighborCount(query)];
+		for (int i = 0; i < result.length; i++)
+			result[i] = knn.getNeighbor(query, i);
+		return result;
+	}
+
+	private static double[] point(Random r, double latitude, double longitude, double spread) {
+		return new double[] { Math.max(-90, Math.min(90, latitude + (r.nextDouble() - 0.5) * spread)),
+				Math.max(-180, Math.min(180, longitude + (r.nextDouble() - 0.5) * spread)) };
+	}
+
+	/**
+	 * Checks every query's neighbors against a scan of every object.
+	 */
+	private static void check(Model model) {
+		for (int q = 0; q < model.queries.size(); q++) {
+			double[] query = model.queries.get(q);
+			if (query == null)
+				continue;
+			int k = (int) query[2];
+			List<double[]> expected = new ArrayList<double[]>();
+			for (int o = 0; o < model.objects.size(); o++) {
+				double[] object = model.objects.get(o);
+				if (object != null)
+					expected.add(new double[] {
+							LatLngTool.distanceInRadians(query[0], query[1], object[0], object[1]), o });
+			}
+			Collections.sort(expected, new Comparator<double[]>() {
+				@Override
+				public int compare(double[] a, double[] b) {
+					int c = Double.compare(a[0], b[0]);
+					return c != 0 ? c : Double.compare(a[1], b[1]);
+				}
+			});
+			int n = Math.min(k, expected.size());
+			assertEquals(n, model.knn.getNeighborCount(q));
+			for (int i = 0; i < n; i++) {
+				assertEquals((int) expected.get(i)[1], model.knn.getNeighbor(q, i));
+				assertEquals(expected.get(i)[0], model.knn.getRadians(q, i), 0);
+			}
+			assertTrue(Arrays.equals(model.seen.get(q), result(model.knn, q)));
+		}
+	}
+
+	private static Model run(DegreeGrid grid, long seed, double spread, int steps) {
+		Random r = new Random(seed);
+		Model model = new Model();
+		model.knn = new ContinuousKnn(grid, model);
+		double latitude = r.nextDouble() * 160 - 80, longitude = r.nextDouble() * 340 - 170;
+		for (int i = 0; i < 200; i++)
+			model.set(model.objects, model.knn.addObject(latitude, longitude), null);
+		// Start from objects in one place, then scatter them.
+		for (int i = 0; i < 200; i++) {
+			double[] object = point(r, latitude, longitude, spread);
+			model.knn.moveObject(i, object[0], object[1]);
+			model.objects.set(i, object);
+		}
+		for (int i = 0; i < 20; i++) {
+			double[] query = point(r, latitude, longitude, spread);
+			int k = 1 + r.nextInt(8);
+			int id = model.knn.addQuery(query[0], query[1], k);
+			model.set(model.queries, id, new double[] { query[0], query[1], k });
+			while (model.seen.size() <= id)
+				model.seen.add(null);
+			model.seen.set(id, result(model.knn, id));
+		}
+		check(model);
+		for (int step = 0; step < steps; step++) {
+			int action = r.nextInt(20);
+			if (action == 0) {
+				double[] object = point(r, latitude, longitude, spread);
+				model.set(model.objects, model.knn.addObject(object[0], object[1]), object);
+			} else if (action == 1) {
+				int id = r.nextInt(model.objects.size());
+				if (model.objects.get(id) != null) {
+					model.knn.removeObject(id);
+					model.objects.set(id, null);
+				}
+			} else if (action == 2) {
+				int id = r.nextInt(model.queries.size());
+				if (model.queries.get(id) != null) {
+					model.knn.removeQuery(id);
+					model.queries.set(id, null);
+				} else {
+					double[] query = point(r, latitude, longitude, spread);
+					int k = 1 + r.nextInt(8);
+					id = model.knn.addQuery(query[0], query[1], k);
+					model.set(model.queries, id, new double[] { query[0], query[1], k });
+					while (model.seen.size() <= id)
+						model.seen.add(null);
+					model.seen.set(id, result(model.knn, id));
+				}
+			} else {
+				int id = r.nextInt(model.objects.size());
+				double[] object = model.objects.get(id);
+				if (object != null) {
+					// Mostly small moves, sometimes a jump.
+					double[] moved = r.nextInt(10) == 0 ? point(r, latitude, longitude, spread)
+							: point(r, object[0], object[1], spread / 20);
+					model.knn.moveObject(id, moved[0], moved[1]);
+					model.objects.set(id, moved);
+				}
+			}
+			if (step % 50 == 0)
+				check(model);
+		}
+		check(model);
+		return model;
+	}
+
+	@Test
+	public void testRandomUpdates() {
+		Model model = run(new DegreeGrid(1), 50, 10, 3000);
+		assertTrue(model.changes > 0);
+	}
+
+	@Test
+	public void testCoarseGrid() {
+		run(new DegreeGrid(30), 51, 60, 2000);
+	}
+
+	@Test
+	public void testCoincidentObjects() {
+		// Objects jump between a few places, so many lie at exactly equal
+		// distances and are ranked by id.
+		Random r = new Random(50);
+		double[][] places = { { 10, 10 }, { 10.01, 10 }, { 10, 10.01 }, { 10.02, 10.02 }, { 9.99, 9.99 } };
+		Model model = new Model();
+		model.knn = new ContinuousKnn(new DegreeGrid(0.01), model);
+		for (int i = 0; i < 100; i++) {
+			double[] place = places[r.nextInt(places.length)];
+			model.set(model.objects, model.knn.addObject(place[0], place[1]), place);
+		}
+		for (double[] place : places) {
+			for (int k = 1; k <= 25; k += 6) {
+				int id = model.knn.addQuery(place[0], place[1], k);
+				model.set(model.queries, id, new double[] { place[0], place[1], k });
+				while (model.seen.size() <= id)
+					model.seen.add(null);
+				model.seen.set(id, result(model.knn, id));
+			}
+		}
+		for (int step = 0; step < 2000; step++) {
+			int id = r.nextInt(100);
+			double[] place = places[r.nextInt(places.length)];
+			model.knn.moveObject(id, place[0], place[1]);
+			model.objects.set(id, place);
+			if (step % 20 == 0)
+				check(model);
+		}
+		check(model);
+	}
+
+	@Test
+	public void testFewObjects() {
+		Model model = new Model();
+		model.knn = new ContinuousKnn(new DegreeGrid(1), model);
+		int q = model.knn.addQuery(10, 10, 3);
+		model.set(model.queries, q, new double[] { 10, 10, 3 });
+		model.seen.add(new int[0]);
+		assertEquals(0, model.knn.getNeighborCount(q));
+		int a = model.knn.addObject(-40, 100);
+		model.set(model.objects, a, new double[] { -40, 100 });
+		int b = model.knn.addObject(10, 11);
+		model.set(model.objects, b, new double[] { 10, 11 });
+		check(model);
+		assertEquals(2, model.changes);
+		assertEquals(b, model.knn.getNeighbor(q, 0));
+		assertEquals(LatLngTool.distanceInRadians(10, 10, 10, 11) * LatLngConfig.getEarthRadius(LengthUnit.KILOMETER),
+				model.knn.getDistance(q, 0, LengthUnit.KILOMETER), 0);
+		model.knn.removeObject(a);
+		model.objects.set(a, null);
+		check(model);
+		assertEquals(1, model.knn.getObjectCount());
+		assertEquals(1, model.knn.getQueryCount());
+	}
+
+	@Test
+	public void testSparseQueriesOnFineGrid() {
+		// Neighbors thousands of kilometers away on a grid of two kilometer
+		// cells: neither the search nor the registration may visit every cell.
+		Model model = new Model();
+		model.knn = new ContinuousKnn(new DegreeGrid(0.02), model);
+		double[][] queries = { { 10, 10, 1 }, { -30, 170, 2 }, { 89, 0, 1 } };
+		for (double[] query : queries) {
+			int id = model.knn.addQuery(query[0], query[1], (int) query[2]);
+			model.set(model.queries, id, query);
+			model.seen.add(new int[0]);
+		}
+		check(model);
+		int far = model.knn.addObject(-60, -170);
+		model.set(model.objects, far, new double[] { -60, -170 });
+		check(model);
+		int near = model.knn.addObject(10.5, 10.5);
+		model.set(model.objects, near, new double[] { 10.5, 10.5 });
+		check(model);
+		InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+		Metrics.setRecorder(recorder);
+		try {
+			Random r = new Random(50);
+			for (int step = 0; step < 200; step++) {
+				double[] moved = point(r, 0, 0, 150);
+				model.knn.moveObject(far, moved[0], moved[1]);
+				model.objects.set(far, moved);
+				if (step % 20 == 0)
+					check(model);
+			}
+		} finally {
+			Metrics.setRecorder(null);
+		}
+		check(model);
+		// The queries whose k-th neighbor is far away are checked on every move.
+		assertTrue(recorder.snapshot(SpatialOperation.CONTINUOUS_KNN).getCandidates() >= 400);
+		model.knn.removeObject(far);
+		model.objects.set(far, null);
+		model.knn.removeObject(near);
+		model.objects.set(near, null);
+		check(model);
+	}
+
+	@Test
+	public void testOnlyNearbyQueriesChecked() {
+		ContinuousKnn knn = new ContinuousKnn(new DegreeGrid(1), null);
+		Random r = new Random(50);
+		for (int i = 0; i < 1000; i++)
+			knn.addObject(r.nextDouble() * 20 + 30, r.nextDouble() * 20 - 100);
+		for (int i = 0; i < 100; i++)
+			knn.addQuery(r.nextDouble() * 20 + 30, r.nextDouble() * 20 - 100, 5);
+		InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+		Metrics.setRecorder(recorder);
+		try {
+			for (int i = 0; i < 1000; i++)
+				knn.moveObject(i, r.nextDouble() * 20 + 30, r.nextDouble() * 20 - 100);
+		} finally {
+			Metrics.setRecorder(null);
+		}
+		// Each move checks a few of the queries, not all of them.
+		assertEquals(1000, recorder.snapshot(SpatialOperation.CONTINUOUS_KNN).getCalls());
+		assertTrue(recorder.snapshot(SpatialOperation.CONTINUOUS_KNN).getCandidates() < 10000);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidK() {
+		new ContinuousKnn(new DegreeGrid(1), null).addQuery(0, 0, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidObject() {
+		ContinuousKnn knn = new ContinuousKnn(new DegreeGrid(1), null);
+		knn.removeObject(knn.addObject(0, 0));
+		knn.moveObject(0, 1, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidQuery() {
+		ContinuousKnn knn = new ContinuousKnn(new DegreeGrid(1), null);
+		knn.removeQuery(knn.addQuery(0, 0, 1));
+		knn.getNeighborCount(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPoint() {
+		new ContinuousKnn(new DegreeGrid(1), null).addObject(91, 0);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testInvalidRank() {
+		ContinuousKnn knn = new ContinuousKnn(new DegreeGrid(1), null);
+		knn.getNeighbor(knn.addQuery(0, 0, 1), 0);
+	}
+}
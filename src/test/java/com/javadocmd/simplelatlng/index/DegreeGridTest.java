@@ -0,0 +1,95 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+public class DegreeGridTest {
+
+	private static Set<Long> cellsWithin(DegreeGrid grid, LatLng p, double radians) {
+		final Set<Long> cells = new HashSet<Long>();
+		grid.forEachCellWithin(p.getLatitude(), p.getLongitude(), radians, c -> assertTrue(cells.add(c)));
+		assertEquals(cells.size(), grid.countCellsWithin(p.getLatitude(), p.getLongitude(), radians));
+		return cells;
+	}
+
+	@Test
+	public void testCellOf() {
+		DegreeGrid grid = new DegreeGrid(1);
+		assertEquals(1, grid.getCellDegrees(), 0);
+		assertEquals(grid.cellOf(10.2, 20.2), grid.cellOf(10.8, 20.8));
+		assertTrue(grid.cellOf(10.2, 20.2) != grid.cellOf(11.2, 20.2));
+		assertTrue(grid.cellOf(10.2, 20.2) != grid.cellOf(10.2, 21.2));
+		// The antimeridian is a single line.
+		assertEquals(grid.cellOf(5, 180), grid.cellOf(5, -180));
+		// Polar rows hold very few cells.
+		assertEquals(grid.cellOf(89.9, 0), grid.cellOf(89.9, 90));
+		assertTrue(grid.cellOf(90, 0) >= 0);
+		assertTrue(grid.cellOf(-90, 0) >= 0);
+	}
+
+	@Test
+	public void testNeighborsCoverDistance() {
+		// Every point within the distance must lie in a visited cell, including
+		// across the antimeridian and near the poles.
+		Random r = new Random(8);
+		for (double km : new double[] { 0.01, 1, 50, 800 }) {
+			DegreeGrid grid = DegreeGrid.forDistance(km, LengthUnit.KILOMETER);
+			double radians = LatLngTool.distanceInRadians(new LatLng(0, 0),
+					LatLngTool.travel(new LatLng(0, 0), 0, km, LengthUnit.KILOMETER));
+			for (int i = 0; i < 300; i++) {
+				double lat = i % 10 == 0 ? 90 - r.nextDouble() * 0.02 : r.nextDouble() * 180 - 90;
+				LatLng center = new LatLng(lat, i % 7 == 0 ? 180 - r.nextDouble() * 0.01 : r.nextDouble() * 360 - 180);
+				Set<Long> cells = cellsWithin(grid, center, radians);
+				for (int j = 0; j < 20; j++) {
+					LatLng p = LatLngTool.travel(center, r.nextDouble() * 360, km * r.nextDouble(), LengthUnit.KILOMETER);
+					assertTrue(center + " " + p, cells.contains(grid.cellOf(p.getLatitude(), p.getLongitude())));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNeighborhoodIsSmall() {
+		DegreeGrid grid = DegreeGrid.forDistance(10, LengthUnit.METER);
+		double radians = 10 / 6371009.0;
+		assertTrue(cellsWithin(grid, new LatLng(0, 0), radians).size() <= 9);
+		assertTrue(cellsWithin(grid, new LatLng(70, 30), radians).size() <= 12);
+		assertTrue(cellsWithin(grid, new LatLng(90, 0), radians).size() <= 20);
+		assertEquals(1, cellsWithin(new DegreeGrid(180), new LatLng(0, 0), Math.PI).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCellSize() {
+		new DegreeGrid(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDistance() {
+		DegreeGrid.forDistance(Double.NaN, LengthUnit.METER);
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.metrics.InMemoryMetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+import com.javadocmd.simplelatlng.workload.WorkloadGenerator;
+
+public class DistanceJoinTest {
+
+	private static Set<Long> bruteForce(LatLngArray left, LatLngArray right, double meters) {
+		Set<Long> pairs = new TreeSet<Long>();
+		for (int i = 0; i < left.size(); i++)
+			for (int j = 0; j < right.size(); j++)
+				if (LatLngTool.distance(left.toLatLng(i), right.toLatLng(j), LengthUnit.METER) <= meters)
+					pairs.add(((long) i << 32) | j);
+		return pairs;
+	}
+
+	private static Set<Long> join(LatLngArray left, LatLngArray right, double meters, boolean parallel) {
+		final Set<Long> pairs = new ConcurrentSkipListSet<Long>();
+		final LatLngArray l = left, r = right;
+		DistanceJoin.PairConsumer consumer = new DistanceJoin.PairConsumer() {
+			@Override
+			public void accept(int left, int right, double distance) {
+				assertEquals(LatLngTool.distance(l.toLatLng(left), r.toLatLng(right), LengthUnit.METER), distance,
+						1e-6);
+				pairs.add(((long) left << 32) | right);
+			}
+		};
+		long count = parallel ? DistanceJoin.parallelJoin(left, right, meters, LengthUnit.METER, consumer)
+				: DistanceJoin.join(left, right, meters, LengthUnit.METER, consumer);
+		assertEquals(pairs.size(), count);
+		return pairs;
+	}
+
+	@Test
+	public void testAgainstBruteForce() {
+		WorkloadGenerator generator = new WorkloadGenerator(41);
+		LatLngArray stores = generator.cities(500, 5, 2, LengthUnit.KILOMETER);
+		LatLngArray customers = generator.cities(10000, 5, 3, LengthUnit.KILOMETER);
+		customers.add(90, 0);
+		customers.add(-10, 180);
+		stores.add(89.999, 100);
+		stores.add(-10, -179.999);
+		Set<Long> expected = bruteForce(customers, stores, 2000);
+		assertEquals(expected, join(customers, stores, 2000, false));
+		assertEquals(expected, join(customers, stores, 2000, true));
+	}
+
+	@Test
+	public void testSequentialOnCallingThread() {
+		WorkloadGenerator generator = new WorkloadGenerator(41);
+		LatLngArray left = generator.cities(10000, 5, 3, LengthUnit.KILOMETER);
+		LatLngArray right = generator.cities(10000, 5, 3, LengthUnit.KILOMETER);
+		final Set<Thread> threads = new HashSet<Thread>();
+		long count = DistanceJoin.join(left, right, 1000, LengthUnit.METER, new DistanceJoin.PairConsumer() {
+			@Override
+			public void accept(int left, int right, double distance) {
+				threads.add(Thread.currentThread());
+			}
+		});
+		assertTrue(count > 0);
+		assertEquals(Collections.singleton(Thread.currentThread()), threads);
+	}
+
+	@Test
+	public void testEmpty() {
+		LatLngArray points = new WorkloadGenerator(1).uniform(10);
+		assertEquals(0, join(points, new LatLngArray(), 100, true).size());
+		assertEquals(0, join(new LatLngArray(), points, 100, false).size());
+		assertEquals(10, join(points, points, 0, false).size());
+	}
+
+	@Test
+	public void testMetrics() {
+		InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+		Metrics.setRecorder(recorder);
+		try {
+			LatLngArray points = new WorkloadGenerator(1).uniform(10);
+			join(points, points, 0, false);
+		} finally {
+			Metrics.setRecorder(null);
+		}
+		assertEquals(1, recorder.snapshot(SpatialOperation.DISTANCE_JOIN).getCalls());
+		assertEquals(10, recorder.snapshot(SpatialOperation.DISTANCE_JOIN).getMatches());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDistance() {
+		DistanceJoin.join(new LatLngArray(), new LatLngArray(), -1, LengthUnit.METER, null);
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+import com.javadocmd.simplelatlng.workload.WorkloadGenerator;
+
+public class GridIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static List<Integer> within(GridIndex index, double latitude, double longitude, double radians) {
+		final List<Integer> found = new ArrayList<Integer>();
+		long checked = index.forEachWithin(latitude, longitude, radians, new GridIndex.Visitor() {
+			@Override
+			public void visit(int index, double radians) {
+				found.add(index);
+			}
+		});
+		assertTrue(checked >= found.size());
+		Collections.sort(found);
+		return found;
+	}
+
+	@Test
+	public void testAgainstBruteForce() {
+		Random r = new Random(41);
+		LatLngArray points = new LatLngArray();
+		for (int i = 0; i < 2000; i++) {
+			if (i % 4 == 0)
+				points.add(89.9 + r.nextDouble() * 0.1, r.nextDouble() * 360 - 180);
+			else
+				points.add(r.nextDouble() * 2 - 1, 179 + r.nextDouble() * 2 - (i % 2 == 0 ? 360 : 0));
+		}
+		double radians = 20000 / LatLngConfig.getEarthRadius(LengthUnit.METER);
+		GridIndex index = new GridIndex(points, DegreeGrid.forDistance(20000, LengthUnit.METER));
+		GridIndex parallel = new GridIndex(points, index.getGrid(), true);
+		assertEquals(2000, index.size());
+		for (int q = 0; q < 50; q++) {
+			int i = r.nextInt(points.size());
+			double latitude = points.getLatitude(i);
+			double longitude = points.getLongitude(i);
+			List<Integer> expected = new ArrayList<Integer>();
+			for (int j = 0; j < points.size(); j++)
+				if (LatLngTool.distanceInRadians(latitude, longitude, points.getLatitude(j),
+						points.getLongitude(j)) <= radians)
+					expected.add(j);
+			assertEquals(expected, within(index, latitude, longitude, radians));
+			assertEquals(expected, within(parallel, latitude, longitude, radians));
+		}
+	}
+
+	@Test
+	public void testSaveLoad() throws IOException {
+		Random r = new Random(47);
+		LatLngArray points = new WorkloadGenerator(47).cities(5000, 10, 50, LengthUnit.KILOMETER);
+		// 169 rows, a number not given back by the size of their cells.
+		GridIndex index = new GridIndex(points, new DegreeGrid(180.0 / 169.5));
+		Path path = folder.newFile().toPath();
+		index.save(path);
+		GridIndex loaded = GridIndex.load(path);
+		assertEquals(index.size(), loaded.size());
+		assertEquals(index.getGrid().getCellDegrees(), loaded.getGrid().getCellDegrees(), 0);
+		double radians = 100000 / LatLngConfig.getEarthRadius(LengthUnit.METER);
+		for (int q = 0; q < 50; q++) {
+			int i = r.nextInt(points.size());
+			double latitude = points.getLatitude(i), longitude = points.getLongitude(i);
+			assertEquals(within(index, latitude, longitude, radians), within(loaded, latitude, longitude, radians));
+		}
+	}
+
+	@Test
+	public void testLoadInvalid() throws IOException {
+		Path path = folder.newFile().toPath();
+		new GridIndex(new WorkloadGenerator(47).uniform(100), new DegreeGrid(1)).save(path);
+		try {
+			PointTree.load(path);
+			fail();
+		} catch (IOException e) {
+			assertEquals("Invalid index snapshot.", e.getMessage());
+		}
+		byte[] bytes = Files.readAllBytes(path);
+		bytes[bytes.length - 1] ^= 1;
+		Files.write(path, bytes);
+		try {
+			GridIndex.load(path);
+			fail();
+		} catch (IOException e) {
+			assertEquals("Index snapshot is damaged.", e.getMessage());
+		}
+		Files.write(path, new byte[10]);
+		try {
+			GridIndex.load(path);
+			fail();
+		} catch (IOException e) {
+			assertEquals("Invalid index snapshot.", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		GridIndex index = new GridIndex(new LatLngArray(), new DegreeGrid(1));
+		assertEquals(0, index.size());
+		assertEquals(0, within(index, 0, 0, 1).size());
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.metrics.InMemoryMetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+import com.javadocmd.simplelatlng.workload.WorkloadGenerator;
+
+public class KnnJoinTest {
+
+	private static void check(Neighbors neighbors, LatLngArray queries, LatLngArray points, boolean self) {
+		int k = neighbors.getK();
+		assertEquals(queries.size(), neighbors.size());
+		for (int q = 0; q < queries.size(); q++) {
+			double[] expected = PointTreeTest.bruteForce(points, queries.getLatitude(q), queries.getLongitude(q), k,
+					self ? q : -1);
+			double[] actual = Arrays.copyOfRange(neighbors.getRadians(), q * k, q * k + expected.length);
+			assertArrayEquals(expected, actual, 1e-12);
+			for (int r = 0; r < k; r++) {
+				int index = neighbors.getIndex(q, r);
+				if (r < expected.length) {
+					assertTrue(!self || index != q);
+					assertEquals(neighbors.getRadians(q, r), LatLngTool.distanceInRadians(queries.getLatitude(q),
+							queries.getLongitude(q), points.getLatitude(index), points.getLongitude(index)), 0);
+				} else {
+					assertEquals(-1, index);
+					assertTrue(Double.isNaN(neighbors.getRadians(q, r)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testJoin() {
+		WorkloadGenerator generator = new WorkloadGenerator(42);
+		LatLngArray stores = generator.cities(800, 5, 20, LengthUnit.KILOMETER);
+		LatLngArray customers = generator.uniform(3000);
+		check(KnnJoin.join(customers, stores, 10), customers, stores, false);
+		check(KnnJoin.parallelJoin(customers, stores, 10), customers, stores, false);
+		check(KnnJoin.join(stores, customers, 3), stores, customers, false);
+	}
+
+	@Test
+	public void testAllNearest() {
+		LatLngArray points = new WorkloadGenerator(7).roads(3000, 6, 100, LengthUnit.METER);
+		check(KnnJoin.allNearest(points, 10), points, points, true);
+		check(KnnJoin.parallelAllNearest(points, 4), points, points, true);
+		check(KnnJoin.allNearest(points, 0), points, points, true);
+	}
+
+	@Test
+	public void testFewPoints() {
+		LatLngArray points = new LatLngArray();
+		points.add(10, 20);
+		points.add(10, 20);
+		points.add(-10, 20);
+		Neighbors neighbors = KnnJoin.allNearest(points, 4);
+		check(neighbors, points, points, true);
+		assertEquals(1, neighbors.getIndex(0, 0));
+		assertEquals(0, neighbors.getDistance(0, 0, LengthUnit.KILOMETER), 0);
+		assertEquals(neighbors.getRadians(0, 1) * LatLngConfig.getEarthRadius(LengthUnit.KILOMETER),
+				neighbors.getDistance(0, 1, LengthUnit.KILOMETER), 0);
+		assertEquals(0, KnnJoin.join(new LatLngArray(), points, 4).size());
+	}
+
+	@Test
+	public void testMetrics() {
+		InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+		Metrics.setRecorder(recorder);
+		try {
+			KnnJoin.allNearest(new WorkloadGenerator(1).uniform(100), 5);
+		} finally {
+			Metrics.setRecorder(null);
+		}
+		assertEquals(1, recorder.snapshot(SpatialOperation.KNN_JOIN).getCalls());
+		assertEquals(500, recorder.snapshot(SpatialOperation.KNN_JOIN).getMatches());
+		assertTrue(recorder.snapshot(SpatialOperation.KNN_JOIN).getCandidates() >= 500);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testInvalidRank() {
+		KnnJoin.allNearest(new WorkloadGenerator(1).uniform(10), 2).getIndex(0, 2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyNeighbors() {
+		KnnJoin.allNearest(new WorkloadGenerator(42).uniform(3), Integer.MAX_VALUE / 2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidK() {
+		KnnJoin.join(new LatLngArray(), new LatLngArray(), -1);
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.metrics.InMemoryMetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.window.RectangularWindow;
+import com.javadocmd.simplelatlng.workload.WorkloadGenerator;
+
+public class PointBlocksTest {
+
+	private static int[] scan(LatLngArray points, RectangularWindow window) {
+		int[] results = new int[points.size()];
+		int n = 0;
+		for (int i = 0; i < points.size(); i++)
+			if (window.contains(points, i))
+				results[n++] = i;
+		return Arrays.copyOf(results, n);
+	}
+
+	@Test
+	public void testAgainstScan() {
+		LatLngArray points = new WorkloadGenerator(45).uniform(50000);
+		SpaceFillingCurve.HILBERT.sort(points);
+		PointBlocks blocks = new PointBlocks(points);
+		assertEquals(196, blocks.getBlockCount());
+		assertEquals(PointBlocks.DEFAULT_BLOCK_SIZE, blocks.getBlockSize());
+		RectangularWindow[] windows = { new RectangularWindow(new LatLng(40, -100), 10, 20),
+				new RectangularWindow(new LatLng(-20, 178), 6, 8), new RectangularWindow(new LatLng(0, 0), 180, 360),
+				new RectangularWindow(new LatLng(89, 0), 4, 4) };
+		for (RectangularWindow window : windows)
+			assertArrayEquals(scan(points, window), blocks.filterIndices(window));
+		assertEquals(0, new PointBlocks(new LatLngArray(), 3).filterIndices(windows[0]).length);
+	}
+
+	@Test
+	public void testSkipsBlocks() {
+		LatLngArray points = new WorkloadGenerator(45).uniform(50000);
+		SpaceFillingCurve.MORTON.sort(points);
+		InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+		Metrics.setRecorder(recorder);
+		try {
+			new PointBlocks(points, 64).filterIndices(new RectangularWindow(new LatLng(40, -100), 10, 20));
+		} finally {
+			Metrics.setRecorder(null);
+		}
+		// A window over a small part of the globe reads only a small part of the
+		// points.
+		assertTrue(recorder.snapshot(SpatialOperation.BLOCK_FILTER).getCandidates() < 5000);
+		assertTrue(recorder.snapshot(SpatialOperation.BLOCK_FILTER).getMatches() > 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBlockSize() {
+		new PointBlocks(new LatLngArray(), 0);
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+import com.javadocmd.simplelatlng.workload.WorkloadGenerator;
+
+public class PointTreeTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * The k smallest distances from a point to those of an array, found by
+	 * sorting them all.
+	 */
+	static double[] bruteForce(LatLngArray points, double latitude, double longitude, int k, int exclude) {
+		double[] all = new double[points.size()];
+		int n = 0;
+		for (int j = 0; j < points.size(); j++)
+			if (j != exclude)
+				all[n++] = LatLngTool.distanceInRadians(latitude, longitude, points.getLatitude(j),
+						points.getLongitude(j));
+		Arrays.sort(all, 0, n);
+		return Arrays.copyOf(all, Math.min(k, n));
+	}
+
+	private static void check(PointTree tree, LatLngArray points, double latitude, double longitude, int k,
+			int exclude) {
+		int[] indices = new int[k];
+		double[] radians = new double[k];
+		int found = tree.nearest(latitude, longitude, k, exclude, indices, radians);
+		double[] expected = bruteForce(points, latitude, longitude, k, exclude);
+		assertEquals(expected.length, found);
+		assertArrayEquals(expected, Arrays.copyOf(radians, found), 1e-12);
+		for (int r = 0; r < found; r++)
+			assertEquals(radians[r], LatLngTool.distanceInRadians(latitude, longitude,
+					points.getLatitude(indices[r]), points.getLongitude(indices[r])), 0);
+	}
+
+	@Test
+	public void testAgainstBruteForce() {
+		Random r = new Random(42);
+		LatLngArray points = new WorkloadGenerator(42).cities(3000, 8, 50, LengthUnit.KILOMETER);
+		points.addAll(new WorkloadGenerator(43).uniform(1000));
+		for (int i = 0; i < 50; i++) {
+			points.add(90, 0);
+			points.add(-10, 180);
+			points.add(-10, -179.99999);
+		}
+		PointTree tree = new PointTree(points);
+		PointTree parallel = new PointTree(points, true);
+		assertEquals(points.size(), tree.size());
+		for (int q = 0; q < 100; q++) {
+			int i = r.nextInt(points.size());
+			check(tree, points, points.getLatitude(i), points.getLongitude(i), 10, i);
+			check(parallel, points, r.nextDouble() * 180 - 90, r.nextDouble() * 360 - 180, 1 + q % 20, -1);
+		}
+		check(tree, points, 89.9, 45, 60, -1);
+		check(tree, points, -10, 179.9, 120, -1);
+	}
+
+	@Test
+	public void testParallelBuild() {
+		// Large enough to split nodes in parallel.
+		LatLngArray points = new WorkloadGenerator(44).cities(40000, 20, 100, LengthUnit.KILOMETER);
+		PointTree tree = new PointTree(points, true);
+		for (int i = 0; i < points.size(); i += 4001)
+			check(tree, points, points.getLatitude(i), points.getLongitude(i), 10, i);
+	}
+
+	@Test
+	public void testFewPoints() {
+
+		LatLngArray points = new LatLngArray();
+		points.add(1, 1);
+		points.add(2, 2);
+		PointTree tree = new PointTree(points);
+		check(tree, points, 0, 0, 5, -1);
+		check(tree, points, 0, 0, 5, 0);
+		check(tree, points, 0, 0, 0, -1);
+		check(new PointTree(new LatLngArray()), new LatLngArray(), 0, 0, 3, -1);
+	}
+
+	@Test
+	public void testSaveLoad() throws IOException {
+		LatLngArray points = new WorkloadGenerator(47).cities(20000, 10, 100, LengthUnit.KILOMETER);
+		PointTree tree = new PointTree(points);
+		Path path = folder.newFile().toPath();
+		tree.save(path);
+		PointTree loaded = PointTree.load(path);
+		assertEquals(tree.size(), loaded.size());
+		Random r = new Random(47);
+		for (int q = 0; q < 50; q++) {
+			double latitude = r.nextDouble() * 180 - 90, longitude = r.nextDouble() * 360 - 180;
+			int[] indices = new int[8], loadedIndices = new int[8];
+			double[] radians = new double[8], loadedRadians = new double[8];
+			tree.nearest(latitude, longitude, 8, -1, indices, radians);
+			loaded.nearest(latitude, longitude, 8, -1, loadedIndices, loadedRadians);
+			assertArrayEquals(indices, loadedIndices);
+			assertArrayEquals(radians, loadedRadians, 0);
+		}
+		new PointTree(new LatLngArray()).save(path);
+		assertEquals(0, PointTree.load(path).size());
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadIncompatible() throws IOException {
+		Path path = folder.newFile().toPath();
+		new PointTree(new WorkloadGenerator(47).uniform(100)).save(path);
+		double radius = LatLngConfig.getEarthRadius(LengthUnit.KILOMETER);
+		LatLngConfig.setEarthRadius(6378.137, LengthUnit.KILOMETER);
+		try {
+			PointTree.load(path);
+		} finally {
+			LatLngConfig.setEarthRadius(radius, LengthUnit.KILOMETER);
+		}
+	}
+
+	@Test
+	public void testIterateNearest() {
+		Random r = new Random(49);
+		LatLngArray points = new WorkloadGenerator(49).cities(3000, 8, 50, LengthUnit.KILOMETER);
+		points.addAll(new WorkloadGenerator(50).uniform(1000));
+		for (int i = 0; i < 20; i++) {
+			points.add(90, 0);
+			points.add(-10, 180);
+		}
+		PointTree tree = new PointTree(points);
+		for (int q = 0; q < 20; q++) {
+			double latitude = r.nextDouble() * 180 - 90, longitude = r.nextDouble() * 360 - 180;
+			if (q == 0) {
+				latitude = -10;
+				longitude = -179.9;
+			}
+			double[] expected = bruteForce(points, latitude, longitude, points.size(), -1);
+			PointTree.NearestIterator nearest = tree.iterateNearest(latitude, longitude);
+			boolean[] seen = new boolean[points.size()];
+			for (int n = 0; n < expected.length; n++) {
+				int index = nearest.nextInt();
+				assertEquals(expected[n], nearest.getRadians(), 0);
+				assertEquals(nearest.getRadians(), LatLngTool.distanceInRadians(latitude, longitude,
+						points.getLatitude(index), points.getLongitude(index)), 0);
+				assertEquals(points.getLatitude(index), nearest.getLatitude(), 0);
+				assertEquals(points.getLongitude(index), nearest.getLongitude(), 0);
+				assertFalse(seen[index]);
+				seen[index] = true;
+			}
+			assertFalse(nearest.hasNext());
+		}
+	}
+
+	@Test
+	public void testIterateNearestWithin() {
+		LatLngArray points = new WorkloadGenerator(49).cities(5000, 8, 50, LengthUnit.KILOMETER);
+		PointTree tree = new PointTree(points);
+		double distance = 30;
+		for (int i = 0; i < points.size(); i += 499) {
+			double latitude = points.getLatitude(i), longitude = points.getLongitude(i);
+			double radians = distance / LatLngConfig.getEarthRadius(LengthUnit.KILOMETER);
+			double[] all = bruteForce(points, latitude, longitude, points.size(), -1);
+			int within = 0;
+			while (within < all.length && all[within] <= radians)
+				within++;
+			PointTree.NearestIterator nearest = tree.iterateNearest(latitude, longitude, distance,
+					LengthUnit.KILOMETER);
+			int found = 0;
+			while (nearest.hasNext()) {
+				nearest.nextInt();
+				assertTrue(nearest.getDistance(LengthUnit.KILOMETER) <= distance * (1 + 1e-12));
+				found++;
+			}
+			assertEquals(within, found);
+		}
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testIterateNearestEmpty() {
+		PointTree.NearestIterator nearest = new PointTree(new LatLngArray()).iterateNearest(0, 0);
+		assertTrue(Double.isNaN(nearest.getRadians()));
+		assertTrue(Double.isNaN(nearest.getLatitude()));
+		assertTrue(Double.isNaN(nearest.getLongitude()));
+		nearest.nextInt();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIterateNearestInvalidDistance() {
+		new PointTree(new LatLngArray()).iterateNearest(0, 0, -1, LengthUnit.METER);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testShortResults() {
+		new PointTree(new LatLngArray()).nearest(0, 0, 3, -1, new int[2], new double[3]);
+	}
+}
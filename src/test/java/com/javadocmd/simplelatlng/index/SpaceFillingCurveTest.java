@@ -0,0 +1,110 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.Geohasher;
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.workload.WorkloadGenerator;
+
+public class SpaceFillingCurveTest {
+
+	@Test
+	public void testMortonIsGeohashOrder() {
+		LatLng p = new LatLng(44.869797, 6.599944);
+		assertEquals("spuxq0mctb6u",
+				Geohasher.toHash(SpaceFillingCurve.MORTON.key(p.getLatitude(), p.getLongitude()), 12));
+		assertEquals(0, SpaceFillingCurve.MORTON.key(-90, -180));
+		assertEquals((1L << 60) - 1, SpaceFillingCurve.MORTON.key(90, 180));
+	}
+
+	@Test
+	public void testHilbertSteps() {
+		// At the coarsest level the curve visits the quadrants SW, NW, NE, SE.
+		long quarter = 1L << 58;
+		assertEquals(0, SpaceFillingCurve.HILBERT.key(-45, -90) / quarter);
+		assertEquals(1, SpaceFillingCurve.HILBERT.key(45, -90) / quarter);
+		assertEquals(2, SpaceFillingCurve.HILBERT.key(45, 90) / quarter);
+		assertEquals(3, SpaceFillingCurve.HILBERT.key(-45, 90) / quarter);
+		assertEquals(0, SpaceFillingCurve.HILBERT.key(-90, -180));
+		assertEquals((1L << 60) - 1, SpaceFillingCurve.HILBERT.key(-90, 180));
+	}
+
+	@Test
+	public void testHilbertIsContinuous() {
+		// Consecutive keys of a small grid are always neighboring cells.
+		double step = 180.0 / (1 << 30);
+		long[] keys = new long[4];
+		for (int i = 0; i < 4; i++)
+			keys[i] = SpaceFillingCurve.HILBERT.key((i / 2 + 0.5) * step, (i % 2 + 0.5) * 2 * step);
+		Arrays.sort(keys);
+		assertEquals(3, keys[3] - keys[0]);
+	}
+
+	@Test
+	public void testSort() {
+		for (SpaceFillingCurve curve : SpaceFillingCurve.values()) {
+			LatLngArray points = new WorkloadGenerator(45).uniform(20000);
+			LatLngArray original = new LatLngArray();
+			original.addAll(points);
+			int[] order = curve.sort(points);
+			long[] keys = curve.keys(points);
+			for (int i = 0; i < points.size(); i++) {
+				assertEquals(original.toLatLng(order[i]), points.toLatLng(i));
+				assertTrue(i == 0 || keys[i - 1] <= keys[i]);
+			}
+			LatLngArray parallel = new LatLngArray();
+			parallel.addAll(original);
+			assertArrayEquals(order, curve.parallelSort(parallel));
+		}
+	}
+
+	@Test
+	public void testCover() {
+		LatLngArray points = new WorkloadGenerator(45).uniform(20000);
+		for (SpaceFillingCurve curve : SpaceFillingCurve.values()) {
+			long[] ranges = curve.cover(30, 40, -110, -90);
+			assertTrue(ranges.length >= 2 && ranges.length <= 32);
+			for (int i = 1; i < ranges.length; i++)
+				assertTrue(ranges[i - 1] < ranges[i]);
+			for (int i = 0; i < points.size(); i++) {
+				double latitude = points.getLatitude(i), longitude = points.getLongitude(i);
+				if (latitude < 30 || latitude > 40 || longitude < -110 || longitude > -90)
+					continue;
+				long key = curve.key(latitude, longitude);
+				int position = Arrays.binarySearch(ranges, key);
+				// Inside a range: on an edge, or after a first key.
+				assertTrue(position >= 0 || (-position - 1) % 2 == 1);
+			}
+			assertArrayEquals(new long[] { 0, (1L << 60) - 1 }, curve.cover(-90, 90, -180, 180));
+			long key = curve.key(10, 10);
+			assertArrayEquals(new long[] { key, key }, curve.cover(10, 10, 10, 10));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCoverInvalid() {
+		SpaceFillingCurve.HILBERT.cover(10, 0, 0, 10);
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+import com.javadocmd.simplelatlng.workload.WorkloadGenerator;
+
+public class PointCodecTest {
+
+	private static void assertSame(LatLngArray expected, LatLngArray actual) {
+		assertEquals(expected.getPrecision(), actual.getPrecision());
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.getLatitudeFixed(i), actual.getLatitudeFixed(i));
+			assertEquals(expected.getLongitudeFixed(i), actual.getLongitudeFixed(i));
+		}
+	}
+
+	@Test
+	public void testRoundTrip() {
+		for (DegreePrecision precision : DegreePrecision.values()) {
+			LatLngArray points = new WorkloadGenerator(1, precision).uniform(1000);
+			points.add(90, 0);
+			points.add(-90, 0);
+			points.add(0, 180);
+			points.add(0, -180);
+			points.add(90, 180);
+			byte[] bytes = PointCodec.encode(points);
+			assertTrue(bytes.length <= PointCodec.maxEncodedSize(points.size()));
+			assertSame(points, PointCodec.decode(bytes));
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		LatLngArray points = new LatLngArray();
+		byte[] bytes = PointCodec.encode(points);
+		assertEquals(5, bytes.length);
+		assertSame(points, PointCodec.decode(bytes));
+	}
+
+	@Test
+	public void testBuffer() {
+		LatLngArray first = new WorkloadGenerator(2).uniform(10);
+		LatLngArray second = new WorkloadGenerator(3, DegreePrecision.E7).uniform(10);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(1000);
+		buffer.put((byte) 7);
+		PointCodec.encode(first, buffer);
+		PointCodec.encode(second, buffer);
+		PointCodec.write(new LatLng(-12.5, 100.25), buffer);
+		buffer.flip();
+		assertEquals(7, buffer.get());
+		assertSame(first, PointCodec.decode(buffer));
+		LatLngArray into = new LatLngArray();
+		into.add(1, 1);
+		assertEquals(10, PointCodec.decode(buffer, into));
+		assertEquals(11, into.size());
+		for (int i = 0; i < 10; i++)
+			assertEquals(second.toLatLng(i), into.toLatLng(i + 1));
+		assertEquals(new LatLng(-12.5, 100.25), PointCodec.read(buffer));
+		assertEquals(0, buffer.remaining());
+
+		buffer.clear();
+		PointCodec.encode(first, buffer);
+		buffer.flip();
+		assertEquals(10, PointCodec.decode(buffer, into));
+		assertEquals(21, into.size());
+		assertEquals(first.toLatLng(9), into.toLatLng(20));
+	}
+
+	@Test
+	public void testSmallerThanSerialization() throws IOException {
+		LatLngArray points = new WorkloadGenerator(4).trajectories(10, 1000, 50, LengthUnit.METER);
+		// A trajectory batch holds one object's positions in order.
+		LatLngArray batch = new LatLngArray();
+		List<LatLng> list = new ArrayList<LatLng>();
+		for (int i = 0; i < points.size(); i += 10) {
+			batch.add(points.get(i));
+			list.add(points.toLatLng(i));
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(baos);
+		oos.writeObject(list);
+		oos.close();
+		// About 4 bytes a point, against 17 for each serialized LatLng.
+		assertTrue(PointCodec.encode(batch).length * 4 < baos.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadMagic() {
+		PointCodec.decode(new byte[] { 'X', 'L', 1, 6, 0 });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadVersion() {
+		PointCodec.decode(new byte[] { 'L', 'L', 2, 6, 0 });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadPrecision() {
+		PointCodec.decode(new byte[] { 'L', 'L', 1, 4, 0 });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadCount() {
+		PointCodec.decode(new byte[] { 'L', 'L', 1, 6, -1, -1, -1, -1, 127 });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLongVarint() {
+		PointCodec.decode(new byte[] { 'L', 'L', 1, 6, -1, -1, -1, -1, -1, 1 });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOutOfRange() {
+		// A latitude of 2^31, beyond any int.
+		PointCodec.decode(new byte[] { 'L', 'L', 1, 6, 1, -128, -128, -128, -128, 16, 0 });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPoint() {
+		// A latitude of 100 degrees.
+		ByteBuffer buffer = ByteBuffer.allocate(8).putInt(100000000).putInt(0);
+		buffer.flip();
+		PointCodec.read(buffer);
+	}
+
+	@Test(expected = BufferUnderflowException.class)
+	public void testTruncated() {
+		byte[] bytes = PointCodec.encode(new WorkloadGenerator(5).uniform(3));
+		PointCodec.decode(Arrays.copyOf(bytes, bytes.length - 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeSize() {
+		PointCodec.maxEncodedSize(-1);
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.metrics.InMemoryMetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+import com.javadocmd.simplelatlng.workload.WorkloadGenerator;
+
+public class PointFileReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path file(String text) throws IOException {
+		Path path = folder.newFile().toPath();
+		Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+		return path;
+	}
+
+	private static void assertSame(LatLngArray expected, LatLngArray actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++)
+			assertEquals(expected.toLatLng(i), actual.toLatLng(i));
+	}
+
+	/**
+	 * Reads text every way: whole, in chunks of every size up to a limit, and
+	 * as a stream with a small buffer.
+	 */
+	private static LatLngArray readAll(PointFileReader reader, Path path, int maxChunk) throws IOException {
+		LatLngArray expected = reader.read(path);
+		for (int chunk = 1; chunk <= maxChunk; chunk++)
+			assertSame(expected, reader.read(path, chunk));
+		assertSame(expected, reader.read(new ByteArrayInputStream(Files.readAllBytes(path)), 4));
+		assertSame(expected, reader.read(Files.newInputStream(path)));
+		return expected;
+	}
+
+	@Test
+	public void testCsv() throws IOException {
+		Path path = file("id,name,lng,lat\r\n1,\"Sydney, NSW\",151.2093,-33.8688\r\n\r\n"
+				+ "2,London,-0.1278,\"51.5074\"\n3,\"Quoted \"\"name\"\"\",  139.6503 , 35.6762\n4,Pole,1.5e2,9e1");
+		LatLngArray points = readAll(PointFileReader.csv(3, 2, ',', true), path, 40);
+		assertEquals(4, points.size());
+		assertEquals(new LatLng(-33.8688, 151.2093), points.toLatLng(0));
+		assertEquals(new LatLng(51.5074, -0.1278), points.toLatLng(1));
+		assertEquals(new LatLng(35.6762, 139.6503), points.toLatLng(2));
+		assertEquals(new LatLng(90, 0), points.toLatLng(3));
+	}
+
+	@Test
+	public void testTabsWithoutHeader() throws IOException {
+		Path path = file("1.5\t2.5\n-3\t-4\n");
+		LatLngArray points = readAll(PointFileReader.csv(0, 1, '\t', false), path, 12);
+		assertEquals(2, points.size());
+		assertEquals(new LatLng(-3, -4), points.toLatLng(1));
+	}
+
+	@Test
+	public void testHeaderOnly() throws IOException {
+		assertEquals(0, readAll(PointFileReader.csv(0, 1, ',', true), file("lat,lng"), 8).size());
+		assertEquals(0, readAll(PointFileReader.csv(0, 1, ',', true), file(""), 1).size());
+	}
+
+	@Test
+	public void testGeoJsonLines() throws IOException {
+		Path path = file("{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[151.2093,-33.8688]},"
+				+ "\"properties\":{\"name\":\"Sydney\"}}\n"
+				+ "{ \"type\" : \"Point\", \"coordinates\" : [ -0.1278 , 51.5074 , 11.0 ] }\n\n"
+				+ "{\"coordinates\":[1E1,-2.5e-1],\"type\":\"Point\"}");
+		LatLngArray points = readAll(PointFileReader.geoJsonLines(), path, 60);
+		assertEquals(3, points.size());
+		assertEquals(new LatLng(-33.8688, 151.2093), points.toLatLng(0));
+		assertEquals(new LatLng(51.5074, -0.1278), points.toLatLng(1));
+		assertEquals(new LatLng(-0.25, 10), points.toLatLng(2));
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		LatLngArray points = new WorkloadGenerator(1).roads(5000, 10, 100, LengthUnit.METER);
+		Path csv = folder.newFile().toPath();
+		PointFileWriter.csv(';', true).write(points, csv);
+		assertSame(points, PointFileReader.csv(0, 1, ';', true).read(csv, 4096));
+		Path json = folder.newFile().toPath();
+		PointFileWriter.geoJsonLines().write(points, json);
+		assertSame(points, PointFileReader.geoJsonLines().read(json, 4096));
+	}
+
+	@Test
+	public void testMetrics() throws IOException {
+		InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+		Metrics.setRecorder(recorder);
+		try {
+			Path path = file("1,2\n3,4\n");
+			PointFileReader.csv(0, 1, ',', false).read(path);
+			PointFileReader.csv(0, 1, ',', false).read(Files.newInputStream(path));
+			PointFileWriter.csv(',', false).write(new LatLngArray(), folder.newFile().toPath());
+		} finally {
+			Metrics.setRecorder(null);
+		}
+		assertEquals(2, recorder.snapshot(SpatialOperation.READ_POINTS).getCalls());
+		assertEquals(4, recorder.snapshot(SpatialOperation.READ_POINTS).getCandidates());
+		assertEquals(1, recorder.snapshot(SpatialOperation.WRITE_POINTS).getCalls());
+	}
+
+	@Test
+	public void testInvalidLines() throws IOException {
+		// Coordinates that would wrap into range if narrowed unchecked are
+		// invalid too.
+		String[] csv = { "1,2\n3\n", "1,2\n3,abc\n", "1,2\n91,0\n", "1,2\n1,1e400\n", "1,2\n4294.967296,4295.00001\n",
+				"1,2\n0,-4294.787296\n" };
+		for (String text : csv)
+			assertInvalid(PointFileReader.csv(0, 1, ',', false), file(text), 4);
+		String[] json = { "{\"coordinates\":[1,2]}\n{\"type\":\"Point\"}", "{\"coordinates\":[1,2]}\n{\"coordinates\":1}",
+				"{\"coordinates\":[1,2]}\n{\"coordinates\"[1,2]}", "{\"coordinates\":[1,2]}\n{\"coordinates\":[1]}",
+				"{\"coordinates\":[1,2]}\n{\"coordinates\":[4295.00001,4294.967296]}" };
+		for (String text : json)
+			assertInvalid(PointFileReader.geoJsonLines(), file(text), 22);
+	}
+
+	private static void assertInvalid(PointFileReader reader, Path path, int offset) throws IOException {
+		for (int chunk : new int[] { 0, 3 }) {
+			try {
+				reader.read(path, chunk);
+				fail(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+			} catch (IllegalArgumentException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains("at byte " + offset + "."));
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testMissingFile() throws IOException {
+		PointFileReader.geoJsonLines().read(folder.getRoot().toPath().resolve("missing"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSameColumns() {
+		PointFileReader.csv(1, 1, ',', false);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDelimiter() {
+		PointFileReader.csv(0, 1, '"', false);
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.workload.WorkloadGenerator;
+
+public class PointFileWriterTest {
+
+	private static String write(PointFileWriter writer, LatLngArray points) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(points, out);
+		return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	@Test
+	public void testCsv() throws IOException {
+		LatLngArray points = new LatLngArray();
+		points.add(-33.8688, 151.2093);
+		points.add(0, -0.5);
+		assertEquals("latitude,longitude\n-33.868800,151.209300\n0.000000,-0.500000\n",
+				write(PointFileWriter.csv(',', true), points));
+		assertEquals("-33.868800\t151.209300\n0.000000\t-0.500000\n", write(PointFileWriter.csv('\t', false), points));
+		assertEquals("", write(PointFileWriter.csv(',', false), new LatLngArray()));
+	}
+
+	@Test
+	public void testGeoJsonLines() throws IOException {
+		LatLngArray points = new LatLngArray();
+		points.add(51.5074, -0.1278);
+		assertEquals("{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[-0.127800,51.507400]},"
+				+ "\"properties\":null}\n", write(PointFileWriter.geoJsonLines(), points));
+	}
+
+	@Test
+	public void testLarge() throws IOException {
+		// Many times the size of the buffer.
+		LatLngArray points = new WorkloadGenerator(1).uniform(20000);
+		String text = write(PointFileWriter.geoJsonLines(), points);
+		assertEquals(20000, text.split("\n").length);
+		assertEquals(points.toLatLng(19999), PointFileReader.geoJsonLines()
+				.read(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))).toLatLng(19999));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDelimiter() {
+		PointFileWriter.csv('.', false);
+	}
+}
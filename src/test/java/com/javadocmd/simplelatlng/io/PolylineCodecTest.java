@@ -0,0 +1,144 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+import com.javadocmd.simplelatlng.workload.WorkloadGenerator;
+
+public class PolylineCodecTest {
+
+	/** Google's documented example. */
+	private static final String EXAMPLE = "_p~iF~ps|U_ulLnnqC_mqNvxq`@";
+
+	private static LatLngArray example(DegreePrecision precision) {
+		LatLngArray points = new LatLngArray(precision, 3);
+		points.add(38.5, -120.2);
+		points.add(40.7, -120.95);
+		points.add(43.252, -126.453);
+		return points;
+	}
+
+	@Test
+	public void testExample() {
+		assertEquals(EXAMPLE, PolylineCodec.encode(example(DegreePrecision.E5), DegreePrecision.E5));
+		assertEquals(EXAMPLE, PolylineCodec.encode(example(DegreePrecision.E6), DegreePrecision.E5));
+		LatLngArray points = PolylineCodec.decode(EXAMPLE, DegreePrecision.E5);
+		assertEquals(DegreePrecision.E5, points.getPrecision());
+		assertEquals(3, points.size());
+		for (int i = 0; i < 3; i++)
+			assertEquals(example(DegreePrecision.E5).toLatLng(i), points.toLatLng(i));
+		assertEquals("", PolylineCodec.encode(new LatLngArray(), DegreePrecision.E6));
+		assertEquals(0, PolylineCodec.decode("", DegreePrecision.E6).size());
+	}
+
+	@Test
+	public void testRoundTrip() {
+		for (DegreePrecision precision : DegreePrecision.values()) {
+			LatLngArray points = new WorkloadGenerator(1, precision).trajectories(3, 300, 1, LengthUnit.KILOMETER);
+			points.add(90, 0);
+			points.add(-90, 0);
+			points.add(0, 180);
+			points.add(0, -180);
+			String polyline = PolylineCodec.encode(points, precision);
+			LatLngArray decoded = PolylineCodec.decode(polyline, precision);
+			assertEquals(points.size(), decoded.size());
+			for (int i = 0; i < points.size(); i++) {
+				assertEquals(points.getLatitudeFixed(i), decoded.getLatitudeFixed(i));
+				assertEquals(points.getLongitudeFixed(i), decoded.getLongitudeFixed(i));
+			}
+		}
+	}
+
+	@Test
+	public void testRounding() {
+		LatLngArray points = new LatLngArray(DegreePrecision.E7, 2);
+		points.add(1.0000049, -1.0000050);
+		points.add(-0.0000051, 0.0000150);
+		LatLngArray decoded = PolylineCodec.decode(PolylineCodec.encode(points, DegreePrecision.E5),
+				DegreePrecision.E5);
+		assertEquals(100000, decoded.getLatitudeFixed(0));
+		assertEquals(-100001, decoded.getLongitudeFixed(0));
+		assertEquals(-1, decoded.getLatitudeFixed(1));
+		assertEquals(2, decoded.getLongitudeFixed(1));
+	}
+
+	@Test
+	public void testDecodeInto() {
+		LatLngArray into = new LatLngArray();
+		into.add(1, 1);
+		assertEquals(3, PolylineCodec.decode(EXAMPLE, DegreePrecision.E5, into));
+		assertEquals(4, into.size());
+		assertEquals(new LatLng(43.252, -126.453), into.toLatLng(3));
+		String e6 = PolylineCodec.encode(example(DegreePrecision.E6), DegreePrecision.E6);
+		assertEquals(3, PolylineCodec.decode(e6, DegreePrecision.E6, into));
+		assertEquals(new LatLng(40.7, -120.95), into.toLatLng(5));
+	}
+
+	@Test
+	public void testDecoder() {
+		PolylineCodec.Decoder decoder = new PolylineCodec.Decoder(new StringBuilder(EXAMPLE), DegreePrecision.E5);
+		assertTrue(decoder.advance());
+		assertEquals(38.5, decoder.getLatitude(), 1e-9);
+		assertEquals(-120.2, decoder.getLongitude(), 1e-9);
+		assertTrue(decoder.advance());
+		assertEquals(new LatLng(40.7, -120.95), decoder.toLatLng());
+		assertTrue(decoder.advance());
+		assertEquals(4325200, decoder.getLatitudeFixed());
+		assertFalse(decoder.advance());
+		assertFalse(decoder.advance());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testDecoderBeforeFirst() {
+		new PolylineCodec.Decoder(EXAMPLE, DegreePrecision.E5).getLatitude();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testDecoderAfterLast() {
+		PolylineCodec.Decoder decoder = new PolylineCodec.Decoder("??", DegreePrecision.E5);
+		assertTrue(decoder.advance());
+		assertFalse(decoder.advance());
+		decoder.getLongitudeFixed();
+	}
+
+	@Test
+	public void testInvalid() {
+		String[] polylines = { "_p~iF", "_p~iF~ps|U_", "_p~i F~ps|U", "??~~~~~~~~?",
+				// A latitude of 100 degrees.
+				"_gjaR?" };
+		for (String polyline : polylines) {
+			try {
+				PolylineCodec.decode(polyline, DegreePrecision.E5);
+				throw new AssertionError(polyline);
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullPrecision() {
+		PolylineCodec.encode(new LatLngArray(), null);
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.javadocmd.simplelatlng.CompactLatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.index.SpaceFillingCurve;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+
+public class PositionLogTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Appends updates to random entities at random times, keeping the latest
+	 * of each in a map from entity to its timestamp and point.
+	 */
+	private static void append(PositionLog log, Random r, int updates, Map<Long, long[]> expected)
+			throws IOException {
+		for (int i = 0; i < updates; i++) {
+			long entity = r.nextInt(200) - 100;
+			long timestamp = r.nextInt(1000);
+			CompactLatLng point = new CompactLatLng(r.nextDouble() * 180 - 90, r.nextDouble() * 360 - 180);
+			log.append(entity, timestamp, point);
+			long[] latest = expected.get(entity);
+			if (latest == null || latest[0] <= timestamp)
+				expected.put(entity, new long[] { timestamp, point.getLatitudeFixed(), point.getLongitudeFixed() });
+		}
+	}
+
+	private static void check(Map<Long, long[]> expected, PositionLog.Positions positions) {
+		assertEquals(expected.size(), positions.size());
+		LatLngArray points = positions.getPoints();
+		for (Map.Entry<Long, long[]> entry : expected.entrySet()) {
+			int i = positions.indexOf(entry.getKey());
+			assertEquals((long) entry.getKey(), positions.getEntity(i));
+			assertEquals(entry.getValue()[0], positions.getTimestamp(i));
+			assertEquals(entry.getValue()[1], points.getLatitudeFixed(i));
+			assertEquals(entry.getValue()[2], points.getLongitudeFixed(i));
+		}
+		assertEquals(-1, positions.indexOf(1000));
+	}
+
+	private static List<String> files(Path directory) throws IOException {
+		List<String> names = new ArrayList<String>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream)
+				names.add(file.getFileName().toString());
+		}
+		Collections.sort(names);
+		return names;
+	}
+
+	@Test
+	public void testRecover() throws IOException {
+		Path directory = folder.newFolder().toPath();
+		Map<Long, long[]> expected = new HashMap<Long, long[]>();
+		Random r = new Random(48);
+		PositionLog log = PositionLog.open(directory, 100, 10);
+		append(log, r, 1050, expected);
+		check(expected, log.latest());
+		log.close();
+		assertEquals(11, files(directory).size());
+
+		log = PositionLog.open(directory, 100, 10);
+		check(expected, log.latest());
+		append(log, r, 10, expected);
+		log.sync();
+		check(expected, log.latest());
+		log.close();
+		log.close();
+	}
+
+	@Test
+	public void testTimestamps() throws IOException {
+		PositionLog log = PositionLog.open(folder.newFolder().toPath());
+		log.append(7, 20, 1, 1);
+		log.append(7, 10, 2, 2);
+		log.append(8, 5, 3, 3);
+		log.append(8, 5, 4, 4);
+		PositionLog.Positions positions = log.latest();
+		assertEquals(2, positions.size());
+		assertEquals(7, positions.getEntity(0));
+		assertEquals(20, positions.getTimestamp(0));
+		assertEquals(1, positions.getPoints().getLatitude(0), 0);
+		assertEquals(4, positions.getPoints().getLatitude(1), 0);
+		log.close();
+	}
+
+	@Test
+	public void testCompact() throws IOException {
+		Path directory = folder.newFolder().toPath();
+		Map<Long, long[]> expected = new HashMap<Long, long[]>();
+		Random r = new Random(48);
+		PositionLog log = PositionLog.open(directory, 100, 10);
+		append(log, r, 1050, expected);
+		log.compact();
+		List<String> names = files(directory);
+		assertEquals(2, names.size());
+		assertEquals("compacted-0000000000000011.log", names.get(0));
+		assertEquals("positions-0000000000000012.log", names.get(1));
+		check(expected, log.latest());
+
+		// The compacted file holds one record per entity, in geohash order.
+		ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(directory.resolve(names.get(0))))
+				.order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(8 + 28 * expected.size(), bytes.capacity());
+		long previous = -1;
+		for (int position = 8; position < bytes.capacity(); position += 28) {
+			CompactLatLng point = CompactLatLng.fromFixed(bytes.getInt(position + 16), bytes.getInt(position + 20),
+					DegreePrecision.E6);
+			long key = SpaceFillingCurve.MORTON.key(point.getLatitude(), point.getLongitude());
+			assertTrue(key >= previous);
+			previous = key;
+		}
+
+		append(log, r, 250, expected);
+		log.compact();
+		log.compact();
+		assertEquals(2, files(directory).size());
+		check(expected, log.latest());
+		log.close();
+		log = PositionLog.open(directory, 100, 10);
+		check(expected, log.latest());
+		log.close();
+	}
+
+	@Test
+	public void testCompactWhileAppending() throws Exception {
+		Path directory = folder.newFolder().toPath();
+		final Map<Long, long[]> expected = new HashMap<Long, long[]>();
+		final PositionLog log = PositionLog.open(directory, 64, 16);
+		final Exception[] failure = new Exception[1];
+		Thread appender = new Thread() {
+			@Override
+			public void run() {
+				try {
+					append(log, new Random(48), 5000, expected);
+				} catch (Exception e) {
+					failure[0] = e;
+				}
+			}
+		};
+		appender.start();
+		while (appender.isAlive())
+			log.compact();
+		appender.join();
+		if (failure[0] != null)
+			throw failure[0];
+		check(expected, log.latest());
+		log.close();
+	}
+
+	@Test
+	public void testTornWrite() throws IOException {
+		Path directory = folder.newFolder().toPath();
+		PositionLog log = PositionLog.open(directory, 100, 10);
+		for (int i = 0; i < 10; i++)
+			log.append(i, i, i, i);
+		log.close();
+		Path segment = directory.resolve(files(directory).get(0));
+		byte[] bytes = Files.readAllBytes(segment);
+		bytes[8 + 28 * 6 + 3] ^= 1;
+		Files.write(segment, bytes);
+		log = PositionLog.open(directory, 100, 10);
+		assertEquals(6, log.latest().size());
+		log.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidEntity() throws IOException {
+		PositionLog log = PositionLog.open(folder.newFolder().toPath());
+		try {
+			log.append(Long.MIN_VALUE, 0, 0, 0);
+		} finally {
+			log.close();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClosed() throws IOException {
+		PositionLog log = PositionLog.open(folder.newFolder().toPath());
+		log.close();
+		log.append(1, 0, 0, 0);
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidFile() throws IOException {
+		Path directory = folder.newFolder().toPath();
+		Files.write(directory.resolve("positions-0000000000000001.log"), new byte[3]);
+		PositionLog.open(directory).latest();
+	}
+}
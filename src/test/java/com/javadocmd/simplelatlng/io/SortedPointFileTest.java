@@ -0,0 +1,145 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.index.SpaceFillingCurve;
+import com.javadocmd.simplelatlng.metrics.InMemoryMetricsRecorder;
+import com.javadocmd.simplelatlng.metrics.Metrics;
+import com.javadocmd.simplelatlng.metrics.SpatialOperation;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+import com.javadocmd.simplelatlng.window.CircularWindow;
+import com.javadocmd.simplelatlng.window.CorridorWindow;
+import com.javadocmd.simplelatlng.window.LatLngWindow;
+import com.javadocmd.simplelatlng.window.RectangularWindow;
+import com.javadocmd.simplelatlng.workload.WorkloadGenerator;
+
+public class SortedPointFileTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SortedPointFile write(LatLngArray points, SpaceFillingCurve curve, int blockSize) throws IOException {
+		Path path = folder.newFile().toPath();
+		new SortedPointFileWriter(curve, blockSize).write(points, path);
+		return SortedPointFile.open(path);
+	}
+
+	private static int[] scan(LatLngArray points, LatLngWindow<?> window) {
+		int[] results = new int[points.size()];
+		int n = 0;
+		for (int i = 0; i < points.size(); i++)
+			if (window.contains(points, i))
+				results[n++] = i;
+		return Arrays.copyOf(results, n);
+	}
+
+	private static int[] query(SortedPointFile file, final LatLngArray points, LatLngWindow<?> window) {
+		final int[] results = new int[points.size()];
+		final int[] n = new int[1];
+		int found = file.query(window, new SortedPointFile.Visitor() {
+			@Override
+			public void visit(int index, int latitude, int longitude) {
+				assertEquals(points.getLatitudeFixed(index), latitude);
+				assertEquals(points.getLongitudeFixed(index), longitude);
+				results[n[0]++] = index;
+			}
+		});
+		assertEquals(n[0], found);
+		int[] sorted = Arrays.copyOf(results, n[0]);
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	@Test
+	public void testAgainstScan() throws IOException {
+		LatLngArray points = new WorkloadGenerator(46).uniform(30000);
+		points.addAll(new WorkloadGenerator(46).cities(10000, 20, 50, LengthUnit.KILOMETER));
+		points.add(90, 0);
+		points.add(-33.5, 180);
+		LatLngWindow<?>[] windows = { new RectangularWindow(new LatLng(40, -100), 10, 20),
+				new RectangularWindow(new LatLng(-33, 179), 6, 8), new RectangularWindow(new LatLng(0, 0), 180, 360),
+				new RectangularWindow(new LatLng(89, 0), 4, 4), new CircularWindow(new LatLng(48.85, 2.35), 3),
+				new CircularWindow(new LatLng(-16, -179), 500, LengthUnit.KILOMETER),
+				new CircularWindow(new LatLng(85, 60), 8), new CircularWindow(new LatLng(10, 10), 120),
+				new CorridorWindow(Arrays.asList(new LatLng(0, 0), new LatLng(10, 10)), 200, LengthUnit.KILOMETER) };
+		for (SpaceFillingCurve curve : SpaceFillingCurve.values()) {
+			for (int blockSize : new int[] { 1, 7, SortedPointFileWriter.DEFAULT_BLOCK_SIZE }) {
+				SortedPointFile file = write(points, curve, blockSize);
+				assertEquals(curve, file.getCurve());
+				assertEquals(points.size(), file.size());
+				assertEquals(blockSize, file.getBlockSize());
+				assertEquals((points.size() + blockSize - 1) / blockSize, file.getBlockCount());
+				for (LatLngWindow<?> window : windows) {
+					int[] expected = scan(points, window);
+					assertArrayEquals(expected, query(file, points, window));
+					assertEquals(expected.length, file.query(window).size());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSkipsBlocks() throws IOException {
+		LatLngArray points = new WorkloadGenerator(46).uniform(50000);
+		SortedPointFile file = write(points, SpaceFillingCurve.HILBERT, 64);
+		InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+		Metrics.setRecorder(recorder);
+		try {
+			file.query(new CircularWindow(new LatLng(40, -100), 5));
+		} finally {
+			Metrics.setRecorder(null);
+		}
+		// A window over a small part of the globe reads only a small part of the
+		// points.
+		assertTrue(recorder.snapshot(SpatialOperation.FILE_QUERY).getCandidates() < 2000);
+		assertTrue(recorder.snapshot(SpatialOperation.FILE_QUERY).getMatches() > 0);
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		SortedPointFile file = write(new LatLngArray(), SpaceFillingCurve.MORTON, 16);
+		assertEquals(0, file.size());
+		assertEquals(0, file.getBlockCount());
+		assertEquals(0, file.query(new RectangularWindow(new LatLng(0, 0), 180, 360)).size());
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidFile() throws IOException {
+		Path path = folder.newFile().toPath();
+		Files.write(path, new byte[] { 'S', 'L', 'P', 'B', 1, 0, 0, 0, 1, 0, 0, 0, 5, 0, 0, 0 });
+		SortedPointFile.open(path);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBlockSize() {
+		new SortedPointFileWriter(SpaceFillingCurve.MORTON, 0);
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.Geohasher;
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.cluster.Deduplicator;
+import com.javadocmd.simplelatlng.index.PointTree;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+import com.javadocmd.simplelatlng.window.CircularWindow;
+import com.javadocmd.simplelatlng.window.FilterHelper;
+import com.javadocmd.simplelatlng.window.RectangularWindow;
+
+public class InMemoryMetricsRecorderTest {
+
+	private static final FilterHelper<LatLng> IDENTITY = new FilterHelper<LatLng>() {
+		@Override
+		public LatLng getLatLng(LatLng object) {
+			return object;
+		}
+	};
+
+	@After
+	public void disable() {
+		Metrics.setRecorder(null);
+	}
+
+	@Test
+	public void testRecordsOperations() {
+		InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+		Metrics.setRecorder(recorder);
+		assertSame(recorder, Metrics.getRecorder());
+
+		List<LatLng> points = Arrays.asList(new LatLng(0, 0), new LatLng(0, 1), new LatLng(0, 2), new LatLng(10, 10));
+		RectangularWindow rectangle = new RectangularWindow(new LatLng(0, 0), 3, 3);
+		CircularWindow circle = new CircularWindow(new LatLng(0, 0), 1.5);
+
+		List<LatLng> copy = new ArrayList<LatLng>(points);
+		rectangle.filter(copy, IDENTITY);
+		rectangle.filterCopy(points, new ArrayList<LatLng>(), IDENTITY);
+		circle.filterCopySort(points, new ArrayList<LatLng>(), IDENTITY);
+		Geohasher.decode(Geohasher.hash(points.get(1)));
+		LatLngArray array = new LatLngArray();
+		array.add(1, 1);
+		array.add(2, 2);
+		LatLngTool.distances(points.get(0), array, LengthUnit.METER, new double[2]);
+		Deduplicator.group(array, 1, LengthUnit.METER);
+		new PointTree(array);
+		Geohasher.hashBits(array, 5);
+
+		InMemoryMetricsRecorder.Snapshot filter = recorder.snapshot(SpatialOperation.WINDOW_FILTER);
+		assertEquals(SpatialOperation.WINDOW_FILTER, filter.getOperation());
+		assertEquals(1, filter.getCalls());
+		assertEquals(4, filter.getCandidates());
+		assertEquals(2, filter.getMatches());
+		assertEquals(0.5, filter.getSelectivity(), 0);
+		assertEquals(2, recorder.snapshot(SpatialOperation.WINDOW_FILTER_COPY).getMatches());
+		assertEquals(2, recorder.snapshot(SpatialOperation.WINDOW_FILTER_COPY_SORT).getMatches());
+		assertEquals(1, recorder.snapshot(SpatialOperation.GEOHASH_ENCODE).getCalls());
+		assertEquals(1, recorder.snapshot(SpatialOperation.GEOHASH_DECODE).getCalls());
+		assertEquals(2, recorder.snapshot(SpatialOperation.BATCH_DISTANCE).getCandidates());
+		assertEquals(2, recorder.snapshot(SpatialOperation.DEDUPLICATE).getMatches());
+		// The deduplicator's grid index and the tree.
+		assertEquals(2, recorder.snapshot(SpatialOperation.INDEX_BUILD).getCalls());
+		assertEquals(4, recorder.snapshot(SpatialOperation.INDEX_BUILD).getCandidates());
+		assertEquals(2, recorder.snapshot(SpatialOperation.GEOHASH_BATCH_ENCODE).getMatches());
+		assertTrue(filter.getNanos() > 0);
+		assertTrue(filter.toString().startsWith("WINDOW_FILTER: 1 calls"));
+
+		recorder.reset();
+		InMemoryMetricsRecorder.Snapshot empty = recorder.snapshot(SpatialOperation.WINDOW_FILTER);
+		assertEquals(0, empty.getCalls());
+		assertTrue(Double.isNaN(empty.getSelectivity()));
+		assertTrue(Double.isNaN(empty.getMeanNanos()));
+		assertEquals(0, empty.getPercentileNanos(50));
+	}
+
+	@Test
+	public void testHistogram() {
+		InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+		for (long nanos : new long[] { 0, 1, 3, 100, 100, 100, 1000, 5000, Long.MAX_VALUE })
+			recorder.record(SpatialOperation.GEOHASH_ENCODE, 1, 1, nanos);
+		InMemoryMetricsRecorder.Snapshot s = recorder.snapshot(SpatialOperation.GEOHASH_ENCODE);
+		long[] histogram = s.getHistogram();
+		assertEquals(1, histogram[0]);
+		assertEquals(1, histogram[1]);
+		assertEquals(1, histogram[2]);
+		assertEquals(3, histogram[7]);
+		assertEquals(1, histogram[63]);
+		assertEquals(1, s.getPercentileNanos(0));
+		assertEquals(128, s.getPercentileNanos(50));
+		assertEquals(8192, s.getPercentileNanos(88));
+		assertEquals(Long.MAX_VALUE, s.getPercentileNanos(100));
+		histogram[0] = 99;
+		assertArrayEquals(new long[] { 1, 1, 1 }, Arrays.copyOf(s.getHistogram(), 3));
+	}
+
+	@Test
+	public void testDisabled() {
+		assertNull(Metrics.getRecorder());
+		// Nothing to record to, but operations still work.
+		assertEquals("s00000000000", Geohasher.hash(new LatLng(0, 0)));
+	}
+
+	@Test
+	public void testFlightRecorder() {
+		// Tests run against the Java 8 classes, where the recorder does nothing.
+		Metrics.setRecorder(new FlightRecorderMetricsRecorder());
+		assertFalse(FlightRecorderMetricsRecorder.isSupported());
+		assertEquals("s00000000000", Geohasher.hash(new LatLng(0, 0)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPercentile() {
+		new InMemoryMetricsRecorder().snapshot(SpatialOperation.BATCH_DISTANCE).getPercentileNanos(101);
+	}
+}
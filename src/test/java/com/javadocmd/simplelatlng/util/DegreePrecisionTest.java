@@ -0,0 +1,68 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class DegreePrecisionTest {
+
+	@Test
+	public void testToFixed() {
+		assertEquals(1234567, DegreePrecision.E5.toFixed(12.345678));
+		assertEquals(12345678, DegreePrecision.E6.toFixed(12.345678));
+		assertEquals(-123456780, DegreePrecision.E7.toFixed(-12.345678));
+		assertEquals(1800000000, DegreePrecision.E7.toFixed(180));
+		assertEquals(-1800000000, DegreePrecision.E7.toFixed(-180));
+		for (int i = -18000; i <= 18000; i++) {
+			assertEquals(i * 1000, DegreePrecision.E5.toFixed(i / 100.0));
+			assertEquals(i * 100000, DegreePrecision.E7.toFixed(i / 100.0));
+		}
+	}
+
+	@Test
+	public void testE6MatchesLatLngConfig() {
+		for (double d = -180; d <= 180; d += 0.0173) {
+			long internal = LatLngConfig.doubleToLong(d);
+			assertEquals(internal, DegreePrecision.E6.toFixed(d));
+			assertEquals(LatLngConfig.longToDouble(internal), DegreePrecision.E6.toDegrees((int) internal), 0);
+		}
+	}
+
+	@Test
+	public void testToDegrees() {
+		assertEquals(12.34567, DegreePrecision.E5.toDegrees(1234567), 1e-12);
+		assertEquals(12.3456789, DegreePrecision.E7.toDegrees(123456789), 1e-12);
+	}
+
+	@Test
+	public void testInternalConversions() {
+		assertEquals(-1234567, DegreePrecision.E5.fromInternal(-12345678));
+		assertEquals(-12345678, DegreePrecision.E6.fromInternal(-12345678));
+		assertEquals(-123456780, DegreePrecision.E7.fromInternal(-12345678));
+		assertEquals(-12345670, DegreePrecision.E5.toInternal(-1234567));
+		assertEquals(-12345678, DegreePrecision.E6.toInternal(-12345678));
+		assertEquals(-12345678, DegreePrecision.E7.toInternal(-123456789));
+	}
+
+	@Test
+	public void testProperties() {
+		assertEquals(5, DegreePrecision.E5.getDecimalPlaces());
+		assertEquals(1000000, DegreePrecision.E6.getScale());
+		assertEquals(LatLngConfig.DEGREE_TOLERANCE, DegreePrecision.E6.getTolerance(), 0);
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLng;
+
+public class DegreeTextTest {
+
+	private static long parseBytes(String text) {
+		byte[] bytes = ("x" + text + "y").getBytes(StandardCharsets.US_ASCII);
+		return DegreeText.parse(bytes, 1, bytes.length - 1);
+	}
+
+	@Test
+	public void testParse() {
+		String[] texts = { "0", "-0", "7", "+7", "-122.419416", "45.5", ".5", "5.", " 12.25 ", "-0.000001",
+				"180.000000", "1.23456789", "-1.23456789", "999999999999.999999" };
+		long[] expected = { 0, 0, 7000000, 7000000, -122419416, 45500000, 500000, 5000000, 12250000, -1, 180000000,
+				1234567, -1234567, 999999999999999999L };
+		for (int i = 0; i < texts.length; i++) {
+			assertEquals(texts[i], expected[i], DegreeText.parse(texts[i]));
+			assertEquals(texts[i], expected[i], parseBytes(texts[i]));
+		}
+		assertEquals(12345678, DegreeText.parse("a,12.345678,b", 2, 11));
+	}
+
+	@Test
+	public void testParseMatchesDoubles() {
+		SplittableRandom random = new SplittableRandom(1);
+		for (int i = 0; i < 10000; i++) {
+			long fixed = random.nextLong(-180000000, 180000001);
+			String text = DegreeText.toString(fixed);
+			assertEquals(fixed, DegreeText.parse(text));
+			assertEquals(Double.parseDouble(text), DegreeText.parse(text) * LatLngConfig.DEGREE_TOLERANCE, 1e-9);
+		}
+	}
+
+	@Test
+	public void testParseInvalid() {
+		String[] texts = { "", " ", "-", "+", ".", "-.", "1.2.3", "1e5", "12a", "1,5", "--1", "1 2",
+				"1234567890123" };
+		for (String text : texts) {
+			try {
+				DegreeText.parse(text);
+				throw new AssertionError(text);
+			} catch (IllegalArgumentException e) {
+			}
+			try {
+				parseBytes(text);
+				throw new AssertionError(text);
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testParseInvalidRange() {
+		DegreeText.parse("12.5", 2, 5);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testParseBytesInvalidRange() {
+		DegreeText.parse(new byte[4], 3, 2);
+	}
+
+	@Test
+	public void testFormat() {
+		NumberFormat reference = new DecimalFormat("0.000000", DecimalFormatSymbols.getInstance(Locale.US));
+		long[] values = { 0, 1, -1, 999999, -999999, 1000000, -1000000, 90000000, -180000000, 123456789, -5,
+				Long.MAX_VALUE, Long.MIN_VALUE };
+		SplittableRandom random = new SplittableRandom(2);
+		byte[] bytes = new byte[DegreeText.MAX_LENGTH + 2];
+		for (int i = 0; i < values.length + 10000; i++) {
+			long value = i < values.length ? values[i] : random.nextLong(-180000000, 180000001);
+			String text = DegreeText.toString(value);
+			if (value > -1000000000L && value < 1000000000L)
+				assertEquals(reference.format(value * LatLngConfig.DEGREE_TOLERANCE), text);
+			assertEquals("x" + text, DegreeText.format(value, new StringBuilder("x")).toString());
+			int end = DegreeText.format(value, bytes, 2);
+			assertEquals(text, new String(bytes, 2, end - 2, StandardCharsets.US_ASCII));
+		}
+		assertEquals("9223372036854.775807", DegreeText.toString(Long.MAX_VALUE));
+		assertEquals(DegreeText.MAX_LENGTH, DegreeText.toString(Long.MIN_VALUE).length());
+	}
+
+	@Test
+	public void testLatLngToString() {
+		LatLng point = new LatLng(-33.8688, 151.2093);
+		assertTrue(LatLngConfig.isDefaultDegreeFormat());
+		assertEquals("(-33.868800,151.209300)", point.toString());
+		assertEquals("(90.000000,0.000000)", new LatLng(90, 45).toString());
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IndexSortTest {
+
+	private static double[] randomDistances(Random r, int n) {
+		double[] keys = new double[n];
+		for (int i = 0; i < n; i++)
+			keys[i] = r.nextDouble() * Math.PI;
+		return keys;
+	}
+
+	private static void assertSorted(double[] original, double[] keys, int[] indices) {
+		double[] expected = original.clone();
+		Arrays.sort(expected);
+		assertArrayEquals(expected, keys, 0);
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(Double.doubleToLongBits(keys[i]), Double.doubleToLongBits(original[indices[i]]));
+			if (i > 0 && Double.compare(keys[i], keys[i - 1]) == 0)
+				assertTrue("stable", indices[i] > indices[i - 1]);
+		}
+	}
+
+	@Test
+	public void testSortDouble() {
+		Random r = new Random(1);
+		for (int n : new int[] { 0, 1, 2, 47, 48, 1000, 50000 }) {
+			double[] original = randomDistances(r, n);
+			double[] keys = original.clone();
+			int[] indices = IndexSort.identity(n);
+			IndexSort.sort(keys, indices);
+			assertSorted(original, keys, indices);
+		}
+	}
+
+	@Test
+	public void testSortDoubleSpecialValues() {
+		double[] original = new double[100];
+		for (int i = 0; i < original.length; i++)
+			original[i] = i % 10 - 5;
+		original[3] = Double.NaN;
+		original[7] = Double.POSITIVE_INFINITY;
+		original[11] = Double.NEGATIVE_INFINITY;
+		original[13] = -0.0;
+		original[17] = 0.0;
+		original[19] = Double.MIN_VALUE;
+		original[23] = -Double.MAX_VALUE;
+		double[] keys = original.clone();
+		int[] indices = IndexSort.identity(keys.length);
+		IndexSort.sort(keys, indices);
+		assertSorted(original, keys, indices);
+		assertTrue(Double.isNaN(keys[keys.length - 1]));
+		assertEquals(Double.NEGATIVE_INFINITY, keys[0], 0);
+	}
+
+	@Test
+	public void testSortDoubleRange() {
+		double[] keys = { 9, 8, 7, 6, 5, 4, 3, 2, 1 };
+		int[] indices = IndexSort.identity(keys.length);
+		IndexSort.sort(keys, indices, 2, 6);
+		assertArrayEquals(new double[] { 9, 8, 4, 5, 6, 7, 3, 2, 1 }, keys, 0);
+		assertArrayEquals(new int[] { 0, 1, 5, 4, 3, 2, 6, 7, 8 }, indices);
+	}
+
+	@Test
+	public void testSortLong() {
+		Random r = new Random(2);
+		for (int n : new int[] { 0, 5, 100, 70000 }) {
+			long[] original = new long[n];
+			for (int i = 0; i < n; i++)
+				original[i] = i % 3 == 0 ? r.nextLong() : r.nextInt(1000) - 500;
+			long[] keys = original.clone();
+			int[] indices = IndexSort.identity(n);
+			IndexSort.sort(keys, indices);
+			long[] expected = original.clone();
+			Arrays.sort(expected);
+			assertArrayEquals(expected, keys);
+			for (int i = 0; i < n; i++) {
+				assertEquals(original[indices[i]], keys[i]);
+				if (i > 0 && keys[i] == keys[i - 1])
+					assertTrue("stable", indices[i] > indices[i - 1]);
+			}
+		}
+	}
+
+	@Test
+	public void testSortLongRange() {
+		long[] keys = { 5, Long.MAX_VALUE, Long.MIN_VALUE, -1, 0, 3 };
+		int[] indices = IndexSort.identity(keys.length);
+		IndexSort.sort(keys, indices, 1, 5);
+		assertArrayEquals(new long[] { 5, Long.MIN_VALUE, -1, 0, Long.MAX_VALUE, 3 }, keys);
+		assertArrayEquals(new int[] { 0, 2, 3, 4, 1, 5 }, indices);
+	}
+
+	@Test
+	public void testParallelSortDouble() {
+		Random r = new Random(3);
+		int n = IndexSort.PARALLEL_THRESHOLD * 5 + 17;
+		double[] original = randomDistances(r, n);
+		// Plenty of duplicates to check stability across merges.
+		for (int i = 0; i < n; i += 3)
+			original[i] = Math.floor(original[i] * 10);
+		double[] keys = original.clone();
+		int[] indices = IndexSort.identity(n);
+		IndexSort.parallelSort(keys, indices);
+		assertSorted(original, keys, indices);
+
+		double[] small = { 3, 1, 2 };
+		int[] smallIndices = IndexSort.identity(3);
+		IndexSort.parallelSort(small, smallIndices, 0, 3);
+		assertArrayEquals(new int[] { 1, 2, 0 }, smallIndices);
+	}
+
+	@Test
+	public void testParallelSortLong() {
+		Random r = new Random(4);
+		int n = IndexSort.PARALLEL_THRESHOLD * 3;
+		long[] original = new long[n];
+		for (int i = 0; i < n; i++)
+			original[i] = r.nextLong();
+		long[] keys = original.clone();
+		int[] indices = IndexSort.identity(n);
+		IndexSort.parallelSort(keys, indices);
+		long[] expected = original.clone();
+		Arrays.sort(expected);
+		assertArrayEquals(expected, keys);
+		for (int i = 0; i < n; i++)
+			assertEquals(original[indices[i]], keys[i]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRange() {
+		IndexSort.sort(new double[3], new int[3], 2, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testShortIndices() {
+		IndexSort.sort(new long[3], new int[2]);
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.window;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+import com.javadocmd.simplelatlng.window.LatLngWindowTest.TestObject;
+
+public class CorridorWindowTest {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullPath() {
+		new CorridorWindow(null, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyPath() {
+		new CorridorWindow(Collections.<LatLng>emptyList(), 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullPoint() {
+		new CorridorWindow(Arrays.asList(new LatLng(0, 0), null), 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNaNRadius() {
+		new CorridorWindow(Arrays.asList(new LatLng(0, 0)), Double.NaN);
+	}
+
+	@Test
+	public void testContains() {
+		CorridorWindow w = new CorridorWindow(Arrays.asList(new LatLng(0, 0), new LatLng(0, 10)), 100,
+				LengthUnit.KILOMETER);
+		assertTrue(w.contains(new LatLng(0, 5)));
+		assertTrue(w.contains(new LatLng(0.5, 5)));
+		assertTrue(w.contains(new LatLng(-0.5, 5)));
+		assertFalse(w.contains(new LatLng(1, 5)));
+		assertFalse(w.contains(new LatLng(-1, 5)));
+		// Beyond the ends of the path we measure to the end points.
+		assertTrue(w.contains(new LatLng(0, 10.5)));
+		assertFalse(w.contains(new LatLng(0, 11)));
+		assertTrue(w.contains(new LatLng(0.5, -0.5)));
+		assertFalse(w.contains(new LatLng(0.7, -0.7)));
+		assertFalse(w.contains(new LatLng(0, -170)));
+	}
+
+	@Test
+	public void testContainsAcross180thMeridian() {
+		CorridorWindow w = new CorridorWindow(Arrays.asList(new LatLng(10, 170), new LatLng(10, -170)), 1);
+		assertTrue(w.contains(new LatLng(10, 180)));
+		assertTrue(w.contains(new LatLng(10, -175)));
+		assertFalse(w.contains(new LatLng(10, 0)));
+		assertFalse(w.contains(new LatLng(-10, 180)));
+	}
+
+	@Test
+	public void testContainsOverPole() {
+		// The great circle from (80, 0) to (80, 180) runs over the North Pole, well
+		// north of both end points.
+		CorridorWindow w = new CorridorWindow(Arrays.asList(new LatLng(80, 0), new LatLng(80, 180)), 1);
+		assertTrue(w.contains(new LatLng(90, 0)));
+		assertTrue(w.contains(new LatLng(85, 0)));
+		assertTrue(w.contains(new LatLng(89.5, 90)));
+		assertFalse(w.contains(new LatLng(85, 90)));
+	}
+
+	@Test
+	public void testSinglePointMatchesCircularWindow() {
+		LatLng center = new LatLng(33.5, -112);
+		CorridorWindow corridor = new CorridorWindow(Arrays.asList(center), 3);
+		CircularWindow circle = new CircularWindow(center, 3);
+		Random r = new Random(7);
+		for (int i = 0; i < 10000; i++) {
+			LatLng p = new LatLng(center.getLatitude() + r.nextDouble() * 8 - 4, center.getLongitude() + r.nextDouble() * 8 - 4);
+			assertEquals(p.toString(), circle.contains(p), corridor.contains(p));
+		}
+	}
+
+	@Test
+	public void testLongPathMatchesExhaustiveSearch() {
+		Random r = new Random(11);
+		List<LatLng> path = new ArrayList<LatLng>();
+		LatLng current = new LatLng(40, -100);
+		for (int i = 0; i < 10000; i++) {
+			path.add(current);
+			current = LatLngTool.travel(current, r.nextDouble() * 90, 0.5 + r.nextDouble(), LengthUnit.KILOMETER);
+		}
+		CorridorWindow w = new CorridorWindow(path, 0.2, LengthUnit.KILOMETER);
+		long radius = LatLngConfig.doubleToLong(w.getRadius());
+		int hits = 0;
+		for (int i = 0; i < 300; i++) {
+			LatLng base = path.get(r.nextInt(path.size()));
+			LatLng p = LatLngTool.travel(base, r.nextDouble() * 360, r.nextDouble() * 0.4, LengthUnit.KILOMETER);
+			boolean expected = Math.round(Math.toDegrees(w.distanceInRadians(p)) / LatLngConfig.DEGREE_TOLERANCE) <= radius;
+			assertEquals(p.toString(), expected, w.contains(p));
+			if (expected)
+				hits++;
+		}
+		assertTrue(hits > 0 && hits < 300);
+	}
+
+	@Test
+	public void testDistanceInRadians() {
+		CorridorWindow w = new CorridorWindow(Arrays.asList(new LatLng(0, 0), new LatLng(0, 10), new LatLng(10, 10)), 1);
+		assertEquals(Math.toRadians(2), w.distanceInRadians(new LatLng(2, 5)), 1e-9);
+		assertEquals(Math.toRadians(2), w.distanceInRadians(new LatLng(5, 12)), 1e-3);
+		assertEquals(0, w.distanceInRadians(new LatLng(0, 10)), 1e-9);
+	}
+
+	@Test
+	public void testRepeatedVertices() {
+		CorridorWindow w = new CorridorWindow(
+				Arrays.asList(new LatLng(0, 0), new LatLng(0, 0), new LatLng(0, 1), new LatLng(0, 1)), 0.1);
+		assertTrue(w.contains(new LatLng(0.05, 0.5)));
+		assertTrue(w.contains(new LatLng(0, 1.05)));
+		assertFalse(w.contains(new LatLng(0.2, 0.5)));
+	}
+
+	@Test
+	public void testOverlaps() {
+		CorridorWindow w1 = new CorridorWindow(Arrays.asList(new LatLng(0, 0), new LatLng(0, 10)), 1);
+		CorridorWindow w2 = new CorridorWindow(Arrays.asList(new LatLng(1.5, 0), new LatLng(1.5, 10)), 1);
+		CorridorWindow w3 = new CorridorWindow(Arrays.asList(new LatLng(3, 0), new LatLng(3, 10)), 1);
+		CorridorWindow w4 = new CorridorWindow(Arrays.asList(new LatLng(-5, 5), new LatLng(5, 5)), 0.1);
+		CorridorWindow w5 = new CorridorWindow(Arrays.asList(new LatLng(0, 12)), 1);
+		assertTrue(w1.overlaps(w1));
+		assertTrue(w1.overlaps(w2));
+		assertTrue(w2.overlaps(w1));
+		assertFalse(w1.overlaps(w3));
+		assertTrue(w2.overlaps(w3));
+		// Crossing paths overlap even when no vertex is near the other path.
+		assertTrue(w1.overlaps(w4));
+		assertTrue(w4.overlaps(w3));
+		assertTrue(w1.overlaps(w5));
+		assertFalse(w2.overlaps(w5));
+	}
+
+	@Test
+	public void testOverlapsLongPaths() {
+		List<LatLng> a = new ArrayList<LatLng>();
+		List<LatLng> b = new ArrayList<LatLng>();
+		for (int i = 0; i <= 100; i++) {
+			a.add(new LatLng(0, i * 0.1));
+			b.add(new LatLng(0.5 + i * 0.01, 20 - i * 0.1));
+		}
+		CorridorWindow w1 = new CorridorWindow(a, 0.1);
+		assertFalse(w1.overlaps(new CorridorWindow(b, 0.1)));
+		b.add(new LatLng(0.1, 9));
+		assertTrue(w1.overlaps(new CorridorWindow(b, 0.1)));
+		assertTrue(new CorridorWindow(b, 0.1).overlaps(w1));
+	}
+
+	@Test
+	public void testFilterCopy() {
+		List<TestObject> source = new ArrayList<TestObject>();
+		source.add(new TestObject(new LatLng(0, 0)));
+		source.add(new TestObject(new LatLng(0.5, 5)));
+		source.add(new TestObject(new LatLng(5, 5)));
+		source.add(new TestObject(new LatLng(0, 10.5)));
+		List<TestObject> destination = new ArrayList<TestObject>();
+		CorridorWindow w = new CorridorWindow(Arrays.asList(new LatLng(0, 0), new LatLng(0, 10)), 1);
+		w.filterCopy(source, destination, LatLngWindowTest.helper);
+		assertEquals(3, destination.size());
+	}
+
+	@Test
+	public void testGetters() {
+		List<LatLng> path = new ArrayList<LatLng>(Arrays.asList(new LatLng(0, 0), new LatLng(0, 10), new LatLng(0, 20)));
+		CorridorWindow w = new CorridorWindow(path, 100, LengthUnit.KILOMETER);
+		path.clear();
+		assertEquals(3, w.getPath().size());
+		assertEquals(new LatLng(0, 10), w.getCenter());
+		assertEquals(100, w.getRadius(LengthUnit.KILOMETER), 0.0001);
+		assertEquals(new LatLng(0, 0), new CorridorWindow(Arrays.asList(new LatLng(0, 0)), 1).getCenter());
+		assertTrue(w.toString().startsWith("vertices: 3; center: (0.000000,10.000000); radius: "));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testPathIsUnmodifiable() {
+		new CorridorWindow(Arrays.asList(new LatLng(0, 0)), 1).getPath().clear();
+	}
+}
@@ -19,15 +19,19 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
 import com.javadocmd.simplelatlng.util.LengthUnit;
 
 public class LatLngWindowTest {
@@ -152,4 +156,85 @@ public class LatLngWindowTest {
 			return point;
 		}
 	}
+
+	private static List<LatLngWindow<?>> windows() {
+		List<LatLngWindow<?>> windows = new ArrayList<LatLngWindow<?>>();
+		windows.add(new RectangularWindow(new LatLng(0, 175), 10, 20));
+		windows.add(new CircularWindow(new LatLng(0, 175), 8));
+		windows.add(new CorridorWindow(Arrays.asList(new LatLng(-10, 170), new LatLng(10, -170)), 3));
+		windows.add(new LatLngWindow<RectangularWindow>() {
+			private final RectangularWindow delegate = new RectangularWindow(new LatLng(5, 180), 10, 10);
+
+			@Override
+			public LatLng getCenter() {
+				return delegate.getCenter();
+			}
+
+			@Override
+			public boolean contains(LatLng point) {
+				return delegate.contains(point);
+			}
+
+			@Override
+			public boolean overlaps(RectangularWindow window) {
+				return delegate.overlaps(window);
+			}
+		});
+		return windows;
+	}
+
+	@Test
+	public void testContainsCompactPoints() {
+		Random r = new Random(17);
+		LatLngArray points = new LatLngArray(DegreePrecision.E6, 0);
+		for (int i = 0; i < 5000; i++) {
+			points.add(r.nextDouble() * 40 - 20, r.nextDouble() * 40 + 160);
+		}
+		for (LatLngWindow<?> w : windows()) {
+			int hits = 0;
+			for (int i = 0; i < points.size(); i++) {
+				boolean expected = w.contains(points.toLatLng(i));
+				assertEquals(expected, w.contains(points, i));
+				assertEquals(expected, w.contains(points.get(i)));
+				assertEquals(expected, w.contains(points.getLatitudeFixed(i), points.getLongitudeFixed(i),
+						points.getPrecision()));
+				if (expected)
+					hits++;
+			}
+			assertTrue(hits > 0);
+		}
+	}
+
+	@Test
+	public void testContainsFinePointsAtEdges() {
+		for (LatLngWindow<?> w : windows()) {
+			// Find the northern edge north of the center, to LatLng's precision.
+			long longitude = w.getCenter().getLongitudeInternal();
+			long inside = w.getCenter().getLatitudeInternal();
+			long outside = inside + 30000000L;
+			while (outside - inside > 1) {
+				long middle = (inside + outside) / 2;
+				if (w.contains(LatLng.fromInternal(middle, longitude)))
+					inside = middle;
+				else
+					outside = middle;
+			}
+			// Points finer than LatLng's precision on either side of the edge are
+			// inside exactly when their LatLng is, whichever way they are given.
+			LatLngArray points = new LatLngArray(DegreePrecision.E7, 0);
+			for (long fixed = inside * 10 - 25; fixed <= inside * 10 + 25; fixed++)
+				points.addFixed((int) fixed, (int) (longitude * 10));
+			int hits = 0;
+			for (int i = 0; i < points.size(); i++) {
+				boolean expected = w.contains(points.toLatLng(i));
+				assertEquals(expected, w.contains(points, i));
+				assertEquals(expected, w.contains(points.get(i)));
+				assertEquals(expected, w.contains(points.getLatitudeFixed(i), points.getLongitudeFixed(i),
+						points.getPrecision()));
+				if (expected)
+					hits++;
+			}
+			assertEquals(35, hits);
+		}
+	}
 }
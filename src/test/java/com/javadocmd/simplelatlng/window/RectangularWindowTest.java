@@ -374,4 +374,16 @@ public class RectangularWindowTest {
 		RectangularWindow w = new RectangularWindow(new LatLng(45, -67.5), 30, 45);
 		assertEquals(45, w.getLongitudeDelta(), LatLngConfig.DEGREE_TOLERANCE);
 	}
+
+	@Test
+	public void testMayOverlapBounds() {
+		RectangularWindow w = new RectangularWindow(new LatLng(10, 20), 10, 10);
+		assertTrue(w.mayOverlapBounds(0, 6000000, 0, 16000000));
+		assertFalse(w.mayOverlapBounds(0, 4000000, 0, 16000000));
+		assertFalse(w.mayOverlapBounds(0, 6000000, 26000000, 30000000));
+		RectangularWindow crossing = new RectangularWindow(new LatLng(0, 180), 10, 10);
+		assertTrue(crossing.mayOverlapBounds(0, 1, 176000000, 179000000));
+		assertTrue(crossing.mayOverlapBounds(0, 1, -179000000, -176000000));
+		assertFalse(crossing.mayOverlapBounds(0, 1, -170000000, 170000000));
+	}
 }
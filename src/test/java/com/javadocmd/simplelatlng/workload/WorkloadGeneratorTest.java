@@ -0,0 +1,149 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.workload;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.LatLngTool;
+import com.javadocmd.simplelatlng.cluster.Deduplicator;
+import com.javadocmd.simplelatlng.util.DegreePrecision;
+import com.javadocmd.simplelatlng.util.LatLngConfig;
+import com.javadocmd.simplelatlng.util.LengthUnit;
+
+public class WorkloadGeneratorTest {
+
+	private static void assertSame(LatLngArray expected, LatLngArray actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.getLatitudeFixed(i), actual.getLatitudeFixed(i));
+			assertEquals(expected.getLongitudeFixed(i), actual.getLongitudeFixed(i));
+		}
+	}
+
+	private static double distance(LatLngArray points, int i, int j) {
+		return LatLngTool.distanceInRadians(points.getLatitude(i), points.getLongitude(i), points.getLatitude(j),
+				points.getLongitude(j)) * LatLngConfig.getEarthRadius(LengthUnit.KILOMETER);
+	}
+
+	@Test
+	public void testReproducible() {
+		WorkloadGenerator generator = new WorkloadGenerator(42);
+		assertSame(generator.uniform(100000), generator.uniform(100000));
+		assertSame(generator.cities(50000, 20, 5, LengthUnit.KILOMETER),
+				new WorkloadGenerator(42).cities(50000, 20, 5, LengthUnit.KILOMETER));
+		assertSame(generator.roads(50000, 7, 100, LengthUnit.METER), generator.roads(50000, 7, 100, LengthUnit.METER));
+		assertSame(generator.trajectories(5000, 10, 1, LengthUnit.KILOMETER),
+				generator.trajectories(5000, 10, 1, LengthUnit.KILOMETER));
+		assertNotEquals(generator.uniform(10).getLatitudeFixed(0),
+				new WorkloadGenerator(43).uniform(10).getLatitudeFixed(0));
+	}
+
+	@Test
+	public void testUniformOnSphere() {
+		LatLngArray points = new WorkloadGenerator(1, DegreePrecision.E5).uniform(100000);
+		assertEquals(100000, points.size());
+		assertEquals(DegreePrecision.E5, points.getPrecision());
+		// Half of the sphere's area lies more than 30 degrees from the equator.
+		int high = 0;
+		for (int i = 0; i < points.size(); i++)
+			if (Math.abs(points.getLatitude(i)) > 30)
+				high++;
+		assertEquals(0.5, high / 100000.0, 0.01);
+	}
+
+	@Test
+	public void testCities() {
+		LatLngArray points = new WorkloadGenerator(2).cities(20000, 10, 1, LengthUnit.KILOMETER);
+		assertEquals(20000, points.size());
+		// Points within a few kilometers of their city merge into one group each.
+		assertEquals(10, Deduplicator.countGroups(Deduplicator.group(points, 50, LengthUnit.KILOMETER)));
+	}
+
+	@Test
+	public void testRoads() {
+		LatLngArray points = new WorkloadGenerator(3).roads(1000, 3, 100, LengthUnit.METER);
+		assertEquals(1000, points.size());
+		int far = 0;
+		for (int i = 1; i < points.size(); i++) {
+			double d = distance(points, i - 1, i);
+			if (d > 0.101)
+				far++;
+			else
+				assertEquals(0.1, d, 0.001);
+		}
+		// Only the jumps between roads are far apart.
+		assertEquals(2, far);
+	}
+
+	@Test
+	public void testTrajectories() {
+		int objects = 100;
+		LatLngArray points = new WorkloadGenerator(4).trajectories(objects, 50, 2, LengthUnit.KILOMETER);
+		assertEquals(5000, points.size());
+		int still = 0;
+		for (int i = objects; i < points.size(); i++) {
+			double d = distance(points, i - objects, i);
+			assertTrue(d <= 3.001);
+			if (d == 0)
+				still++;
+			else
+				assertTrue(d >= 0.999);
+		}
+		assertEquals(0.1, still / 4900.0, 0.03);
+	}
+
+	@Test
+	public void testEmpty() {
+		assertEquals(0, new WorkloadGenerator(5).uniform(0).size());
+		assertEquals(0, new WorkloadGenerator(5).roads(0, 1, 1, LengthUnit.METER).size());
+		assertEquals(0, new WorkloadGenerator(5).trajectories(0, 10, 1, LengthUnit.METER).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeSize() {
+		new WorkloadGenerator(6).uniform(-1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoCities() {
+		new WorkloadGenerator(6).cities(10, 0, 1, LengthUnit.METER);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoRoads() {
+		new WorkloadGenerator(6).roads(10, 0, 1, LengthUnit.METER);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDistance() {
+		new WorkloadGenerator(6).roads(10, 1, Double.NaN, LengthUnit.METER);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyPoints() {
+		new WorkloadGenerator(6).trajectories(1 << 16, 1 << 16, 1, LengthUnit.METER);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullPrecision() {
+		new WorkloadGenerator(6, null);
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ *    Copyright 2010 Tyler Coles
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.javadocmd.simplelatlng.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.javadocmd.simplelatlng.Geohasher;
+import com.javadocmd.simplelatlng.LatLng;
+import com.javadocmd.simplelatlng.LatLngArray;
+import com.javadocmd.simplelatlng.index.PointTree;
+import com.javadocmd.simplelatlng.workload.WorkloadGenerator;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class FlightRecorderMetricsRecorderTest {
+
+	private static final String EVENT = "com.javadocmd.simplelatlng.SpatialOperation";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Runs the given operations while recording, and reads back the events.
+	 */
+	private List<RecordedEvent> record(Runnable operations) throws IOException {
+		Path file = folder.newFile("metrics.jfr").toPath();
+		try (Recording recording = new Recording()) {
+			recording.enable(EVENT);
+			recording.start();
+			operations.run();
+			recording.stop();
+			recording.dump(file);
+		}
+		List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+		for (RecordedEvent event : RecordingFile.readAllEvents(file))
+			if (event.getEventType().getName().equals(EVENT))
+				events.add(event);
+		return events;
+	}
+
+	@Test
+	public void testEventFields() throws IOException {
+		assertTrue(FlightRecorderMetricsRecorder.isSupported());
+		final FlightRecorderMetricsRecorder recorder = new FlightRecorderMetricsRecorder();
+		List<RecordedEvent> events = record(new Runnable() {
+			@Override
+			public void run() {
+				recorder.record(SpatialOperation.BATCH_DISTANCE, 200, 50, 12345);
+				recorder.record(SpatialOperation.WINDOW_FILTER, 0, 0, 7);
+			}
+		});
+		assertEquals(2, events.size());
+		RecordedEvent event = events.get(0);
+		assertEquals("BATCH_DISTANCE", event.getString("operation"));
+		assertEquals(200, event.getLong("candidates"));
+		assertEquals(50, event.getLong("matches"));
+		assertEquals(0.25, event.getDouble("selectivity"), 0);
+		assertEquals(Duration.ofNanos(12345), event.getDuration("elapsed"));
+		event = events.get(1);
+		assertEquals("WINDOW_FILTER", event.getString("operation"));
+		assertTrue(Double.isNaN(event.getDouble("selectivity")));
+		assertEquals(Duration.ofNanos(7), event.getDuration("elapsed"));
+	}
+
+	@Test
+	public void testLibraryOperations() throws IOException {
+		final LatLngArray points = new WorkloadGenerator(34).uniform(100);
+		Metrics.setRecorder(new FlightRecorderMetricsRecorder());
+		List<RecordedEvent> events;
+		try {
+			events = record(new Runnable() {
+				@Override
+				public void run() {
+					// Single hashes are left out; the batch and the build are not.
+					Geohasher.hash(new LatLng(0, 0));
+					Geohasher.decode("s00000000000");
+					Geohasher.hashBits(points, 12);
+					new PointTree(points);
+				}
+			});
+		} finally {
+			Metrics.setRecorder(null);
+		}
+		assertEquals(2, events.size());
+		assertEquals("GEOHASH_BATCH_ENCODE", events.get(0).getString("operation"));
+		assertEquals(100, events.get(0).getLong("candidates"));
+		assertEquals("INDEX_BUILD", events.get(1).getString("operation"));
+		assertEquals(100, events.get(1).getLong("matches"));
+		assertEquals(1, events.get(1).getDouble("selectivity"), 0);
+	}
+}